@@ -0,0 +1,55 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "http.client")
+public class HttpClientProperties {
+
+    /**
+     * The maximum number of pooled connections in total.
+     */
+    private int maxTotalConnections = 200;
+
+    /**
+     * The maximum number of pooled connections per route (target host).
+     */
+    private int maxConnectionsPerRoute = 50;
+
+    /**
+     * The time (in milliseconds) a connection is kept alive if the server doesn't
+     * send a Keep-Alive header.
+     */
+    private long keepAlive = 30000;
+
+    /**
+     * The time (in milliseconds) after which idle connections get evicted from the pool.
+     */
+    private long maxIdleTime = 60000;
+
+    /**
+     * The time (in milliseconds) of inactivity after which a pooled connection is
+     * validated before it's leased again.
+     */
+    private int validateAfterInactivity = 2000;
+
+}
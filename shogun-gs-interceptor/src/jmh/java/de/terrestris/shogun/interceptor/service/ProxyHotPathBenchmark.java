@@ -0,0 +1,108 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.service;
+
+import de.terrestris.shogun.interceptor.servlet.MutableHttpServletRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per request work of the proxy hot path: wrapping the request,
+ * building the upstream URI of a GetMap request and filtering the upstream
+ * response headers. Run with the gc profiler (as configured in the jmh
+ * profile) to compare the allocated bytes per operation (gc.alloc.rate.norm).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProxyHotPathBenchmark {
+
+    private static final String BASE_URI = "http://localhost:8080/geoserver/SHOGUN/ows";
+
+    private MockHttpServletRequest request;
+
+    private Map<String, String[]> parameters;
+
+    private HttpHeaders upstreamHeaders;
+
+    @Setup
+    public void setUp() {
+        parameters = new LinkedHashMap<>();
+        parameters.put("SERVICE", new String[]{"WMS"});
+        parameters.put("VERSION", new String[]{"1.3.0"});
+        parameters.put("REQUEST", new String[]{"GetMap"});
+        parameters.put("FORMAT", new String[]{"image/png"});
+        parameters.put("TRANSPARENT", new String[]{"true"});
+        parameters.put("LAYERS", new String[]{"SHOGUN:roads,SHOGUN:buildings"});
+        parameters.put("STYLES", new String[]{""});
+        parameters.put("CRS", new String[]{"EPSG:3857"});
+        parameters.put("WIDTH", new String[]{"256"});
+        parameters.put("HEIGHT", new String[]{"256"});
+        parameters.put("BBOX", new String[]{"782715.16,6887893.49,792499.1,6897677.42"});
+        parameters.put("TILED", new String[]{"true"});
+        parameters.put("_dc", new String[]{"1618000000000"});
+
+        request = new MockHttpServletRequest("GET", "/geoserver.action/SHOGUN/ows");
+        request.setParameters(parameters);
+
+        upstreamHeaders = new HttpHeaders();
+        upstreamHeaders.add("Date", "Mon, 12 Apr 2021 10:00:00 GMT");
+        upstreamHeaders.add("Server", "Jetty(9.4.18.v20190429)");
+        upstreamHeaders.add("X-Frame-Options", "SAMEORIGIN");
+        upstreamHeaders.add("Content-Type", "image/png");
+        upstreamHeaders.add("Content-Length", "18231");
+        upstreamHeaders.add("Content-Disposition", "inline; filename=SHOGUN-roads.png");
+        upstreamHeaders.add("Cache-Control", "max-age=3600, must-revalidate");
+        upstreamHeaders.add("geowebcache-cache-result", "HIT");
+        upstreamHeaders.add("Vary", "Accept-Encoding");
+    }
+
+    @Benchmark
+    public Map<String, String[]> wrapRequest() {
+        return new MutableHttpServletRequest(request).getParameterMap();
+    }
+
+    @Benchmark
+    public URI upstreamGetMapUri() throws URISyntaxException {
+        return GeoServerInterceptorService.getFullRequestURI(BASE_URI, parameters);
+    }
+
+    @Benchmark
+    public HttpHeaders forwardResponseHeaders() {
+        return GeoServerInterceptorService.getResponseHeadersToForward(upstreamHeaders);
+    }
+
+}
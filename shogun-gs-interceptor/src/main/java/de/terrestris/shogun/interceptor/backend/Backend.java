@@ -0,0 +1,173 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.backend;
+
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.lang3.StringUtils;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A single GeoServer instance serving a namespace, including its (active and
+ * passive) health state.
+ */
+@Log4j2
+public class Backend {
+
+    private static final String WMS_REFLECT_ENDPOINT = "/reflect";
+
+    @Getter
+    private final String namespace;
+
+    @Getter
+    private final String url;
+
+    @Getter
+    private final int weight;
+
+    private final URI baseUri;
+
+    private final URI reflectBaseUri;
+
+    private final int ejectionThreshold;
+
+    private final long ejectionTime;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    private final AtomicInteger consecutiveProbes = new AtomicInteger();
+
+    private volatile boolean healthy = true;
+
+    private volatile long ejectedUntil = 0;
+
+    /**
+     * @throws IllegalArgumentException If the given url is not a valid URI
+     */
+    public Backend(String namespace, String url, int weight, int ejectionThreshold, long ejectionTime) {
+        this.namespace = namespace;
+        this.url = url;
+        this.weight = Math.max(weight, 1);
+        this.ejectionThreshold = ejectionThreshold;
+        this.ejectionTime = ejectionTime;
+
+        try {
+            this.baseUri = new URI(url);
+            this.reflectBaseUri = new URI(getReflectUrl(url));
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Invalid GeoServer URL " + url + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @param url The GeoServer OWS or WMS URL
+     * @return The URL of the WMS reflector endpoint of the given URL
+     */
+    private static String getReflectUrl(String url) {
+        if (StringUtils.endsWithIgnoreCase(url, "ows")) {
+            return url.substring(0, url.length() - 3) + "wms" + WMS_REFLECT_ENDPOINT;
+        } else if (StringUtils.endsWithIgnoreCase(url, "wms")) {
+            return url + WMS_REFLECT_ENDPOINT;
+        }
+        return url;
+    }
+
+    /**
+     * @param useWmsReflector Whether the WMS reflector endpoint should be called
+     * @return The (prebuilt) base URI of the backend
+     */
+    public URI getBaseUri(boolean useWmsReflector) {
+        return useWmsReflector ? reflectBaseUri : baseUri;
+    }
+
+    /**
+     * @return Whether the backend is healthy and not ejected
+     */
+    public boolean isAvailable() {
+        return healthy && System.currentTimeMillis() >= ejectedUntil;
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    public boolean isEjected() {
+        return System.currentTimeMillis() < ejectedUntil;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Marks the start of a request to this backend.
+     */
+    public void requestStarted() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * Marks the end of a request to this backend.
+     *
+     * @param success Whether the backend answered the request properly
+     */
+    public void requestFinished(boolean success) {
+        inFlight.decrementAndGet();
+
+        if (success) {
+            consecutiveFailures.set(0);
+            return;
+        }
+
+        if (ejectionThreshold > 0 && consecutiveFailures.incrementAndGet() >= ejectionThreshold) {
+            consecutiveFailures.set(0);
+            ejectedUntil = System.currentTimeMillis() + ejectionTime;
+            log.warn("Ejected GeoServer backend {} of namespace {} for {} ms after {} consecutive failures",
+                url, namespace, ejectionTime, ejectionThreshold);
+        }
+    }
+
+    /**
+     * Records the result of an active health probe.
+     *
+     * @param success Whether the probe succeeded
+     * @param threshold The number of consecutive probes with the same result needed to change the health state
+     */
+    public void probed(boolean success, int threshold) {
+        if (success == healthy) {
+            consecutiveProbes.set(0);
+            return;
+        }
+
+        if (consecutiveProbes.incrementAndGet() >= Math.max(threshold, 1)) {
+            consecutiveProbes.set(0);
+            healthy = success;
+            log.info("GeoServer backend {} of namespace {} is {}", url, namespace,
+                success ? "healthy again" : "unhealthy");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return url;
+    }
+}
@@ -0,0 +1,172 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.backend;
+
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The GeoServer backends serving a namespace.
+ */
+@Log4j2
+public class BackendPool {
+
+    /**
+     * The number of points per weight unit a backend occupies on the hash ring.
+     */
+    private static final int VIRTUAL_NODES = 100;
+
+    @Getter
+    private final String namespace;
+
+    @Getter
+    private final BalancingStrategy strategy;
+
+    @Getter
+    private final List<Backend> backends;
+
+    private final int totalWeight;
+
+    private final NavigableMap<Long, Backend> hashRing = new TreeMap<>();
+
+    private final AtomicLong counter = new AtomicLong();
+
+    public BackendPool(String namespace, BalancingStrategy strategy, List<Backend> backends) {
+        this.namespace = namespace;
+        this.strategy = strategy != null ? strategy : BalancingStrategy.LEAST_IN_FLIGHT;
+        this.backends = Collections.unmodifiableList(new ArrayList<>(backends));
+        this.totalWeight = backends.stream().mapToInt(Backend::getWeight).sum();
+
+        if (this.strategy == BalancingStrategy.LAYER_HASH) {
+            for (Backend backend : backends) {
+                for (int i = 0; i < VIRTUAL_NODES * backend.getWeight(); i++) {
+                    hashRing.put(hash(backend.getUrl() + "#" + i), backend);
+                }
+            }
+        }
+    }
+
+    /**
+     * Selects the backend for the next request. If no backend is available,
+     * all backends are considered (to avoid failing all requests when e.g. the
+     * health checks are misconfigured).
+     *
+     * @param layer The (qualified) layer name of the request, used for consistent hashing
+     * @return The selected backend
+     */
+    public Backend select(String layer) {
+        if (backends.size() == 1) {
+            return backends.get(0);
+        }
+
+        List<Backend> candidates = new ArrayList<>(backends.size());
+        for (Backend backend : backends) {
+            if (backend.isAvailable()) {
+                candidates.add(backend);
+            }
+        }
+
+        if (candidates.isEmpty()) {
+            log.warn("No available GeoServer backend for namespace {}, considering all backends", namespace);
+            candidates = backends;
+        }
+
+        switch (strategy) {
+            case WEIGHTED_ROUND_ROBIN:
+                return selectWeightedRoundRobin(candidates);
+            case LAYER_HASH:
+                return selectByHash(candidates, layer);
+            case LEAST_IN_FLIGHT:
+            default:
+                return selectLeastInFlight(candidates);
+        }
+    }
+
+    /**
+     * Selects another backend than the given one, e.g. for a hedged request.
+     *
+     * @param excluded The backend to exclude
+     * @return The available backend with the least load or null if there is none
+     */
+    public Backend selectAlternative(Backend excluded) {
+        List<Backend> candidates = new ArrayList<>(backends.size());
+        for (Backend backend : backends) {
+            if (backend != excluded && backend.isAvailable()) {
+                candidates.add(backend);
+            }
+        }
+        return candidates.isEmpty() ? null : selectLeastInFlight(candidates);
+    }
+
+    private Backend selectLeastInFlight(List<Backend> candidates) {
+        Backend selected = null;
+        double minLoad = Double.MAX_VALUE;
+        // start at a rotating offset to spread the requests among equally loaded backends
+        int offset = (int) (counter.getAndIncrement() % candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            Backend backend = candidates.get((offset + i) % candidates.size());
+            double load = (double) backend.getInFlight() / backend.getWeight();
+            if (load < minLoad) {
+                minLoad = load;
+                selected = backend;
+            }
+        }
+        return selected;
+    }
+
+    private Backend selectWeightedRoundRobin(List<Backend> candidates) {
+        int weight = candidates == backends ? totalWeight : candidates.stream().mapToInt(Backend::getWeight).sum();
+        long position = counter.getAndIncrement() % weight;
+        for (Backend backend : candidates) {
+            position -= backend.getWeight();
+            if (position < 0) {
+                return backend;
+            }
+        }
+        return candidates.get(0);
+    }
+
+    private Backend selectByHash(List<Backend> candidates, String layer) {
+        if (layer == null) {
+            return selectLeastInFlight(candidates);
+        }
+
+        long hash = hash(layer.toLowerCase(Locale.ROOT));
+        // walk the ring clockwise until an available backend is found
+        for (Backend backend : hashRing.tailMap(hash).values()) {
+            if (candidates.contains(backend)) {
+                return backend;
+            }
+        }
+        for (Backend backend : hashRing.headMap(hash).values()) {
+            if (candidates.contains(backend)) {
+                return backend;
+            }
+        }
+        return candidates.get(0);
+    }
+
+    private static long hash(String value) {
+        return ByteBuffer.wrap(DigestUtils.md5(value.getBytes(StandardCharsets.UTF_8))).getLong();
+    }
+}
@@ -0,0 +1,33 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.backend;
+
+public enum BalancingStrategy {
+    /**
+     * Picks the backend with the fewest requests in flight (relative to its weight).
+     */
+    LEAST_IN_FLIGHT,
+    /**
+     * Distributes the requests in proportion to the backend weights.
+     */
+    WEIGHTED_ROUND_ROBIN,
+    /**
+     * Sends all requests for the same layer to the same backend (consistent
+     * hashing) to make the best use of the backend's tile and data caches.
+     */
+    LAYER_HASH
+}
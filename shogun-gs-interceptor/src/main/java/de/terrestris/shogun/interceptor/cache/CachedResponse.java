@@ -0,0 +1,140 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.cache;
+
+import de.terrestris.shogun.lib.dto.HttpResponse;
+import lombok.Getter;
+import org.apache.http.Header;
+import org.apache.http.message.BasicHeader;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A cached GeoServer response, held in memory or spilled to a file.
+ */
+@Getter
+class CachedResponse {
+
+    private final HttpStatus statusCode;
+
+    private final HttpHeaders headers;
+
+    private final long size;
+
+    private final long expiresAt;
+
+    private final byte[] body;
+
+    private final Path file;
+
+    CachedResponse(HttpResponse response, long expiresAt) {
+        this.statusCode = response.getStatusCode();
+        this.headers = HttpHeaders.readOnlyHttpHeaders(copyHeaders(response.getHeaders()));
+        this.body = response.getBody() != null ? response.getBody().clone() : new byte[0];
+        this.file = null;
+        this.size = body.length;
+        this.expiresAt = expiresAt;
+    }
+
+    private CachedResponse(CachedResponse other, byte[] body, Path file, long expiresAt) {
+        this.statusCode = other.statusCode;
+        this.headers = other.headers;
+        this.body = body;
+        this.file = file;
+        this.size = other.size;
+        this.expiresAt = expiresAt;
+    }
+
+    private static HttpHeaders copyHeaders(HttpHeaders headers) {
+        HttpHeaders copy = new HttpHeaders();
+        if (headers != null) {
+            copy.putAll(headers);
+        }
+        return copy;
+    }
+
+    /**
+     * @param expiresAt The new expiry timestamp
+     * @return A copy of this response with the given expiry timestamp
+     */
+    CachedResponse withExpiry(long expiresAt) {
+        return new CachedResponse(this, body, file, expiresAt);
+    }
+
+    boolean isFresh(long now) {
+        return now < expiresAt;
+    }
+
+    boolean isSpilled() {
+        return file != null;
+    }
+
+    /**
+     * @return The headers to revalidate this response with
+     */
+    Header[] getConditionalHeaders() {
+        List<Header> conditionalHeaders = new ArrayList<>();
+        if (headers.getETag() != null) {
+            conditionalHeaders.add(new BasicHeader(HttpHeaders.IF_NONE_MATCH, headers.getETag()));
+        }
+        String lastModified = headers.getFirst(HttpHeaders.LAST_MODIFIED);
+        if (lastModified != null) {
+            conditionalHeaders.add(new BasicHeader(HttpHeaders.IF_MODIFIED_SINCE, lastModified));
+        }
+        return conditionalHeaders.toArray(new Header[0]);
+    }
+
+    boolean isRevalidatable() {
+        return headers.getETag() != null || headers.getFirst(HttpHeaders.LAST_MODIFIED) != null;
+    }
+
+    /**
+     * Writes the body to the given file.
+     *
+     * @return A copy of this response not holding the body in memory
+     */
+    CachedResponse spill(Path target) throws IOException {
+        Files.write(target, body);
+        return new CachedResponse(this, null, target, expiresAt);
+    }
+
+    void deleteFile() {
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // the spill directory is cleaned up on startup
+            }
+        }
+    }
+
+    /**
+     * @return A new {@link HttpResponse} (with copies of headers and body)
+     * @throws IOException If a spilled body could not be read
+     */
+    HttpResponse toHttpResponse() throws IOException {
+        byte[] responseBody = file != null ? Files.readAllBytes(file) : body.clone();
+        return new HttpResponse(statusCode, copyHeaders(headers), responseBody);
+    }
+
+}
@@ -0,0 +1,410 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.cache;
+
+import de.terrestris.shogun.interceptor.config.properties.CacheProperties;
+import de.terrestris.shogun.interceptor.config.properties.InterceptorProperties;
+import de.terrestris.shogun.interceptor.exception.InterceptorException;
+import de.terrestris.shogun.interceptor.message.OgcMessage;
+import de.terrestris.shogun.lib.dto.HttpResponse;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A cache for GeoServer responses of cacheable operations (e.g. GetCapabilities).
+ *
+ * The cache holds the upstream responses (i.e. before any response interceptor
+ * has been applied) and is bounded by bytes. Responses evicted from memory are
+ * spilled to disk if a spill directory is configured. Expired responses carrying
+ * an ETag or a Last-Modified header are revalidated with a conditional request.
+ */
+@Component
+@Log4j2
+public class InterceptorResponseCache {
+
+    private static final Header[] NO_HEADERS = new Header[0];
+
+    private static final String SPILL_FILE_SUFFIX = ".cache";
+
+    /**
+     * Loads a response from the GeoServer.
+     */
+    @FunctionalInterface
+    public interface UpstreamLoader {
+
+        /**
+         * @param conditionalHeaders Headers to add to the upstream request
+         * @return The upstream response
+         */
+        HttpResponse load(Header[] conditionalHeaders) throws InterceptorException, HttpException;
+    }
+
+    @Autowired
+    protected InterceptorProperties interceptorProperties;
+
+    /**
+     * Guards both entry maps and byte counters.
+     */
+    private final Object lock = new Object();
+
+    private final LinkedHashMap<ResponseCacheKey, CachedResponse> memoryEntries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LinkedHashMap<ResponseCacheKey, CachedResponse> diskEntries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long memoryBytes;
+
+    private long diskBytes;
+
+    private final AtomicLong spillFileCount = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder revalidations = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final LongAdder spills = new LongAdder();
+
+    private Path spillDirectory;
+
+    @PostConstruct
+    public void init() {
+        CacheProperties properties = getProperties();
+        if (!properties.isEnabled() || StringUtils.isEmpty(properties.getSpillDirectory())) {
+            return;
+        }
+
+        try {
+            Path directory = Paths.get(properties.getSpillDirectory());
+            Files.createDirectories(directory);
+
+            // remove the files of a previous run
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SPILL_FILE_SUFFIX)) {
+                for (Path file : files) {
+                    Files.deleteIfExists(file);
+                }
+            }
+
+            spillDirectory = directory;
+            log.info("Spilling cached GeoServer responses to {}", directory);
+        } catch (IOException e) {
+            log.error("Could not use {} as spill directory, cached responses won't be spilled: {}",
+                properties.getSpillDirectory(), e.getMessage());
+        }
+    }
+
+    private CacheProperties getProperties() {
+        return interceptorProperties.getCache();
+    }
+
+    /**
+     * @param message The OGC message of the request
+     * @param method  The HTTP method of the request
+     * @return Whether the response of the given request may be cached
+     */
+    public boolean isCacheable(OgcMessage message, String method) {
+        CacheProperties properties = getProperties();
+        return properties.isEnabled() &&
+            ("GET".equalsIgnoreCase(method) || "POST".equalsIgnoreCase(method)) &&
+            message.getOperation() != null &&
+            properties.getOperations().contains(message.getOperation());
+    }
+
+    /**
+     * Returns the cached response for the given key or loads (and caches) it
+     * with the given loader if it is missing or expired.
+     *
+     * @param key    The cache key
+     * @param loader The loader for the upstream response
+     * @return A copy of the (cached) response
+     * @throws InterceptorException
+     * @throws HttpException
+     */
+    public HttpResponse getOrLoad(ResponseCacheKey key, UpstreamLoader loader) throws InterceptorException, HttpException {
+        long now = System.currentTimeMillis();
+        CachedResponse cached = lookup(key);
+
+        if (cached != null && cached.isFresh(now)) {
+            HttpResponse response = read(key, cached);
+            if (response != null) {
+                hits.increment();
+                return response;
+            }
+            cached = null;
+        }
+
+        HttpResponse response;
+        if (cached != null && cached.isRevalidatable()) {
+            response = loader.load(cached.getConditionalHeaders());
+
+            if (response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+                HttpResponse cachedResponse = read(key, cached);
+                if (cachedResponse != null && isStorable(response)) {
+                    revalidations.increment();
+                    store(key, cached.withExpiry(now + getProperties().getTtl()));
+                    return cachedResponse;
+                }
+                response = loader.load(NO_HEADERS);
+            }
+        } else {
+            response = loader.load(NO_HEADERS);
+        }
+
+        misses.increment();
+
+        byte[] body = response.getBody();
+        if (response.getStatusCode() == HttpStatus.OK && body != null &&
+            body.length <= getProperties().getMaxEntryBytes() && isStorable(response)) {
+            store(key, new CachedResponse(response, now + getProperties().getTtl()));
+        } else {
+            remove(key);
+        }
+
+        return response;
+    }
+
+    /**
+     * @param response The upstream response
+     * @return Whether the upstream allows shared caches to store the response,
+     * i.e. its Cache-Control header contains neither no-store nor private
+     */
+    public static boolean isStorable(HttpResponse response) {
+        HttpHeaders headers = response.getHeaders();
+        if (headers == null) {
+            return true;
+        }
+        for (String value : headers.getValuesAsList(HttpHeaders.CACHE_CONTROL)) {
+            String directive = StringUtils.substringBefore(value, "=").trim();
+            if ("no-store".equalsIgnoreCase(directive) || "private".equalsIgnoreCase(directive)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private CachedResponse lookup(ResponseCacheKey key) {
+        synchronized (lock) {
+            CachedResponse cached = memoryEntries.get(key);
+            return cached != null ? cached : diskEntries.get(key);
+        }
+    }
+
+    private HttpResponse read(ResponseCacheKey key, CachedResponse cached) {
+        try {
+            return cached.toHttpResponse();
+        } catch (IOException e) {
+            log.warn("Could not read spilled response {}: {}", cached.getFile(), e.getMessage());
+            remove(key);
+            return null;
+        }
+    }
+
+    private void store(ResponseCacheKey key, CachedResponse entry) {
+        List<CachedResponse> obsolete = new ArrayList<>();
+        List<Map.Entry<ResponseCacheKey, CachedResponse>> evicted = new ArrayList<>();
+
+        synchronized (lock) {
+            removeLocked(key, obsolete);
+
+            if (entry.isSpilled()) {
+                // a revalidated entry keeps the spill file of the entry it replaces
+                obsolete.removeIf(replaced -> entry.getFile().equals(replaced.getFile()));
+
+                diskEntries.put(key, entry);
+                diskBytes += entry.getSize();
+                evictDiskLocked(obsolete);
+            } else {
+                memoryEntries.put(key, entry);
+                memoryBytes += entry.getSize();
+
+                Iterator<Map.Entry<ResponseCacheKey, CachedResponse>> it = memoryEntries.entrySet().iterator();
+                while (memoryBytes > getProperties().getMaxBytes() && it.hasNext()) {
+                    Map.Entry<ResponseCacheKey, CachedResponse> eldest = it.next();
+                    it.remove();
+                    memoryBytes -= eldest.getValue().getSize();
+                    evicted.add(eldest);
+                }
+            }
+        }
+
+        // file I/O happens outside of the lock
+        for (Map.Entry<ResponseCacheKey, CachedResponse> eldest : evicted) {
+            spill(eldest.getKey(), eldest.getValue(), obsolete);
+        }
+        obsolete.forEach(CachedResponse::deleteFile);
+    }
+
+    private void spill(ResponseCacheKey key, CachedResponse entry, List<CachedResponse> obsolete) {
+        if (spillDirectory == null || entry.getSize() > getProperties().getMaxDiskBytes()) {
+            evictions.increment();
+            return;
+        }
+
+        CachedResponse spilled;
+        try {
+            Path file = spillDirectory.resolve(key.getDigest() + "-" + spillFileCount.incrementAndGet() + SPILL_FILE_SUFFIX);
+            spilled = entry.spill(file);
+        } catch (IOException e) {
+            log.warn("Could not spill cached response: {}", e.getMessage());
+            evictions.increment();
+            return;
+        }
+
+        synchronized (lock) {
+            if (memoryEntries.containsKey(key) || diskEntries.containsKey(key)) {
+                // a newer response has been stored in the meantime
+                obsolete.add(spilled);
+                return;
+            }
+            diskEntries.put(key, spilled);
+            diskBytes += spilled.getSize();
+            spills.increment();
+            evictDiskLocked(obsolete);
+        }
+    }
+
+    private void evictDiskLocked(List<CachedResponse> obsolete) {
+        Iterator<Map.Entry<ResponseCacheKey, CachedResponse>> it = diskEntries.entrySet().iterator();
+        while (diskBytes > getProperties().getMaxDiskBytes() && it.hasNext()) {
+            CachedResponse eldest = it.next().getValue();
+            it.remove();
+            diskBytes -= eldest.getSize();
+            obsolete.add(eldest);
+            evictions.increment();
+        }
+    }
+
+    private void remove(ResponseCacheKey key) {
+        List<CachedResponse> obsolete = new ArrayList<>();
+        synchronized (lock) {
+            removeLocked(key, obsolete);
+        }
+        obsolete.forEach(CachedResponse::deleteFile);
+    }
+
+    private void removeLocked(ResponseCacheKey key, List<CachedResponse> obsolete) {
+        CachedResponse memoryEntry = memoryEntries.remove(key);
+        if (memoryEntry != null) {
+            memoryBytes -= memoryEntry.getSize();
+        }
+        CachedResponse diskEntry = diskEntries.remove(key);
+        if (diskEntry != null) {
+            diskBytes -= diskEntry.getSize();
+            obsolete.add(diskEntry);
+        }
+    }
+
+    /**
+     * Removes all cached responses of the given GeoServer namespace.
+     *
+     * @param namespace The namespace, e.g. SHOGUN
+     * @return The number of removed responses
+     */
+    public int purge(String namespace) {
+        List<CachedResponse> obsolete = new ArrayList<>();
+        int count = 0;
+
+        synchronized (lock) {
+            Iterator<Map.Entry<ResponseCacheKey, CachedResponse>> it = memoryEntries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<ResponseCacheKey, CachedResponse> entry = it.next();
+                if (StringUtils.equalsIgnoreCase(entry.getKey().getNamespace(), namespace)) {
+                    it.remove();
+                    memoryBytes -= entry.getValue().getSize();
+                    count++;
+                }
+            }
+            it = diskEntries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<ResponseCacheKey, CachedResponse> entry = it.next();
+                if (StringUtils.equalsIgnoreCase(entry.getKey().getNamespace(), namespace)) {
+                    it.remove();
+                    diskBytes -= entry.getValue().getSize();
+                    obsolete.add(entry.getValue());
+                    count++;
+                }
+            }
+        }
+
+        obsolete.forEach(CachedResponse::deleteFile);
+        log.info("Purged {} cached response(s) of namespace {}", count, namespace);
+
+        return count;
+    }
+
+    /**
+     * Removes all cached responses.
+     *
+     * @return The number of removed responses
+     */
+    public int purgeAll() {
+        List<CachedResponse> obsolete;
+        int count;
+
+        synchronized (lock) {
+            count = memoryEntries.size() + diskEntries.size();
+            obsolete = new ArrayList<>(diskEntries.values());
+            memoryEntries.clear();
+            diskEntries.clear();
+            memoryBytes = 0;
+            diskBytes = 0;
+        }
+
+        obsolete.forEach(CachedResponse::deleteFile);
+        log.info("Purged all {} cached response(s)", count);
+
+        return count;
+    }
+
+    /**
+     * @return The current size and hit statistics of the cache
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        synchronized (lock) {
+            statistics.put("memoryEntries", memoryEntries.size());
+            statistics.put("memoryBytes", memoryBytes);
+            statistics.put("diskEntries", diskEntries.size());
+            statistics.put("diskBytes", diskBytes);
+        }
+        statistics.put("hits", hits.sum());
+        statistics.put("misses", misses.sum());
+        statistics.put("revalidations", revalidations.sum());
+        statistics.put("spills", spills.sum());
+        statistics.put("evictions", evictions.sum());
+        return statistics;
+    }
+
+}
@@ -0,0 +1,111 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.cache;
+
+import de.terrestris.shogun.interceptor.servlet.RequestBodyBuffer;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The key of a cached GeoServer response. It consists of the GeoServer
+ * namespace (used for purging) and a SHA-256 digest over everything making up
+ * the upstream request: method, URI, the normalized (sorted, case insensitive)
+ * parameters, the body, the forwarded credentials and the applied rules.
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public final class ResponseCacheKey {
+
+    private final String namespace;
+
+    private final String digest;
+
+    private ResponseCacheKey(String namespace, String digest) {
+        this.namespace = namespace;
+        this.digest = digest;
+    }
+
+    public static Builder builder(String namespace) {
+        return new Builder(namespace);
+    }
+
+    public static final class Builder {
+
+        private final String namespace;
+
+        private final Map<String, String> parts = new TreeMap<>();
+
+        private final Map<String, String> parameters = new TreeMap<>();
+
+        private Builder(String namespace) {
+            this.namespace = StringUtils.lowerCase(namespace, Locale.ROOT);
+        }
+
+        public Builder part(String name, Object value) {
+            parts.put(name, value != null ? value.toString() : "");
+            return this;
+        }
+
+        public Builder parameters(Map<String, String[]> parameterMap) {
+            parameterMap.forEach((key, values) ->
+                parameters.put(key.toLowerCase(Locale.ROOT), StringUtils.join(values, ",")));
+            return this;
+        }
+
+        public Builder credentials(String credentials) {
+            return part("credentials", StringUtils.isEmpty(credentials) ? "" : DigestUtils.sha256Hex(credentials));
+        }
+
+        public Builder body(String body) {
+            return part("body", StringUtils.isEmpty(body) ? "" : DigestUtils.sha256Hex(body));
+        }
+
+        /**
+         * Adds the digest of the given body, read as stream.
+         *
+         * @param body The request body
+         * @return This builder
+         * @throws IOException If the body could not be read
+         */
+        public Builder body(RequestBodyBuffer body) throws IOException {
+            if (body.isEmpty()) {
+                return part("body", "");
+            }
+            try (InputStream in = body.openStream()) {
+                return part("body", DigestUtils.sha256Hex(in));
+            }
+        }
+
+        public ResponseCacheKey build() {
+            StringBuilder fingerprint = new StringBuilder();
+            parts.forEach((key, value) -> fingerprint.append(key).append('=').append(value).append('\n'));
+            parameters.forEach((key, value) -> fingerprint.append("param.").append(key).append('=').append(value).append('\n'));
+            return new ResponseCacheKey(namespace, DigestUtils.sha256Hex(fingerprint.toString()));
+        }
+    }
+
+}
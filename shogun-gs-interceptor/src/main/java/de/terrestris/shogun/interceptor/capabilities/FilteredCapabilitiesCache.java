@@ -0,0 +1,384 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.capabilities;
+
+import de.terrestris.shogun.interceptor.cache.InterceptorResponseCache;
+import de.terrestris.shogun.interceptor.config.properties.CapabilitiesCacheProperties;
+import de.terrestris.shogun.interceptor.config.properties.InterceptorProperties;
+import de.terrestris.shogun.interceptor.event.InterceptorRulesChangedEvent;
+import de.terrestris.shogun.interceptor.exception.InterceptorException;
+import de.terrestris.shogun.interceptor.message.OgcMessage;
+import de.terrestris.shogun.interceptor.servlet.MutableHttpServletRequest;
+import de.terrestris.shogun.lib.dto.HttpResponse;
+import de.terrestris.shogun.lib.security.SecurityContextUtil;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.http.HttpException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Holds the GetCapabilities documents of the GeoServer together with their
+ * variants filtered by the response interceptors, one per permission
+ * signature. Once a variant has been built, requests of all users sharing its
+ * signature are served the prebuilt document instead of filtering the full
+ * upstream document again.
+ *
+ * The variants of a document are dropped if the upstream document changes
+ * (compared by digest after the TTL), if the interceptor rules change and
+ * after the maximum variant age, which bounds how long changed permissions
+ * may go unnoticed.
+ */
+@Component
+@Log4j2
+public class FilteredCapabilitiesCache {
+
+    private static final String ANONYMOUS_SIGNATURE = "anonymous";
+
+    /**
+     * Loads the (unfiltered) capabilities from the GeoServer.
+     */
+    @FunctionalInterface
+    public interface CapabilitiesLoader {
+
+        HttpResponse load() throws InterceptorException, HttpException;
+    }
+
+    /**
+     * Filters the capabilities for the current user.
+     */
+    @FunctionalInterface
+    public interface CapabilitiesFilter {
+
+        /**
+         * @param response A copy of the upstream response
+         * @return The filtered response
+         */
+        HttpResponse filter(HttpResponse response) throws InterceptorException;
+    }
+
+    @Autowired
+    protected InterceptorProperties interceptorProperties;
+
+    @Autowired(required = false)
+    protected PermissionSignatureResolver permissionSignatureResolver;
+
+    /**
+     * Guards the entries, their variants and the byte counter.
+     */
+    private final Object lock = new Object();
+
+    private final LinkedHashMap<String, CapabilitiesEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long bytes;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder upstreamChanges = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private CapabilitiesCacheProperties getProperties() {
+        return interceptorProperties.getCapabilities();
+    }
+
+    /**
+     * @param message The OGC message of the request
+     * @param method  The HTTP method of the request
+     * @return Whether the given request is a GetCapabilities request whose
+     * response is modified by the response interceptors
+     */
+    public boolean isCacheable(OgcMessage message, String method) {
+        return getProperties().isEnabled() &&
+            ("GET".equalsIgnoreCase(method) || "POST".equalsIgnoreCase(method)) &&
+            message.isResponseModified() &&
+            (message.isWmsGetCapabilities() || message.isWfsGetCapabilities() ||
+                message.isWcsGetCapabilities() || message.isWpsGetCapabilities());
+    }
+
+    /**
+     * Returns the variant of the capabilities for the permission signature of
+     * the current user, building it with the given filter if it's missing.
+     *
+     * @param request The intercepted request
+     * @param key     The key of the upstream request (including the applied rules)
+     * @param loader  The loader for the upstream capabilities
+     * @param filter  The filter applying the response interceptors
+     * @return The filtered response (its body must not be modified)
+     * @throws InterceptorException
+     * @throws HttpException
+     */
+    public HttpResponse getOrFilter(MutableHttpServletRequest request, String key, CapabilitiesLoader loader,
+                                    CapabilitiesFilter filter) throws InterceptorException, HttpException {
+        CapabilitiesCacheProperties properties = getProperties();
+        String signature = getSignature(request);
+        long now = System.currentTimeMillis();
+
+        CapabilitiesEntry entry;
+        synchronized (lock) {
+            entry = entries.get(key);
+            if (entry != null && entry.isFresh(now)) {
+                CapabilitiesVariant variant = entry.variants.get(signature);
+                if (variant != null && now - variant.createdAt < properties.getMaxVariantAge()) {
+                    hits.increment();
+                    return variant.toHttpResponse();
+                }
+            }
+        }
+
+        misses.increment();
+
+        if (entry == null || !entry.isFresh(now)) {
+            HttpResponse upstream = loader.load();
+            byte[] body = upstream.getBody();
+            if (upstream.getStatusCode() != HttpStatus.OK || body == null ||
+                body.length > properties.getMaxEntryBytes() || !InterceptorResponseCache.isStorable(upstream)) {
+                remove(key);
+                return filter.filter(upstream);
+            }
+            entry = refresh(key, upstream, now);
+        }
+
+        HttpResponse filtered = filter.filter(entry.toHttpResponse());
+
+        if (filtered.getStatusCode() == HttpStatus.OK && filtered.getBody() != null) {
+            CapabilitiesVariant variant = new CapabilitiesVariant(filtered, now);
+            synchronized (lock) {
+                // the entry may have been replaced in the meantime
+                if (entries.get(key) == entry) {
+                    CapabilitiesVariant previous = entry.variants.put(signature, variant);
+                    bytes += variant.body.length - (previous != null ? previous.body.length : 0);
+                    evictLocked();
+                }
+            }
+            return variant.toHttpResponse();
+        }
+
+        return filtered;
+    }
+
+    /**
+     * Stores the given upstream capabilities. The variants of the previous
+     * capabilities are kept if they didn't change.
+     */
+    private CapabilitiesEntry refresh(String key, HttpResponse upstream, long now) {
+        String digest = DigestUtils.sha256Hex(upstream.getBody());
+        long expiresAt = now + getProperties().getTtl();
+
+        synchronized (lock) {
+            CapabilitiesEntry previous = entries.get(key);
+            if (previous != null && previous.digest.equals(digest)) {
+                previous.expiresAt = expiresAt;
+                return previous;
+            }
+
+            if (previous != null) {
+                upstreamChanges.increment();
+                removeLocked(key);
+            }
+
+            CapabilitiesEntry entry = new CapabilitiesEntry(upstream, digest, expiresAt);
+            entries.put(key, entry);
+            bytes += entry.body.length;
+            evictLocked();
+            return entry;
+        }
+    }
+
+    private void remove(String key) {
+        synchronized (lock) {
+            removeLocked(key);
+        }
+    }
+
+    private void removeLocked(String key) {
+        CapabilitiesEntry entry = entries.remove(key);
+        if (entry != null) {
+            bytes -= entry.getSize();
+        }
+    }
+
+    private void evictLocked() {
+        Iterator<CapabilitiesEntry> it = entries.values().iterator();
+        while (bytes > getProperties().getMaxBytes() && it.hasNext()) {
+            bytes -= it.next().getSize();
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * @param request The intercepted request
+     * @return The permission signature of the current user
+     */
+    private String getSignature(MutableHttpServletRequest request) {
+        if (permissionSignatureResolver != null) {
+            return permissionSignatureResolver.getSignature(request);
+        }
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            return ANONYMOUS_SIGNATURE;
+        }
+
+        if (getProperties().getSignature() == CapabilitiesCacheProperties.Signature.AUTHORITIES) {
+            return authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .sorted()
+                .distinct()
+                .collect(Collectors.joining(",", "authorities:", ""));
+        }
+
+        String keycloakUserId = SecurityContextUtil.getKeycloakUserIdFromAuthentication(authentication);
+        return "user:" + (keycloakUserId != null ? keycloakUserId : authentication.getName());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRulesChanged(InterceptorRulesChangedEvent event) {
+        invalidateAll();
+    }
+
+    /**
+     * Drops all capabilities and their filtered variants, e.g. after
+     * permissions have been changed.
+     *
+     * @return The number of dropped capabilities documents
+     */
+    public int invalidateAll() {
+        int count;
+        synchronized (lock) {
+            count = entries.size();
+            entries.clear();
+            bytes = 0;
+        }
+
+        log.info("Invalidated {} cached capabilities document(s)", count);
+
+        return count;
+    }
+
+    /**
+     * @return The current size and hit statistics of the cache
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        synchronized (lock) {
+            statistics.put("entries", entries.size());
+            statistics.put("variants", entries.values().stream().mapToInt(entry -> entry.variants.size()).sum());
+            statistics.put("bytes", bytes);
+        }
+        statistics.put("hits", hits.sum());
+        statistics.put("misses", misses.sum());
+        statistics.put("upstreamChanges", upstreamChanges.sum());
+        statistics.put("evictions", evictions.sum());
+        return statistics;
+    }
+
+    private static HttpHeaders copyHeaders(HttpHeaders headers) {
+        HttpHeaders copy = new HttpHeaders();
+        if (headers != null) {
+            copy.putAll(headers);
+        }
+        return copy;
+    }
+
+    /**
+     * The upstream capabilities of a request and their filtered variants.
+     */
+    private static final class CapabilitiesEntry {
+
+        private final HttpStatus statusCode;
+
+        private final HttpHeaders headers;
+
+        private final byte[] body;
+
+        private final String digest;
+
+        private long expiresAt;
+
+        private final Map<String, CapabilitiesVariant> variants = new HashMap<>();
+
+        private CapabilitiesEntry(HttpResponse response, String digest, long expiresAt) {
+            this.statusCode = response.getStatusCode();
+            this.headers = copyHeaders(response.getHeaders());
+            this.body = response.getBody().clone();
+            this.digest = digest;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isFresh(long now) {
+            return now < expiresAt;
+        }
+
+        private long getSize() {
+            return body.length + variants.values().stream().mapToLong(variant -> variant.body.length).sum();
+        }
+
+        /**
+         * @return A copy of the upstream response, to be modified by the response interceptors
+         */
+        private HttpResponse toHttpResponse() {
+            return new HttpResponse(statusCode, copyHeaders(headers), body.clone());
+        }
+    }
+
+    /**
+     * The capabilities filtered for a permission signature.
+     */
+    private static final class CapabilitiesVariant {
+
+        private final HttpStatus statusCode;
+
+        private final HttpHeaders headers;
+
+        private final byte[] body;
+
+        private final long createdAt;
+
+        private CapabilitiesVariant(HttpResponse response, long createdAt) {
+            this.statusCode = response.getStatusCode();
+            this.headers = copyHeaders(response.getHeaders());
+            this.body = response.getBody();
+            this.createdAt = createdAt;
+        }
+
+        /**
+         * @return The prebuilt response (sharing the body, which is never modified afterwards)
+         */
+        private HttpResponse toHttpResponse() {
+            return new HttpResponse(statusCode, copyHeaders(headers), body);
+        }
+    }
+
+}
@@ -0,0 +1,36 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.capabilities;
+
+import de.terrestris.shogun.interceptor.servlet.MutableHttpServletRequest;
+
+/**
+ * Resolves the permission signature of the current user. Users with the same
+ * signature are served the same filtered GetCapabilities document, so the
+ * signature must cover everything the response interceptors filter by (e.g.
+ * the ids of the groups of the user).
+ */
+@FunctionalInterface
+public interface PermissionSignatureResolver {
+
+    /**
+     * @param request The intercepted request
+     * @return The permission signature of the current user
+     */
+    String getSignature(MutableHttpServletRequest request);
+
+}
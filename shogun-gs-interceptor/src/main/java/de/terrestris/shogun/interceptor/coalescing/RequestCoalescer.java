@@ -0,0 +1,156 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.coalescing;
+
+import de.terrestris.shogun.interceptor.config.properties.CoalescingProperties;
+import de.terrestris.shogun.interceptor.config.properties.InterceptorProperties;
+import de.terrestris.shogun.interceptor.exception.InterceptorException;
+import de.terrestris.shogun.interceptor.message.OgcMessage;
+import de.terrestris.shogun.lib.dto.HttpResponse;
+import lombok.extern.log4j.Log4j2;
+import org.apache.http.HttpException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lets identical concurrent GeoServer requests share a single upstream request
+ * ("single flight"). The first request for a key performs the upstream call,
+ * all requests arriving for the same key while it is in flight wait for its
+ * response. Every caller gets its own copy of the response.
+ */
+@Component
+@Log4j2
+public class RequestCoalescer {
+
+    /**
+     * Loads a response from the GeoServer.
+     */
+    @FunctionalInterface
+    public interface UpstreamLoader {
+        HttpResponse load() throws InterceptorException, HttpException;
+    }
+
+    @Autowired
+    protected InterceptorProperties interceptorProperties;
+
+    private final ConcurrentHashMap<String, CompletableFuture<HttpResponse>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder upstreamRequests = new LongAdder();
+
+    private final LongAdder coalescedRequests = new LongAdder();
+
+    private final LongAdder failedRequests = new LongAdder();
+
+    private final LongAdder timedOutRequests = new LongAdder();
+
+    /**
+     * @param message The OGC message of the request
+     * @param method  The HTTP method of the request
+     * @return Whether the given request may be coalesced
+     */
+    public boolean isCoalescable(OgcMessage message, String method) {
+        CoalescingProperties properties = interceptorProperties.getCoalescing();
+        return properties.isEnabled() &&
+            ("GET".equalsIgnoreCase(method) || "POST".equalsIgnoreCase(method)) &&
+            message.getOperation() != null &&
+            properties.getOperations().contains(message.getOperation());
+    }
+
+    /**
+     * Returns the response of the request already in flight for the given key
+     * or loads it with the given loader.
+     *
+     * @param key    The key identifying the upstream request
+     * @param loader The loader for the upstream response
+     * @return A copy of the response
+     * @throws InterceptorException
+     * @throws HttpException
+     */
+    public HttpResponse execute(String key, UpstreamLoader loader) throws InterceptorException, HttpException {
+        CompletableFuture<HttpResponse> flight = new CompletableFuture<>();
+        CompletableFuture<HttpResponse> existingFlight = inFlight.putIfAbsent(key, flight);
+
+        if (existingFlight != null) {
+            coalescedRequests.increment();
+            log.trace("Waiting for the identical request {} in flight", key);
+            return copy(await(existingFlight));
+        }
+
+        upstreamRequests.increment();
+
+        try {
+            HttpResponse response = loader.load();
+            flight.complete(response);
+            return copy(response);
+        } catch (InterceptorException | HttpException | RuntimeException e) {
+            failedRequests.increment();
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private HttpResponse await(CompletableFuture<HttpResponse> flight) throws InterceptorException, HttpException {
+        try {
+            return flight.get(interceptorProperties.getCoalescing().getTimeout(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterceptorException("Interrupted while waiting for an identical request", e);
+        } catch (TimeoutException e) {
+            timedOutRequests.increment();
+            throw new InterceptorException("Timed out while waiting for an identical request", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof InterceptorException) {
+                throw (InterceptorException) cause;
+            } else if (cause instanceof HttpException) {
+                throw (HttpException) cause;
+            }
+            throw new InterceptorException("Error in identical request: " + cause.getMessage(), cause);
+        }
+    }
+
+    private static HttpResponse copy(HttpResponse response) {
+        HttpHeaders headers = new HttpHeaders();
+        if (response.getHeaders() != null) {
+            headers.putAll(response.getHeaders());
+        }
+        byte[] body = response.getBody() != null ? response.getBody().clone() : null;
+        return new HttpResponse(response.getStatusCode(), headers, body);
+    }
+
+    /**
+     * @return The number of upstream and coalesced requests
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("inFlight", inFlight.size());
+        statistics.put("upstreamRequests", upstreamRequests.sum());
+        statistics.put("coalescedRequests", coalescedRequests.sum());
+        statistics.put("failedRequests", failedRequests.sum());
+        statistics.put("timedOutRequests", timedOutRequests.sum());
+        return statistics;
+    }
+
+}
@@ -0,0 +1,185 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.conditional;
+
+import de.terrestris.shogun.interceptor.config.properties.ConditionalRequestProperties;
+import de.terrestris.shogun.interceptor.config.properties.InterceptorProperties;
+import de.terrestris.shogun.lib.dto.HttpResponse;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.message.BasicHeader;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Adds the semantics of conditional GET requests to the intercepted requests.
+ * Responses streamed unmodified from the GeoServer keep its validators and the
+ * conditional headers of the client are forwarded, so the GeoServer answers
+ * with 304 Not Modified. Responses buffered by the interceptor get a strong
+ * ETag of their (intercepted) body, which is validated by the interceptor.
+ */
+@Component
+@Log4j2
+public class ConditionalRequestHandler {
+
+    /**
+     * The conditional request headers forwarded to the GeoServer.
+     */
+    private static final List<String> CONDITIONAL_REQUEST_HEADERS = Arrays.asList(
+        HttpHeaders.IF_NONE_MATCH,
+        HttpHeaders.IF_MODIFIED_SINCE
+    );
+
+    /**
+     * The validator and caching response headers forwarded to the client.
+     */
+    private static final List<String> VALIDATOR_RESPONSE_HEADERS = Arrays.asList(
+        HttpHeaders.ETAG,
+        HttpHeaders.LAST_MODIFIED,
+        HttpHeaders.CACHE_CONTROL,
+        HttpHeaders.EXPIRES
+    );
+
+    private static final Header[] NO_HEADERS = new Header[0];
+
+    @Autowired
+    protected InterceptorProperties interceptorProperties;
+
+    /**
+     * @param request The client request
+     * @return Whether conditional requests are supported for the given request
+     */
+    public boolean isConditional(HttpServletRequest request) {
+        return interceptorProperties.getConditionalRequests().isEnabled() &&
+            "GET".equalsIgnoreCase(request.getMethod());
+    }
+
+    /**
+     * @param request The client request
+     * @return The conditional headers of the client to forward to the GeoServer
+     */
+    public Header[] getConditionalRequestHeaders(HttpServletRequest request) {
+        if (!isConditional(request)) {
+            return NO_HEADERS;
+        }
+
+        List<Header> headers = null;
+        for (String name : CONDITIONAL_REQUEST_HEADERS) {
+            String value = request.getHeader(name);
+            if (value != null) {
+                if (headers == null) {
+                    headers = new ArrayList<>(CONDITIONAL_REQUEST_HEADERS.size());
+                }
+                headers.add(new BasicHeader(name, value));
+            }
+        }
+
+        return headers == null ? NO_HEADERS : headers.toArray(NO_HEADERS);
+    }
+
+    /**
+     * Copies the validator and caching headers of the GeoServer response that
+     * is streamed unmodified to the client.
+     *
+     * @param request          The client request
+     * @param upstreamHeaders  The headers of the GeoServer response
+     * @param forwardedHeaders The headers forwarded to the client
+     */
+    public void forwardValidators(HttpServletRequest request, HttpHeaders upstreamHeaders, HttpHeaders forwardedHeaders) {
+        if (!isConditional(request) || upstreamHeaders == null) {
+            return;
+        }
+        for (String name : VALIDATOR_RESPONSE_HEADERS) {
+            List<String> values = upstreamHeaders.get(name);
+            if (values != null) {
+                forwardedHeaders.put(name, values);
+            }
+        }
+    }
+
+    /**
+     * Adds a strong ETag of the body to the given buffered response and
+     * answers with 304 Not Modified if it matches the If-None-Match header of
+     * the client.
+     *
+     * @param request  The client request
+     * @param response The (intercepted) response
+     * @return The response to send to the client
+     */
+    public HttpResponse validate(HttpServletRequest request, HttpResponse response) {
+        ConditionalRequestProperties properties = interceptorProperties.getConditionalRequests();
+        if (!isConditional(request) || !properties.isSynthesizeETags() || response.getBody() == null ||
+            response.getStatusCode() == null || !response.getStatusCode().is2xxSuccessful()) {
+            return response;
+        }
+
+        HttpHeaders headers = response.getHeaders() != null ? response.getHeaders() : new HttpHeaders();
+        String eTag = "\"" + DigestUtils.sha256Hex(response.getBody()) + "\"";
+        headers.setETag(eTag);
+        if (StringUtils.isNotEmpty(properties.getCacheControl())) {
+            headers.setCacheControl(properties.getCacheControl());
+        }
+        response.setHeaders(headers);
+
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), eTag)) {
+            log.trace("Responding with 304 Not Modified for ETag {}", eTag);
+            HttpHeaders notModifiedHeaders = new HttpHeaders();
+            notModifiedHeaders.setETag(eTag);
+            notModifiedHeaders.setCacheControl(headers.getCacheControl());
+            return new HttpResponse(HttpStatus.NOT_MODIFIED, notModifiedHeaders, null);
+        }
+
+        return response;
+    }
+
+    /**
+     * Compares the given If-None-Match header with the given ETag using the
+     * weak comparison (RFC 7232, section 3.2).
+     *
+     * @param ifNoneMatch The If-None-Match header of the client
+     * @param eTag        The ETag of the response
+     * @return Whether the ETag matches
+     */
+    private static boolean matches(String ifNoneMatch, String eTag) {
+        if (StringUtils.isEmpty(ifNoneMatch)) {
+            return false;
+        }
+        for (String candidate : StringUtils.split(ifNoneMatch, ',')) {
+            String value = candidate.trim();
+            if ("*".equals(value)) {
+                return true;
+            }
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
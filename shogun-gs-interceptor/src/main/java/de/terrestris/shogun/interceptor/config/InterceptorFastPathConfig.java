@@ -0,0 +1,52 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.config;
+
+import de.terrestris.shogun.interceptor.config.properties.InterceptorProperties;
+import de.terrestris.shogun.interceptor.service.GeoServerInterceptorService;
+import de.terrestris.shogun.interceptor.servlet.GeoServerFastPathFilter;
+import de.terrestris.shogun.interceptor.servlet.RequestBodyBufferAllocator;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class InterceptorFastPathConfig {
+
+    /**
+     * Registers the fast path for allowed GeoServer requests right after the
+     * security filter chain, so the requests are authenticated as usual.
+     * Requests with a custom endpoint always pass the full pipeline.
+     *
+     * @param service
+     * @param bodyBufferAllocator
+     * @param interceptorProperties
+     * @return
+     */
+    @Bean
+    public FilterRegistrationBean<GeoServerFastPathFilter> geoServerFastPathFilter(GeoServerInterceptorService service,
+                                                                                  RequestBodyBufferAllocator bodyBufferAllocator,
+                                                                                  InterceptorProperties interceptorProperties) {
+        FilterRegistrationBean<GeoServerFastPathFilter> registration = new FilterRegistrationBean<>(
+            new GeoServerFastPathFilter(service, bodyBufferAllocator, interceptorProperties));
+        registration.addUrlPatterns("/geoserver.action");
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 1);
+        return registration;
+    }
+
+}
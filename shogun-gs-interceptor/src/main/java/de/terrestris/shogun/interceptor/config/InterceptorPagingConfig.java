@@ -0,0 +1,45 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.config;
+
+import de.terrestris.shogun.interceptor.config.properties.InterceptorProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+@ConditionalOnProperty(prefix = "interceptor.paging", name = "enabled", havingValue = "true")
+public class InterceptorPagingConfig {
+
+    /**
+     * The executor requesting the pages of paged WFS GetFeature requests.
+     * If all threads are busy, the pages are queued.
+     *
+     * @param interceptorProperties
+     * @return
+     */
+    @Bean
+    public ThreadPoolTaskExecutor interceptorPagingExecutor(InterceptorProperties interceptorProperties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(interceptorProperties.getPaging().getPoolSize());
+        executor.setMaxPoolSize(interceptorProperties.getPaging().getPoolSize());
+        executor.setThreadNamePrefix("interceptor-paging-");
+        return executor;
+    }
+
+}
@@ -44,7 +44,7 @@ public class InterceptorWebSecurityConfig extends WebSecurityConfig {
                 "/csrf/**"
             )
                 .permitAll()
-            .antMatchers("/interceptorrules/**")
+            .antMatchers("/interceptorrules/**", "/interceptorratelimits/**", "/interceptorcache/**", "/interceptorstatistics/**", "/interceptorrouting/**")
                 .hasRole("INTERCEPTOR_ADMIN")
             .anyRequest()
                 .authenticated()
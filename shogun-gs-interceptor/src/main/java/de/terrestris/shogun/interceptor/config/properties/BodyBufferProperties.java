@@ -0,0 +1,48 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.config.properties;
+
+import lombok.Data;
+
+@Data
+public class BodyBufferProperties {
+
+    /**
+     * The size in bytes up to which a request body is held in memory. Larger
+     * bodies are spilled to a temporary file.
+     */
+    private int memoryThreshold = 1024 * 1024;
+
+    /**
+     * The maximum size of all request bodies held in memory in bytes. Bodies
+     * exceeding it are spilled to a temporary file, even if they are smaller
+     * than the memory threshold.
+     */
+    private long maxMemory = 64L * 1024 * 1024;
+
+    /**
+     * The maximum size of a request body in bytes. Larger requests are
+     * rejected with 413 Payload Too Large.
+     */
+    private long maxSize = 256L * 1024 * 1024;
+
+    /**
+     * The directory request bodies are spilled to. The temporary directory of
+     * the system is used if not set.
+     */
+    private String spillDirectory;
+}
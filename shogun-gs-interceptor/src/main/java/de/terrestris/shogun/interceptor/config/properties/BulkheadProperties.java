@@ -0,0 +1,40 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.config.properties;
+
+import lombok.Data;
+
+@Data
+public class BulkheadProperties {
+
+    /**
+     * The maximum number of concurrent GeoServer requests of the namespace.
+     * Values below 1 disable the limit.
+     */
+    private int maxConcurrentRequests = 0;
+
+    /**
+     * The maximum number of requests waiting for a free slot. Further
+     * requests are rejected immediately.
+     */
+    private int maxQueuedRequests = 0;
+
+    /**
+     * The maximum time in milliseconds a request waits for a free slot.
+     */
+    private long queueTimeout = 1000;
+}
@@ -0,0 +1,70 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.config.properties;
+
+import de.terrestris.shogun.interceptor.enumeration.OgcEnum;
+import lombok.Data;
+
+import java.util.Arrays;
+import java.util.List;
+
+@Data
+public class CacheProperties {
+
+    /**
+     * Whether GeoServer responses of the configured operations should be cached.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The operations whose responses are cached.
+     */
+    private List<OgcEnum.OperationType> operations = Arrays.asList(
+        OgcEnum.OperationType.GET_CAPABILITIES,
+        OgcEnum.OperationType.DESCRIBE_FEATURE_TYPE,
+        OgcEnum.OperationType.DESCRIBE_COVERAGE,
+        OgcEnum.OperationType.GET_LEGEND_GRAPHIC
+    );
+
+    /**
+     * The time to live of a cached response in milliseconds. Expired responses
+     * are revalidated against the GeoServer if they carry an ETag or a
+     * Last-Modified header.
+     */
+    private long ttl = 300000;
+
+    /**
+     * The maximum size of all responses held in memory in bytes.
+     */
+    private long maxBytes = 64L * 1024 * 1024;
+
+    /**
+     * The maximum size of a single cached response in bytes.
+     */
+    private long maxEntryBytes = 4L * 1024 * 1024;
+
+    /**
+     * The directory responses evicted from memory are spilled to. Nothing is
+     * spilled if not set.
+     */
+    private String spillDirectory;
+
+    /**
+     * The maximum size of all spilled responses in bytes.
+     */
+    private long maxDiskBytes = 512L * 1024 * 1024;
+}
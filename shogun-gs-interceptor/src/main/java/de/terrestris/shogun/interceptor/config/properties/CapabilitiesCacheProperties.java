@@ -0,0 +1,69 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.config.properties;
+
+import lombok.Data;
+
+@Data
+public class CapabilitiesCacheProperties {
+
+    /**
+     * Whether GetCapabilities responses modified by a response interceptor
+     * should be precomputed per permission signature.
+     */
+    private boolean enabled = false;
+
+    /**
+     * What makes up the permission signature of a user if no
+     * PermissionSignatureResolver bean is present.
+     */
+    private Signature signature = Signature.USER;
+
+    /**
+     * The time in milliseconds after which the upstream capabilities are
+     * requested again. The filtered variants are kept if they didn't change.
+     */
+    private long ttl = 60000;
+
+    /**
+     * The maximum age of a filtered variant in milliseconds. Bounds how long
+     * changed permissions may go unnoticed.
+     */
+    private long maxVariantAge = 600000;
+
+    /**
+     * The maximum size of all upstream capabilities and filtered variants in bytes.
+     */
+    private long maxBytes = 128L * 1024 * 1024;
+
+    /**
+     * The maximum size of a single upstream capabilities document in bytes.
+     */
+    private long maxEntryBytes = 16L * 1024 * 1024;
+
+    public enum Signature {
+        /**
+         * Every user has its own variant.
+         */
+        USER,
+
+        /**
+         * Users with the same granted authorities share a variant.
+         */
+        AUTHORITIES
+    }
+}
@@ -0,0 +1,41 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.config.properties;
+
+import lombok.Data;
+
+@Data
+public class CircuitBreakerProperties {
+
+    /**
+     * Whether requests to the namespace should fail fast while its GeoServer
+     * is failing.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The number of consecutive failed requests (connection errors or 5xx
+     * responses) that open the circuit.
+     */
+    private int failureThreshold = 10;
+
+    /**
+     * The time in milliseconds the circuit stays open before a trial request
+     * is let through.
+     */
+    private long openDuration = 30000;
+}
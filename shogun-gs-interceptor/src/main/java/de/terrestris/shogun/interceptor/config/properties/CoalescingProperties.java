@@ -0,0 +1,48 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.config.properties;
+
+import de.terrestris.shogun.interceptor.enumeration.OgcEnum;
+import lombok.Data;
+
+import java.util.Arrays;
+import java.util.List;
+
+@Data
+public class CoalescingProperties {
+
+    /**
+     * Whether identical concurrent GeoServer requests should share a single
+     * upstream request.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The operations whose requests are coalesced. Coalesced responses are
+     * buffered, so (large) GetMap responses are not coalesced by default.
+     */
+    private List<OgcEnum.OperationType> operations = Arrays.asList(
+        OgcEnum.OperationType.GET_LEGEND_GRAPHIC,
+        OgcEnum.OperationType.GET_CAPABILITIES
+    );
+
+    /**
+     * The maximum time in milliseconds a request waits for the response of an
+     * identical request already in flight.
+     */
+    private long timeout = 60000;
+}
@@ -0,0 +1,44 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.config.properties;
+
+import lombok.Data;
+
+@Data
+public class ConditionalRequestProperties {
+
+    /**
+     * Whether conditional GET requests (If-None-Match, If-Modified-Since)
+     * should be supported and the validators (ETag, Last-Modified) and caching
+     * headers of the GeoServer responses should be forwarded.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Whether strong ETags (a hash of the body) should be added to responses
+     * that have been buffered by the interceptor, e.g. because the response
+     * interceptors or the cache needed the full body.
+     */
+    private boolean synthesizeETags = true;
+
+    /**
+     * The Cache-Control header of the responses with a synthesized ETag. As
+     * the responses depend on the interceptor rules of the user, they should
+     * not be stored by shared caches.
+     */
+    private String cacheControl = "private, no-cache";
+}
@@ -0,0 +1,67 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.config.properties;
+
+import lombok.Data;
+
+@Data
+public class FanOutProperties {
+
+    /**
+     * Whether WMS GetMap and GetFeatureInfo requests for layers of several
+     * namespaces should be split by namespace, sent in parallel and combined.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The number of threads sending the partial requests.
+     */
+    private int poolSize = 16;
+
+    /**
+     * The maximum number of partial requests per request. Requests needing
+     * more parts are not split.
+     */
+    private int maxParts = 8;
+
+    /**
+     * The maximum time in milliseconds to wait for all partial GetMap responses.
+     */
+    private long timeout = 60000;
+
+    /**
+     * How GetFeatureInfo requests are split, NONE to only split GetMap requests.
+     */
+    private FeatureInfoSplit featureInfoSplit = FeatureInfoSplit.NAMESPACE;
+
+    /**
+     * The maximum number of partial requests per GetFeatureInfo request.
+     */
+    private int maxFeatureInfoParts = 32;
+
+    /**
+     * The deadline in milliseconds for all partial GetFeatureInfo responses.
+     * The responses received until then are returned.
+     */
+    private long featureInfoTimeout = 10000;
+
+    public enum FeatureInfoSplit {
+        NONE,
+        NAMESPACE,
+        LAYER
+    }
+}
@@ -0,0 +1,50 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.config.properties;
+
+import lombok.Data;
+
+@Data
+public class HealthCheckProperties {
+
+    /**
+     * Whether the GeoServer backends should be probed periodically.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The interval between two probes in milliseconds.
+     */
+    private long interval = 10000;
+
+    /**
+     * The path (relative to the backend URL) to probe.
+     */
+    private String path = "";
+
+    /**
+     * The number of consecutive failed probes after which a backend is
+     * considered unhealthy.
+     */
+    private int unhealthyThreshold = 2;
+
+    /**
+     * The number of consecutive successful probes after which an unhealthy
+     * backend is considered healthy again.
+     */
+    private int healthyThreshold = 1;
+}
@@ -34,4 +34,49 @@ public class InterceptorProperties {
 
     @NestedConfigurationProperty
     private List<NamespaceProperties> namespaces;
+
+    @NestedConfigurationProperty
+    private AsyncProperties async = new AsyncProperties();
+
+    @NestedConfigurationProperty
+    private BodyBufferProperties bodyBuffer = new BodyBufferProperties();
+
+    @NestedConfigurationProperty
+    private CacheProperties cache = new CacheProperties();
+
+    @NestedConfigurationProperty
+    private CapabilitiesCacheProperties capabilities = new CapabilitiesCacheProperties();
+
+    @NestedConfigurationProperty
+    private CoalescingProperties coalescing = new CoalescingProperties();
+
+    @NestedConfigurationProperty
+    private ConditionalRequestProperties conditionalRequests = new ConditionalRequestProperties();
+
+    @NestedConfigurationProperty
+    private FanOutProperties fanOut = new FanOutProperties();
+
+    @NestedConfigurationProperty
+    private FastPathProperties fastPath = new FastPathProperties();
+
+    @NestedConfigurationProperty
+    private HealthCheckProperties healthCheck = new HealthCheckProperties();
+
+    @NestedConfigurationProperty
+    private LatencyProperties latency = new LatencyProperties();
+
+    @NestedConfigurationProperty
+    private OutlierEjectionProperties outlierEjection = new OutlierEjectionProperties();
+
+    @NestedConfigurationProperty
+    private PagingProperties paging = new PagingProperties();
+
+    @NestedConfigurationProperty
+    private RateLimitProperties rateLimit = new RateLimitProperties();
+
+    @NestedConfigurationProperty
+    private SchedulingProperties scheduling = new SchedulingProperties();
+
+    @NestedConfigurationProperty
+    private StreamingProperties streaming = new StreamingProperties();
 }
@@ -0,0 +1,112 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.config.properties;
+
+import de.terrestris.shogun.interceptor.enumeration.OgcEnum;
+import lombok.Data;
+
+import java.util.Arrays;
+import java.util.List;
+
+@Data
+public class LatencyProperties {
+
+    /**
+     * Whether the socket timeout of GeoServer requests should be derived from
+     * the observed latency of their endpoint (backend and operation).
+     */
+    private boolean adaptiveTimeouts = false;
+
+    /**
+     * The latency percentile the adaptive socket timeout is based on.
+     */
+    private double timeoutPercentile = 99.0;
+
+    /**
+     * The factor the latency percentile is multiplied with to get the socket timeout.
+     */
+    private double timeoutMultiplier = 3.0;
+
+    /**
+     * The lower bound of the adaptive socket timeout in milliseconds.
+     */
+    private int minTimeout = 1000;
+
+    /**
+     * The upper bound of the adaptive socket timeout in milliseconds.
+     */
+    private int maxTimeout = 60000;
+
+    /**
+     * The connect timeout in milliseconds used together with adaptive timeouts.
+     */
+    private int connectTimeout = 5000;
+
+    /**
+     * The timeout in milliseconds for leasing a pooled connection used
+     * together with adaptive timeouts.
+     */
+    private int leaseTimeout = 5000;
+
+    /**
+     * Whether idempotent requests of the hedge operations should be sent to a
+     * second backend of the namespace if the first one doesn't answer within
+     * the hedge percentile of the endpoint. The first answer wins.
+     */
+    private boolean hedging = false;
+
+    /**
+     * The latency percentile after which a request is hedged.
+     */
+    private double hedgePercentile = 95.0;
+
+    /**
+     * The minimum delay in milliseconds before a request is hedged.
+     */
+    private long minHedgeDelay = 50;
+
+    /**
+     * The maximum ratio of hedged requests per endpoint, limiting the
+     * additional load on the GeoServer.
+     */
+    private double maxHedgeRatio = 0.1;
+
+    /**
+     * The operations whose (GET) requests may be hedged.
+     */
+    private List<OgcEnum.OperationType> hedgeOperations = Arrays.asList(
+        OgcEnum.OperationType.GET_MAP,
+        OgcEnum.OperationType.GET_LEGEND_GRAPHIC,
+        OgcEnum.OperationType.GET_TILE
+    );
+
+    /**
+     * The number of latencies of an endpoint needed before its percentiles are used.
+     */
+    private int minSamples = 100;
+
+    /**
+     * The time window in milliseconds the percentiles are computed over.
+     */
+    private long window = 60000;
+
+    /**
+     * The number of intervals the window is divided into. The percentiles are
+     * updated at the end of each interval.
+     */
+    private int intervals = 6;
+}
@@ -16,10 +16,15 @@
  */
 package de.terrestris.shogun.interceptor.config.properties;
 
+import de.terrestris.shogun.interceptor.backend.BalancingStrategy;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.NestedConfigurationProperty;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Configuration()
 @ConfigurationProperties(prefix = "namespaces")
 @Data
@@ -28,4 +33,25 @@ public class NamespaceProperties {
     private String namespace;
 
     private String url;
+
+    /**
+     * The GeoServer backends serving this namespace. If empty, the namespace
+     * is served by the single backend given by the url.
+     */
+    @NestedConfigurationProperty
+    private List<BackendProperties> backends = new ArrayList<>();
+
+    private BalancingStrategy balancing = BalancingStrategy.LEAST_IN_FLIGHT;
+
+    /**
+     * The connect and socket timeout in milliseconds for requests to this
+     * namespace. If not set, the global http client timeout is used.
+     */
+    private Integer timeout;
+
+    @NestedConfigurationProperty
+    private BulkheadProperties bulkhead = new BulkheadProperties();
+
+    @NestedConfigurationProperty
+    private CircuitBreakerProperties circuitBreaker = new CircuitBreakerProperties();
 }
@@ -0,0 +1,35 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.config.properties;
+
+import lombok.Data;
+
+@Data
+public class OutlierEjectionProperties {
+
+    /**
+     * The number of consecutive failed requests (connection errors or 5xx
+     * responses) after which a backend is ejected from its pool. Values
+     * below 1 disable the ejection.
+     */
+    private int consecutiveFailures = 5;
+
+    /**
+     * The time in milliseconds an ejected backend stays out of its pool.
+     */
+    private long ejectionTime = 30000;
+}
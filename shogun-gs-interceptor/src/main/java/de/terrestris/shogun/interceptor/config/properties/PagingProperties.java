@@ -0,0 +1,64 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.config.properties;
+
+import lombok.Data;
+
+@Data
+public class PagingProperties {
+
+    /**
+     * Whether WFS GetFeature requests without a feature limit should be sent
+     * as a series of paged requests and streamed to the client as a single
+     * response.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The number of features per page. Requests matching less features are
+     * not paged.
+     */
+    private int pageSize = 5000;
+
+    /**
+     * The maximum number of pages requested in parallel per request.
+     */
+    private int parallelism = 2;
+
+    /**
+     * The maximum number of pages per request. Requests needing more pages
+     * are not paged.
+     */
+    private int maxPages = 200;
+
+    /**
+     * The number of threads requesting the pages.
+     */
+    private int poolSize = 8;
+
+    /**
+     * The SORTBY value added to requests without one to get a stable order
+     * across the pages, e.g. "id". If empty, the natural order (the primary
+     * key) of the data store is used.
+     */
+    private String sortBy = "";
+
+    /**
+     * The maximum time in milliseconds to wait for a single page.
+     */
+    private long timeout = 60000;
+}
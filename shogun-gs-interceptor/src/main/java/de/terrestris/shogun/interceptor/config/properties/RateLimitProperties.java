@@ -0,0 +1,41 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.config.properties;
+
+import lombok.Data;
+
+@Data
+public class RateLimitProperties {
+
+    /**
+     * Whether the requests should be limited by the persisted
+     * InterceptorRateLimits.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The maximum time in milliseconds a request over the limit waits for its
+     * turn before it's rejected. 0 rejects such requests immediately.
+     */
+    private long queueTimeout = 0;
+
+    /**
+     * The number of users per limit above which the buckets of idle users
+     * are dropped.
+     */
+    private int maxBuckets = 10000;
+}
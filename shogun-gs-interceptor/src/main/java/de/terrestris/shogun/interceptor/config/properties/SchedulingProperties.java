@@ -0,0 +1,95 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.config.properties;
+
+import de.terrestris.shogun.interceptor.enumeration.OgcEnum;
+import lombok.Data;
+import org.springframework.boot.context.properties.NestedConfigurationProperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@Data
+public class SchedulingProperties {
+
+    /**
+     * Whether the GeoServer requests should be classified into interactive,
+     * standard and bulk traffic and scheduled by priority.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The maximum number of concurrent GeoServer requests of all classes.
+     * Waiting requests are granted a slot in the order interactive, standard,
+     * bulk.
+     */
+    private int maxConcurrentRequests = 64;
+
+    @NestedConfigurationProperty
+    private TrafficClassProperties interactive = new TrafficClassProperties(64, 256, 5000);
+
+    @NestedConfigurationProperty
+    private TrafficClassProperties standard = new TrafficClassProperties(32, 128, 10000);
+
+    @NestedConfigurationProperty
+    private TrafficClassProperties bulk = new TrafficClassProperties(8, 64, 30000);
+
+    /**
+     * The latency sensitive operations.
+     */
+    private List<OgcEnum.OperationType> interactiveOperations = Arrays.asList(
+        OgcEnum.OperationType.GET_MAP,
+        OgcEnum.OperationType.GET_FEATURE_INFO,
+        OgcEnum.OperationType.GET_LEGEND_GRAPHIC,
+        OgcEnum.OperationType.DESCRIBE_LAYER,
+        OgcEnum.OperationType.GET_TILE
+    );
+
+    /**
+     * The operations potentially transferring large amounts of data.
+     */
+    private List<OgcEnum.OperationType> bulkOperations = Arrays.asList(
+        OgcEnum.OperationType.GET_FEATURE,
+        OgcEnum.OperationType.GET_COVERAGE,
+        OgcEnum.OperationType.EXECUTE,
+        OgcEnum.OperationType.TRANSACTION
+    );
+
+    /**
+     * The maximum size (width * height) of an interactive GetMap request.
+     * Larger maps (e.g. prints) are standard traffic.
+     */
+    private long maxInteractivePixels = 4096L * 4096;
+
+    /**
+     * GetFeature requests limited to at most this number of features are
+     * standard instead of bulk traffic.
+     */
+    private int maxStandardFeatures = 1000;
+
+    /**
+     * The size of a request body in bytes above which the request is bulk traffic.
+     */
+    private long bulkBodySize = 1024 * 1024;
+
+    /**
+     * The users (names or keycloak ids) and authorities whose requests are
+     * always bulk traffic, e.g. harvesters.
+     */
+    private List<String> bulkCallers = new ArrayList<>();
+}
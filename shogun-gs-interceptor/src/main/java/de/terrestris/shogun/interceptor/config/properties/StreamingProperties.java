@@ -0,0 +1,36 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.config.properties;
+
+import lombok.Data;
+
+@Data
+public class StreamingProperties {
+
+    /**
+     * The number of threads running the leading stages of chained streaming
+     * response interceptors. Each stage of a response occupies one thread
+     * while the response is written.
+     */
+    private int poolSize = 64;
+
+    /**
+     * The maximum number of stages waiting for a thread. Responses whose
+     * stages can't be started are aborted.
+     */
+    private int queueCapacity = 0;
+}
@@ -0,0 +1,105 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.controller;
+
+import de.terrestris.shogun.interceptor.exception.InterceptorException;
+import de.terrestris.shogun.interceptor.exception.OgcServiceException;
+import de.terrestris.shogun.interceptor.service.GeoServerInterceptorService;
+import de.terrestris.shogun.interceptor.util.OgcXmlUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static de.terrestris.shogun.interceptor.controller.GeoServerInterceptorController.ERROR_MESSAGE;
+
+/**
+ * Handles the GeoServer requests asynchronously, i.e. the request thread is
+ * released while the GeoServer is being requested. Replaces the
+ * {@link GeoServerInterceptorController} if {@code interceptor.async.enabled}
+ * is set.
+ */
+@RestController
+@ConditionalOnProperty(prefix = "interceptor.async", name = "enabled", havingValue = "true")
+public class GeoServerInterceptorAsyncController {
+
+    protected final Logger logger = LogManager.getLogger(getClass());
+
+    @Autowired
+    protected GeoServerInterceptorService service;
+
+    @Autowired
+    @Qualifier("interceptorResponseExecutor")
+    protected ThreadPoolTaskExecutor executor;
+
+    @RequestMapping(value = {"/geoserver.action", "/geoserver.action/{endpoint}"}, method = {RequestMethod.GET, RequestMethod.POST})
+    public CompletableFuture<ResponseEntity<byte[]>> interceptGeoServerRequest(HttpServletRequest request, Optional<String> endpoint) {
+        try {
+            logger.trace("Trying to intercept a GeoServer resource asynchronously.");
+
+            return this.service.interceptGeoServerRequestAsync(request, endpoint, executor)
+                .handle((httpResponse, e) -> {
+                    if (e != null) {
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        if (cause instanceof OgcServiceException) {
+                            return getServiceExceptionResponse((OgcServiceException) cause);
+                        }
+                        throw handleError(cause);
+                    }
+
+                    logger.trace("Successfully intercepted a GeoServer resource.");
+                    return new ResponseEntity<>(httpResponse.getBody(), httpResponse.getHeaders(),
+                        httpResponse.getStatusCode());
+                });
+        } catch (OgcServiceException e) {
+            return CompletableFuture.completedFuture(getServiceExceptionResponse(e));
+        } catch (NullPointerException | IOException | InterceptorException | URISyntaxException e) {
+            throw handleError(e);
+        }
+    }
+
+    private ResponseEntity<byte[]> getServiceExceptionResponse(OgcServiceException e) {
+        logger.warn(ERROR_MESSAGE + e.getMessage());
+        HttpHeaders responseHeaders = new HttpHeaders();
+        responseHeaders.addAll(e.getHeaders());
+        responseHeaders.setContentType(MediaType.TEXT_XML);
+        return new ResponseEntity<>(OgcXmlUtil.getServiceExceptionReport(e), responseHeaders, e.getHttpStatus());
+    }
+
+    private ResponseStatusException handleError(Throwable e) {
+        logger.error(ERROR_MESSAGE + e.getMessage());
+        logger.trace("Full stack trace: ", e);
+        return new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, ERROR_MESSAGE + e.getMessage(), e);
+    }
+}
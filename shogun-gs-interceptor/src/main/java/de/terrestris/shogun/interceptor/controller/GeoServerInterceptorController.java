@@ -17,12 +17,15 @@
 package de.terrestris.shogun.interceptor.controller;
 
 import de.terrestris.shogun.interceptor.exception.InterceptorException;
+import de.terrestris.shogun.interceptor.exception.OgcServiceException;
 import de.terrestris.shogun.interceptor.service.GeoServerInterceptorService;
-import de.terrestris.shogun.lib.dto.HttpResponse;
+import de.terrestris.shogun.interceptor.util.OgcXmlUtil;
+import de.terrestris.shogun.lib.dto.StreamingHttpResponse;
 import org.apache.http.HttpException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -31,38 +34,78 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.servlet.http.HttpServletRequest;
+import java.io.Closeable;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @RestController
+@ConditionalOnProperty(prefix = "interceptor.async", name = "enabled", havingValue = "false", matchIfMissing = true)
 public class GeoServerInterceptorController {
     public static final String ERROR_MESSAGE = "Error while requesting a GeoServer resource: ";
 
+    private static final String RELEASE_INTERCEPTOR_KEY = GeoServerInterceptorController.class.getName() + ".release";
+
     protected final Logger logger = LogManager.getLogger(getClass());
 
     @Autowired
     protected GeoServerInterceptorService service;
 
     @RequestMapping(value = {"/geoserver.action", "/geoserver.action/{endpoint}"}, method = {RequestMethod.GET, RequestMethod.POST})
-    public ResponseEntity<?> interceptGeoServerRequest(HttpServletRequest request, Optional<String> endpoint) {
+    public ResponseEntity<StreamingResponseBody> interceptGeoServerRequest(HttpServletRequest request, Optional<String> endpoint) {
         HttpHeaders responseHeaders = new HttpHeaders();
-        HttpStatus responseStatus;
-        byte[] responseBody;
-        HttpResponse httpResponse;
+        StreamingHttpResponse httpResponse;
 
         try {
             logger.trace("Trying to intercept a GeoServer resource.");
-            httpResponse = this.service.interceptGeoServerRequest(request, endpoint);
-            responseStatus = httpResponse.getStatusCode();
-            responseBody = httpResponse.getBody();
-            responseHeaders = httpResponse.getHeaders();
+            httpResponse = this.service.interceptGeoServerRequestStreaming(request, endpoint);
+
+            // release the upstream connection even if the body is never written,
+            // e.g. if the client aborts or the async request times out before it runs
+            Closeable release = closeOnce(httpResponse);
+            WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(RELEASE_INTERCEPTOR_KEY,
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void afterCompletion(NativeWebRequest webRequest, Callable<T> task) throws Exception {
+                        release.close();
+                    }
+                });
+            // the body is not written at all if the async processing didn't start
+            RequestContextHolder.currentRequestAttributes().registerDestructionCallback(RELEASE_INTERCEPTOR_KEY, () -> {
+                if (!request.isAsyncStarted()) {
+                    try {
+                        release.close();
+                    } catch (IOException e) {
+                        logger.warn("Could not release the GeoServer response: " + e.getMessage());
+                    }
+                }
+            }, RequestAttributes.SCOPE_REQUEST);
+
+            StreamingResponseBody responseBody = outputStream -> {
+                try (Closeable ignored = release) {
+                    httpResponse.writeBody(outputStream);
+                }
+            };
 
             logger.trace("Successfully intercepted a GeoServer resource.");
-            return new ResponseEntity<>(responseBody, responseHeaders, responseStatus);
+            return new ResponseEntity<>(responseBody, httpResponse.getHeaders(), httpResponse.getStatusCode());
+        } catch (OgcServiceException e) {
+            logger.warn(ERROR_MESSAGE + e.getMessage());
+            byte[] report = OgcXmlUtil.getServiceExceptionReport(e);
+            responseHeaders.addAll(e.getHeaders());
+            responseHeaders.setContentType(MediaType.TEXT_XML);
+            return new ResponseEntity<>(outputStream -> outputStream.write(report), responseHeaders, e.getHttpStatus());
         } catch (NullPointerException | IOException | InterceptorException | HttpException | URISyntaxException e) {
             logger.error(ERROR_MESSAGE + e.getMessage());
             logger.trace("Full stack trace: ", e);
@@ -70,4 +113,17 @@ public class GeoServerInterceptorController {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, ERROR_MESSAGE + e.getMessage(), e);
         }
     }
+
+    /**
+     * @param response
+     * @return A {@link Closeable} closing the given response on its first call only
+     */
+    private static Closeable closeOnce(StreamingHttpResponse response) {
+        AtomicBoolean closed = new AtomicBoolean();
+        return () -> {
+            if (closed.compareAndSet(false, true)) {
+                response.close();
+            }
+        };
+    }
 }
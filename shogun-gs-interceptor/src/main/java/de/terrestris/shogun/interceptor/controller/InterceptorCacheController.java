@@ -0,0 +1,70 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.controller;
+
+import de.terrestris.shogun.interceptor.cache.InterceptorResponseCache;
+import de.terrestris.shogun.interceptor.capabilities.FilteredCapabilitiesCache;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/interceptorcache")
+@Log4j2
+public class InterceptorCacheController {
+
+    @Autowired
+    protected InterceptorResponseCache responseCache;
+
+    @Autowired
+    protected FilteredCapabilitiesCache capabilitiesCache;
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public Map<String, Object> getStatistics() {
+        return this.responseCache.getStatistics();
+    }
+
+    @DeleteMapping
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void purgeAll() {
+        this.responseCache.purgeAll();
+    }
+
+    @DeleteMapping(value = "/namespace/{namespace}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void purgeNamespace(@PathVariable String namespace) {
+        this.responseCache.purge(namespace);
+    }
+
+    @GetMapping(value = "/capabilities", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public Map<String, Object> getCapabilitiesStatistics() {
+        return this.capabilitiesCache.getStatistics();
+    }
+
+    @DeleteMapping(value = "/capabilities")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void invalidateCapabilities() {
+        this.capabilitiesCache.invalidateAll();
+    }
+
+}
@@ -0,0 +1,77 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.controller;
+
+import de.terrestris.shogun.interceptor.model.InterceptorRateLimit;
+import de.terrestris.shogun.interceptor.service.InterceptorRateLimitService;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.util.List;
+
+@RestController
+@RequestMapping("/interceptorratelimits")
+@Log4j2
+public class InterceptorRateLimitController {
+
+    @Autowired
+    protected InterceptorRateLimitService interceptorRateLimitService;
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public List<InterceptorRateLimit> getAllInterceptorRateLimits() {
+        return this.interceptorRateLimitService.findAll();
+    }
+
+    @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public InterceptorRateLimit getInterceptorRateLimit(@PathVariable Long id) {
+        return this.interceptorRateLimitService.findOne(id)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    }
+
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    public InterceptorRateLimit addInterceptorRateLimit(@RequestBody InterceptorRateLimit rateLimit) {
+        return this.interceptorRateLimitService.create(rateLimit);
+    }
+
+    @PutMapping(value = "/{id}", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public InterceptorRateLimit updateInterceptorRateLimit(@PathVariable Long id, @RequestBody InterceptorRateLimit rateLimit) {
+        try {
+            return this.interceptorRateLimitService.update(id, rateLimit);
+        } catch (IOException e) {
+            log.error("Error while updating the rate limit {}: {}", id, e.getMessage());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage(), e);
+        }
+    }
+
+    @DeleteMapping(value = "/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void removeInterceptorRateLimit(@PathVariable Long id) {
+        InterceptorRateLimit rateLimit = this.interceptorRateLimitService.findOne(id)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        this.interceptorRateLimitService.delete(rateLimit);
+    }
+
+}
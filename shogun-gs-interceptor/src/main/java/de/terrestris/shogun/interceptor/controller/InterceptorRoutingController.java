@@ -0,0 +1,78 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.controller;
+
+import de.terrestris.shogun.interceptor.backend.Backend;
+import de.terrestris.shogun.interceptor.routing.NamespaceRoute;
+import de.terrestris.shogun.interceptor.routing.NamespaceRouter;
+import de.terrestris.shogun.interceptor.routing.NamespaceRoutingTable;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/interceptorrouting")
+@Log4j2
+public class InterceptorRoutingController {
+
+    @Autowired
+    protected NamespaceRouter namespaceRouter;
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public Map<String, Object> getRoutes() {
+        NamespaceRoutingTable routingTable = this.namespaceRouter.getRoutingTable();
+
+        Map<String, Object> routes = new LinkedHashMap<>();
+        for (NamespaceRoute route : routingTable.getRoutes()) {
+            Map<String, Object> target = new LinkedHashMap<>();
+            target.put("balancing", route.getPool().getStrategy());
+            target.put("backends", route.getPool().getBackends().stream()
+                .map(Backend::getUrl)
+                .collect(Collectors.toList()));
+            routes.put(route.getNamespace(), target);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("namespaceBoundUrl", routingTable.isNamespaceBoundUrl());
+        result.put("defaultOwsUrl", routingTable.getDefaultBackend() != null ?
+            routingTable.getDefaultBackend().getUrl() : null);
+        result.put("namespaces", routes);
+        return result;
+    }
+
+    @PostMapping(value = "/reload")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void reload() {
+        try {
+            this.namespaceRouter.reload();
+        } catch (RuntimeException e) {
+            log.error("Error while reloading the routing table: {}", e.getMessage());
+            log.trace("Full stack trace: ", e);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Error while reloading the routing table: " + e.getMessage(), e);
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.controller;
+
+import de.terrestris.shogun.interceptor.coalescing.RequestCoalescer;
+import de.terrestris.shogun.interceptor.latency.LatencyTracker;
+import de.terrestris.shogun.interceptor.ratelimit.RateLimiter;
+import de.terrestris.shogun.interceptor.routing.NamespaceRouter;
+import de.terrestris.shogun.interceptor.scheduling.PriorityScheduler;
+import de.terrestris.shogun.interceptor.servlet.RequestBodyBufferAllocator;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/interceptorstatistics")
+@Log4j2
+public class InterceptorStatisticsController {
+
+    @Autowired
+    protected RequestCoalescer requestCoalescer;
+
+    @Autowired
+    protected NamespaceRouter namespaceRouter;
+
+    @Autowired
+    protected RateLimiter rateLimiter;
+
+    @Autowired
+    protected RequestBodyBufferAllocator bodyBufferAllocator;
+
+    @Autowired
+    protected PriorityScheduler priorityScheduler;
+
+    @Autowired
+    protected LatencyTracker latencyTracker;
+
+    @GetMapping(value = "/namespaces", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public Map<String, Object> getNamespaceStatistics() {
+        return this.namespaceRouter.getNamespaceStatistics();
+    }
+
+    @GetMapping(value = "/backends", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public Map<String, Object> getBackendStatistics() {
+        return this.namespaceRouter.getBackendStatistics();
+    }
+
+    @GetMapping(value = "/coalescing", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public Map<String, Object> getCoalescingStatistics() {
+        return this.requestCoalescer.getStatistics();
+    }
+
+    @GetMapping(value = "/ratelimits", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public List<Map<String, Object>> getRateLimitStatistics() {
+        return this.rateLimiter.getStatistics();
+    }
+
+    @GetMapping(value = "/trafficclasses", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public Map<String, Object> getTrafficClassStatistics() {
+        return this.priorityScheduler.getStatistics();
+    }
+
+    @GetMapping(value = "/bodybuffers", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public Map<String, Object> getBodyBufferStatistics() {
+        return this.bodyBufferAllocator.getStatistics();
+    }
+
+    @GetMapping(value = "/latencies", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public Map<String, Object> getLatencyStatistics() {
+        return this.latencyTracker.getStatistics();
+    }
+
+}
@@ -0,0 +1,57 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+/**
+ * An {@link InterceptorException} that is returned to the client as OGC
+ * ServiceExceptionReport (instead of an internal server error).
+ */
+@Getter
+public class OgcServiceException extends InterceptorException {
+
+    public static final String NO_APPLICABLE_CODE = "NoApplicableCode";
+
+    /**
+     * The OGC exception code.
+     */
+    private final String exceptionCode;
+
+    /**
+     * The HTTP status of the response.
+     */
+    private final HttpStatus httpStatus;
+
+    /**
+     * Additional headers of the response, e.g. Retry-After.
+     */
+    private final HttpHeaders headers = new HttpHeaders();
+
+    public OgcServiceException(String message, HttpStatus httpStatus) {
+        this(message, NO_APPLICABLE_CODE, httpStatus);
+    }
+
+    public OgcServiceException(String message, String exceptionCode, HttpStatus httpStatus) {
+        super(message);
+        this.exceptionCode = exceptionCode;
+        this.httpStatus = httpStatus;
+    }
+
+}
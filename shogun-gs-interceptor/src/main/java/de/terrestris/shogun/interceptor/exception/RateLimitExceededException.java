@@ -0,0 +1,41 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Thrown if a request exceeds the rate limit of the user. Returned to the
+ * client with status 429 and a Retry-After header.
+ */
+@Getter
+public class RateLimitExceededException extends OgcServiceException {
+
+    /**
+     * The number of seconds after which the request may be repeated.
+     */
+    private final long retryAfter;
+
+    public RateLimitExceededException(String message, long retryAfter) {
+        super(message, HttpStatus.TOO_MANY_REQUESTS);
+        this.retryAfter = retryAfter;
+        getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfter));
+    }
+
+}
@@ -0,0 +1,522 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.fanout;
+
+import de.terrestris.shogun.interceptor.config.properties.FanOutProperties.FeatureInfoSplit;
+import de.terrestris.shogun.interceptor.config.properties.InterceptorProperties;
+import de.terrestris.shogun.interceptor.enumeration.OgcEnum;
+import de.terrestris.shogun.interceptor.exception.InterceptorException;
+import de.terrestris.shogun.interceptor.routing.NamespaceRouter;
+import de.terrestris.shogun.interceptor.routing.NamespaceRoutingTable;
+import de.terrestris.shogun.interceptor.servlet.MutableHttpServletRequest;
+import de.terrestris.shogun.interceptor.servlet.OgcRequestDescriptor;
+import de.terrestris.shogun.interceptor.util.FeatureInfoMerger;
+import de.terrestris.shogun.interceptor.util.WmsImageCompositor;
+import de.terrestris.shogun.lib.dto.HttpResponse;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutor;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Splits WMS GetMap and GetFeatureInfo requests spanning several namespaces
+ * into partial requests per namespace, intercepts the parts in parallel and
+ * combines their responses (compositing the images or merging the feature
+ * infos).
+ */
+@Component
+@Log4j2
+public class FanOutHandler {
+
+    /**
+     * Intercepts a single partial request (with the interceptor rules of its
+     * own layers).
+     */
+    @FunctionalInterface
+    public interface PartInterceptor {
+        HttpResponse intercept(MutableHttpServletRequest part) throws InterceptorException, HttpException,
+            URISyntaxException, IOException;
+    }
+
+    /**
+     * WMS parameters that prevent splitting a request by namespace.
+     */
+    private static final String[] UNSUPPORTED_PARAMS = new String[]{
+        "CUSTOM_ENDPOINT",
+        "SLD",
+        "SLD_BODY",
+        "FILTER",
+        "FEATUREID",
+        OgcRequestDescriptor.USE_REFLECT_PARAM
+    };
+
+    /**
+     * Marks per layer parameter values that don't match the number of layers.
+     */
+    private static final String[] INVALID_PER_LAYER_VALUES = new String[0];
+
+    private static final MediaType SERVICE_EXCEPTION_CONTENT_TYPE = MediaType.valueOf("application/vnd.ogc.se_xml");
+
+    @Autowired
+    protected InterceptorProperties interceptorProperties;
+
+    @Autowired
+    protected NamespaceRouter namespaceRouter;
+
+    @Autowired(required = false)
+    @Qualifier("interceptorFanOutExecutor")
+    protected ThreadPoolTaskExecutor fanOutExecutor;
+
+    /**
+     * Splits the given WMS GetMap or GetFeatureInfo request into partial
+     * requests per namespace, if fan-out is enabled and the layers span several
+     * namespaces.
+     *
+     * @param mutableRequest
+     * @return The partial requests or null if the request shouldn't be split
+     * @throws InterceptorException
+     * @throws IOException
+     */
+    public List<MutableHttpServletRequest> getParts(MutableHttpServletRequest mutableRequest) throws InterceptorException, IOException {
+        if (fanOutExecutor == null || !"GET".equalsIgnoreCase(mutableRequest.getMethod())) {
+            return null;
+        }
+
+        NamespaceRoutingTable routingTable = namespaceRouter.getRoutingTable();
+        OgcRequestDescriptor descriptor = mutableRequest.getOgcRequestDescriptor();
+
+        if (!routingTable.isNamespaceBoundUrl() ||
+            !OgcEnum.ServiceType.WMS.toString().equalsIgnoreCase(descriptor.getService())) {
+            return null;
+        }
+
+        for (String parameter : UNSUPPORTED_PARAMS) {
+            if (StringUtils.isNotEmpty(descriptor.getParameterValue(parameter))) {
+                return null;
+            }
+        }
+
+        String operation = descriptor.getOperation();
+        if (OgcEnum.OperationType.GET_MAP.toString().equalsIgnoreCase(operation) &&
+            WmsImageCompositor.isSupportedFormat(descriptor.getParameterValue("FORMAT"))) {
+            return getGetMapParts(mutableRequest, descriptor);
+        }
+        if (OgcEnum.OperationType.GET_FEATURE_INFO.toString().equalsIgnoreCase(operation) &&
+            interceptorProperties.getFanOut().getFeatureInfoSplit() != FeatureInfoSplit.NONE &&
+            FeatureInfoMerger.isSupportedFormat(descriptor.getParameterValue("INFO_FORMAT"))) {
+            return getFeatureInfoParts(mutableRequest, descriptor);
+        }
+
+        return null;
+    }
+
+    /**
+     * Intercepts the given partial requests in parallel and combines the
+     * responses.
+     *
+     * @param mutableRequest  The original request
+     * @param parts           The partial requests, see {@link #getParts(MutableHttpServletRequest)}
+     * @param partInterceptor Intercepts a single partial request
+     * @return The combined response
+     * @throws InterceptorException
+     * @throws HttpException
+     */
+    public HttpResponse intercept(MutableHttpServletRequest mutableRequest, List<MutableHttpServletRequest> parts,
+            PartInterceptor partInterceptor) throws InterceptorException, HttpException {
+        OgcRequestDescriptor descriptor = mutableRequest.getOgcRequestDescriptor();
+        String operation;
+        try {
+            operation = descriptor.getOperation();
+        } catch (IOException e) {
+            throw new InterceptorException("Error while reading the request: " + e.getMessage(), e);
+        }
+
+        if (OgcEnum.OperationType.GET_FEATURE_INFO.toString().equalsIgnoreCase(operation)) {
+            List<HttpResponse> responses = sendParts(parts, partInterceptor, "GetFeatureInfo",
+                interceptorProperties.getFanOut().getFeatureInfoTimeout(), true);
+            return mergeFeatureInfoResponses(descriptor, responses);
+        }
+
+        List<HttpResponse> responses = sendParts(parts, partInterceptor, "GetMap",
+            interceptorProperties.getFanOut().getTimeout(), false);
+        return compositeGetMapResponses(descriptor, responses);
+    }
+
+    /**
+     * Splits the given GetMap request into one request per run of consecutive
+     * layers of the same namespace.
+     *
+     * @param mutableRequest
+     * @param descriptor
+     * @return The partial requests in layer order or null if the request shouldn't be split
+     * @throws InterceptorException
+     * @throws IOException
+     */
+    private List<MutableHttpServletRequest> getGetMapParts(MutableHttpServletRequest mutableRequest,
+            OgcRequestDescriptor descriptor) throws InterceptorException, IOException {
+        List<String> layers = descriptor.getEndPoints();
+        if (layers.size() < 2) {
+            return null;
+        }
+
+        // the styles and filters are given per layer (if at all)
+        String[] styleList = getPerLayerValues(descriptor.getParameterValue("STYLES"), ",", layers.size());
+        String[] cqlFilterList = getPerLayerValues(descriptor.getParameterValue("CQL_FILTER"), ";", layers.size());
+        if (styleList == INVALID_PER_LAYER_VALUES || cqlFilterList == INVALID_PER_LAYER_VALUES) {
+            return null;
+        }
+
+        // find the runs of consecutive layers of the same namespace
+        List<Integer> runStarts = new ArrayList<>();
+        String previousNamespace = null;
+        for (int i = 0; i < layers.size(); i++) {
+            String namespace = NamespaceRoutingTable.getNamespace(layers.get(i));
+            if (!namespace.equalsIgnoreCase(previousNamespace)) {
+                runStarts.add(i);
+                previousNamespace = namespace;
+            }
+        }
+
+        if (runStarts.size() < 2) {
+            return null;
+        }
+        if (runStarts.size() > interceptorProperties.getFanOut().getMaxParts()) {
+            log.debug("Not splitting the GetMap request into {} parts", runStarts.size());
+            return null;
+        }
+
+        List<MutableHttpServletRequest> parts = new ArrayList<>(runStarts.size());
+        for (int run = 0; run < runStarts.size(); run++) {
+            int start = runStarts.get(run);
+            int end = run + 1 < runStarts.size() ? runStarts.get(run + 1) : layers.size();
+
+            MutableHttpServletRequest part = new MutableHttpServletRequest(mutableRequest);
+            part.setParameterIgnoreCase("LAYERS", String.join(",", layers.subList(start, end)));
+            if (styleList != null) {
+                part.setParameterIgnoreCase("STYLES", String.join(",", Arrays.asList(styleList).subList(start, end)));
+            }
+            if (cqlFilterList != null) {
+                part.setParameterIgnoreCase("CQL_FILTER", String.join(";", Arrays.asList(cqlFilterList).subList(start, end)));
+            }
+            // the parts are composited with transparency
+            part.setParameterIgnoreCase("FORMAT", WmsImageCompositor.PNG_FORMAT);
+            part.setParameterIgnoreCase("TRANSPARENT", "TRUE");
+            parts.add(part);
+        }
+
+        log.debug("Splitting the GetMap request for {} layers into {} parts", layers.size(), parts.size());
+
+        return parts;
+    }
+
+    /**
+     * Splits the given GetFeatureInfo request into one request per namespace
+     * (or per layer) of the queried layers. Each partial request renders and
+     * queries its own layers only.
+     *
+     * @param mutableRequest
+     * @param descriptor
+     * @return The partial requests or null if the request shouldn't be split
+     * @throws InterceptorException
+     * @throws IOException
+     */
+    private List<MutableHttpServletRequest> getFeatureInfoParts(MutableHttpServletRequest mutableRequest,
+            OgcRequestDescriptor descriptor) throws InterceptorException, IOException {
+        String queryLayerValue = descriptor.getParameterValue("QUERY_LAYERS");
+        if (StringUtils.isEmpty(queryLayerValue)) {
+            return null;
+        }
+        String[] queryLayers = StringUtils.split(queryLayerValue, ",");
+        if (queryLayers.length < 2) {
+            return null;
+        }
+
+        // the styles and filters are given per rendered layer (if at all)
+        List<String> layers = descriptor.getEndPoints();
+        String[] styleList = getPerLayerValues(descriptor.getParameterValue("STYLES"), ",", layers.size());
+        String[] cqlFilterList = getPerLayerValues(descriptor.getParameterValue("CQL_FILTER"), ";", layers.size());
+        if (styleList == INVALID_PER_LAYER_VALUES || cqlFilterList == INVALID_PER_LAYER_VALUES) {
+            return null;
+        }
+
+        boolean splitByLayer = interceptorProperties.getFanOut().getFeatureInfoSplit() == FeatureInfoSplit.LAYER;
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (String queryLayer : queryLayers) {
+            int layerIndex = layers.indexOf(queryLayer);
+            if (layerIndex < 0) {
+                // let GeoServer report the invalid request
+                return null;
+            }
+            String key = splitByLayer ? queryLayer : NamespaceRoutingTable.getNamespace(queryLayer).toLowerCase();
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(layerIndex);
+        }
+
+        if (groups.size() < 2) {
+            return null;
+        }
+        if (groups.size() > interceptorProperties.getFanOut().getMaxFeatureInfoParts()) {
+            log.debug("Not splitting the GetFeatureInfo request into {} parts", groups.size());
+            return null;
+        }
+
+        List<MutableHttpServletRequest> parts = new ArrayList<>(groups.size());
+        for (List<Integer> layerIndexes : groups.values()) {
+            List<String> partLayers = new ArrayList<>(layerIndexes.size());
+            List<String> partStyles = new ArrayList<>(layerIndexes.size());
+            List<String> partCqlFilters = new ArrayList<>(layerIndexes.size());
+            for (int layerIndex : layerIndexes) {
+                partLayers.add(layers.get(layerIndex));
+                if (styleList != null) {
+                    partStyles.add(styleList[layerIndex]);
+                }
+                if (cqlFilterList != null) {
+                    partCqlFilters.add(cqlFilterList[layerIndex]);
+                }
+            }
+
+            MutableHttpServletRequest part = new MutableHttpServletRequest(mutableRequest);
+            String partLayerValue = String.join(",", partLayers);
+            part.setParameterIgnoreCase("LAYERS", partLayerValue);
+            part.setParameterIgnoreCase("QUERY_LAYERS", partLayerValue);
+            part.setParameterIgnoreCase("STYLES", String.join(",", partStyles));
+            if (cqlFilterList != null) {
+                part.setParameterIgnoreCase("CQL_FILTER", String.join(";", partCqlFilters));
+            }
+            parts.add(part);
+        }
+
+        log.debug("Splitting the GetFeatureInfo request for {} layers into {} parts", queryLayers.length, parts.size());
+
+        return parts;
+    }
+
+    /**
+     * @param value     The parameter value
+     * @param separator The separator of the values
+     * @param count     The number of layers
+     * @return The values per layer, null if no value is given or
+     * {@link #INVALID_PER_LAYER_VALUES} if the count doesn't match
+     */
+    private static String[] getPerLayerValues(String value, String separator, int count) {
+        if (StringUtils.isEmpty(value)) {
+            return null;
+        }
+        String[] values = value.split(separator, -1);
+        return values.length == count ? values : INVALID_PER_LAYER_VALUES;
+    }
+
+    /**
+     * Intercepts the given partial requests in parallel with a shared deadline.
+     *
+     * @param parts           The partial requests
+     * @param partInterceptor Intercepts a single partial request
+     * @param operation       The operation name (for logging)
+     * @param timeout         The deadline for all partial responses in milliseconds
+     * @param partial         Whether to return the responses received in time (and
+     *                        skip failed parts) instead of failing on the first error
+     * @return The partial responses in request order, with null for each
+     * skipped part if partial results are allowed
+     * @throws InterceptorException
+     * @throws HttpException
+     */
+    private List<HttpResponse> sendParts(List<MutableHttpServletRequest> parts, PartInterceptor partInterceptor,
+            String operation, long timeout, boolean partial) throws InterceptorException, HttpException {
+        Executor executor = new DelegatingSecurityContextExecutor(fanOutExecutor, SecurityContextHolder.getContext());
+
+        List<CompletableFuture<HttpResponse>> partialResponses = new ArrayList<>(parts.size());
+        for (MutableHttpServletRequest part : parts) {
+            partialResponses.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return partInterceptor.intercept(part);
+                } catch (InterceptorException | HttpException | URISyntaxException | IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor));
+        }
+
+        Throwable failure = null;
+        try {
+            CompletableFuture.allOf(partialResponses.toArray(new CompletableFuture[0]))
+                .get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            partialResponses.forEach(partialResponse -> partialResponse.cancel(true));
+            if (!partial) {
+                throw new InterceptorException("Timed out while waiting for the partial " + operation + " responses", e);
+            }
+            failure = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterceptorException("Interrupted while waiting for the partial " + operation + " responses", e);
+        } catch (ExecutionException e) {
+            failure = e.getCause() instanceof CompletionException && e.getCause().getCause() != null ?
+                e.getCause().getCause() : e.getCause();
+            if (!partial) {
+                throwFailure(failure, operation);
+            }
+        }
+
+        List<HttpResponse> responses = new ArrayList<>(parts.size());
+        int skipped = 0;
+        for (CompletableFuture<HttpResponse> partialResponse : partialResponses) {
+            if (partialResponse.isDone() && !partialResponse.isCompletedExceptionally()) {
+                responses.add(partialResponse.join());
+            } else {
+                responses.add(null);
+                skipped++;
+            }
+        }
+
+        if (skipped == parts.size()) {
+            throwFailure(failure, operation);
+        }
+        if (skipped > 0) {
+            log.warn("Returning partial {} results, {} of {} parts failed or timed out: {}", operation, skipped,
+                parts.size(), failure != null ? failure.getMessage() : null);
+        }
+
+        return responses;
+    }
+
+    /**
+     * @param failure
+     * @param operation
+     * @throws InterceptorException
+     * @throws HttpException
+     */
+    private static void throwFailure(Throwable failure, String operation) throws InterceptorException, HttpException {
+        if (failure instanceof InterceptorException) {
+            throw (InterceptorException) failure;
+        } else if (failure instanceof HttpException) {
+            throw (HttpException) failure;
+        } else if (failure instanceof TimeoutException) {
+            throw new InterceptorException("Timed out while waiting for the partial " + operation + " responses", failure);
+        }
+        throw new InterceptorException("Error while requesting a partial " + operation + ": " +
+            (failure != null ? failure.getMessage() : null), failure);
+    }
+
+    /**
+     * Composites the images of the partial GetMap responses in layer order.
+     *
+     * @param descriptor The descriptor of the original request
+     * @param responses  The partial responses in layer order
+     * @return The composited response or the first partial response that isn't an image
+     * @throws InterceptorException
+     */
+    private HttpResponse compositeGetMapResponses(OgcRequestDescriptor descriptor, List<HttpResponse> responses) throws InterceptorException {
+        List<byte[]> images = new ArrayList<>(responses.size());
+        for (HttpResponse response : responses) {
+            MediaType contentType = response.getHeaders() != null ? response.getHeaders().getContentType() : null;
+            if (response.getStatusCode() == null || !response.getStatusCode().is2xxSuccessful() ||
+                contentType == null || !"image".equalsIgnoreCase(contentType.getType())) {
+                // e.g. a ServiceExceptionReport, pass it to the client
+                log.debug("Partial GetMap response is not an image, skipping the compositing");
+                return response;
+            }
+            images.add(response.getBody());
+        }
+
+        try {
+            String format = descriptor.getParameterValue("FORMAT");
+
+            byte[] body = WmsImageCompositor.composite(images,
+                Integer.parseInt(descriptor.getParameterValue("WIDTH")),
+                Integer.parseInt(descriptor.getParameterValue("HEIGHT")),
+                format,
+                Boolean.parseBoolean(descriptor.getParameterValue("TRANSPARENT")),
+                descriptor.getParameterValue("BGCOLOR"));
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.parseMediaType(format));
+            return new HttpResponse(HttpStatus.OK, headers, body);
+        } catch (IOException | NumberFormatException e) {
+            throw new InterceptorException("Error while compositing the partial GetMap responses: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Merges the successful partial GetFeatureInfo responses. Failed parts
+     * (e.g. a ServiceExceptionReport of a single namespace) are skipped.
+     *
+     * @param descriptor The descriptor of the original request
+     * @param responses  The partial responses, null for timed out parts
+     * @return The merged response or the first partial response if no part succeeded
+     * @throws InterceptorException
+     */
+    private HttpResponse mergeFeatureInfoResponses(OgcRequestDescriptor descriptor, List<HttpResponse> responses) throws InterceptorException {
+        String infoFormat;
+        try {
+            infoFormat = descriptor.getParameterValue("INFO_FORMAT");
+        } catch (IOException e) {
+            throw new InterceptorException("Error while reading the request: " + e.getMessage(), e);
+        }
+
+        List<byte[]> bodies = new ArrayList<>(responses.size());
+        HttpResponse firstResponse = null;
+        HttpHeaders headers = null;
+        for (HttpResponse response : responses) {
+            if (response == null) {
+                continue;
+            }
+            if (firstResponse == null) {
+                firstResponse = response;
+            }
+            MediaType contentType = response.getHeaders() != null ? response.getHeaders().getContentType() : null;
+            if (response.getStatusCode() == null || !response.getStatusCode().is2xxSuccessful() ||
+                contentType == null || SERVICE_EXCEPTION_CONTENT_TYPE.includes(contentType)) {
+                log.warn("Skipping a partial GetFeatureInfo response with status {} and content type {}",
+                    response.getStatusCode(), contentType);
+                continue;
+            }
+            if (headers == null) {
+                headers = new HttpHeaders();
+                headers.setContentType(contentType);
+            }
+            bodies.add(response.getBody());
+        }
+
+        if (bodies.isEmpty()) {
+            return firstResponse;
+        }
+
+        byte[] body = FeatureInfoMerger.merge(bodies, infoFormat, headers.getContentType());
+        return new HttpResponse(HttpStatus.OK, headers, body);
+    }
+
+}
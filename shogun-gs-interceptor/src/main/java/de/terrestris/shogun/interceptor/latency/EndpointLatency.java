@@ -0,0 +1,191 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.latency;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The latencies of a GeoServer endpoint over a sliding window. The latencies
+ * are recorded without locking, the percentiles are computed once per interval.
+ */
+class EndpointLatency {
+
+    /**
+     * The highest trackable latency: one hour in microseconds.
+     */
+    private static final long HIGHEST_TRACKABLE_VALUE = TimeUnit.HOURS.toMicros(1);
+
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_VALUE, SIGNIFICANT_DIGITS);
+
+    private final Histogram[] intervals;
+
+    private final long intervalNanos;
+
+    private final double[] percentiles;
+
+    private final AtomicLong nextRoll;
+
+    private Histogram recycled;
+
+    private int currentInterval;
+
+    private volatile Snapshot snapshot = new Snapshot(0, new long[0], 0);
+
+    private final LongAdder requests = new LongAdder();
+
+    private final LongAdder hedged = new LongAdder();
+
+    private final LongAdder hedgesWon = new LongAdder();
+
+    /**
+     * @param window      The window in nanoseconds
+     * @param intervals   The number of intervals of the window
+     * @param percentiles The percentiles to compute
+     */
+    EndpointLatency(long window, int intervals, double... percentiles) {
+        this.intervals = new Histogram[Math.max(intervals, 1)];
+        this.intervalNanos = window / this.intervals.length;
+        this.percentiles = percentiles;
+        this.nextRoll = new AtomicLong(System.nanoTime() + intervalNanos);
+    }
+
+    void record(long nanos) {
+        // roll first, so that the recorded latencies belong to the current interval
+        rollIfDue();
+        requests.increment();
+        recorder.recordValue(Math.min(Math.max(TimeUnit.NANOSECONDS.toMicros(nanos), 1), HIGHEST_TRACKABLE_VALUE));
+    }
+
+    /**
+     * @return The percentiles of the last window (in the order given to the constructor)
+     */
+    Snapshot getSnapshot() {
+        rollIfDue();
+        return snapshot;
+    }
+
+    /**
+     * Takes a hedge if the ratio of hedged requests stays below the given maximum.
+     *
+     * @return Whether the request may be hedged
+     */
+    boolean tryHedge(double maxRatio) {
+        if (hedged.sum() + 1 > requests.sum() * maxRatio) {
+            return false;
+        }
+        hedged.increment();
+        return true;
+    }
+
+    void hedgeWon() {
+        hedgesWon.increment();
+    }
+
+    long getRequests() {
+        return requests.sum();
+    }
+
+    long getHedged() {
+        return hedged.sum();
+    }
+
+    long getHedgesWon() {
+        return hedgesWon.sum();
+    }
+
+    private void rollIfDue() {
+        long now = System.nanoTime();
+        long due = nextRoll.get();
+        if (now - due < 0) {
+            return;
+        }
+
+        // the endpoint may have been idle for several intervals
+        long elapsed = (now - due) / intervalNanos + 1;
+        if (nextRoll.compareAndSet(due, due + elapsed * intervalNanos)) {
+            roll(elapsed);
+        }
+    }
+
+    /**
+     * @param elapsed The number of intervals elapsed since the last roll
+     */
+    private synchronized void roll(long elapsed) {
+        Histogram interval = recorder.getIntervalHistogram(recycled);
+        recycled = intervals[currentInterval];
+        intervals[currentInterval] = interval;
+        currentInterval = (currentInterval + 1) % intervals.length;
+
+        // clear the intervals without recorded latencies (at most the whole window)
+        long emptyIntervals = Math.min(elapsed - 1, intervals.length);
+        for (long i = 0; i < emptyIntervals; i++) {
+            intervals[currentInterval] = null;
+            currentInterval = (currentInterval + 1) % intervals.length;
+        }
+
+        Histogram window = new Histogram(HIGHEST_TRACKABLE_VALUE, SIGNIFICANT_DIGITS);
+        for (Histogram histogram : intervals) {
+            if (histogram != null) {
+                window.add(histogram);
+            }
+        }
+
+        long[] values = new long[percentiles.length];
+        for (int i = 0; i < percentiles.length; i++) {
+            values[i] = window.getValueAtPercentile(percentiles[i]);
+        }
+        snapshot = new Snapshot(window.getTotalCount(), values, window.getMaxValue());
+    }
+
+    /**
+     * The percentiles of a window in microseconds.
+     */
+    static final class Snapshot {
+
+        private final long count;
+
+        private final long[] values;
+
+        private final long max;
+
+        private Snapshot(long count, long[] values, long max) {
+            this.count = count;
+            this.values = values;
+            this.max = max;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        long getValue(int index) {
+            return values[index];
+        }
+
+        long getMax() {
+            return max;
+        }
+    }
+
+}
@@ -0,0 +1,166 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.latency;
+
+import de.terrestris.shogun.interceptor.config.properties.InterceptorProperties;
+import de.terrestris.shogun.interceptor.config.properties.LatencyProperties;
+import org.apache.http.client.config.RequestConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the latency of the GeoServer endpoints (backend and operation) in
+ * HDR histograms and derives adaptive socket timeouts and hedge delays from
+ * their percentiles.
+ */
+@Component
+public class LatencyTracker {
+
+    private static final int MEDIAN = 0;
+
+    private static final int HEDGE_PERCENTILE = 1;
+
+    private static final int TIMEOUT_PERCENTILE = 2;
+
+    @Autowired
+    protected InterceptorProperties interceptorProperties;
+
+    private final Map<String, EndpointLatency> endpoints = new ConcurrentHashMap<>();
+
+    private LatencyProperties getProperties() {
+        return interceptorProperties.getLatency();
+    }
+
+    /**
+     * @return Whether latencies are tracked at all
+     */
+    public boolean isEnabled() {
+        return getProperties().isAdaptiveTimeouts() || getProperties().isHedging();
+    }
+
+    private EndpointLatency getEndpoint(String endpoint) {
+        return endpoints.computeIfAbsent(endpoint, key -> new EndpointLatency(
+            TimeUnit.MILLISECONDS.toNanos(getProperties().getWindow()), getProperties().getIntervals(),
+            50.0, getProperties().getHedgePercentile(), getProperties().getTimeoutPercentile()));
+    }
+
+    /**
+     * @param endpoint The endpoint
+     * @param nanos    The latency of a successful request
+     */
+    public void record(String endpoint, long nanos) {
+        if (isEnabled()) {
+            getEndpoint(endpoint).record(nanos);
+        }
+    }
+
+    /**
+     * @param endpoint  The endpoint
+     * @param nsTimeout The timeout of the namespace in milliseconds (used as upper bound), may be null
+     * @return The request configuration with the adaptive socket timeout of the
+     * given endpoint or null if there are not enough samples yet
+     */
+    public RequestConfig getRequestConfig(String endpoint, Integer nsTimeout) {
+        LatencyProperties properties = getProperties();
+        if (!properties.isAdaptiveTimeouts()) {
+            return null;
+        }
+
+        EndpointLatency.Snapshot snapshot = getEndpoint(endpoint).getSnapshot();
+        if (snapshot.getCount() < properties.getMinSamples()) {
+            return null;
+        }
+
+        long percentile = TimeUnit.MICROSECONDS.toMillis(snapshot.getValue(TIMEOUT_PERCENTILE));
+        int maxTimeout = nsTimeout != null ? Math.min(nsTimeout, properties.getMaxTimeout()) : properties.getMaxTimeout();
+        int timeout = (int) Math.max(properties.getMinTimeout(),
+            Math.min(maxTimeout, Math.round(percentile * properties.getTimeoutMultiplier())));
+
+        return RequestConfig.custom()
+            .setConnectionRequestTimeout(Math.min(properties.getLeaseTimeout(), timeout))
+            .setConnectTimeout(Math.min(properties.getConnectTimeout(), timeout))
+            .setSocketTimeout(timeout)
+            .build();
+    }
+
+    /**
+     * @param endpoint The endpoint
+     * @return The delay in milliseconds after which a request to the given
+     * endpoint should be hedged or -1 if there are not enough samples yet
+     */
+    public long getHedgeDelay(String endpoint) {
+        LatencyProperties properties = getProperties();
+        EndpointLatency.Snapshot snapshot = getEndpoint(endpoint).getSnapshot();
+        if (!properties.isHedging() || snapshot.getCount() < properties.getMinSamples()) {
+            return -1;
+        }
+        return Math.max(properties.getMinHedgeDelay(),
+            TimeUnit.MICROSECONDS.toMillis(snapshot.getValue(HEDGE_PERCENTILE)));
+    }
+
+    /**
+     * @param endpoint The endpoint
+     * @return Whether a request to the given endpoint may be hedged without
+     * exceeding the maximum hedge ratio
+     */
+    public boolean tryHedge(String endpoint) {
+        return getEndpoint(endpoint).tryHedge(getProperties().getMaxHedgeRatio());
+    }
+
+    /**
+     * Records that the hedged request answered first.
+     *
+     * @param endpoint The endpoint of the original request
+     */
+    public void hedgeWon(String endpoint) {
+        getEndpoint(endpoint).hedgeWon();
+    }
+
+    /**
+     * @return The percentiles (in milliseconds) and hedge counters per endpoint
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new TreeMap<>();
+        endpoints.forEach((endpoint, latency) -> {
+            EndpointLatency.Snapshot snapshot = latency.getSnapshot();
+            Map<String, Object> endpointStatistics = new LinkedHashMap<>();
+            endpointStatistics.put("requests", latency.getRequests());
+            endpointStatistics.put("windowCount", snapshot.getCount());
+            if (snapshot.getCount() > 0) {
+                endpointStatistics.put("p50Millis", toMillis(snapshot.getValue(MEDIAN)));
+                endpointStatistics.put("hedgePercentileMillis", toMillis(snapshot.getValue(HEDGE_PERCENTILE)));
+                endpointStatistics.put("timeoutPercentileMillis", toMillis(snapshot.getValue(TIMEOUT_PERCENTILE)));
+                endpointStatistics.put("maxMillis", toMillis(snapshot.getMax()));
+            }
+            endpointStatistics.put("hedged", latency.getHedged());
+            endpointStatistics.put("hedgesWon", latency.getHedgesWon());
+            statistics.put(endpoint, endpointStatistics);
+        });
+        return statistics;
+    }
+
+    private static double toMillis(long micros) {
+        return micros / 1000.0;
+    }
+
+}
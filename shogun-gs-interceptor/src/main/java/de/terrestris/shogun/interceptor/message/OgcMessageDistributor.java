@@ -21,19 +21,35 @@ import de.terrestris.shogun.interceptor.request.WcsRequestInterceptorInterface;
 import de.terrestris.shogun.interceptor.request.WfsRequestInterceptorInterface;
 import de.terrestris.shogun.interceptor.request.WmsRequestInterceptorInterface;
 import de.terrestris.shogun.interceptor.request.WpsRequestInterceptorInterface;
+import de.terrestris.shogun.interceptor.response.ResponseStreamTransformer;
+import de.terrestris.shogun.interceptor.response.StreamingResponseInterceptorInterface;
+import de.terrestris.shogun.interceptor.response.TransformedStreamingHttpResponse;
 import de.terrestris.shogun.interceptor.response.WcsResponseInterceptorInterface;
 import de.terrestris.shogun.interceptor.response.WfsResponseInterceptorInterface;
 import de.terrestris.shogun.interceptor.response.WmsResponseInterceptorInterface;
 import de.terrestris.shogun.interceptor.response.WpsResponseInterceptorInterface;
 import de.terrestris.shogun.interceptor.servlet.MutableHttpServletRequest;
 import de.terrestris.shogun.lib.dto.HttpResponse;
+import de.terrestris.shogun.lib.dto.StreamingHttpResponse;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutor;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 @Component
 public class OgcMessageDistributor {
@@ -83,10 +99,109 @@ public class OgcMessageDistributor {
     @Qualifier("wpsResponseInterceptor")
     private WpsResponseInterceptorInterface wpsResponseInterceptor;
 
+    @Autowired(required = false)
+    private List<StreamingResponseInterceptorInterface> streamingResponseInterceptors = Collections.emptyList();
+
+    /**
+     * Runs all but the last stage of chained streaming response interceptors.
+     */
+    @Autowired
+    @Qualifier("interceptorStreamingExecutor")
+    private ThreadPoolTaskExecutor streamingExecutor;
+
     public OgcMessageDistributor() {
     }
 
     /**
+     * @param message
+     * @return Whether the response of the given message is to be MODIFIED by at
+     * least one {@link StreamingResponseInterceptorInterface}
+     */
+    public boolean hasStreamingResponseInterceptor(OgcMessage message) {
+        if (!message.isResponseModified()) {
+            return false;
+        }
+        for (StreamingResponseInterceptorInterface interceptor : streamingResponseInterceptors) {
+            if (interceptor.supports(message)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Chains the transformers of all {@link StreamingResponseInterceptorInterface}s
+     * supporting the given message. The returned response transforms the body
+     * while it is written to the client.
+     *
+     * @param mutableRequest
+     * @param response
+     * @param message
+     * @return
+     * @throws InterceptorException
+     */
+    public StreamingHttpResponse distributeToStreamingResponseInterceptor(MutableHttpServletRequest mutableRequest, StreamingHttpResponse response, OgcMessage message) throws InterceptorException {
+        List<ResponseStreamTransformer> transformers = new ArrayList<>();
+
+        for (StreamingResponseInterceptorInterface interceptor : streamingResponseInterceptors) {
+            if (!interceptor.supports(message)) {
+                continue;
+            }
+
+            logger.debug(MessageFormat.format(MODIFYING_RESPONSE_MSG, message.getService(), message.getOperation()) +
+                " with " + interceptor.getClass().getSimpleName());
+
+            ResponseStreamTransformer transformer = interceptor.getTransformer(mutableRequest, message, response.getHeaders());
+            if (transformer == null) {
+                throw new InterceptorException("The response transformer is null. " +
+                    "Please check your StreamingResponseInterceptor implementation.");
+            }
+            transformers.add(transformer);
+        }
+
+        // the length of the transformed body is unknown
+        response.getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+
+        Executor executor = new DelegatingSecurityContextExecutor(streamingExecutor, SecurityContextHolder.getContext());
+
+        return new TransformedStreamingHttpResponse(response, transformers, executor);
+    }
+
+    /**
+     * Passes the given (already read) response through the transformers of the
+     * {@link StreamingResponseInterceptorInterface}s supporting the given message,
+     * like {@link #distributeToStreamingResponseInterceptor(MutableHttpServletRequest, StreamingHttpResponse, OgcMessage)}.
+     *
+     * @param mutableRequest
+     * @param response
+     * @param message
+     * @return The response with the transformed body
+     * @throws InterceptorException If the response must not be returned or the body can't be transformed
+     */
+    private HttpResponse transformResponse(MutableHttpServletRequest mutableRequest, HttpResponse response, OgcMessage message) throws InterceptorException {
+        // the interceptors may change the headers, the given ones might be shared (e.g. by the cache)
+        HttpHeaders headers = new HttpHeaders();
+        if (response.getHeaders() != null) {
+            headers.putAll(response.getHeaders());
+        }
+        InputStream body = new ByteArrayInputStream(response.getBody() != null ? response.getBody() : new byte[0]);
+
+        StreamingHttpResponse transformed = distributeToStreamingResponseInterceptor(mutableRequest,
+            new StreamingHttpResponse(response.getStatusCode(), headers, body, null), message);
+
+        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+            transformed.writeBody(outputStream);
+            return new HttpResponse(transformed.getStatusCode(), transformed.getHeaders(), outputStream.toByteArray());
+        } catch (IOException e) {
+            throw new InterceptorException("Error while transforming the response: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Passes the given response to the response interceptor of its service. If the
+     * response is to be MODIFIED by a {@link StreamingResponseInterceptorInterface},
+     * its body is transformed by the streaming interceptors instead.
+     *
      * @param mutableRequest
      * @param response
      * @param message
@@ -101,6 +216,10 @@ public class OgcMessageDistributor {
             throw new InterceptorException("Response is DENIED, blocking the response.");
         } else if (message.isResponseModified()) {
             logger.debug("Response is to be MODIFIED, intercepting the response.");
+
+            if (hasStreamingResponseInterceptor(message)) {
+                return transformResponse(mutableRequest, response, message);
+            }
         }
 
         String implErrMsg = MessageFormat.format(RESPONSE_IMPLEMENTATION_NOT_FOUND_MSG,
@@ -0,0 +1,68 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.model;
+
+import de.terrestris.shogun.interceptor.enumeration.OgcEnum;
+import de.terrestris.shogun.lib.model.BaseEntity;
+import lombok.*;
+
+import javax.persistence.*;
+
+/**
+ * A token bucket rate limit for the requests of every single user. The most
+ * specific limit matching a request applies (like for {@link InterceptorRule}s).
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+@EqualsAndHashCode(callSuper = true)
+public class InterceptorRateLimit extends BaseEntity {
+
+    /**
+     * The OGC service type or null for all services, e.g. WFS.
+     */
+    @Enumerated(EnumType.STRING)
+    private OgcEnum.ServiceType service;
+
+    /**
+     * The OGC operation type or null for all operations, e.g. GetFeature.
+     */
+    @Enumerated(EnumType.STRING)
+    private OgcEnum.OperationType operation;
+
+    /**
+     * The qualified layer name, the namespace or null for all endPoints,
+     * e.g. SHOGUN:SHINJI or SHOGUN.
+     */
+    private String endPoint;
+
+    /**
+     * The maximum number of requests a user may send at once (the size of the
+     * bucket).
+     */
+    @Column(nullable = false)
+    private Integer capacity;
+
+    /**
+     * The number of requests per second a user may send in the long run (the
+     * rate the bucket is refilled at).
+     */
+    @Column(nullable = false)
+    private Double refillRate;
+}
@@ -0,0 +1,41 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.paging;
+
+import java.io.IOException;
+
+/**
+ * Writes the pages of a paged WFS GetFeature request as a single feature
+ * collection, one chunk per page.
+ */
+public interface FeatureCollectionWriter {
+
+    /**
+     * @param page The body of the next page
+     * @return The chunk to send to the client (the start of the collection and
+     * the features of the first page or the features of any further page)
+     * @throws IOException If the page can't be parsed
+     */
+    byte[] writePage(byte[] page) throws IOException;
+
+    /**
+     * @return The chunk closing the collection
+     * @throws IOException
+     */
+    byte[] writeEnd() throws IOException;
+
+}
@@ -0,0 +1,274 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.paging;
+
+import de.terrestris.shogun.interceptor.config.properties.InterceptorProperties;
+import de.terrestris.shogun.interceptor.config.properties.PagingProperties;
+import de.terrestris.shogun.interceptor.enumeration.OgcEnum;
+import de.terrestris.shogun.interceptor.exception.InterceptorException;
+import de.terrestris.shogun.interceptor.servlet.MutableHttpServletRequest;
+import de.terrestris.shogun.interceptor.servlet.OgcRequestDescriptor;
+import de.terrestris.shogun.interceptor.util.OgcXmlUtil;
+import de.terrestris.shogun.lib.dto.HttpResponse;
+import de.terrestris.shogun.lib.dto.StreamingHttpResponse;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutor;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.w3c.dom.Element;
+import org.xml.sax.SAXException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.IntFunction;
+
+/**
+ * Sends WFS GetFeature requests without a feature limit as a series of paged
+ * requests. The number of matched features is requested first (with
+ * resultType=hits), the pages are then requested in parallel and streamed to
+ * the client as a single feature collection.
+ */
+@Component
+@Log4j2
+public class FeaturePager {
+
+    /**
+     * Intercepts a single hits or page request.
+     */
+    @FunctionalInterface
+    public interface PageInterceptor {
+        HttpResponse intercept(MutableHttpServletRequest pageRequest) throws InterceptorException, HttpException,
+            URISyntaxException, IOException;
+    }
+
+    /**
+     * WFS GetFeature parameters that prevent paging a request.
+     */
+    private static final String[] UNSUPPORTED_PARAMS = new String[]{
+        "COUNT",
+        "MAXFEATURES",
+        "STARTINDEX",
+        "FEATUREID",
+        "RESOURCEID"
+    };
+
+    private static final MediaType SERVICE_EXCEPTION_CONTENT_TYPE = MediaType.valueOf("application/vnd.ogc.se_xml");
+
+    @Autowired
+    protected InterceptorProperties interceptorProperties;
+
+    @Autowired(required = false)
+    @Qualifier("interceptorPagingExecutor")
+    protected ThreadPoolTaskExecutor pagingExecutor;
+
+    /**
+     * @param mutableRequest
+     * @return Whether the given request is a WFS GetFeature request without a
+     * feature limit that is paged if it matches more than one page of features
+     * @throws InterceptorException
+     * @throws IOException
+     */
+    public boolean isPageable(MutableHttpServletRequest mutableRequest) throws InterceptorException, IOException {
+        if (pagingExecutor == null || !"GET".equalsIgnoreCase(mutableRequest.getMethod())) {
+            return false;
+        }
+
+        OgcRequestDescriptor descriptor = mutableRequest.getOgcRequestDescriptor();
+        if (!OgcEnum.ServiceType.WFS.toString().equalsIgnoreCase(descriptor.getService()) ||
+            !OgcEnum.OperationType.GET_FEATURE.toString().equalsIgnoreCase(descriptor.getOperation()) ||
+            "hits".equalsIgnoreCase(descriptor.getParameterValue("RESULTTYPE"))) {
+            return false;
+        }
+
+        for (String parameter : UNSUPPORTED_PARAMS) {
+            if (StringUtils.isNotEmpty(descriptor.getParameterValue(parameter))) {
+                return false;
+            }
+        }
+
+        String outputFormat = descriptor.getParameterValue("OUTPUTFORMAT");
+        return StringUtils.isEmpty(outputFormat) || StringUtils.containsIgnoreCase(outputFormat, "json") ||
+            StringUtils.containsIgnoreCase(outputFormat, "gml") || StringUtils.containsIgnoreCase(outputFormat, "xml");
+    }
+
+    /**
+     * Sends the given WFS GetFeature request as a series of paged requests, if
+     * paging is enabled and the request matches more than one page of features.
+     *
+     * @param mutableRequest
+     * @param pageInterceptor Intercepts the hits and page requests
+     * @return The paged response or null if the request shouldn't be paged
+     * @throws InterceptorException
+     * @throws IOException
+     * @throws HttpException
+     * @throws URISyntaxException
+     */
+    public StreamingHttpResponse intercept(MutableHttpServletRequest mutableRequest, PageInterceptor pageInterceptor) throws InterceptorException, IOException, HttpException, URISyntaxException {
+        if (!isPageable(mutableRequest)) {
+            return null;
+        }
+
+        OgcRequestDescriptor descriptor = mutableRequest.getOgcRequestDescriptor();
+        boolean json = StringUtils.containsIgnoreCase(descriptor.getParameterValue("OUTPUTFORMAT"), "json");
+
+        PagingProperties paging = interceptorProperties.getPaging();
+        long numberMatched = getNumberMatched(mutableRequest, pageInterceptor);
+        long pageCount = (numberMatched + paging.getPageSize() - 1) / paging.getPageSize();
+        if (numberMatched < 0 || pageCount < 2) {
+            return null;
+        }
+        if (pageCount > paging.getMaxPages()) {
+            log.debug("Not paging the GetFeature request for {} features", numberMatched);
+            return null;
+        }
+
+        String countParameter = StringUtils.startsWith(descriptor.getParameterValue("VERSION"), "2") ?
+            "COUNT" : "MAXFEATURES";
+        String sortBy = StringUtils.isEmpty(descriptor.getParameterValue("SORTBY")) ? paging.getSortBy() : null;
+
+        HttpResponse firstPage = sendPage(mutableRequest, pageInterceptor, 0, countParameter, sortBy);
+        if (!isFeaturePage(firstPage)) {
+            // e.g. a ServiceExceptionReport, pass it to the client
+            return StreamingHttpResponse.of(firstPage);
+        }
+
+        Executor executor = new DelegatingSecurityContextExecutor(pagingExecutor, SecurityContextHolder.getContext());
+        IntFunction<CompletableFuture<byte[]>> pageLoader = page -> CompletableFuture.supplyAsync(() -> {
+            try {
+                HttpResponse response = sendPage(mutableRequest, pageInterceptor, page, countParameter, sortBy);
+                if (!isFeaturePage(response)) {
+                    throw new InterceptorException("Page returned status " + response.getStatusCode());
+                }
+                return response.getBody();
+            } catch (InterceptorException | HttpException | URISyntaxException | IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+
+        FeatureCollectionWriter writer = json ?
+            new GeoJsonFeatureCollectionWriter(numberMatched) : new GmlFeatureCollectionWriter(numberMatched);
+
+        PagedFeatureInputStream body;
+        try {
+            body = new PagedFeatureInputStream(firstPage.getBody(), (int) pageCount, pageLoader, writer,
+                paging.getParallelism(), paging.getTimeout());
+        } catch (IOException e) {
+            log.warn("Could not read the first page of the GetFeature response: {}", e.getMessage());
+            return StreamingHttpResponse.of(firstPage);
+        }
+
+        log.debug("Paging the GetFeature request for {} features into {} pages", numberMatched, pageCount);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(firstPage.getHeaders().getContentType());
+        return new StreamingHttpResponse(HttpStatus.OK, headers, body, null);
+    }
+
+    /**
+     * @param mutableRequest  The GetFeature request
+     * @param pageInterceptor Intercepts the hits request
+     * @return The number of features matched by the given request (requested
+     * with resultType=hits) or -1 if it's unknown
+     * @throws InterceptorException
+     * @throws IOException
+     * @throws HttpException
+     * @throws URISyntaxException
+     */
+    private long getNumberMatched(MutableHttpServletRequest mutableRequest, PageInterceptor pageInterceptor) throws InterceptorException, IOException, HttpException, URISyntaxException {
+        MutableHttpServletRequest hitsRequest = new MutableHttpServletRequest(mutableRequest);
+        hitsRequest.setParameterIgnoreCase("RESULTTYPE", "hits");
+        // the hits are reported in the default (GML) format only
+        hitsRequest.removeParameterIgnoreCase("OUTPUTFORMAT");
+
+        HttpResponse response = pageInterceptor.intercept(hitsRequest);
+        if (!isFeaturePage(response) || response.getBody() == null) {
+            return -1;
+        }
+
+        return getNumberMatched(response.getBody());
+    }
+
+    /**
+     * @param hits The body of a resultType=hits response
+     * @return The numberMatched (WFS 2.0) or numberOfFeatures (WFS 1.1) of the
+     * given response or -1 if it's unknown
+     * @throws IOException
+     */
+    static long getNumberMatched(byte[] hits) throws IOException {
+        try {
+            Element root = OgcXmlUtil.getDocumentBuilder().parse(new ByteArrayInputStream(hits))
+                .getDocumentElement();
+            String numberMatched = root.getAttribute("numberMatched");
+            if (StringUtils.isEmpty(numberMatched)) {
+                numberMatched = root.getAttribute("numberOfFeatures");
+            }
+            return StringUtils.isNumeric(numberMatched) ? Long.parseLong(numberMatched) : -1;
+        } catch (SAXException | NumberFormatException e) {
+            log.debug("Could not read the number of matched features: {}", e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * @param mutableRequest  The GetFeature request
+     * @param pageInterceptor Intercepts the page request
+     * @param page            The index of the page
+     * @param countParameter  The name of the parameter limiting the features
+     * @param sortBy          The SORTBY value to add or null
+     * @return The response of the page
+     * @throws InterceptorException
+     * @throws IOException
+     * @throws HttpException
+     * @throws URISyntaxException
+     */
+    private HttpResponse sendPage(MutableHttpServletRequest mutableRequest, PageInterceptor pageInterceptor, int page,
+            String countParameter, String sortBy) throws InterceptorException, IOException, HttpException, URISyntaxException {
+        int pageSize = interceptorProperties.getPaging().getPageSize();
+
+        MutableHttpServletRequest pageRequest = new MutableHttpServletRequest(mutableRequest);
+        pageRequest.setParameterIgnoreCase("STARTINDEX", Long.toString((long) page * pageSize));
+        pageRequest.setParameterIgnoreCase(countParameter, Integer.toString(pageSize));
+        if (StringUtils.isNotEmpty(sortBy)) {
+            pageRequest.setParameterIgnoreCase("SORTBY", sortBy);
+        }
+
+        return pageInterceptor.intercept(pageRequest);
+    }
+
+    /**
+     * @param response
+     * @return Whether the given response holds features (and not an exception)
+     */
+    private static boolean isFeaturePage(HttpResponse response) {
+        MediaType contentType = response.getHeaders() != null ? response.getHeaders().getContentType() : null;
+        return response.getStatusCode() != null && response.getStatusCode().is2xxSuccessful() &&
+            contentType != null && !SERVICE_EXCEPTION_CONTENT_TYPE.includes(contentType);
+    }
+
+}
@@ -0,0 +1,94 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.paging;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the pages of a GeoJSON GetFeature response as a single
+ * FeatureCollection.
+ */
+public class GeoJsonFeatureCollectionWriter implements FeatureCollectionWriter {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final byte[] START = "{\"type\":\"FeatureCollection\",\"features\":[".getBytes(StandardCharsets.UTF_8);
+
+    private final long numberMatched;
+
+    private long numberReturned = 0;
+
+    private JsonNode crs;
+
+    /**
+     * @param numberMatched The total number of features
+     */
+    public GeoJsonFeatureCollectionWriter(long numberMatched) {
+        this.numberMatched = numberMatched;
+    }
+
+    @Override
+    public byte[] writePage(byte[] page) throws IOException {
+        JsonNode collection = OBJECT_MAPPER.readTree(page);
+        if (!collection.isObject()) {
+            throw new IOException("Not a GeoJSON object");
+        }
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(page.length + START.length);
+        if (crs == null) {
+            outputStream.write(START);
+            crs = collection.path("crs");
+        }
+
+        for (JsonNode feature : collection.path("features")) {
+            if (numberReturned > 0) {
+                outputStream.write(',');
+            }
+            OBJECT_MAPPER.writeValue(outputStream, feature);
+            numberReturned++;
+        }
+
+        return outputStream.toByteArray();
+    }
+
+    @Override
+    public byte[] writeEnd() throws IOException {
+        ObjectNode end = OBJECT_MAPPER.createObjectNode();
+        end.put("totalFeatures", numberMatched);
+        end.put("numberMatched", numberMatched);
+        end.put("numberReturned", numberReturned);
+        if (crs != null && !crs.isMissingNode()) {
+            end.set("crs", crs);
+        }
+
+        // append the members of the object to the open features array
+        String members = OBJECT_MAPPER.writeValueAsString(end).substring(1);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        if (crs == null) {
+            outputStream.write(START);
+        }
+        outputStream.write(("]," + members).getBytes(StandardCharsets.UTF_8));
+        return outputStream.toByteArray();
+    }
+
+}
@@ -0,0 +1,192 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.paging;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes the pages of a GML GetFeature response as a single
+ * FeatureCollection. The root element of the first page is kept (with the
+ * feature counts of the whole collection), the members of all pages are
+ * copied and their bounding boxes are dropped.
+ */
+public class GmlFeatureCollectionWriter implements FeatureCollectionWriter {
+
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    private static final XMLEventFactory EVENT_FACTORY = XMLEventFactory.newInstance();
+
+    /**
+     * The attributes of the root element holding the feature counts.
+     */
+    private static final Set<String> COUNT_ATTRIBUTES = new HashSet<>(Arrays.asList(
+        "numberMatched",
+        "numberReturned",
+        "numberOfFeatures"
+    ));
+
+    /**
+     * The attributes of the root element linking to other pages.
+     */
+    private static final Set<String> PAGE_ATTRIBUTES = new HashSet<>(Arrays.asList(
+        "next",
+        "previous"
+    ));
+
+    private final long numberMatched;
+
+    private QName rootName;
+
+    /**
+     * @param numberMatched The total number of features
+     */
+    public GmlFeatureCollectionWriter(long numberMatched) {
+        this.numberMatched = numberMatched;
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    @Override
+    public byte[] writePage(byte[] page) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(page.length);
+
+        XMLEventReader reader = null;
+        XMLEventWriter writer = null;
+        try {
+            reader = INPUT_FACTORY.createXMLEventReader(new ByteArrayInputStream(page));
+            writer = OUTPUT_FACTORY.createXMLEventWriter(outputStream, StandardCharsets.UTF_8.name());
+
+            int depth = 0;
+            int skipUntilDepth = -1;
+            while (reader.hasNext()) {
+                XMLEvent event = reader.nextEvent();
+
+                if (event.isStartElement()) {
+                    depth++;
+                    if (depth == 1) {
+                        if (event.asStartElement().getName().getLocalPart().endsWith("ExceptionReport")) {
+                            throw new IOException("The page is an exception report");
+                        }
+                        if (rootName == null) {
+                            rootName = event.asStartElement().getName();
+                            writer.add(EVENT_FACTORY.createStartDocument(StandardCharsets.UTF_8.name(), "1.0"));
+                            writer.add(getRootElement(event.asStartElement()));
+                            // closes the start tag of the root element
+                            writer.add(EVENT_FACTORY.createCharacters("\n"));
+                        }
+                        continue;
+                    }
+                    if (depth == 2 && skipUntilDepth < 0 && "boundedBy".equals(event.asStartElement().getName().getLocalPart())) {
+                        skipUntilDepth = depth;
+                    }
+                } else if (event.isEndElement()) {
+                    depth--;
+                    if (depth == 0) {
+                        continue;
+                    }
+                    if (skipUntilDepth > depth) {
+                        skipUntilDepth = -1;
+                        continue;
+                    }
+                } else if (depth < 1 || event.isEndDocument()) {
+                    continue;
+                }
+
+                if (skipUntilDepth < 0) {
+                    writer.add(event);
+                }
+            }
+            writer.flush();
+        } catch (XMLStreamException e) {
+            throw new IOException("Could not parse the GML page: " + e.getMessage(), e);
+        } finally {
+            closeQuietly(reader);
+        }
+
+        return outputStream.toByteArray();
+    }
+
+    @Override
+    public byte[] writeEnd() {
+        if (rootName == null) {
+            return new byte[0];
+        }
+        String prefix = rootName.getPrefix();
+        String name = prefix == null || prefix.isEmpty() ? rootName.getLocalPart() : prefix + ":" + rootName.getLocalPart();
+        return ("</" + name + ">").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param root The root element of the first page
+     * @return The root element with the feature counts of the whole collection
+     * and without the links to the other pages
+     */
+    private StartElement getRootElement(StartElement root) {
+        List<Attribute> attributes = new ArrayList<>();
+        Iterator<?> iterator = root.getAttributes();
+        while (iterator.hasNext()) {
+            Attribute attribute = (Attribute) iterator.next();
+            String name = attribute.getName().getLocalPart();
+            if (COUNT_ATTRIBUTES.contains(name)) {
+                attributes.add(EVENT_FACTORY.createAttribute(attribute.getName(), Long.toString(numberMatched)));
+            } else if (!PAGE_ATTRIBUTES.contains(name)) {
+                attributes.add(attribute);
+            }
+        }
+
+        QName name = root.getName();
+        return EVENT_FACTORY.createStartElement(name.getPrefix(), name.getNamespaceURI(), name.getLocalPart(),
+            attributes.iterator(), root.getNamespaces());
+    }
+
+    private static void closeQuietly(XMLEventReader reader) {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                // nothing to do
+            }
+        }
+    }
+
+}
@@ -0,0 +1,176 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.paging;
+
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.IntFunction;
+
+import static org.apache.logging.log4j.LogManager.getLogger;
+
+/**
+ * The body of a paged WFS GetFeature response. The pages are requested in
+ * order with a limited number of pages in flight and written to the client as
+ * soon as they are read, so only a few pages are held in memory at a time.
+ */
+public class PagedFeatureInputStream extends InputStream {
+
+    private static final Logger LOG = getLogger(PagedFeatureInputStream.class);
+
+    private final FeatureCollectionWriter writer;
+
+    private final IntFunction<CompletableFuture<byte[]>> pageLoader;
+
+    private final int pageCount;
+
+    private final int parallelism;
+
+    private final long timeout;
+
+    private final Deque<CompletableFuture<byte[]>> pendingPages = new ArrayDeque<>();
+
+    private int nextPageToLoad = 1;
+
+    private int nextPageToWrite = 1;
+
+    private boolean finished = false;
+
+    private byte[] chunk;
+
+    private int position = 0;
+
+    /**
+     * @param firstPage   The body of the first page
+     * @param pageCount   The total number of pages
+     * @param pageLoader  Requests the page of the given index
+     * @param writer      The writer combining the pages
+     * @param parallelism The maximum number of pages requested in parallel
+     * @param timeout     The maximum time in milliseconds to wait for a single page
+     * @throws IOException If the first page can't be parsed
+     */
+    public PagedFeatureInputStream(byte[] firstPage, int pageCount, IntFunction<CompletableFuture<byte[]>> pageLoader,
+                                   FeatureCollectionWriter writer, int parallelism, long timeout) throws IOException {
+        this.pageCount = pageCount;
+        this.pageLoader = pageLoader;
+        this.writer = writer;
+        this.parallelism = Math.max(1, parallelism);
+        this.timeout = timeout;
+
+        // request the next pages while the first one is being written
+        loadPages();
+        this.chunk = writer.writePage(firstPage);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!hasRemaining()) {
+            return -1;
+        }
+        return chunk[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!hasRemaining()) {
+            return -1;
+        }
+        int read = Math.min(length, chunk.length - position);
+        System.arraycopy(chunk, position, buffer, offset, read);
+        position += read;
+        return read;
+    }
+
+    @Override
+    public int available() {
+        return chunk.length - position;
+    }
+
+    /**
+     * Cancels the requests of the pages not written yet.
+     */
+    @Override
+    public void close() {
+        CompletableFuture<byte[]> pendingPage;
+        while ((pendingPage = pendingPages.poll()) != null) {
+            pendingPage.cancel(true);
+        }
+        finished = true;
+        chunk = new byte[0];
+        position = 0;
+    }
+
+    private boolean hasRemaining() throws IOException {
+        while (position >= chunk.length) {
+            if (!nextChunk()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean nextChunk() throws IOException {
+        if (nextPageToWrite < pageCount) {
+            loadPages();
+            CompletableFuture<byte[]> pendingPage = pendingPages.poll();
+            byte[] page;
+            try {
+                page = pendingPage.get(timeout, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                pendingPage.cancel(true);
+                close();
+                throw new InterruptedIOException("Interrupted while waiting for page " + nextPageToWrite);
+            } catch (ExecutionException | TimeoutException e) {
+                LOG.error("Could not request page {} of {}: {}", nextPageToWrite + 1, pageCount, e.getMessage());
+                // the awaited page isn't pending anymore, cancel it in case it timed out
+                pendingPage.cancel(true);
+                close();
+                throw new IOException("Could not request page " + (nextPageToWrite + 1) + " of " + pageCount, e);
+            }
+            nextPageToWrite++;
+            chunk = writer.writePage(page);
+            position = 0;
+            return true;
+        }
+        if (!finished) {
+            finished = true;
+            chunk = writer.writeEnd();
+            position = 0;
+            return true;
+        }
+        return false;
+    }
+
+    private void loadPages() {
+        while (pendingPages.size() < parallelism && nextPageToLoad < pageCount) {
+            pendingPages.add(pageLoader.apply(nextPageToLoad++));
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.ratelimit;
+
+import de.terrestris.shogun.interceptor.model.InterceptorRateLimit;
+import lombok.Getter;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The runtime state of an {@link InterceptorRateLimit}: a {@link TokenBucket}
+ * per user.
+ */
+public final class RateLimit {
+
+    /**
+     * The number of buckets checked for eviction per new bucket.
+     */
+    private static final int EVICTION_BATCH_SIZE = 2;
+
+    @Getter
+    private final InterceptorRateLimit definition;
+
+    private final int capacity;
+
+    private final double refillRate;
+
+    private final int maxBuckets;
+
+    private final ConcurrentHashMap<String, TokenBucket> buckets;
+
+    /**
+     * The users of all buckets in the order they are checked for eviction.
+     */
+    private final Queue<String> evictionQueue;
+
+    /**
+     * @param definition The persisted limit
+     * @param maxBuckets The number of buckets above which full buckets are dropped
+     * @param previous   The state of the limit before a reload (whose buckets
+     *                   are kept if the limit hasn't changed) or null
+     */
+    RateLimit(InterceptorRateLimit definition, int maxBuckets, RateLimit previous) {
+        this.definition = definition;
+        this.capacity = definition.getCapacity();
+        this.refillRate = definition.getRefillRate();
+        this.maxBuckets = maxBuckets;
+        boolean unchanged = previous != null && previous.capacity == capacity &&
+            Double.compare(previous.refillRate, refillRate) == 0;
+        this.buckets = unchanged ? previous.buckets : new ConcurrentHashMap<>();
+        this.evictionQueue = unchanged ? previous.evictionQueue : new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * @param user The key of the user
+     * @param now  The current {@link System#nanoTime()}
+     * @return The bucket of the given user
+     */
+    TokenBucket getBucket(String user, long now) {
+        TokenBucket bucket = buckets.get(user);
+        if (bucket != null) {
+            return bucket;
+        }
+
+        TokenBucket created = new TokenBucket(capacity, refillRate, now);
+        bucket = buckets.putIfAbsent(user, created);
+        if (bucket != null) {
+            return bucket;
+        }
+
+        evictionQueue.add(user);
+        if (buckets.size() > maxBuckets) {
+            evict(now);
+        }
+        return created;
+    }
+
+    /**
+     * Checks the next {@link #EVICTION_BATCH_SIZE} buckets (round robin) and
+     * drops the full ones, as they behave like new ones.
+     *
+     * @param now The current {@link System#nanoTime()}
+     */
+    private void evict(long now) {
+        for (int i = 0; i < EVICTION_BATCH_SIZE; i++) {
+            String candidate = evictionQueue.poll();
+            if (candidate == null) {
+                return;
+            }
+            TokenBucket bucket = buckets.get(candidate);
+            if (bucket == null) {
+                continue;
+            }
+            if (!bucket.isFull(now) || !buckets.remove(candidate, bucket)) {
+                evictionQueue.add(candidate);
+            }
+        }
+    }
+
+    /**
+     * @return The buckets per user
+     */
+    public Map<String, TokenBucket> getBuckets() {
+        return buckets;
+    }
+
+}
@@ -0,0 +1,170 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.ratelimit;
+
+import de.terrestris.shogun.interceptor.enumeration.OgcEnum;
+import de.terrestris.shogun.interceptor.model.InterceptorRateLimit;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.*;
+
+/**
+ * An immutable index of all {@link InterceptorRateLimit}s resolving the most
+ * specific limit for a request with a few map lookups, using the following
+ * order of precedence:
+ *
+ * 1. layer (qualified name) matches
+ * 2. namespace of the layer matches
+ * 3. generic limit (without endPoint)
+ *
+ * On each level a limit of the service beats a limit for all services and a
+ * limit of the operation beats a limit for all operations. EndPoints are
+ * compared case insensitive. If several limits share the same slot the most
+ * recently created one (highest id) wins.
+ */
+public final class RateLimitIndex {
+
+    private static final String GENERIC = "";
+
+    /**
+     * The limits per lower case endPoint (or {@link #GENERIC}).
+     */
+    private final Map<String, ServiceLimits> limits = new HashMap<>();
+
+    private final List<RateLimit> rateLimits = new ArrayList<>();
+
+    /**
+     * @param definitions All persisted limits
+     * @param maxBuckets  The number of buckets per limit above which full buckets are dropped
+     * @param previous    The index before the reload (whose state is kept for unchanged limits) or null
+     */
+    public RateLimitIndex(Collection<InterceptorRateLimit> definitions, int maxBuckets, RateLimitIndex previous) {
+        Map<Long, RateLimit> previousLimits = new HashMap<>();
+        if (previous != null) {
+            previous.rateLimits.forEach(rateLimit -> previousLimits.put(rateLimit.getDefinition().getId(), rateLimit));
+        }
+
+        List<InterceptorRateLimit> sortedDefinitions = new ArrayList<>(definitions);
+        sortedDefinitions.sort(Comparator.comparing(InterceptorRateLimit::getId, Comparator.nullsFirst(Comparator.naturalOrder())));
+
+        for (InterceptorRateLimit definition : sortedDefinitions) {
+            if (definition.getCapacity() == null || definition.getCapacity() < 1 ||
+                definition.getRefillRate() == null || definition.getRefillRate() <= 0) {
+                continue;
+            }
+
+            RateLimit rateLimit = new RateLimit(definition, maxBuckets, previousLimits.get(definition.getId()));
+            rateLimits.add(rateLimit);
+
+            String endPoint = StringUtils.isEmpty(definition.getEndPoint()) ? GENERIC :
+                definition.getEndPoint().toLowerCase(Locale.ROOT);
+            limits.computeIfAbsent(endPoint, key -> new ServiceLimits())
+                .put(definition.getService(), definition.getOperation(), rateLimit);
+        }
+    }
+
+    /**
+     * @return Whether no limit is defined
+     */
+    public boolean isEmpty() {
+        return rateLimits.isEmpty();
+    }
+
+    /**
+     * @return All limits
+     */
+    public List<RateLimit> getRateLimits() {
+        return Collections.unmodifiableList(rateLimits);
+    }
+
+    /**
+     * @param service   The service of the request, may be null
+     * @param operation The operation of the request, may be null
+     * @param endPoint  The (first) layer of the request, may be null
+     * @return The most specific limit or null if no limit matches
+     */
+    public RateLimit findMostSpecificLimit(OgcEnum.ServiceType service, OgcEnum.OperationType operation, String endPoint) {
+        if (StringUtils.isNotEmpty(endPoint)) {
+            String layer = endPoint.toLowerCase(Locale.ROOT);
+            RateLimit rateLimit = get(layer, service, operation);
+            if (rateLimit != null) {
+                return rateLimit;
+            }
+
+            int separator = layer.indexOf(':');
+            if (separator > 0) {
+                rateLimit = get(layer.substring(0, separator), service, operation);
+                if (rateLimit != null) {
+                    return rateLimit;
+                }
+            }
+        }
+
+        return get(GENERIC, service, operation);
+    }
+
+    private RateLimit get(String endPoint, OgcEnum.ServiceType service, OgcEnum.OperationType operation) {
+        ServiceLimits serviceLimits = limits.get(endPoint);
+        return serviceLimits != null ? serviceLimits.get(service, operation) : null;
+    }
+
+    /**
+     * The limits of a single endPoint.
+     */
+    private static final class ServiceLimits {
+
+        private final EnumMap<OgcEnum.ServiceType, OperationLimits> byService = new EnumMap<>(OgcEnum.ServiceType.class);
+
+        private final OperationLimits anyService = new OperationLimits();
+
+        private void put(OgcEnum.ServiceType service, OgcEnum.OperationType operation, RateLimit rateLimit) {
+            OperationLimits operationLimits = service == null ? anyService :
+                byService.computeIfAbsent(service, key -> new OperationLimits());
+            operationLimits.put(operation, rateLimit);
+        }
+
+        private RateLimit get(OgcEnum.ServiceType service, OgcEnum.OperationType operation) {
+            OperationLimits operationLimits = service != null ? byService.get(service) : null;
+            RateLimit rateLimit = operationLimits != null ? operationLimits.get(operation) : null;
+            return rateLimit != null ? rateLimit : anyService.get(operation);
+        }
+    }
+
+    /**
+     * The limits of a single endPoint and service.
+     */
+    private static final class OperationLimits {
+
+        private final EnumMap<OgcEnum.OperationType, RateLimit> byOperation = new EnumMap<>(OgcEnum.OperationType.class);
+
+        private RateLimit anyOperation;
+
+        private void put(OgcEnum.OperationType operation, RateLimit rateLimit) {
+            if (operation == null) {
+                anyOperation = rateLimit;
+            } else {
+                byOperation.put(operation, rateLimit);
+            }
+        }
+
+        private RateLimit get(OgcEnum.OperationType operation) {
+            RateLimit rateLimit = operation != null ? byOperation.get(operation) : null;
+            return rateLimit != null ? rateLimit : anyOperation;
+        }
+    }
+
+}
@@ -0,0 +1,214 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.ratelimit;
+
+import de.terrestris.shogun.interceptor.config.properties.InterceptorProperties;
+import de.terrestris.shogun.interceptor.config.properties.RateLimitProperties;
+import de.terrestris.shogun.interceptor.enumeration.OgcEnum;
+import de.terrestris.shogun.interceptor.event.InterceptorRateLimitsChangedEvent;
+import de.terrestris.shogun.interceptor.exception.InterceptorException;
+import de.terrestris.shogun.interceptor.exception.RateLimitExceededException;
+import de.terrestris.shogun.interceptor.repository.InterceptorRateLimitRepository;
+import de.terrestris.shogun.interceptor.servlet.MutableHttpServletRequest;
+import de.terrestris.shogun.interceptor.servlet.OgcRequestDescriptor;
+import de.terrestris.shogun.lib.security.SecurityContextUtil;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the requests of every user with the most specific
+ * {@link de.terrestris.shogun.interceptor.model.InterceptorRateLimit}. Each
+ * user has a {@link TokenBucket} per limit, so a single user exceeding a limit
+ * doesn't affect any other user. Requests over the limit either wait for
+ * their reserved token (in the order they arrived) or are rejected with a
+ * {@link RateLimitExceededException}. Asynchronous callers reserve the token
+ * with {@link #reserve(MutableHttpServletRequest)} and schedule the request
+ * instead of waiting.
+ */
+@Component
+@Log4j2
+public class RateLimiter {
+
+    private static final String ANONYMOUS_USER_PREFIX = "anonymous@";
+
+    @Autowired
+    protected InterceptorProperties interceptorProperties;
+
+    @Autowired
+    protected InterceptorRateLimitRepository rateLimitRepository;
+
+    private volatile RateLimitIndex index = new RateLimitIndex(new ArrayList<>(), 0, null);
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reload();
+    }
+
+    /**
+     * Reloads the limits once the transaction changing them has been committed
+     * (or immediately if the change happened outside of a transaction).
+     *
+     * @param event The {@link InterceptorRateLimitsChangedEvent}
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRateLimitsChanged(InterceptorRateLimitsChangedEvent event) {
+        reload();
+    }
+
+    /**
+     * Reloads the persisted limits. The buckets of unchanged limits are kept.
+     */
+    public synchronized void reload() {
+        index = new RateLimitIndex(rateLimitRepository.findAll(),
+            interceptorProperties.getRateLimit().getMaxBuckets(), index);
+        log.debug("Loaded {} rate limit(s)", index.getRateLimits().size());
+    }
+
+    /**
+     * Takes a token of the current user for the given request, waiting for it
+     * if configured.
+     *
+     * @param request The request
+     * @throws RateLimitExceededException If the request exceeds the limit
+     * @throws InterceptorException       If the request can't be read
+     * @throws IOException                If the request can't be read
+     */
+    public void acquire(MutableHttpServletRequest request) throws InterceptorException, IOException {
+        long wait = reserve(request);
+
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterceptorException("Interrupted while waiting for the rate limit", e);
+            }
+        }
+    }
+
+    /**
+     * Takes or reserves a token of the current user for the given request
+     * without waiting for it.
+     *
+     * @param request The request
+     * @return The time in nanoseconds until the reserved token is available,
+     * i.e. the request may be sent (0 if it may be sent immediately)
+     * @throws RateLimitExceededException If the request exceeds the limit
+     * @throws InterceptorException       If the request can't be read
+     * @throws IOException                If the request can't be read
+     */
+    public long reserve(MutableHttpServletRequest request) throws InterceptorException, IOException {
+        RateLimitProperties properties = interceptorProperties.getRateLimit();
+        RateLimitIndex rateLimits = index;
+        if (!properties.isEnabled() || rateLimits.isEmpty()) {
+            return 0;
+        }
+
+        OgcRequestDescriptor descriptor = request.getOgcRequestDescriptor();
+        RateLimit rateLimit = rateLimits.findMostSpecificLimit(
+            OgcEnum.ServiceType.fromString(descriptor.getService()),
+            OgcEnum.OperationType.fromString(descriptor.getOperation()),
+            getFirstEndPoint(descriptor.getEndPoint()));
+        if (rateLimit == null) {
+            return 0;
+        }
+
+        long now = System.nanoTime();
+        TokenBucket bucket = rateLimit.getBucket(getUser(request), now);
+        long wait = bucket.acquire(now, TimeUnit.MILLISECONDS.toNanos(properties.getQueueTimeout()));
+
+        if (wait < 0) {
+            long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(-wait + TimeUnit.SECONDS.toNanos(1) - 1));
+            throw new RateLimitExceededException("Rate limit exceeded, retry after " + retryAfter + " second(s)", retryAfter);
+        }
+
+        return wait;
+    }
+
+    /**
+     * @return The counters per limit and user
+     */
+    public List<Map<String, Object>> getStatistics() {
+        long now = System.nanoTime();
+        List<Map<String, Object>> statistics = new ArrayList<>();
+
+        for (RateLimit rateLimit : index.getRateLimits()) {
+            Map<String, Object> users = new LinkedHashMap<>();
+            rateLimit.getBuckets().forEach((user, bucket) -> {
+                Map<String, Object> counters = new LinkedHashMap<>();
+                counters.put("availableTokens", bucket.getAvailableTokens(now));
+                counters.put("allowed", bucket.getAllowed());
+                counters.put("queued", bucket.getQueued());
+                counters.put("rejected", bucket.getRejected());
+                users.put(user, counters);
+            });
+
+            Map<String, Object> limitStatistics = new LinkedHashMap<>();
+            limitStatistics.put("id", rateLimit.getDefinition().getId());
+            limitStatistics.put("service", rateLimit.getDefinition().getService());
+            limitStatistics.put("operation", rateLimit.getDefinition().getOperation());
+            limitStatistics.put("endPoint", rateLimit.getDefinition().getEndPoint());
+            limitStatistics.put("capacity", rateLimit.getDefinition().getCapacity());
+            limitStatistics.put("refillRate", rateLimit.getDefinition().getRefillRate());
+            limitStatistics.put("users", users);
+            statistics.add(limitStatistics);
+        }
+
+        return statistics;
+    }
+
+    /**
+     * @param endPoint The endPoint parameter, possibly a list of layers
+     * @return The first layer
+     */
+    private static String getFirstEndPoint(String endPoint) {
+        if (endPoint == null) {
+            return null;
+        }
+        int separator = endPoint.indexOf(',');
+        return separator < 0 ? endPoint : endPoint.substring(0, separator);
+    }
+
+    /**
+     * @param request
+     * @return The key of the current user: the keycloak user id, the name of
+     * the principal or the remote address for anonymous requests
+     */
+    private static String getUser(MutableHttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            return ANONYMOUS_USER_PREFIX + request.getRemoteAddr();
+        }
+        String keycloakUserId = SecurityContextUtil.getKeycloakUserIdFromAuthentication(authentication);
+        return keycloakUserId != null ? keycloakUserId : authentication.getName();
+    }
+
+}
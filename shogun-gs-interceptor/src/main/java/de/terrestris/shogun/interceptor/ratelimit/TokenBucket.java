@@ -0,0 +1,121 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free token bucket implemented as generic cell rate algorithm: instead
+ * of the number of tokens only the theoretical arrival time of the next
+ * request is stored and updated with a single compare-and-set. A bucket whose
+ * theoretical arrival time has passed is full.
+ */
+public final class TokenBucket {
+
+    /**
+     * The time in nanoseconds to refill a single token.
+     */
+    private final long emissionInterval;
+
+    /**
+     * The time in nanoseconds to refill the whole bucket.
+     */
+    private final long burstTolerance;
+
+    private final AtomicLong theoreticalArrivalTime;
+
+    private final LongAdder allowed = new LongAdder();
+
+    private final LongAdder queued = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param capacity   The size of the bucket
+     * @param refillRate The number of tokens refilled per second
+     * @param now        The current {@link System#nanoTime()}
+     */
+    public TokenBucket(int capacity, double refillRate, long now) {
+        this.emissionInterval = Math.max(1L, (long) (1_000_000_000d / refillRate));
+        this.burstTolerance = emissionInterval * Math.max(1, capacity);
+        this.theoreticalArrivalTime = new AtomicLong(now);
+    }
+
+    /**
+     * Takes a token or reserves the next one if it will be available within
+     * the given time.
+     *
+     * @param now     The current {@link System#nanoTime()}
+     * @param maxWait The maximum time in nanoseconds to wait for a token
+     * @return The time in nanoseconds to wait for the reserved token (0 if a
+     * token has been taken) or, if negative, the negated time in nanoseconds
+     * until the next token will be available
+     */
+    public long acquire(long now, long maxWait) {
+        while (true) {
+            long arrivalTime = theoreticalArrivalTime.get();
+            long nextArrivalTime = Math.max(arrivalTime, now) + emissionInterval;
+            long wait = nextArrivalTime - now - burstTolerance;
+
+            if (wait > maxWait) {
+                rejected.increment();
+                return -wait;
+            }
+
+            if (theoreticalArrivalTime.compareAndSet(arrivalTime, nextArrivalTime)) {
+                if (wait > 0) {
+                    queued.increment();
+                    return wait;
+                }
+                allowed.increment();
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * @param now The current {@link System#nanoTime()}
+     * @return Whether the bucket is full, i.e. it can be dropped without
+     * changing the limit
+     */
+    public boolean isFull(long now) {
+        return theoreticalArrivalTime.get() <= now;
+    }
+
+    /**
+     * @param now The current {@link System#nanoTime()}
+     * @return The number of tokens currently available
+     */
+    public long getAvailableTokens(long now) {
+        long used = Math.max(0, theoreticalArrivalTime.get() - now);
+        return Math.max(0, (burstTolerance - used) / emissionInterval);
+    }
+
+    public long getAllowed() {
+        return allowed.sum();
+    }
+
+    public long getQueued() {
+        return queued.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+}
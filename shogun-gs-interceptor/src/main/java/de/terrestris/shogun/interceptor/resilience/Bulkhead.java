@@ -0,0 +1,256 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.resilience;
+
+import de.terrestris.shogun.interceptor.config.properties.BulkheadProperties;
+import de.terrestris.shogun.interceptor.exception.InterceptorException;
+import de.terrestris.shogun.interceptor.exception.OgcServiceException;
+import org.springframework.http.HttpStatus;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the number of concurrent GeoServer requests of a namespace.
+ */
+public class Bulkhead {
+
+    private final String namespace;
+
+    private final int maxConcurrentRequests;
+
+    private final int maxQueuedRequests;
+
+    private final long queueTimeout;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private int active;
+
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+
+    private final LongAdder rejected = new LongAdder();
+
+    Bulkhead(String namespace, BulkheadProperties properties) {
+        this.namespace = namespace;
+        this.maxConcurrentRequests = properties.getMaxConcurrentRequests();
+        this.maxQueuedRequests = Math.max(properties.getMaxQueuedRequests(), 0);
+        this.queueTimeout = properties.getQueueTimeout();
+    }
+
+    /**
+     * @return Whether the number of concurrent requests is limited
+     */
+    public boolean isLimited() {
+        return maxConcurrentRequests > 0;
+    }
+
+    /**
+     * Waits (if queueing is allowed) for a free slot.
+     *
+     * @throws InterceptorException If no slot is available
+     */
+    void acquire() throws InterceptorException {
+        if (!isLimited()) {
+            return;
+        }
+
+        Waiter waiter = null;
+        lock.lock();
+        try {
+            if (tryAcquireLocked()) {
+                return;
+            }
+
+            if (waiters.size() >= maxQueuedRequests) {
+                throw reject();
+            }
+
+            waiter = new Waiter(lock.newCondition(), null);
+            waiters.add(waiter);
+
+            long remaining = TimeUnit.MILLISECONDS.toNanos(queueTimeout);
+            while (!waiter.granted && remaining > 0) {
+                remaining = waiter.condition.awaitNanos(remaining);
+            }
+
+            if (!waiter.granted) {
+                waiters.remove(waiter);
+                throw reject();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (waiter.granted) {
+                release();
+            } else {
+                waiters.remove(waiter);
+            }
+            throw new InterceptorException("Interrupted while waiting for the GeoServer of namespace " + namespace, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reserves a slot like {@link #acquire()}, but without blocking the calling
+     * thread: if no slot is free, the returned future completes once one has
+     * been released or fails once the queue timeout elapsed. Cancelling the
+     * future while it is waiting removes it from the queue.
+     *
+     * @return The future of the slot, failing with an {@link OgcServiceException} if no slot is available
+     */
+    CompletableFuture<Void> acquireAsync() {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (!isLimited()) {
+            future.complete(null);
+            return future;
+        }
+
+        Waiter waiter;
+        lock.lock();
+        try {
+            if (tryAcquireLocked()) {
+                future.complete(null);
+                return future;
+            }
+
+            if (waiters.size() >= maxQueuedRequests) {
+                future.completeExceptionally(reject());
+                return future;
+            }
+
+            waiter = new Waiter(null, future);
+            waiters.add(waiter);
+        } finally {
+            lock.unlock();
+        }
+
+        future.whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                // cancelled or timed out while waiting
+                dequeue(waiter);
+            }
+        });
+
+        CompletableFuture.delayedExecutor(queueTimeout, TimeUnit.MILLISECONDS).execute(() -> {
+            if (dequeue(waiter)) {
+                future.completeExceptionally(reject());
+            }
+        });
+
+        return future;
+    }
+
+    private boolean tryAcquireLocked() {
+        if (waiters.isEmpty() && active < maxConcurrentRequests) {
+            active++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return Whether the given waiter has been removed from the queue before a slot was granted to it
+     */
+    private boolean dequeue(Waiter waiter) {
+        lock.lock();
+        try {
+            return !waiter.granted && waiters.remove(waiter);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void release() {
+        if (!isLimited()) {
+            return;
+        }
+
+        Waiter waiter;
+        lock.lock();
+        try {
+            // hand the slot over to the next waiting request
+            waiter = waiters.poll();
+            if (waiter == null) {
+                active--;
+                return;
+            }
+            waiter.granted = true;
+            if (waiter.condition != null) {
+                waiter.condition.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // complete the future outside of the lock, as its dependent stages run on this thread
+        if (!waiter.future.complete(null)) {
+            // cancelled concurrently
+            release();
+        }
+    }
+
+    private OgcServiceException reject() {
+        rejected.increment();
+        return new OgcServiceException("Too many concurrent requests to the GeoServer of namespace " + namespace,
+            HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    public int getActive() {
+        lock.lock();
+        try {
+            return active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueued() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * A waiting request, either a blocked thread (condition) or a future to complete.
+     */
+    private static final class Waiter {
+
+        private final Condition condition;
+
+        private final CompletableFuture<Void> future;
+
+        private boolean granted;
+
+        private Waiter(Condition condition, CompletableFuture<Void> future) {
+            this.condition = condition;
+            this.future = future;
+        }
+    }
+}
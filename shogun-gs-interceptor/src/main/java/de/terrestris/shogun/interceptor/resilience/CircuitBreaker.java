@@ -0,0 +1,127 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.resilience;
+
+import de.terrestris.shogun.interceptor.config.properties.CircuitBreakerProperties;
+import de.terrestris.shogun.interceptor.exception.OgcServiceException;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.http.HttpStatus;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fails the requests of a namespace fast while its GeoServer is failing. The
+ * circuit opens after a number of consecutive failures. Once the open duration
+ * has passed a single trial request is let through (half open), its result
+ * closes or reopens the circuit.
+ */
+@Log4j2
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String namespace;
+
+    private final boolean enabled;
+
+    private final int failureThreshold;
+
+    private final long openDuration;
+
+    private State state = State.CLOSED;
+
+    private int consecutiveFailures = 0;
+
+    private long openedAt = 0;
+
+    private boolean trialInFlight = false;
+
+    private final LongAdder rejected = new LongAdder();
+
+    CircuitBreaker(String namespace, CircuitBreakerProperties properties) {
+        this.namespace = namespace;
+        this.enabled = properties.isEnabled();
+        this.failureThreshold = Math.max(properties.getFailureThreshold(), 1);
+        this.openDuration = properties.getOpenDuration();
+    }
+
+    /**
+     * @throws OgcServiceException If the circuit is open
+     */
+    synchronized void acquire() throws OgcServiceException {
+        if (!enabled || state == State.CLOSED) {
+            return;
+        }
+
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openDuration) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+
+        if (state == State.HALF_OPEN && !trialInFlight) {
+            trialInFlight = true;
+            return;
+        }
+
+        rejected.increment();
+        throw new OgcServiceException("The GeoServer of namespace " + namespace + " is currently unavailable",
+            HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    synchronized void release(boolean success) {
+        if (!enabled) {
+            return;
+        }
+
+        if (success) {
+            consecutiveFailures = 0;
+            if (state != State.CLOSED) {
+                log.info("Closing the circuit of namespace {}", namespace);
+                state = State.CLOSED;
+            }
+            return;
+        }
+
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            log.warn("Opening the circuit of namespace {} after {} consecutive failures", namespace,
+                consecutiveFailures);
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Gives back a permission without a result, e.g. if the request has not
+     * been sent at all.
+     */
+    synchronized void cancel() {
+        trialInFlight = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
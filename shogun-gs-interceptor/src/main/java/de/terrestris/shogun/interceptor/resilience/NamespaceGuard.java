@@ -0,0 +1,104 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.resilience;
+
+import de.terrestris.shogun.interceptor.config.properties.NamespaceProperties;
+import de.terrestris.shogun.interceptor.exception.InterceptorException;
+import lombok.Getter;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Isolates the GeoServer requests of a namespace from the ones of other
+ * namespaces by means of a {@link Bulkhead}, a {@link CircuitBreaker} and its
+ * own timeout.
+ */
+public class NamespaceGuard {
+
+    @Getter
+    private final String namespace;
+
+    /**
+     * The timeout in milliseconds of the requests, null to use the default one.
+     */
+    @Getter
+    private final Integer timeout;
+
+    @Getter
+    private final Bulkhead bulkhead;
+
+    @Getter
+    private final CircuitBreaker circuitBreaker;
+
+    public NamespaceGuard(NamespaceProperties properties) {
+        this.namespace = properties.getNamespace();
+        this.timeout = properties.getTimeout();
+        this.bulkhead = new Bulkhead(namespace, properties.getBulkhead());
+        this.circuitBreaker = new CircuitBreaker(namespace, properties.getCircuitBreaker());
+    }
+
+    /**
+     * Acquires the permission to send a request to the GeoServer of the
+     * namespace. The permission must be released with {@link #release(boolean)}.
+     *
+     * @throws InterceptorException If the circuit is open or the bulkhead is full
+     */
+    public void acquire() throws InterceptorException {
+        circuitBreaker.acquire();
+        try {
+            bulkhead.acquire();
+        } catch (InterceptorException e) {
+            // the request won't reach the GeoServer, so it doesn't count as failure
+            circuitBreaker.cancel();
+            throw e;
+        }
+    }
+
+    /**
+     * Acquires the permission like {@link #acquire()}, but without blocking the
+     * calling thread while waiting for a slot of the bulkhead.
+     *
+     * @return The future of the permission, failing with an {@link InterceptorException} if the
+     * circuit is open or the bulkhead is full; cancelling it gives up waiting
+     */
+    public CompletableFuture<Void> acquireAsync() {
+        try {
+            circuitBreaker.acquire();
+        } catch (InterceptorException e) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        CompletableFuture<Void> future = bulkhead.acquireAsync();
+        future.whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                // the request won't reach the GeoServer, so it doesn't count as failure
+                circuitBreaker.cancel();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * @param success Whether the GeoServer answered the request properly
+     */
+    public void release(boolean success) {
+        bulkhead.release();
+        circuitBreaker.release(success);
+    }
+}
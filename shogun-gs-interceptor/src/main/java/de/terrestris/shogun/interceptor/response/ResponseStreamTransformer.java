@@ -0,0 +1,41 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.response;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A single stage transforming the body of a response while it is streamed to
+ * the client, e.g. a SAX/StAX filter removing features from a GetFeature
+ * response.
+ */
+@FunctionalInterface
+public interface ResponseStreamTransformer {
+
+    /**
+     * Reads the (upstream) body from the given input and writes the transformed
+     * body to the given output. Implementations must not close the streams.
+     *
+     * @param in  The body to transform
+     * @param out The stream to write the transformed body to
+     * @throws IOException If reading or writing fails
+     */
+    void transform(InputStream in, OutputStream out) throws IOException;
+
+}
@@ -0,0 +1,56 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.response;
+
+import de.terrestris.shogun.interceptor.exception.InterceptorException;
+import de.terrestris.shogun.interceptor.message.OgcMessage;
+import de.terrestris.shogun.interceptor.servlet.MutableHttpServletRequest;
+import org.springframework.http.HttpHeaders;
+
+/**
+ * A response interceptor modifying the body of a response while it is
+ * streamed to the client instead of operating on the fully read response.
+ *
+ * If at least one streaming interceptor supports a response to be MODIFIED,
+ * the response is not passed to the {@code Wms/Wfs/Wcs/WpsResponseInterceptorInterface}
+ * but to the transformers of all supporting streaming interceptors, chained in
+ * their {@link org.springframework.core.annotation.Order}. Responses that are
+ * read anyway (e.g. cached, shared or fanned out ones) are passed through the
+ * same transformers.
+ */
+public interface StreamingResponseInterceptorInterface {
+
+    /**
+     * @param message The OGC message of the request
+     * @return Whether this interceptor handles the response of the given message
+     */
+    boolean supports(OgcMessage message);
+
+    /**
+     * Returns the transformer for the body of the given response. The response
+     * headers may be changed, e.g. to set another Content-Type.
+     *
+     * @param request         The (intercepted) request
+     * @param message         The OGC message of the request
+     * @param responseHeaders The (mutable) headers of the response
+     * @return The transformer to apply
+     * @throws InterceptorException If the response must not be returned
+     */
+    ResponseStreamTransformer getTransformer(MutableHttpServletRequest request, OgcMessage message,
+                                             HttpHeaders responseHeaders) throws InterceptorException;
+
+}
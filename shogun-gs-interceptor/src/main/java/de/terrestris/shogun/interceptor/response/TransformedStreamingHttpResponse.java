@@ -0,0 +1,165 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.response;
+
+import de.terrestris.shogun.lib.dto.StreamingHttpResponse;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.apache.logging.log4j.LogManager.getLogger;
+
+/**
+ * A {@link StreamingHttpResponse} whose body is passed through a chain of
+ * {@link ResponseStreamTransformer}s while it is written. The last transformer
+ * writes to the client directly, all previous stages run on the given executor
+ * and are connected by pipes of {@link #BUFFER_SIZE} bytes. If a stage fails,
+ * the next stage reads its exception instead of the end of the stream.
+ */
+public class TransformedStreamingHttpResponse extends StreamingHttpResponse {
+
+    private static final Logger LOG = getLogger(TransformedStreamingHttpResponse.class);
+
+    private final List<ResponseStreamTransformer> transformers;
+
+    private final Executor executor;
+
+    public TransformedStreamingHttpResponse(StreamingHttpResponse response, List<ResponseStreamTransformer> transformers,
+                                            Executor executor) {
+        super(response.getStatusCode(), response.getHeaders(), response.getBody(), response);
+        this.transformers = transformers;
+        this.executor = executor;
+    }
+
+    @Override
+    public void writeBody(OutputStream outputStream) throws IOException {
+        if (transformers.isEmpty()) {
+            super.writeBody(outputStream);
+            return;
+        }
+
+        InputStream in = getBody() != null ? getBody() : new ByteArrayInputStream(new byte[0]);
+        List<Future<?>> stages = new ArrayList<>();
+        List<Closeable> pipes = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < transformers.size() - 1; i++) {
+                ResponseStreamTransformer transformer = transformers.get(i);
+                StagePipe pipeIn = new StagePipe();
+                PipedOutputStream pipeOut = new PipedOutputStream(pipeIn);
+                InputStream stageIn = in;
+
+                FutureTask<Void> stage = new FutureTask<>(() -> {
+                    try (OutputStream stageOut = pipeOut) {
+                        transformer.transform(stageIn, stageOut);
+                    } catch (Exception | Error e) {
+                        pipeIn.fail(e);
+                        throw e;
+                    }
+                    return null;
+                });
+                executor.execute(stage);
+
+                stages.add(stage);
+                pipes.add(pipeIn);
+                in = pipeIn;
+            }
+
+            transformers.get(transformers.size() - 1).transform(in, outputStream);
+            outputStream.flush();
+
+            for (Future<?> stage : stages) {
+                stage.get();
+            }
+        } catch (RejectedExecutionException e) {
+            throw new IOException("No thread available to transform the response: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while transforming the response");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Error while transforming the response: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            // unblock any stage still writing to a pipe nobody reads anymore
+            for (Closeable pipe : pipes) {
+                try {
+                    pipe.close();
+                } catch (IOException e) {
+                    LOG.trace("Could not close pipe: {}", e.getMessage());
+                }
+            }
+            for (Future<?> stage : stages) {
+                stage.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * A pipe rethrowing the failure of the writing stage to the reader.
+     */
+    private static class StagePipe extends PipedInputStream {
+
+        private volatile Throwable failure;
+
+        StagePipe() {
+            super(BUFFER_SIZE);
+        }
+
+        void fail(Throwable failure) {
+            this.failure = failure;
+        }
+
+        @Override
+        public synchronized int read() throws IOException {
+            checkFailure();
+            int result = super.read();
+            if (result < 0) {
+                checkFailure();
+            }
+            return result;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) throws IOException {
+            checkFailure();
+            int result = super.read(b, off, len);
+            if (result < 0) {
+                checkFailure();
+            }
+            return result;
+        }
+
+        private void checkFailure() throws IOException {
+            Throwable cause = failure;
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause != null) {
+                throw new IOException("Error while transforming the response: " + cause.getMessage(), cause);
+            }
+        }
+    }
+
+}
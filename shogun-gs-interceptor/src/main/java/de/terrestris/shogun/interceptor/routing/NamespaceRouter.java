@@ -0,0 +1,225 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.routing;
+
+import de.terrestris.shogun.interceptor.backend.Backend;
+import de.terrestris.shogun.interceptor.backend.BackendPool;
+import de.terrestris.shogun.interceptor.config.properties.BackendProperties;
+import de.terrestris.shogun.interceptor.config.properties.HealthCheckProperties;
+import de.terrestris.shogun.interceptor.config.properties.InterceptorProperties;
+import de.terrestris.shogun.interceptor.config.properties.NamespaceProperties;
+import de.terrestris.shogun.interceptor.config.properties.OutlierEjectionProperties;
+import de.terrestris.shogun.interceptor.resilience.NamespaceGuard;
+import de.terrestris.shogun.lib.dto.HttpResponse;
+import de.terrestris.shogun.lib.util.HttpUtil;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compiles the namespace configuration of the {@link InterceptorProperties}
+ * into a {@link NamespaceRoutingTable} and swaps it on {@link #reload()}. The
+ * state (in flight requests, health, circuits) of unchanged namespaces is
+ * kept on reload. Also probes the backends periodically (if enabled).
+ */
+@Component
+@Log4j2
+public class NamespaceRouter {
+
+    @Autowired
+    protected InterceptorProperties interceptorProperties;
+
+    @Autowired
+    protected Environment environment;
+
+    private volatile NamespaceRoutingTable routingTable;
+
+    private ScheduledExecutorService healthCheckExecutor;
+
+    @PostConstruct
+    public void init() {
+        routingTable = compile(interceptorProperties, null);
+
+        HealthCheckProperties healthCheck = interceptorProperties.getHealthCheck();
+        if (healthCheck.isEnabled()) {
+            healthCheckExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "interceptor-health-check");
+                thread.setDaemon(true);
+                return thread;
+            });
+            healthCheckExecutor.scheduleWithFixedDelay(this::probeBackends, healthCheck.getInterval(),
+                healthCheck.getInterval(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (healthCheckExecutor != null) {
+            healthCheckExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return The current routing table
+     */
+    public NamespaceRoutingTable getRoutingTable() {
+        return routingTable;
+    }
+
+    /**
+     * Rebinds the namespace configuration from the environment and swaps the
+     * routing table. The current table is kept if the configuration is invalid.
+     *
+     * @throws IllegalArgumentException If the configuration is invalid
+     */
+    public synchronized void reload() {
+        InterceptorProperties properties = Binder.get(environment)
+            .bind("interceptor", InterceptorProperties.class)
+            .orElseGet(InterceptorProperties::new);
+
+        NamespaceRoutingTable reloadedTable = compile(properties, routingTable);
+
+        interceptorProperties.setNamespaceBoundUrl(properties.isNamespaceBoundUrl());
+        interceptorProperties.setDefaultOwsUrl(properties.getDefaultOwsUrl());
+        interceptorProperties.setNamespaces(properties.getNamespaces());
+        interceptorProperties.setOutlierEjection(properties.getOutlierEjection());
+
+        routingTable = reloadedTable;
+
+        log.info("Reloaded the routing table with {} namespaces", reloadedTable.getRoutes().size());
+    }
+
+    private static NamespaceRoutingTable compile(InterceptorProperties properties, NamespaceRoutingTable previousTable) {
+        OutlierEjectionProperties outlierEjection = properties.getOutlierEjection();
+        boolean reuseRoutes = previousTable != null && outlierEjection.equals(previousTable.getOutlierEjection());
+
+        List<NamespaceRoute> routes = new ArrayList<>();
+        if (properties.getNamespaces() != null) {
+            for (NamespaceProperties namespace : properties.getNamespaces()) {
+                if (StringUtils.isEmpty(namespace.getNamespace())) {
+                    continue;
+                }
+
+                NamespaceRoute previousRoute = reuseRoutes ? previousTable.getRoute(namespace.getNamespace()) : null;
+                if (previousRoute != null && previousRoute.getProperties().equals(namespace)) {
+                    routes.add(previousRoute);
+                    continue;
+                }
+
+                NamespaceRoute route = compile(namespace, outlierEjection);
+                if (route != null) {
+                    routes.add(route);
+                }
+            }
+        }
+
+        Backend defaultBackend = StringUtils.isNotEmpty(properties.getDefaultOwsUrl()) ?
+            new Backend(null, properties.getDefaultOwsUrl(), 1, 0, 0) : null;
+
+        return new NamespaceRoutingTable(properties.isNamespaceBoundUrl(), defaultBackend, outlierEjection, routes);
+    }
+
+    private static NamespaceRoute compile(NamespaceProperties namespace, OutlierEjectionProperties outlierEjection) {
+        List<Backend> backends = new ArrayList<>();
+        if (namespace.getBackends() != null) {
+            for (BackendProperties backend : namespace.getBackends()) {
+                if (StringUtils.isNotEmpty(backend.getUrl())) {
+                    backends.add(new Backend(namespace.getNamespace(), backend.getUrl(), backend.getWeight(),
+                        outlierEjection.getConsecutiveFailures(), outlierEjection.getEjectionTime()));
+                }
+            }
+        }
+        if (backends.isEmpty() && StringUtils.isNotEmpty(namespace.getUrl())) {
+            backends.add(new Backend(namespace.getNamespace(), namespace.getUrl(), 1,
+                outlierEjection.getConsecutiveFailures(), outlierEjection.getEjectionTime()));
+        }
+        if (backends.isEmpty()) {
+            return null;
+        }
+
+        return new NamespaceRoute(namespace.getNamespace(),
+            new BackendPool(namespace.getNamespace(), namespace.getBalancing(), backends),
+            new NamespaceGuard(namespace), namespace);
+    }
+
+    private void probeBackends() {
+        HealthCheckProperties healthCheck = interceptorProperties.getHealthCheck();
+        for (NamespaceRoute route : routingTable.getRoutes()) {
+            for (Backend backend : route.getPool().getBackends()) {
+                boolean success;
+                try {
+                    HttpResponse response = HttpUtil.get(backend.getUrl() + healthCheck.getPath());
+                    success = response.getStatusCode() != null && !response.getStatusCode().is5xxServerError();
+                } catch (Exception e) {
+                    log.debug("Health probe of GeoServer backend {} failed: {}", backend.getUrl(), e.getMessage());
+                    success = false;
+                }
+                backend.probed(success, success ? healthCheck.getHealthyThreshold() :
+                    healthCheck.getUnhealthyThreshold());
+            }
+        }
+    }
+
+    /**
+     * @return The state of all backends
+     */
+    public Map<String, Object> getBackendStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        for (NamespaceRoute route : routingTable.getRoutes()) {
+            List<Map<String, Object>> backends = new ArrayList<>();
+            for (Backend backend : route.getPool().getBackends()) {
+                Map<String, Object> state = new LinkedHashMap<>();
+                state.put("url", backend.getUrl());
+                state.put("weight", backend.getWeight());
+                state.put("healthy", backend.isHealthy());
+                state.put("ejected", backend.isEjected());
+                state.put("inFlight", backend.getInFlight());
+                backends.add(state);
+            }
+            statistics.put(route.getNamespace(), backends);
+        }
+        return statistics;
+    }
+
+    /**
+     * @return The state of the bulkheads and circuit breakers
+     */
+    public Map<String, Object> getNamespaceStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        for (NamespaceRoute route : routingTable.getRoutes()) {
+            NamespaceGuard guard = route.getGuard();
+            Map<String, Object> state = new LinkedHashMap<>();
+            state.put("activeRequests", guard.getBulkhead().getActive());
+            state.put("queuedRequests", guard.getBulkhead().getQueued());
+            state.put("rejectedRequests", guard.getBulkhead().getRejected());
+            state.put("circuit", guard.getCircuitBreaker().getState());
+            state.put("shortCircuitedRequests", guard.getCircuitBreaker().getRejected());
+            statistics.put(route.getNamespace(), state);
+        }
+        return statistics;
+    }
+}
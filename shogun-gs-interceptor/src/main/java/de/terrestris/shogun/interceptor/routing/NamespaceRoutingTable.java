@@ -0,0 +1,127 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.routing;
+
+import de.terrestris.shogun.interceptor.backend.Backend;
+import de.terrestris.shogun.interceptor.config.properties.OutlierEjectionProperties;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable, case insensitive lookup table from GeoServer namespaces to
+ * their {@link NamespaceRoute}s. The lookup by (qualified) endpoint works on
+ * the endpoint string directly and doesn't allocate.
+ */
+public class NamespaceRoutingTable {
+
+    @Getter
+    private final boolean namespaceBoundUrl;
+
+    /**
+     * The backend used if the GeoServer isn't bound to namespaces.
+     */
+    @Getter
+    private final Backend defaultBackend;
+
+    @Getter
+    private final OutlierEjectionProperties outlierEjection;
+
+    @Getter
+    private final List<NamespaceRoute> routes;
+
+    private final String[] keys;
+
+    private final NamespaceRoute[] slots;
+
+    private final int mask;
+
+    NamespaceRoutingTable(boolean namespaceBoundUrl, Backend defaultBackend,
+                          OutlierEjectionProperties outlierEjection, List<NamespaceRoute> routes) {
+        this.namespaceBoundUrl = namespaceBoundUrl;
+        this.defaultBackend = defaultBackend;
+        this.outlierEjection = outlierEjection;
+        this.routes = Collections.unmodifiableList(new ArrayList<>(routes));
+
+        // open addressing with a load factor of at most 0.5
+        int capacity = Integer.highestOneBit(Math.max(routes.size(), 1) * 4 - 1);
+        this.keys = new String[capacity];
+        this.slots = new NamespaceRoute[capacity];
+        this.mask = capacity - 1;
+
+        for (NamespaceRoute route : routes) {
+            String namespace = route.getNamespace();
+            int index = hash(namespace, namespace.length()) & mask;
+            while (keys[index] != null) {
+                if (matches(keys[index], namespace, namespace.length())) {
+                    // the first definition of a namespace wins
+                    break;
+                }
+                index = (index + 1) & mask;
+            }
+            if (keys[index] == null) {
+                keys[index] = namespace;
+                slots[index] = route;
+            }
+        }
+    }
+
+    /**
+     * @param endPoint The namespace or the qualified endpoint (namespace:layer)
+     * @return The route of the namespace of the given endpoint or null if there is none
+     */
+    public NamespaceRoute getRoute(String endPoint) {
+        if (endPoint == null) {
+            return null;
+        }
+
+        int separator = endPoint.indexOf(':');
+        int length = separator < 0 ? endPoint.length() : separator;
+
+        int index = hash(endPoint, length) & mask;
+        while (keys[index] != null) {
+            if (matches(keys[index], endPoint, length)) {
+                return slots[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * @param endPoint The namespace or the qualified endpoint (namespace:layer)
+     * @return The namespace of the given endpoint
+     */
+    public static String getNamespace(String endPoint) {
+        int separator = endPoint.indexOf(':');
+        return separator < 0 ? endPoint : endPoint.substring(0, separator);
+    }
+
+    private static boolean matches(String key, String endPoint, int length) {
+        return key.length() == length && key.regionMatches(true, 0, endPoint, 0, length);
+    }
+
+    private static int hash(String value, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(value.charAt(i)));
+        }
+        return hash ^ (hash >>> 16);
+    }
+}
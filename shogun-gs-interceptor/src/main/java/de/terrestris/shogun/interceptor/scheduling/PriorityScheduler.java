@@ -0,0 +1,392 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.scheduling;
+
+import de.terrestris.shogun.interceptor.config.properties.InterceptorProperties;
+import de.terrestris.shogun.interceptor.config.properties.SchedulingProperties;
+import de.terrestris.shogun.interceptor.config.properties.TrafficClassProperties;
+import de.terrestris.shogun.interceptor.exception.InterceptorException;
+import de.terrestris.shogun.interceptor.exception.OgcServiceException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the concurrent GeoServer requests per {@link TrafficClass} and in
+ * total. If the slots are exhausted, requests wait in a bounded queue per
+ * class and free slots are granted to the waiting requests of the class with
+ * the highest priority first, so a burst of bulk requests never delays
+ * interactive requests by more than the requests already running.
+ */
+@Component
+public class PriorityScheduler {
+
+    private static final TrafficClass[] CLASSES = TrafficClass.values();
+
+    private static final Slot NO_SLOT = () -> {
+    };
+
+    /**
+     * A granted slot, to be released once the GeoServer request has been completed.
+     */
+    @FunctionalInterface
+    public interface Slot {
+
+        /**
+         * Releases the slot (only the first call has an effect).
+         */
+        void release();
+    }
+
+    @Autowired
+    protected InterceptorProperties interceptorProperties;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private int active;
+
+    private final Map<TrafficClass, ClassState> states = new EnumMap<>(TrafficClass.class);
+
+    public PriorityScheduler() {
+        for (TrafficClass trafficClass : CLASSES) {
+            states.put(trafficClass, new ClassState());
+        }
+    }
+
+    private SchedulingProperties getProperties() {
+        return interceptorProperties.getScheduling();
+    }
+
+    private TrafficClassProperties getProperties(TrafficClass trafficClass) {
+        switch (trafficClass) {
+            case INTERACTIVE:
+                return getProperties().getInteractive();
+            case BULK:
+                return getProperties().getBulk();
+            default:
+                return getProperties().getStandard();
+        }
+    }
+
+    public boolean isEnabled() {
+        return getProperties().isEnabled();
+    }
+
+    /**
+     * Takes a slot for a GeoServer request of the given class, waiting for it
+     * if all slots are taken.
+     *
+     * @param trafficClass The class of the request, null if not classified
+     * @return The granted slot
+     * @throws OgcServiceException  If the queue of the class is full or the queue timeout elapsed
+     * @throws InterceptorException If interrupted while waiting
+     */
+    public Slot acquire(TrafficClass trafficClass) throws InterceptorException {
+        if (trafficClass == null || !isEnabled()) {
+            return NO_SLOT;
+        }
+
+        ClassState state = states.get(trafficClass);
+        state.requests.increment();
+        long start = System.nanoTime();
+
+        Waiter waiter = null;
+        lock.lock();
+        try {
+            if (!hasWaitersLocked(trafficClass) && canRunLocked(trafficClass)) {
+                grantLocked(state);
+                return new GrantedSlot(state);
+            }
+
+            if (state.waiters.size() >= getProperties(trafficClass).getMaxQueuedRequests()) {
+                throw reject(trafficClass, state);
+            }
+
+            waiter = new Waiter(state, lock.newCondition(), null);
+            state.waiters.add(waiter);
+
+            long remaining = TimeUnit.MILLISECONDS.toNanos(getProperties(trafficClass).getQueueTimeout());
+            while (!waiter.granted && remaining > 0) {
+                remaining = waiter.condition.awaitNanos(remaining);
+            }
+
+            if (!waiter.granted) {
+                state.waiters.remove(waiter);
+                throw reject(trafficClass, state);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (waiter != null && waiter.granted) {
+                release(state);
+            } else {
+                state.waiters.remove(waiter);
+            }
+            throw new InterceptorException("Interrupted while waiting for a slot for " + trafficClass + " traffic", e);
+        } finally {
+            lock.unlock();
+        }
+
+        state.waitNanos.add(System.nanoTime() - start);
+        return new GrantedSlot(state);
+    }
+
+    /**
+     * Takes a slot for a GeoServer request of the given class like {@link #acquire(TrafficClass)},
+     * but without blocking the calling thread: if all slots are taken, the returned future
+     * completes once a slot has been granted or fails once the queue timeout elapsed.
+     * Cancelling the future while it is waiting removes it from the queue.
+     *
+     * @param trafficClass The class of the request, null if not classified
+     * @return The future of the granted slot, failing with an {@link OgcServiceException} if
+     * the queue of the class is full or the queue timeout elapsed
+     */
+    public CompletableFuture<Slot> acquireAsync(TrafficClass trafficClass) {
+        if (trafficClass == null || !isEnabled()) {
+            return CompletableFuture.completedFuture(NO_SLOT);
+        }
+
+        ClassState state = states.get(trafficClass);
+        state.requests.increment();
+        long start = System.nanoTime();
+
+        CompletableFuture<Slot> future = new CompletableFuture<>();
+        Waiter waiter;
+        lock.lock();
+        try {
+            if (!hasWaitersLocked(trafficClass) && canRunLocked(trafficClass)) {
+                grantLocked(state);
+                future.complete(new GrantedSlot(state));
+                return future;
+            }
+
+            if (state.waiters.size() >= getProperties(trafficClass).getMaxQueuedRequests()) {
+                future.completeExceptionally(reject(trafficClass, state));
+                return future;
+            }
+
+            waiter = new Waiter(state, null, future);
+            state.waiters.add(waiter);
+        } finally {
+            lock.unlock();
+        }
+
+        future.whenComplete((slot, throwable) -> {
+            if (throwable != null) {
+                // cancelled or timed out while waiting
+                dequeue(state, waiter);
+            } else {
+                state.waitNanos.add(System.nanoTime() - start);
+            }
+        });
+
+        CompletableFuture.delayedExecutor(getProperties(trafficClass).getQueueTimeout(), TimeUnit.MILLISECONDS)
+            .execute(() -> {
+                if (dequeue(state, waiter)) {
+                    future.completeExceptionally(reject(trafficClass, state));
+                }
+            });
+
+        return future;
+    }
+
+    /**
+     * @return Whether the given waiter has been removed from the queue before a slot was granted to it
+     */
+    private boolean dequeue(ClassState state, Waiter waiter) {
+        lock.lock();
+        try {
+            return !waiter.granted && state.waiters.remove(waiter);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Whether requests of the given or a higher priority class are waiting
+     */
+    private boolean hasWaitersLocked(TrafficClass trafficClass) {
+        for (TrafficClass candidate : CLASSES) {
+            if (!states.get(candidate).waiters.isEmpty()) {
+                return true;
+            }
+            if (candidate == trafficClass) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private boolean canRunLocked(TrafficClass trafficClass) {
+        return active < getProperties().getMaxConcurrentRequests() &&
+            states.get(trafficClass).active < getProperties(trafficClass).getMaxConcurrentRequests();
+    }
+
+    private void grantLocked(ClassState state) {
+        active++;
+        state.active++;
+    }
+
+    private void release(ClassState state) {
+        List<Waiter> grantedWaiters = new ArrayList<>();
+        lock.lock();
+        try {
+            active--;
+            state.active--;
+
+            // hand the free slots to the waiting requests by priority
+            for (TrafficClass trafficClass : CLASSES) {
+                ClassState candidate = states.get(trafficClass);
+                while (!candidate.waiters.isEmpty() && canRunLocked(trafficClass)) {
+                    Waiter waiter = candidate.waiters.poll();
+                    waiter.granted = true;
+                    grantLocked(candidate);
+                    if (waiter.condition != null) {
+                        waiter.condition.signal();
+                    } else {
+                        grantedWaiters.add(waiter);
+                    }
+                }
+                if (active >= getProperties().getMaxConcurrentRequests()) {
+                    break;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // complete the futures outside of the lock, as their dependent stages run on this thread
+        for (Waiter waiter : grantedWaiters) {
+            GrantedSlot slot = new GrantedSlot(waiter.state);
+            if (!waiter.future.complete(slot)) {
+                // cancelled concurrently
+                slot.release();
+            }
+        }
+    }
+
+    private OgcServiceException reject(TrafficClass trafficClass, ClassState state) {
+        state.rejected.increment();
+        return new OgcServiceException("Too many concurrent " + trafficClass.name().toLowerCase() +
+            " requests to the GeoServer", HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    /**
+     * @return The current load and the counters per traffic class
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            statistics.put("activeRequests", active);
+            for (TrafficClass trafficClass : CLASSES) {
+                ClassState state = states.get(trafficClass);
+                long requests = state.requests.sum();
+                long completed = state.completed.sum();
+
+                Map<String, Object> classStatistics = new LinkedHashMap<>();
+                classStatistics.put("activeRequests", state.active);
+                classStatistics.put("queuedRequests", state.waiters.size());
+                classStatistics.put("requests", requests);
+                classStatistics.put("rejectedRequests", state.rejected.sum());
+                classStatistics.put("averageWaitMillis", requests > 0 ?
+                    TimeUnit.NANOSECONDS.toMillis(state.waitNanos.sum() / requests) : 0);
+                classStatistics.put("averageDurationMillis", completed > 0 ?
+                    TimeUnit.NANOSECONDS.toMillis(state.durationNanos.sum() / completed) : 0);
+                statistics.put(trafficClass.name().toLowerCase(), classStatistics);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return statistics;
+    }
+
+    /**
+     * The state of a traffic class, guarded by the lock (except the counters).
+     */
+    private static final class ClassState {
+
+        private int active;
+
+        private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+
+        private final LongAdder requests = new LongAdder();
+
+        private final LongAdder rejected = new LongAdder();
+
+        private final LongAdder completed = new LongAdder();
+
+        private final LongAdder waitNanos = new LongAdder();
+
+        private final LongAdder durationNanos = new LongAdder();
+    }
+
+    /**
+     * A waiting request, either a blocked thread (condition) or a future to complete.
+     */
+    private static final class Waiter {
+
+        private final Condition condition;
+
+        private final CompletableFuture<Slot> future;
+
+        private final ClassState state;
+
+        private boolean granted;
+
+        private Waiter(ClassState state, Condition condition, CompletableFuture<Slot> future) {
+            this.state = state;
+            this.condition = condition;
+            this.future = future;
+        }
+    }
+
+    private final class GrantedSlot implements Slot {
+
+        private final ClassState state;
+
+        private final long start = System.nanoTime();
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private GrantedSlot(ClassState state) {
+            this.state = state;
+        }
+
+        @Override
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                state.completed.increment();
+                state.durationNanos.add(System.nanoTime() - start);
+                PriorityScheduler.this.release(state);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,132 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.scheduling;
+
+import de.terrestris.shogun.interceptor.config.properties.InterceptorProperties;
+import de.terrestris.shogun.interceptor.config.properties.SchedulingProperties;
+import de.terrestris.shogun.interceptor.enumeration.OgcEnum;
+import de.terrestris.shogun.interceptor.exception.InterceptorException;
+import de.terrestris.shogun.interceptor.servlet.MutableHttpServletRequest;
+import de.terrestris.shogun.interceptor.servlet.OgcRequestDescriptor;
+import de.terrestris.shogun.lib.security.SecurityContextUtil;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Classifies requests into {@link TrafficClass}es by their operation, their
+ * expected payload size and the calling user.
+ */
+@Component
+public class TrafficClassifier {
+
+    @Autowired
+    protected InterceptorProperties interceptorProperties;
+
+    /**
+     * @param request The request to classify
+     * @return The traffic class of the given request
+     * @throws InterceptorException If the request can't be read
+     * @throws IOException          If the request can't be read
+     */
+    public TrafficClass classify(MutableHttpServletRequest request) throws InterceptorException, IOException {
+        SchedulingProperties properties = interceptorProperties.getScheduling();
+
+        if (isBulkCaller(properties.getBulkCallers())) {
+            return TrafficClass.BULK;
+        }
+
+        if ("POST".equalsIgnoreCase(request.getMethod()) &&
+            request.getBodyBuffer().size() > properties.getBulkBodySize()) {
+            return TrafficClass.BULK;
+        }
+
+        OgcRequestDescriptor descriptor = request.getOgcRequestDescriptor();
+        OgcEnum.OperationType operation = OgcEnum.OperationType.fromString(descriptor.getOperation());
+
+        if (properties.getInteractiveOperations().contains(operation)) {
+            if (operation == OgcEnum.OperationType.GET_MAP &&
+                getPixels(descriptor) > properties.getMaxInteractivePixels()) {
+                return TrafficClass.STANDARD;
+            }
+            return TrafficClass.INTERACTIVE;
+        }
+
+        if (properties.getBulkOperations().contains(operation)) {
+            if (operation == OgcEnum.OperationType.GET_FEATURE) {
+                int limit = getFeatureLimit(descriptor);
+                if (limit > 0 && limit <= properties.getMaxStandardFeatures()) {
+                    return TrafficClass.STANDARD;
+                }
+            }
+            return TrafficClass.BULK;
+        }
+
+        return TrafficClass.STANDARD;
+    }
+
+    /**
+     * @param descriptor
+     * @return The requested size (width * height) of a GetMap request
+     */
+    private static long getPixels(OgcRequestDescriptor descriptor) throws InterceptorException, IOException {
+        long width = NumberUtils.toLong(descriptor.getParameterValue("WIDTH"), 0);
+        long height = NumberUtils.toLong(descriptor.getParameterValue("HEIGHT"), 0);
+        return width * height;
+    }
+
+    /**
+     * @param descriptor
+     * @return The feature limit (COUNT or MAXFEATURES) of a GetFeature request or 0 if unlimited
+     */
+    private static int getFeatureLimit(OgcRequestDescriptor descriptor) throws InterceptorException, IOException {
+        int count = NumberUtils.toInt(descriptor.getParameterValue("COUNT"), 0);
+        return count > 0 ? count : NumberUtils.toInt(descriptor.getParameterValue("MAXFEATURES"), 0);
+    }
+
+    /**
+     * @param bulkCallers
+     * @return Whether the current user or one of its authorities is a bulk caller
+     */
+    private static boolean isBulkCaller(List<String> bulkCallers) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (bulkCallers.isEmpty() || authentication == null ||
+            authentication instanceof AnonymousAuthenticationToken) {
+            return false;
+        }
+
+        if (bulkCallers.contains(authentication.getName()) ||
+            bulkCallers.contains(SecurityContextUtil.getKeycloakUserIdFromAuthentication(authentication))) {
+            return true;
+        }
+
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            if (bulkCallers.contains(authority.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
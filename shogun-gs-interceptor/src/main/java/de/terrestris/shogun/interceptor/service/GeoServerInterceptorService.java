@@ -16,39 +16,77 @@
  */
 package de.terrestris.shogun.interceptor.service;
 
+import de.terrestris.shogun.interceptor.backend.Backend;
+import de.terrestris.shogun.interceptor.backend.BackendPool;
+import de.terrestris.shogun.interceptor.cache.InterceptorResponseCache;
+import de.terrestris.shogun.interceptor.cache.ResponseCacheKey;
+import de.terrestris.shogun.interceptor.capabilities.FilteredCapabilitiesCache;
+import de.terrestris.shogun.interceptor.coalescing.RequestCoalescer;
+import de.terrestris.shogun.interceptor.conditional.ConditionalRequestHandler;
 import de.terrestris.shogun.interceptor.config.properties.InterceptorProperties;
-import de.terrestris.shogun.interceptor.config.properties.NamespaceProperties;
+import de.terrestris.shogun.interceptor.config.properties.LatencyProperties;
 import de.terrestris.shogun.interceptor.enumeration.HttpEnum;
 import de.terrestris.shogun.interceptor.enumeration.OgcEnum;
 import de.terrestris.shogun.interceptor.exception.InterceptorException;
+import de.terrestris.shogun.interceptor.exception.OgcServiceException;
+import de.terrestris.shogun.interceptor.fanout.FanOutHandler;
+import de.terrestris.shogun.interceptor.latency.LatencyTracker;
 import de.terrestris.shogun.interceptor.message.OgcMessage;
 import de.terrestris.shogun.interceptor.message.OgcMessageDistributor;
 import de.terrestris.shogun.interceptor.model.InterceptorRule;
+import de.terrestris.shogun.interceptor.paging.FeaturePager;
+import de.terrestris.shogun.interceptor.ratelimit.RateLimiter;
+import de.terrestris.shogun.interceptor.resilience.NamespaceGuard;
+import de.terrestris.shogun.interceptor.routing.NamespaceRoute;
+import de.terrestris.shogun.interceptor.routing.NamespaceRouter;
+import de.terrestris.shogun.interceptor.routing.NamespaceRoutingTable;
+import de.terrestris.shogun.interceptor.scheduling.PriorityScheduler;
+import de.terrestris.shogun.interceptor.scheduling.TrafficClass;
+import de.terrestris.shogun.interceptor.scheduling.TrafficClassifier;
 import de.terrestris.shogun.interceptor.servlet.MutableHttpServletRequest;
-import de.terrestris.shogun.interceptor.util.OgcXmlUtil;
+import de.terrestris.shogun.interceptor.servlet.OgcRequestDescriptor;
+import de.terrestris.shogun.interceptor.servlet.RequestBodyBuffer;
+import de.terrestris.shogun.interceptor.servlet.RequestBodyBufferAllocator;
+import de.terrestris.shogun.interceptor.servlet.RequestBodyEntity;
+import de.terrestris.shogun.interceptor.servlet.RequestBodyTooLargeException;
 import de.terrestris.shogun.lib.dto.HttpResponse;
+import de.terrestris.shogun.lib.dto.StreamingHttpResponse;
 import de.terrestris.shogun.lib.util.HttpUtil;
+import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.Header;
 import org.apache.http.HttpException;
 import org.apache.http.NameValuePair;
-import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.entity.ContentType;
 import org.apache.http.message.BasicHeader;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutor;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
 import javax.servlet.http.HttpServletRequest;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.Map.Entry;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -60,9 +98,9 @@ public class GeoServerInterceptorService {
     protected static final Logger LOG = getLogger(GeoServerInterceptorService.class);
 
     /**
-     * An array of whitelisted Headers to forward within the Interceptor.
+     * The (case insensitive) set of whitelisted Headers to forward within the Interceptor.
      */
-    private static final String[] FORWARD_RESPONSE_HEADER_KEYS = new String[]{
+    private static final Set<String> FORWARD_RESPONSE_HEADER_KEYS = createCaseInsensitiveSet(
         "Content-Type",
         "Content-Disposition",
         "Content-Language",
@@ -72,10 +110,38 @@ public class GeoServerInterceptorService {
         "geowebcache-tile-bounds",
         "geowebcache-tile-index",
         "geowebcache-miss-reason"
-    };
+    );
 
-    private static final String WMS_REFLECT_ENDPOINT = "/reflect";
-    private static final String USE_REFLECT_PARAM = "useReflect";
+    private static final Pattern CONTENT_TYPE_SUBTYPE_PATTERN = Pattern.compile("subtype=(.*)");
+
+    private static final Header[] NO_HEADERS = new Header[0];
+
+    private static final String USE_REFLECT_PARAM = OgcRequestDescriptor.USE_REFLECT_PARAM;
+
+    /**
+     * The request attribute holding the {@link Backend} selected for the request.
+     */
+    private static final String BACKEND_ATTRIBUTE = Backend.class.getName();
+
+    /**
+     * The request attribute holding the {@link NamespaceGuard} of the request.
+     */
+    private static final String NAMESPACE_GUARD_ATTRIBUTE = NamespaceGuard.class.getName();
+
+    /**
+     * The request attribute holding the {@link TrafficClass} of the request.
+     */
+    private static final String TRAFFIC_CLASS_ATTRIBUTE = TrafficClass.class.getName();
+
+    /**
+     * The request attribute holding the {@link BackendPool} the request is routed to.
+     */
+    private static final String BACKEND_POOL_ATTRIBUTE = BackendPool.class.getName();
+
+    /**
+     * The request attribute holding the (adaptive) {@link RequestConfig} of the request.
+     */
+    private static final String REQUEST_CONFIG_ATTRIBUTE = RequestConfig.class.getName();
 
     @Autowired
     protected OgcMessageDistributor ogcMessageDistributor;
@@ -86,265 +152,1474 @@ public class GeoServerInterceptorService {
     @Autowired
     protected InterceptorProperties interceptorProperties;
 
+    @Autowired
+    protected InterceptorResponseCache responseCache;
+
+    @Autowired
+    protected RequestCoalescer requestCoalescer;
+
+    @Autowired
+    protected NamespaceRouter namespaceRouter;
+
+    @Autowired
+    protected ConditionalRequestHandler conditionalRequestHandler;
+
+    @Autowired
+    protected RateLimiter rateLimiter;
+
+    @Autowired
+    protected FilteredCapabilitiesCache capabilitiesCache;
+
+    @Autowired
+    protected RequestBodyBufferAllocator bodyBufferAllocator;
+
+    @Autowired
+    protected TrafficClassifier trafficClassifier;
+
+    @Autowired
+    protected PriorityScheduler priorityScheduler;
+
+    @Autowired
+    protected LatencyTracker latencyTracker;
+
+    @Autowired
+    protected FanOutHandler fanOutHandler;
+
+    @Autowired
+    protected FeaturePager featurePager;
+
+    private static Set<String> createCaseInsensitiveSet(String... values) {
+        Set<String> set = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        set.addAll(Arrays.asList(values));
+        return Collections.unmodifiableSet(set);
+    }
+
     /**
      * @param params
      * @return
      */
     private static List<NameValuePair> createQueryParams(Map<String, String[]> params) {
-        List<NameValuePair> queryParams = new ArrayList<>();
+        List<NameValuePair> queryParams = new ArrayList<>(params.size());
         for (Entry<String, String[]> param : params.entrySet()) {
-            queryParams.add(new BasicNameValuePair(param.getKey(),
-                StringUtils.join(param.getValue(), ",")));
+            queryParams.add(new BasicNameValuePair(param.getKey(), joinParameterValues(param.getValue())));
         }
         return queryParams;
     }
 
     /**
+     * @param values
+     * @return The comma separated values
+     */
+    private static String joinParameterValues(String[] values) {
+        if (values != null && values.length == 1) {
+            return values[0];
+        }
+        return StringUtils.join(values, ",");
+    }
+
+    /**
+     * Appends the given (form encoded) parameters to the given base URI.
+     *
      * @param baseUri
-     * @param queryParams
+     * @param params
+     * @return
+     * @throws URISyntaxException
+     */
+    static URI getFullRequestURI(String baseUri, Map<String, String[]> params) throws URISyntaxException {
+        if (params.isEmpty()) {
+            return new URI(baseUri);
+        }
+
+        StringBuilder builder = new StringBuilder(baseUri.length() + 32 * params.size());
+        builder.append(baseUri);
+
+        char separator = baseUri.indexOf('?') < 0 ? '?' : '&';
+        for (Entry<String, String[]> param : params.entrySet()) {
+            builder.append(separator);
+            separator = '&';
+
+            appendFormEncoded(builder, param.getKey());
+
+            String[] values = param.getValue();
+            if (values != null) {
+                builder.append('=');
+                for (int i = 0; i < values.length; i++) {
+                    if (i > 0) {
+                        // the encoded comma
+                        builder.append("%2C");
+                    }
+                    appendFormEncoded(builder, values[i]);
+                }
+            }
+        }
+
+        return new URI(builder.toString());
+    }
+
+    /**
+     * Appends the given value form encoded (application/x-www-form-urlencoded, UTF-8)
+     * to the given builder.
+     *
+     * @param builder
+     * @param value
+     */
+    private static void appendFormEncoded(StringBuilder builder, String value) {
+        if (value == null) {
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            boolean unreserved = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') ||
+                c == '-' || c == '.' || c == '_' || c == '*';
+            if (!unreserved) {
+                // only values with special characters need to be encoded
+                builder.append(URLEncoder.encode(value, StandardCharsets.UTF_8));
+                return;
+            }
+        }
+        builder.append(value);
+    }
+
+    /**
+     * @param endPoint
+     */
+    private static String getGeoServerNameSpace(String endPoint) {
+        // return the endPoint as nameSpace per default
+        return NamespaceRoutingTable.getNamespace(endPoint);
+    }
+
+    /**
+     * @param request
+     * @throws InterceptorException
+     * @throws HttpException
+     */
+    public static HttpResponse sendRequest(MutableHttpServletRequest request) throws InterceptorException, HttpException {
+        return sendRequest(request, new Header[0]);
+    }
+
+    /**
+     * @param request
+     * @param additionalHeaders Headers to send in addition to the forwarded ones, e.g. for a conditional request
+     * @throws InterceptorException
+     * @throws HttpException
+     */
+    public static HttpResponse sendRequest(MutableHttpServletRequest request, Header[] additionalHeaders) throws InterceptorException, HttpException {
+        try {
+            HttpRequestBase upstreamRequest = createUpstreamRequest(request);
+            Header[] requestHeaders = ArrayUtils.addAll(getRequestHeadersToForward(request), additionalHeaders);
+            return HttpUtil.send(upstreamRequest, null, requestHeaders);
+        } catch (URISyntaxException | UnsupportedEncodingException e) {
+            throw new InterceptorException("Error while sending request: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Sends the given request without reading the response body. The returned
+     * response must be closed by the caller.
+     *
+     * @param request
+     * @return
+     * @throws InterceptorException
+     * @throws HttpException
+     */
+    public static StreamingHttpResponse sendStreamingRequest(MutableHttpServletRequest request) throws InterceptorException, HttpException {
+        return sendStreamingRequest(request, NO_HEADERS);
+    }
+
+    /**
+     * @param request
+     * @param additionalHeaders Headers to send in addition to the forwarded ones, e.g. for a conditional request
+     * @return
+     * @throws InterceptorException
+     * @throws HttpException
+     * @see #sendStreamingRequest(MutableHttpServletRequest)
+     */
+    public static StreamingHttpResponse sendStreamingRequest(MutableHttpServletRequest request, Header[] additionalHeaders) throws InterceptorException, HttpException {
+        try {
+            HttpRequestBase upstreamRequest = createUpstreamRequest(request);
+            Header[] requestHeaders = ArrayUtils.addAll(getRequestHeadersToForward(request), additionalHeaders);
+            return HttpUtil.sendStreaming(upstreamRequest, null, requestHeaders);
+        } catch (URISyntaxException | UnsupportedEncodingException e) {
+            throw new InterceptorException("Error while sending request: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Sends the given request without blocking the calling thread.
+     *
+     * @param request
+     * @return
+     * @throws InterceptorException
+     */
+    public static CompletableFuture<HttpResponse> sendRequestAsync(MutableHttpServletRequest request) throws InterceptorException {
+        return sendRequestAsync(request, NO_HEADERS);
+    }
+
+    /**
+     * @param request
+     * @param additionalHeaders Headers to send in addition to the forwarded ones, e.g. for a conditional request
      * @return
+     * @throws InterceptorException
+     * @see #sendRequestAsync(MutableHttpServletRequest)
+     */
+    public static CompletableFuture<HttpResponse> sendRequestAsync(MutableHttpServletRequest request, Header[] additionalHeaders) throws InterceptorException {
+        try {
+            HttpRequestBase upstreamRequest = createUpstreamRequest(request);
+            Header[] requestHeaders = ArrayUtils.addAll(getRequestHeadersToForward(request), additionalHeaders);
+            return HttpUtil.sendAsync(upstreamRequest, null, requestHeaders);
+        } catch (URISyntaxException | UnsupportedEncodingException e) {
+            throw new InterceptorException("Error while sending request: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Sets the adaptive timeouts or the timeout of the namespace of the given (intercepted) request to the upstream
+     * request.
+     *
+     * @param request
+     * @param upstreamRequest
+     * @return The upstream request
+     */
+    private static HttpRequestBase applyNamespaceTimeout(MutableHttpServletRequest request, HttpRequestBase upstreamRequest) {
+        RequestConfig requestConfig = (RequestConfig) request.getAttribute(REQUEST_CONFIG_ATTRIBUTE);
+        NamespaceGuard guard = (NamespaceGuard) request.getAttribute(NAMESPACE_GUARD_ATTRIBUTE);
+        if (requestConfig != null) {
+            upstreamRequest.setConfig(requestConfig);
+        } else if (guard != null && guard.getTimeout() != null) {
+            upstreamRequest.setConfig(RequestConfig.custom()
+                .setConnectionRequestTimeout(guard.getTimeout())
+                .setConnectTimeout(guard.getTimeout())
+                .setSocketTimeout(guard.getTimeout())
+                .build());
+        }
+        return upstreamRequest;
+    }
+
+    /**
+     * @param request
+     * @return The (buffered) body of the given request
+     * @throws InterceptorException If the body could not be read
+     */
+    private static RequestBodyBuffer getRequestBodyBuffer(MutableHttpServletRequest request) throws InterceptorException {
+        try {
+            return request.getBodyBuffer();
+        } catch (IOException e) {
+            throw new InterceptorException("Could not read the request body: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates the request to send to the GeoServer for the given (intercepted) request.
+     *
+     * @param request
+     * @return
+     * @throws InterceptorException
      * @throws URISyntaxException
+     * @throws UnsupportedEncodingException
+     */
+    private static HttpRequestBase createUpstreamRequest(MutableHttpServletRequest request) throws InterceptorException, URISyntaxException, UnsupportedEncodingException {
+        String requestMethod = request.getMethod();
+        boolean getRequest = "GET".equalsIgnoreCase(requestMethod);
+        boolean postRequest = "POST".equalsIgnoreCase(requestMethod);
+
+        if (getRequest) {
+            // if we're called via GET method
+            // append the given request parameters to the base URI
+            return applyNamespaceTimeout(request, new HttpGet(
+                getFullRequestURI(request.getRequestURI(), request.getParameterMap())));
+
+        } else if (postRequest) {
+            // if we're called via POST method
+
+            // get the request URI
+            URI requestUri = new URI(request.getRequestURI());
+
+            // We have to attach the actual query; a POST to e.g. http://example.com/?foo=bar is totally OK
+            String queryString = request.getQueryString();
+            if (queryString != null) {
+                requestUri = appendQueryString(requestUri, queryString);
+            }
+
+            HttpPost httpPost = new HttpPost(requestUri);
+
+            // get the request body if any
+            RequestBodyBuffer body = getRequestBodyBuffer(request);
+            if (!body.isEmpty()) {
+                // we do have a POST with string data present
+                // parse the content type of the request
+                ContentType contentType = ContentType.parse(request.getContentType());
+
+                if (contentType.getCharset() == null) {
+                    // use UTF-8 charset if charset could not be parsed from the content type
+                    // of the request
+                    contentType = contentType.withCharset("UTF-8");
+                }
+
+                // POST to the URI with queryString and with the given body (as is)
+                httpPost.setEntity(new RequestBodyEntity(body, contentType));
+            } else if (!request.getParameterMap().isEmpty()) {
+                // POST the given name value pairs
+                httpPost.setEntity(new UrlEncodedFormEntity(createQueryParams(request.getParameterMap()), "UTF-8"));
+            }
+
+            return applyNamespaceTimeout(request, httpPost);
+
+        } else {
+            // otherwise throw an exception
+            throw new InterceptorException("Only GET or POST method is allowed");
+        }
+    }
+
+    /**
+     * @param request
+     * @return
+     */
+    private static Header[] getRequestHeadersToForward(MutableHttpServletRequest request) {
+        // forward x-geoserver-credentials as Authorization header if available
+        String credentials = request.getHeader("x-geoserver-credentials");
+        if (credentials != null) {
+            return new Header[]{new BasicHeader(HttpHeaders.AUTHORIZATION, credentials)};
+        }
+
+        return NO_HEADERS;
+    }
+
+    /**
+     * Returns a new URI with the passed queryString (e.g. foo=bar&amp;baz=123) appended to the passed URI. Adjusted from
+     * http://stackoverflow.com/a/26177982.
+     *
+     * @param uri
+     * @param appendQuery
+     */
+    public static URI appendQueryString(URI uri, String appendQuery) {
+        if (uri == null || appendQuery == null || appendQuery.isEmpty()) {
+            return uri;
+        }
+        String newQuery = uri.getQuery();
+        if (newQuery == null) {
+            newQuery = appendQuery;
+        } else {
+            newQuery += "&" + appendQuery;
+        }
+        // Fallback is the old URI
+        URI newUri = uri;
+        try {
+            newUri = new URI(uri.getScheme(), uri.getAuthority(), uri.getPath(), newQuery, uri.getFragment());
+        } catch (URISyntaxException e) {
+            String msg = String.format(
+                "Failed to append query '%s' to URI '%s', returning URI unchanged.",
+                appendQuery, uri
+            );
+            LOG.warn(msg);
+        }
+        return newUri;
+    }
+
+    /**
+     * @return
+     * @throws UnsupportedEncodingException
      */
-    private static URI getFullRequestURI(URI baseUri, List<NameValuePair> queryParams) throws URISyntaxException {
-        URIBuilder builder = new URIBuilder(baseUri);
-        builder.addParameters(queryParams);
-        return builder.build();
+    static HttpHeaders getResponseHeadersToForward(HttpHeaders headers) {
+        HttpHeaders responseHeaders = new HttpHeaders();
+
+        if (headers == null) {
+            LOG.debug("No headers found to forward!");
+            return responseHeaders;
+        }
+
+        LOG.trace("Requested to filter the Headers to respond with:");
+
+        for (Entry<String, List<String>> header : headers.entrySet()) {
+            String headerKey = header.getKey();
+
+            LOG.trace("  * Header: {}", headerKey);
+
+            if (FORWARD_RESPONSE_HEADER_KEYS.contains(headerKey)) {
+                List<String> headerValues = header.getValue();
+                String headerVal = headerValues.size() == 1 ? headerValues.get(0) :
+                    StringUtils.join(headerValues, ",");
+
+                // the GeoServer response may contain a subtype in the
+                // "Content-Type" header without double quotes surrounding the
+                // subtype's value. If this is set we need to surround it
+                // with double quotes as this is required by the Spring
+                // ResponseEntity (and the RFC 2616 standard).
+                Matcher matcher = headerVal != null && headerVal.contains("subtype=") ?
+                    CONTENT_TYPE_SUBTYPE_PATTERN.matcher(headerVal) : null;
+
+                if (matcher != null && matcher.find()) {
+                    String replaceCandidate = matcher.group(1);
+                    String replacer;
+
+                    replacer = StringUtils.prependIfMissing(
+                        replaceCandidate, "\"");
+                    replacer = StringUtils.appendIfMissing(
+                        replacer, "\"");
+
+                    headerVal = StringUtils.replace(headerVal,
+                        replaceCandidate, replacer);
+                }
+
+                responseHeaders.set(headerKey, headerVal);
+                LOG.trace("    > Forwarded");
+            } else {
+                LOG.trace("    > Skipped");
+            }
+        }
+
+        return responseHeaders;
+    }
+
+    /**
+     * @param request
+     * @return
+     * @throws InterceptorException
+     * @throws URISyntaxException
+     * @throws HttpException
+     * @throws IOException
+     */
+    public HttpResponse interceptGeoServerRequest(HttpServletRequest request) throws InterceptorException, URISyntaxException, HttpException, IOException {
+        return interceptGeoServerRequest(request, Optional.empty());
+    }
+
+    /**
+     * @param request
+     * @param endpoint
+     * @return
+     * @throws InterceptorException
+     * @throws URISyntaxException
+     * @throws HttpException
+     * @throws IOException
+     */
+    public HttpResponse interceptGeoServerRequest(HttpServletRequest request, Optional<String> endpoint) throws InterceptorException, URISyntaxException, HttpException, IOException {
+        // wrap the request, we want to manipulate it
+        MutableHttpServletRequest mutableRequest = wrapRequest(request, endpoint);
+
+        // reject (or delay) the request if the user exceeds the rate limit
+        rateLimiter.acquire(mutableRequest);
+
+        // split GetMap and GetFeatureInfo requests spanning several namespaces (if enabled)
+        List<MutableHttpServletRequest> fanOutParts = fanOutHandler.getParts(mutableRequest);
+        if (fanOutParts != null) {
+            return conditionalRequestHandler.validate(mutableRequest, fanOutHandler.intercept(mutableRequest, fanOutParts, this::interceptPartialRequest));
+        }
+
+        // get the OGC message information (service, request, endPoint)
+        OgcMessage message = getOgcMessage(mutableRequest);
+
+        HttpResponse response = sendInterceptedRequest(prepareRequest(mutableRequest, message), message);
+
+        return conditionalRequestHandler.validate(mutableRequest, response);
+    }
+
+    /**
+     * Intercepts the given request like {@link #interceptGeoServerRequest(HttpServletRequest, Optional)}
+     * but passes the body of the GeoServer response through without reading it
+     * into memory if the response is allowed by the matching interceptor rule
+     * or is to be modified by a streaming response interceptor.
+     * The returned response must be closed by the caller.
+     *
+     * @param request
+     * @param endpoint
+     * @return
+     * @throws InterceptorException
+     * @throws URISyntaxException
+     * @throws HttpException
+     * @throws IOException
+     */
+    public StreamingHttpResponse interceptGeoServerRequestStreaming(HttpServletRequest request, Optional<String> endpoint) throws InterceptorException, URISyntaxException, HttpException, IOException {
+        MutableHttpServletRequest mutableRequest = wrapRequest(request, endpoint);
+
+        // reject (or delay) the request if the user exceeds the rate limit
+        rateLimiter.acquire(mutableRequest);
+
+        List<MutableHttpServletRequest> fanOutParts = fanOutHandler.getParts(mutableRequest);
+        if (fanOutParts != null) {
+            return StreamingHttpResponse.of(conditionalRequestHandler.validate(mutableRequest,
+                fanOutHandler.intercept(mutableRequest, fanOutParts, this::interceptPartialRequest)));
+        }
+
+        StreamingHttpResponse pagedResponse = featurePager.intercept(mutableRequest, this::interceptPartialRequest);
+        if (pagedResponse != null) {
+            return pagedResponse;
+        }
+
+        OgcMessage message = getOgcMessage(mutableRequest);
+
+        return sendStreamingRequest(prepareRequest(mutableRequest, message), message);
+    }
+
+    /**
+     * Sends the given (prepared) request and passes the body of the GeoServer
+     * response through if possible, see {@link #interceptGeoServerRequestStreaming(HttpServletRequest, Optional)}.
+     *
+     * @param mutableRequest The prepared request
+     * @param message        The OGC message of the request
+     * @return
+     * @throws InterceptorException
+     * @throws HttpException
+     * @throws IOException
+     */
+    private StreamingHttpResponse sendStreamingRequest(MutableHttpServletRequest mutableRequest, OgcMessage message) throws InterceptorException, HttpException, IOException {
+        boolean streamingInterception = ogcMessageDistributor.hasStreamingResponseInterceptor(message);
+
+        if ((!message.isResponseAllowed() && !streamingInterception) ||
+            responseCache.isCacheable(message, mutableRequest.getMethod()) ||
+            requestCoalescer.isCoalescable(message, mutableRequest.getMethod()) ||
+            isHedgeable(mutableRequest)) {
+            // the response interceptors (or the cache or identical requests or a hedged request) need the full body
+            return StreamingHttpResponse.of(conditionalRequestHandler.validate(mutableRequest,
+                sendInterceptedRequest(mutableRequest, message)));
+        }
+
+        // the GeoServer validates conditional requests for bodies passed through unmodified
+        Header[] conditionalHeaders = streamingInterception ? NO_HEADERS :
+            conditionalRequestHandler.getConditionalRequestHeaders(mutableRequest);
+
+        StreamingHttpResponse response = sendStreamingRequestToBackend(mutableRequest, conditionalHeaders);
+
+        // filter the white-listed response headers
+        HttpHeaders upstreamHeaders = response.getHeaders();
+        response.setHeaders(getResponseHeadersToForward(upstreamHeaders));
+        if (!streamingInterception) {
+            conditionalRequestHandler.forwardValidators(mutableRequest, upstreamHeaders, response.getHeaders());
+        }
+
+        if (streamingInterception) {
+            try {
+                // transform the body while it's written to the client
+                response = ogcMessageDistributor
+                    .distributeToStreamingResponseInterceptor(mutableRequest, response, message);
+            } catch (InterceptorException e) {
+                response.close();
+                throw e;
+            }
+        }
+
+        return response;
+    }
+
+    /**
+     * Intercepts the given request like {@link #interceptGeoServerRequestStreaming(HttpServletRequest, Optional)}
+     * if both its request and its response rule resolve to ALLOW and its response
+     * is neither cached nor shared with identical requests, i.e. if the body of the
+     * GeoServer response is relayed as is. The returned response must be closed by
+     * the caller.
+     *
+     * @param mutableRequest The (unmodified) wrapped request, to be passed to the full pipeline
+     *                       if null is returned
+     * @return The response or null if the request has to pass the full pipeline
+     * (nothing has been done for the request then)
+     * @throws InterceptorException
+     * @throws URISyntaxException
+     * @throws HttpException
+     * @throws IOException
+     */
+    public StreamingHttpResponse interceptAllowedRequest(MutableHttpServletRequest mutableRequest) throws InterceptorException, URISyntaxException, HttpException, IOException {
+        if ("POST".equalsIgnoreCase(mutableRequest.getMethod())) {
+            try {
+                mutableRequest.getBodyBuffer();
+            } catch (RequestBodyTooLargeException e) {
+                throw new OgcServiceException(e.getMessage(), HttpStatus.PAYLOAD_TOO_LARGE);
+            }
+        }
+
+        OgcMessage message;
+        try {
+            message = getOgcMessage(mutableRequest);
+        } catch (InterceptorException e) {
+            // leave reporting the invalid request to the full pipeline
+            return null;
+        }
+
+        if (!message.isRequestAllowed() || !message.isResponseAllowed() ||
+            responseCache.isCacheable(message, mutableRequest.getMethod()) ||
+            requestCoalescer.isCoalescable(message, mutableRequest.getMethod())) {
+            return null;
+        }
+
+        // fanned out and paged requests are combined by the full pipeline
+        if (fanOutHandler.getParts(mutableRequest) != null || featurePager.isPageable(mutableRequest)) {
+            return null;
+        }
+
+        // reject (or delay) the request if the user exceeds the rate limit
+        rateLimiter.acquire(mutableRequest);
+
+        // the request interceptors don't apply to allowed requests
+        routeRequest(mutableRequest, message);
+
+        return sendStreamingRequest(mutableRequest, message);
+    }
+
+    /**
+     * Intercepts the given request like {@link #interceptGeoServerRequest(HttpServletRequest, Optional)}
+     * without blocking the calling thread while the GeoServer is being requested.
+     * The request interceptors are called on the calling thread, the response
+     * interceptors on the given executor (with the security context of the
+     * calling thread). Requests waiting for their rate limit token are
+     * scheduled on the given executor instead of blocking the calling thread,
+     * requests waiting for a slot of their traffic class are sent once it has
+     * been granted. Requests served by the response cache, the capabilities cache or shared
+     * with identical requests in flight wait on the given executor.
+     *
+     * @param request
+     * @param endpoint
+     * @param executor
+     * @return
+     * @throws InterceptorException
+     * @throws URISyntaxException
+     * @throws IOException
+     */
+    public CompletableFuture<HttpResponse> interceptGeoServerRequestAsync(HttpServletRequest request, Optional<String> endpoint, Executor executor) throws InterceptorException, URISyntaxException, IOException {
+        MutableHttpServletRequest mutableRequest = wrapRequest(request, endpoint);
+
+        // reject the request if the user exceeds the rate limit
+        long rateLimitWait = rateLimiter.reserve(mutableRequest);
+
+        Executor securityContextExecutor = new DelegatingSecurityContextExecutor(executor,
+            SecurityContextHolder.getContext());
+
+        if (rateLimitWait > 0) {
+            // send the request once its reserved token is available
+            Executor delayedExecutor = CompletableFuture.delayedExecutor(rateLimitWait, TimeUnit.NANOSECONDS,
+                securityContextExecutor);
+            return CompletableFuture.supplyAsync(() -> mutableRequest, delayedExecutor)
+                .thenCompose(delayedRequest -> {
+                    try {
+                        return sendGeoServerRequestAsync(delayedRequest, securityContextExecutor);
+                    } catch (InterceptorException | URISyntaxException | IOException e) {
+                        throw new CompletionException(e);
+                    }
+                });
+        }
+
+        return sendGeoServerRequestAsync(mutableRequest, securityContextExecutor);
+    }
+
+    /**
+     * @param mutableRequest
+     * @param securityContextExecutor The executor calling the response interceptors
+     * @return
+     * @throws InterceptorException
+     * @throws URISyntaxException
+     * @throws IOException
+     */
+    private CompletableFuture<HttpResponse> sendGeoServerRequestAsync(MutableHttpServletRequest mutableRequest, Executor securityContextExecutor) throws InterceptorException, URISyntaxException, IOException {
+        List<MutableHttpServletRequest> fanOutParts = fanOutHandler.getParts(mutableRequest);
+        if (fanOutParts != null) {
+            // wait for the partial responses on the given executor
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return conditionalRequestHandler.validate(mutableRequest,
+                        fanOutHandler.intercept(mutableRequest, fanOutParts, this::interceptPartialRequest));
+                } catch (InterceptorException | HttpException e) {
+                    throw new CompletionException(e);
+                }
+            }, securityContextExecutor);
+        }
+
+        OgcMessage message = getOgcMessage(mutableRequest);
+
+        MutableHttpServletRequest interceptedRequest = prepareRequest(mutableRequest, message);
+
+        if (responseCache.isCacheable(message, interceptedRequest.getMethod()) ||
+            requestCoalescer.isCoalescable(message, interceptedRequest.getMethod()) ||
+            capabilitiesCache.isCacheable(message, interceptedRequest.getMethod())) {
+            // serve cached and shared responses like the synchronous path, waiting on the given executor
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return conditionalRequestHandler.validate(interceptedRequest,
+                        sendInterceptedRequest(interceptedRequest, message));
+                } catch (InterceptorException | HttpException e) {
+                    throw new CompletionException(e);
+                }
+            }, securityContextExecutor);
+        }
+
+        return sendRequestAsyncToBackend(interceptedRequest)
+            .thenApplyAsync(response -> {
+                try {
+                    return conditionalRequestHandler.validate(interceptedRequest,
+                        interceptResponse(interceptedRequest, response, message));
+                } catch (InterceptorException e) {
+                    throw new CompletionException(e);
+                }
+            }, securityContextExecutor);
+    }
+
+    /**
+     * Intercepts a partial (fanned out, hits or page) request of the given
+     * request with the interceptor rules of the partial request.
+     *
+     * @param partialRequest
+     * @return
+     * @throws InterceptorException
+     * @throws HttpException
+     * @throws URISyntaxException
+     * @throws IOException
+     */
+    private HttpResponse interceptPartialRequest(MutableHttpServletRequest partialRequest) throws InterceptorException, HttpException, URISyntaxException, IOException {
+        OgcMessage message = getOgcMessage(partialRequest);
+        return sendInterceptedRequest(prepareRequest(partialRequest, message), message);
+    }
+
+    /**
+     * @param request
+     * @param endpoint
+     * @return
+     * @throws InterceptorException If the body of the request exceeds the maximum size
+     * @throws IOException
+     */
+    private MutableHttpServletRequest wrapRequest(HttpServletRequest request, Optional<String> endpoint) throws InterceptorException, IOException {
+        MutableHttpServletRequest mutableRequest =
+            new MutableHttpServletRequest(request, bodyBufferAllocator);
+        if (endpoint.isPresent()) {
+            mutableRequest.addParameter("CUSTOM_ENDPOINT", endpoint.get());
+            mutableRequest.addParameter("CONTEXT_PATH", request.getContextPath());
+        }
+
+        if ("POST".equalsIgnoreCase(request.getMethod())) {
+            try {
+                // buffer the body up front to reject oversized bodies
+                mutableRequest.getBodyBuffer();
+            } catch (RequestBodyTooLargeException e) {
+                throw new OgcServiceException(e.getMessage(), HttpStatus.PAYLOAD_TOO_LARGE);
+            }
+        }
+
+        // the parts of fanned out and paged requests inherit the class
+        if (priorityScheduler.isEnabled()) {
+            mutableRequest.setAttribute(TRAFFIC_CLASS_ATTRIBUTE, trafficClassifier.classify(mutableRequest));
+        }
+
+        return mutableRequest;
+    }
+
+    /**
+     * Sets the GeoServer base URI to the given request and passes it to the
+     * request interceptors.
+     *
+     * @param mutableRequest
+     * @param message
+     * @return
+     * @throws InterceptorException
+     * @throws URISyntaxException
+     * @throws IOException
+     */
+    private MutableHttpServletRequest prepareRequest(MutableHttpServletRequest mutableRequest, OgcMessage message) throws InterceptorException, URISyntaxException, IOException {
+        routeRequest(mutableRequest, message);
+
+        // intercept the request (if needed)
+        return ogcMessageDistributor
+            .distributeToRequestInterceptor(mutableRequest, message);
+    }
+
+    /**
+     * Selects the GeoServer backend of the given request and sets its base URI
+     * to the request.
+     *
+     * @param mutableRequest
+     * @param message
+     * @throws InterceptorException
+     * @throws URISyntaxException
+     * @throws IOException
+     */
+    private void routeRequest(MutableHttpServletRequest mutableRequest, OgcMessage message) throws InterceptorException, URISyntaxException, IOException {
+        // check whether WMS reflector endpoint should be called
+        final boolean useWmsReflector = shouldReflectEndpointBeCalled(mutableRequest, message);
+
+        // look up the namespace of the request and select one of its GeoServer
+        // backends, using the (qualified) endPoint as key for the consistent hashing
+        NamespaceRoutingTable routingTable = namespaceRouter.getRoutingTable();
+        NamespaceRoute route = routingTable.isNamespaceBoundUrl() ?
+            routingTable.getRoute(message.getEndPoint()) : null;
+        Backend backend = route != null ? route.getPool().select(message.getEndPoint()) : null;
+        mutableRequest.setAttribute(BACKEND_ATTRIBUTE, backend);
+        mutableRequest.setAttribute(BACKEND_POOL_ATTRIBUTE, route != null ? route.getPool() : null);
+
+        // isolate the namespace (if configured)
+        mutableRequest.setAttribute(NAMESPACE_GUARD_ATTRIBUTE, route != null ? route.getGuard() : null);
+
+        // get the GeoServer base URI by the provided request
+        URI geoServerBaseUri = getGeoServerBaseURI(message, route, backend, useWmsReflector);
+
+        // set the GeoServer base URI to the (wrapped) request
+        mutableRequest.setRequestURI(geoServerBaseUri);
+    }
+
+    /**
+     * Sends the given request and passes the response to the response interceptors.
+     *
+     * @param mutableRequest
+     * @param message
+     * @return
+     * @throws InterceptorException
+     * @throws HttpException
+     */
+    private HttpResponse sendInterceptedRequest(MutableHttpServletRequest mutableRequest, OgcMessage message) throws InterceptorException, HttpException {
+        // serve the capabilities filtered for the permissions of the user (if already built)
+        if (capabilitiesCache.isCacheable(message, mutableRequest.getMethod())) {
+            return capabilitiesCache.getOrFilter(mutableRequest, getResponseCacheKey(mutableRequest, message).getDigest(),
+                () -> loadCoalescedResponse(mutableRequest, message),
+                response -> interceptResponse(mutableRequest, response, message));
+        }
+
+        return interceptResponse(mutableRequest, loadCoalescedResponse(mutableRequest, message), message);
+    }
+
+    /**
+     * Sends the given request or shares the response of an identical request in flight.
+     *
+     * @param mutableRequest
+     * @param message
+     * @return
+     * @throws InterceptorException
+     * @throws HttpException
+     */
+    private HttpResponse loadCoalescedResponse(MutableHttpServletRequest mutableRequest, OgcMessage message) throws InterceptorException, HttpException {
+        // send the request (or share the response of an identical request in flight)
+        // TODO: Move to global proxy class
+        HttpResponse response;
+        if (requestCoalescer.isCoalescable(message, mutableRequest.getMethod())) {
+            response = requestCoalescer.execute(getUpstreamRequestKeyBuilder(mutableRequest, message).build().getDigest(),
+                () -> loadResponse(mutableRequest, message));
+        } else {
+            response = loadResponse(mutableRequest, message);
+        }
+
+        return response;
+    }
+
+    /**
+     * Sends the given request or takes the response from the cache.
+     *
+     * @param mutableRequest
+     * @param message
+     * @return
+     * @throws InterceptorException
+     * @throws HttpException
+     */
+    private HttpResponse loadResponse(MutableHttpServletRequest mutableRequest, OgcMessage message) throws InterceptorException, HttpException {
+        if (responseCache.isCacheable(message, mutableRequest.getMethod())) {
+            return responseCache.getOrLoad(getResponseCacheKey(mutableRequest, message),
+                conditionalHeaders -> sendRequestToBackend(mutableRequest, conditionalHeaders));
+        }
+        return sendRequestToBackend(mutableRequest, new Header[0]);
+    }
+
+    /**
+     * Sends the given request and records its outcome at the backend and the
+     * namespace guard selected for it.
+     *
+     * @param mutableRequest
+     * @param additionalHeaders
+     * @return
+     * @throws InterceptorException
+     * @throws HttpException
+     */
+    private HttpResponse sendRequestToBackend(MutableHttpServletRequest mutableRequest, Header[] additionalHeaders) throws InterceptorException, HttpException {
+        String latencyEndpoint = prepareLatencyTracking(mutableRequest);
+        if (latencyEndpoint != null && isHedgeable(mutableRequest)) {
+            long hedgeDelay = latencyTracker.getHedgeDelay(latencyEndpoint);
+            MutableHttpServletRequest hedgeRequest = hedgeDelay >= 0 ? createHedgeRequest(mutableRequest) : null;
+            if (hedgeRequest != null) {
+                return sendHedgedRequest(mutableRequest, hedgeRequest, additionalHeaders, latencyEndpoint, hedgeDelay);
+            }
+        }
+
+        PriorityScheduler.Slot slot = acquireSlot(mutableRequest);
+        try {
+            UpstreamPermit permit = acquireUpstreamPermit(mutableRequest);
+            boolean success = false;
+            try {
+                long start = System.nanoTime();
+                HttpResponse response = sendRequest(mutableRequest, additionalHeaders);
+                success = isBackendResponseValid(response.getStatusCode());
+                recordLatency(latencyEndpoint, start, response.getStatusCode());
+                return response;
+            } finally {
+                permit.release(success);
+            }
+        } finally {
+            slot.release();
+        }
+    }
+
+    /**
+     * Sends the given request like {@link #sendStreamingRequest(MutableHttpServletRequest)}
+     * and records its outcome at the backend and the namespace guard selected for it
+     * (once the response headers have been received).
+     *
+     * @param mutableRequest
+     * @param additionalHeaders
+     * @return
+     * @throws InterceptorException
+     * @throws HttpException
+     */
+    private StreamingHttpResponse sendStreamingRequestToBackend(MutableHttpServletRequest mutableRequest, Header[] additionalHeaders) throws InterceptorException, HttpException {
+        String latencyEndpoint = prepareLatencyTracking(mutableRequest);
+        PriorityScheduler.Slot slot = acquireSlot(mutableRequest);
+        StreamingHttpResponse response;
+        try {
+            UpstreamPermit permit = acquireUpstreamPermit(mutableRequest);
+            boolean success = false;
+            try {
+                long start = System.nanoTime();
+                response = sendStreamingRequest(mutableRequest, additionalHeaders);
+                success = isBackendResponseValid(response.getStatusCode());
+                // the latency up to the response headers, the body is limited by the client
+                recordLatency(latencyEndpoint, start, response.getStatusCode());
+            } finally {
+                permit.release(success);
+            }
+        } catch (InterceptorException | HttpException | RuntimeException e) {
+            slot.release();
+            throw e;
+        }
+
+        // the upstream connection is in use until the body has been streamed
+        Closeable resource = response.getResource();
+        InputStream body = response.getBody();
+        response.setResource(() -> {
+            try {
+                if (resource != null) {
+                    resource.close();
+                } else if (body != null) {
+                    body.close();
+                }
+            } finally {
+                slot.release();
+            }
+        });
+
+        return response;
+    }
+
+    /**
+     * Sends the given request like {@link #sendRequestAsync(MutableHttpServletRequest)}
+     * and records its outcome at the backend and the namespace guard selected for it.
+     *
+     * @param mutableRequest
+     * @return
+     */
+    private CompletableFuture<HttpResponse> sendRequestAsyncToBackend(MutableHttpServletRequest mutableRequest) {
+        return sendRequestAsyncToBackend(mutableRequest, NO_HEADERS);
+    }
+
+    /**
+     * The request is sent once a slot of its traffic class has been granted, without
+     * blocking the calling thread while waiting for it.
+     *
+     * @param mutableRequest
+     * @param additionalHeaders
+     * @return The future of the upstream request, failing if no slot is available; cancelling
+     * it gives up waiting for a slot or aborts the upstream request
+     * @see #sendRequestAsyncToBackend(MutableHttpServletRequest)
+     */
+    private CompletableFuture<HttpResponse> sendRequestAsyncToBackend(MutableHttpServletRequest mutableRequest, Header[] additionalHeaders) {
+        String latencyEndpoint = prepareLatencyTracking(mutableRequest);
+        CompletableFuture<HttpResponse> result = new CompletableFuture<>();
+
+        CompletableFuture<PriorityScheduler.Slot> slotFuture = acquireSlotAsync(mutableRequest);
+        result.whenComplete((response, throwable) -> {
+            if (result.isCancelled()) {
+                slotFuture.cancel(false);
+            }
+        });
+        slotFuture.whenComplete((slot, throwable) -> {
+            if (throwable != null) {
+                result.completeExceptionally(throwable);
+            } else {
+                sendRequestAsyncToBackend(mutableRequest, additionalHeaders, latencyEndpoint, slot, result);
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Acquires the upstream permit of the given request, for which a slot has been
+     * granted, and sends it once the permit has been granted.
+     *
+     * @param mutableRequest
+     * @param additionalHeaders
+     * @param latencyEndpoint
+     * @param slot
+     * @param result
+     */
+    private void sendRequestAsyncToBackend(MutableHttpServletRequest mutableRequest, Header[] additionalHeaders,
+                                           String latencyEndpoint, PriorityScheduler.Slot slot,
+                                           CompletableFuture<HttpResponse> result) {
+        if (result.isDone()) {
+            // cancelled while waiting for the slot
+            slot.release();
+            return;
+        }
+
+        CompletableFuture<UpstreamPermit> permitFuture = acquireUpstreamPermitAsync(mutableRequest);
+        result.whenComplete((response, throwable) -> {
+            if (result.isCancelled()) {
+                permitFuture.cancel(false);
+            }
+        });
+        permitFuture.whenComplete((permit, throwable) -> {
+            if (throwable != null) {
+                slot.release();
+                result.completeExceptionally(throwable);
+            } else {
+                sendRequestAsyncToBackend(mutableRequest, additionalHeaders, latencyEndpoint, slot, permit, result);
+            }
+        });
     }
 
     /**
-     * @param endPoint
+     * Sends the given request, for which a slot and the upstream permit have been granted,
+     * and completes the given future with its outcome.
+     *
+     * @param mutableRequest
+     * @param additionalHeaders
+     * @param latencyEndpoint
+     * @param slot
+     * @param permit
+     * @param result
      */
-    private static String getGeoServerNameSpace(String endPoint) {
-        // return the endPoint as nameSpace per default
-        String geoServerNamespace = endPoint;
+    private void sendRequestAsyncToBackend(MutableHttpServletRequest mutableRequest, Header[] additionalHeaders,
+                                           String latencyEndpoint, PriorityScheduler.Slot slot, UpstreamPermit permit,
+                                           CompletableFuture<HttpResponse> result) {
+        if (result.isDone()) {
+            // cancelled while waiting for the permit
+            permit.release(true);
+            slot.release();
+            return;
+        }
 
-        if (endPoint.contains(":")) {
-            String[] split = endPoint.split(":");
-            geoServerNamespace = split[0];
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse> upstream;
+        try {
+            upstream = sendRequestAsync(mutableRequest, additionalHeaders);
+        } catch (InterceptorException | RuntimeException e) {
+            permit.release(false);
+            slot.release();
+            result.completeExceptionally(e);
+            return;
         }
 
-        return geoServerNamespace;
+        upstream.whenComplete((response, throwable) -> {
+            // a cancelled request (e.g. the slower one of a hedged pair) doesn't indicate a failing backend
+            permit.release(throwable instanceof CancellationException ||
+                (throwable == null && isBackendResponseValid(response.getStatusCode())));
+            slot.release();
+            if (throwable == null) {
+                recordLatency(latencyEndpoint, start, response.getStatusCode());
+                result.complete(response);
+            } else {
+                result.completeExceptionally(throwable);
+            }
+        });
+        result.whenComplete((response, throwable) -> {
+            if (result.isCancelled()) {
+                upstream.cancel(false);
+            }
+        });
     }
 
     /**
-     * @param request
+     * Sends the given request and, if it hasn't been answered within the hedge delay,
+     * a duplicate of it to another backend of the namespace. The first valid response
+     * wins, the other request is cancelled.
+     *
+     * @param mutableRequest
+     * @param hedgeRequest The duplicate of the request targeting another backend
+     * @param additionalHeaders
+     * @param latencyEndpoint
+     * @param hedgeDelay The delay (in ms) after which the duplicate is sent
+     * @return
      * @throws InterceptorException
      * @throws HttpException
      */
-    public static HttpResponse sendRequest(MutableHttpServletRequest request) throws InterceptorException, HttpException {
-        HttpResponse httpResponse = new HttpResponse();
-        String requestMethod = request.getMethod();
-        boolean getRequest = "GET".equalsIgnoreCase(requestMethod);
-        boolean postRequest = "POST".equalsIgnoreCase(requestMethod);
-
+    private HttpResponse sendHedgedRequest(MutableHttpServletRequest mutableRequest, MutableHttpServletRequest hedgeRequest,
+                                           Header[] additionalHeaders, String latencyEndpoint, long hedgeDelay) throws InterceptorException, HttpException {
+        CompletableFuture<HttpResponse> primary = sendRequestAsyncToBackend(mutableRequest, additionalHeaders);
         try {
-            // get the request URI
-            URI requestUri = new URI(request.getRequestURI());
-
-            Header[] requestHeaders = getRequestHeadersToForward(request);
-
-            // get the query parameters provided by the GET/POST request and
-            // convert to a list of NameValuePairs
-            List<NameValuePair> allQueryParams = createQueryParams(request.getParameterMap());
-
-            // append the given request parameters to the base URI
-            URI fullRequestUri = getFullRequestURI(requestUri, allQueryParams);
+            return primary.get(hedgeDelay, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // send the duplicate below
+        } catch (ExecutionException e) {
+            throwUpstreamFailure(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            primary.cancel(false);
+            throw new InterceptorException("Interrupted while waiting for the GeoServer response", e);
+        }
 
-            if (getRequest) {
-                // if we're called via GET method
-                // perform the request with the given parameters
-                httpResponse = HttpUtil.get(fullRequestUri, requestHeaders);
+        // limit the additional load on the backends
+        if (!latencyTracker.tryHedge(latencyEndpoint)) {
+            return awaitResponse(primary);
+        }
 
-            } else if (postRequest) {
-                // if we're called via POST method
+        CompletableFuture<HttpResponse> hedge = sendRequestAsyncToBackend(hedgeRequest, additionalHeaders);
 
-                // We have to attach the actual query; a POST to e.g. http://example.com/?foo=bar is totally OK
-                String queryString = request.getQueryString();
-                if (queryString != null) {
-                    requestUri = appendQueryString(requestUri, queryString);
-                }
+        LOG.debug("Sent hedged request for {} after {} ms", latencyEndpoint, hedgeDelay);
 
-                // get the request body if any
-                String body = OgcXmlUtil.getRequestBody(request);
-                if (!StringUtils.isEmpty(body)) {
-                    // we do have a POST with string data present
-                    // parse the content type of the request
-                    ContentType contentType = ContentType.parse(request.getContentType());
-
-                    if (contentType.getCharset() == null) {
-                        // use UTF-8 charset if charset could not be parsed from the content type
-                        // of the request
-                        contentType = contentType.withCharset("UTF-8");
-                    }
+        try {
+            HttpResponse response = awaitResponse(getFirstValidResponse(primary, hedge));
+            if (hedge.isDone() && !hedge.isCompletedExceptionally() && hedge.join() == response) {
+                latencyTracker.hedgeWon(latencyEndpoint);
+            }
+            return response;
+        } finally {
+            primary.cancel(false);
+            hedge.cancel(false);
+        }
+    }
 
-                    // perform the POST request to the URI with queryString and with the given body
-                    httpResponse = HttpUtil.post(requestUri, body, contentType, requestHeaders, false);
+    /**
+     * @param first
+     * @param second
+     * @return The future completing with the first valid response of the given ones or
+     * with the outcome of the last one if none of them is valid
+     */
+    private static CompletableFuture<HttpResponse> getFirstValidResponse(CompletableFuture<HttpResponse> first,
+                                                                         CompletableFuture<HttpResponse> second) {
+        CompletableFuture<HttpResponse> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(2);
+        BiConsumer<HttpResponse, Throwable> handler = (response, throwable) -> {
+            if (throwable == null && isBackendResponseValid(response.getStatusCode())) {
+                result.complete(response);
+            } else if (pending.decrementAndGet() == 0) {
+                if (throwable != null) {
+                    result.completeExceptionally(throwable);
                 } else {
-                    // perform the POST request with the given name value pairs,
-                    httpResponse = HttpUtil.post(requestUri, allQueryParams, requestHeaders);
+                    result.complete(response);
                 }
-
-            } else {
-                // otherwise throw an exception
-                throw new InterceptorException("Only GET or POST method is allowed");
             }
+        };
+        first.whenComplete(handler);
+        second.whenComplete(handler);
+        return result;
+    }
 
-        } catch (URISyntaxException | UnsupportedEncodingException e) {
-            LOG.error("Error while sending request: " + e.getMessage());
+    /**
+     * @param future
+     * @return The response of the given future
+     * @throws InterceptorException
+     * @throws HttpException
+     */
+    private static HttpResponse awaitResponse(CompletableFuture<HttpResponse> future) throws InterceptorException, HttpException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throwUpstreamFailure(e.getCause());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(false);
+            throw new InterceptorException("Interrupted while waiting for the GeoServer response", e);
         }
+    }
 
-        return httpResponse;
+    /**
+     * Rethrows the given failure of an upstream request.
+     *
+     * @param throwable
+     * @throws InterceptorException
+     * @throws HttpException
+     */
+    private static void throwUpstreamFailure(Throwable throwable) throws InterceptorException, HttpException {
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ?
+            throwable.getCause() : throwable;
+        if (cause instanceof InterceptorException) {
+            throw (InterceptorException) cause;
+        }
+        if (cause instanceof HttpException) {
+            throw (HttpException) cause;
+        }
+        throw new InterceptorException("Error while sending request: " + cause.getMessage(), cause);
     }
 
     /**
-     * @param request
-     * @return
+     * @param mutableRequest
+     * @return Whether a duplicate of the given request may be sent to another backend
+     * if it isn't answered in time, i.e. if it is an idempotent GET request of one of
+     * the configured operations to a namespace with multiple backends
      */
-    private static Header[] getRequestHeadersToForward(MutableHttpServletRequest request) {
-        List<Header> requestHeaderList = new ArrayList<>();
+    private boolean isHedgeable(MutableHttpServletRequest mutableRequest) {
+        LatencyProperties properties = interceptorProperties.getLatency();
+        BackendPool pool = (BackendPool) mutableRequest.getAttribute(BACKEND_POOL_ATTRIBUTE);
+        if (!latencyTracker.isEnabled() || !properties.isHedging() || pool == null || pool.getBackends().size() < 2 ||
+            !"GET".equalsIgnoreCase(mutableRequest.getMethod())) {
+            return false;
+        }
+        try {
+            OgcEnum.OperationType operation = OgcEnum.OperationType.fromString(
+                mutableRequest.getOgcRequestDescriptor().getOperation());
+            return operation != null && properties.getHedgeOperations().contains(operation);
+        } catch (IOException | InterceptorException e) {
+            return false;
+        }
+    }
 
-        // forward x-geoserver-credentials as Authorization header if available
-        String credentials = request.getHeader("x-geoserver-credentials");
-        if (credentials != null) {
-            requestHeaderList.add(new BasicHeader(HttpHeaders.AUTHORIZATION, credentials));
+    /**
+     * @param mutableRequest
+     * @return A copy of the given request targeting another (available) backend of its
+     * namespace or null if there is none
+     */
+    private MutableHttpServletRequest createHedgeRequest(MutableHttpServletRequest mutableRequest) {
+        BackendPool pool = (BackendPool) mutableRequest.getAttribute(BACKEND_POOL_ATTRIBUTE);
+        Backend backend = (Backend) mutableRequest.getAttribute(BACKEND_ATTRIBUTE);
+        Backend alternative = pool != null && backend != null ? pool.selectAlternative(backend) : null;
+        String requestUri = mutableRequest.getRequestURI();
+        if (alternative == null || requestUri == null) {
+            return null;
+        }
+
+        MutableHttpServletRequest hedgeRequest = new MutableHttpServletRequest(mutableRequest);
+        String reflectBaseUri = backend.getBaseUri(true).toString();
+        if (requestUri.startsWith(reflectBaseUri)) {
+            hedgeRequest.setRequestURI(alternative.getBaseUri(true).toString() +
+                requestUri.substring(reflectBaseUri.length()));
+        } else if (requestUri.startsWith(backend.getUrl())) {
+            hedgeRequest.setRequestURI(alternative.getUrl() + requestUri.substring(backend.getUrl().length()));
+        } else {
+            return null;
         }
+        hedgeRequest.setQueryString(mutableRequest.getQueryString());
+        hedgeRequest.setAttribute(BACKEND_ATTRIBUTE, alternative);
 
-        return requestHeaderList.toArray(new Header[0]);
+        return hedgeRequest;
     }
 
     /**
-     * Returns a new URI with the passed queryString (e.g. foo=bar&amp;baz=123) appended to the passed URI. Adjusted from
-     * http://stackoverflow.com/a/26177982.
+     * Applies the adaptive timeouts of the latency endpoint of the given request (if enabled).
      *
-     * @param uri
-     * @param appendQuery
+     * @param mutableRequest
+     * @return The latency endpoint of the given request or null if latencies aren't tracked
      */
-    public static URI appendQueryString(URI uri, String appendQuery) {
-        if (uri == null || appendQuery == null || appendQuery.isEmpty()) {
-            return uri;
+    private String prepareLatencyTracking(MutableHttpServletRequest mutableRequest) {
+        if (!latencyTracker.isEnabled()) {
+            return null;
         }
-        String newQuery = uri.getQuery();
-        if (newQuery == null) {
-            newQuery = appendQuery;
-        } else {
-            newQuery += "&" + appendQuery;
+        String latencyEndpoint = getLatencyEndpoint(mutableRequest);
+        NamespaceGuard guard = (NamespaceGuard) mutableRequest.getAttribute(NAMESPACE_GUARD_ATTRIBUTE);
+        mutableRequest.setAttribute(REQUEST_CONFIG_ATTRIBUTE,
+            latencyTracker.getRequestConfig(latencyEndpoint, guard != null ? guard.getTimeout() : null));
+        return latencyEndpoint;
+    }
+
+    /**
+     * @param latencyEndpoint
+     * @param start The start of the request (in ns)
+     * @param statusCode
+     */
+    private void recordLatency(String latencyEndpoint, long start, HttpStatus statusCode) {
+        // failures (e.g. immediate errors) would distort the latencies of the endpoint
+        if (latencyEndpoint != null && isBackendResponseValid(statusCode)) {
+            latencyTracker.record(latencyEndpoint, System.nanoTime() - start);
         }
-        // Fallback is the old URI
-        URI newUri = uri;
+    }
+
+    /**
+     * @param mutableRequest
+     * @return The key the latencies of the given request are tracked by, i.e. the selected
+     * backend (or the GeoServer URI) and the OGC operation
+     */
+    private static String getLatencyEndpoint(MutableHttpServletRequest mutableRequest) {
+        Backend backend = (Backend) mutableRequest.getAttribute(BACKEND_ATTRIBUTE);
+        String target = backend != null ? backend.getUrl() : mutableRequest.getRequestURI();
+        OgcEnum.OperationType operation;
         try {
-            newUri = new URI(uri.getScheme(), uri.getAuthority(), uri.getPath(), newQuery, uri.getFragment());
-        } catch (URISyntaxException e) {
-            String msg = String.format(
-                "Failed to append query '%s' to URI '%s', returning URI unchanged.",
-                appendQuery, uri
-            );
-            LOG.warn(msg);
+            operation = OgcEnum.OperationType.fromString(mutableRequest.getOgcRequestDescriptor().getOperation());
+        } catch (IOException | InterceptorException e) {
+            operation = null;
         }
-        return newUri;
+        return target + " " + (operation != null ? operation.toString() : "unknown");
     }
 
     /**
+     * Waits for a slot of the traffic class of the given request (if classified).
+     *
+     * @param mutableRequest
      * @return
-     * @throws UnsupportedEncodingException
+     * @throws InterceptorException If no slot is available
      */
-    private static HttpHeaders getResponseHeadersToForward(HttpHeaders headers) {
-        HttpHeaders responseHeaders = new HttpHeaders();
+    private PriorityScheduler.Slot acquireSlot(MutableHttpServletRequest mutableRequest) throws InterceptorException {
+        return priorityScheduler.acquire((TrafficClass) mutableRequest.getAttribute(TRAFFIC_CLASS_ATTRIBUTE));
+    }
 
-        if (headers == null) {
-            LOG.debug("No headers found to forward!");
-            return responseHeaders;
-        }
+    /**
+     * Reserves a slot of the traffic class of the given request (if classified)
+     * without blocking the calling thread.
+     *
+     * @param mutableRequest
+     * @return The future of the granted slot, failing if no slot is available
+     */
+    private CompletableFuture<PriorityScheduler.Slot> acquireSlotAsync(MutableHttpServletRequest mutableRequest) {
+        return priorityScheduler.acquireAsync((TrafficClass) mutableRequest.getAttribute(TRAFFIC_CLASS_ATTRIBUTE));
+    }
 
-        LOG.trace("Requested to filter the Headers to respond with:");
+    /**
+     * Acquires the permission of the namespace guard (if any) and marks the
+     * start of the request at the selected backend (if any).
+     *
+     * @param mutableRequest
+     * @return The permit to release once the request has been answered
+     * @throws InterceptorException If the namespace rejects further requests
+     */
+    private static UpstreamPermit acquireUpstreamPermit(MutableHttpServletRequest mutableRequest) throws InterceptorException {
+        NamespaceGuard guard = (NamespaceGuard) mutableRequest.getAttribute(NAMESPACE_GUARD_ATTRIBUTE);
 
-        for (Entry<String, List<String>> header : headers.entrySet()) {
-            String headerKey = header.getKey();
-            String headerVal = StringUtils.join(header.getValue(), ",");
+        if (guard != null) {
+            guard.acquire();
+        }
+
+        return startUpstreamRequest(mutableRequest);
+    }
 
-            LOG.trace("  * Header: " + headerKey);
+    /**
+     * Acquires the upstream permit like {@link #acquireUpstreamPermit(MutableHttpServletRequest)}
+     * without blocking the calling thread while waiting for the bulkhead of the namespace.
+     *
+     * @param mutableRequest
+     * @return The future of the permit, failing if the namespace rejects further requests;
+     * cancelling it gives up waiting
+     */
+    private static CompletableFuture<UpstreamPermit> acquireUpstreamPermitAsync(MutableHttpServletRequest mutableRequest) {
+        NamespaceGuard guard = (NamespaceGuard) mutableRequest.getAttribute(NAMESPACE_GUARD_ATTRIBUTE);
+        CompletableFuture<UpstreamPermit> permitFuture = new CompletableFuture<>();
 
-            if (Arrays.asList(FORWARD_RESPONSE_HEADER_KEYS).contains(headerKey)) {
-                // the GeoServer response may contain a subtype in the
-                // "Content-Type" header without double quotes surrounding the
-                // subtype's value. If this is set we need to surround it
-                // with double quotes as this is required by the Spring
-                // ResponseEntity (and the RFC 2616 standard).
-                Pattern pattern = Pattern.compile("subtype=(.*)");
-                Matcher matcher = pattern.matcher(headerVal);
+        if (guard == null) {
+            permitFuture.complete(startUpstreamRequest(mutableRequest));
+            return permitFuture;
+        }
 
-                if (matcher.find()) {
-                    String replaceCandidate = matcher.group(1);
-                    String replacer;
+        CompletableFuture<Void> guardFuture = guard.acquireAsync();
+        permitFuture.whenComplete((permit, throwable) -> {
+            if (permitFuture.isCancelled()) {
+                guardFuture.cancel(false);
+            }
+        });
+        guardFuture.whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                permitFuture.completeExceptionally(throwable);
+                return;
+            }
+            UpstreamPermit permit = startUpstreamRequest(mutableRequest);
+            if (!permitFuture.complete(permit)) {
+                // cancelled concurrently
+                permit.release(true);
+            }
+        });
+        return permitFuture;
+    }
 
-                    replacer = StringUtils.prependIfMissing(
-                        replaceCandidate, "\"");
-                    replacer = StringUtils.appendIfMissing(
-                        replacer, "\"");
+    /**
+     * Marks the start of the request at the selected backend (if any), the permission
+     * of the namespace guard (if any) has been acquired already.
+     *
+     * @param mutableRequest
+     * @return The permit to release once the request has been answered
+     */
+    private static UpstreamPermit startUpstreamRequest(MutableHttpServletRequest mutableRequest) {
+        NamespaceGuard guard = (NamespaceGuard) mutableRequest.getAttribute(NAMESPACE_GUARD_ATTRIBUTE);
+        Backend backend = (Backend) mutableRequest.getAttribute(BACKEND_ATTRIBUTE);
 
-                    headerVal = StringUtils.replace(headerVal,
-                        replaceCandidate, replacer);
-                }
+        if (backend != null) {
+            backend.requestStarted();
+        }
 
-                responseHeaders.set(headerKey, headerVal);
-                LOG.trace("    > Forwarded");
-            } else {
-                LOG.trace("    > Skipped");
+        return success -> {
+            if (backend != null) {
+                backend.requestFinished(success);
             }
-        }
+            if (guard != null) {
+                guard.release(success);
+            }
+        };
+    }
 
-        return responseHeaders;
+    @FunctionalInterface
+    private interface UpstreamPermit {
+        void release(boolean success);
     }
 
     /**
-     * @param request
-     * @return
-     * @throws InterceptorException
-     * @throws URISyntaxException
-     * @throws HttpException
-     * @throws IOException
+     * @param statusCode
+     * @return Whether the given status code indicates a functioning backend
      */
-    public HttpResponse interceptGeoServerRequest(HttpServletRequest request) throws InterceptorException, URISyntaxException, HttpException, IOException {
-        return interceptGeoServerRequest(request, Optional.empty());
+    private static boolean isBackendResponseValid(HttpStatus statusCode) {
+        return statusCode != null && !statusCode.is5xxServerError();
     }
 
     /**
-     * @param request
-     * @param endpoint
-     * @return
-     * @throws InterceptorException
-     * @throws URISyntaxException
-     * @throws HttpException
-     * @throws IOException
+     * @param mutableRequest
+     * @return The GeoServer URI of the given request, relative to the namespace if it has been
+     * sent to one of the backends of a namespace, so that identical requests match regardless of
+     * the selected backend
      */
-    public HttpResponse interceptGeoServerRequest(HttpServletRequest request, Optional<String> endpoint) throws InterceptorException, URISyntaxException, HttpException, IOException {
-        // wrap the request, we want to manipulate it
-        MutableHttpServletRequest mutableRequest =
-            new MutableHttpServletRequest(request);
-        if (endpoint.isPresent()) {
-            mutableRequest.addParameter("CUSTOM_ENDPOINT", endpoint.get());
-            mutableRequest.addParameter("CONTEXT_PATH", request.getContextPath());
+    private static String getUpstreamRequestTarget(MutableHttpServletRequest mutableRequest) {
+        Backend backend = (Backend) mutableRequest.getAttribute(BACKEND_ATTRIBUTE);
+        String requestUri = mutableRequest.getRequestURI();
+        if (backend != null && requestUri != null) {
+            String reflectBaseUri = backend.getBaseUri(true).toString();
+            if (requestUri.startsWith(reflectBaseUri)) {
+                return backend.getNamespace() + ":reflect:" + requestUri.substring(reflectBaseUri.length());
+            }
+            if (requestUri.startsWith(backend.getUrl())) {
+                return backend.getNamespace() + ":" + requestUri.substring(backend.getUrl().length());
+            }
         }
+        return requestUri;
+    }
 
-        // get the OGC message information (service, request, endPoint)
-        OgcMessage message = getOgcMessage(mutableRequest);
-
-        // check whether WMS reflector endpoint should be called
-        final boolean useWmsReflector = shouldReflectEndpointBeCalled(mutableRequest, message);
-
-        // get the GeoServer base URI by the provided request
-        URI geoServerBaseUri = getGeoServerBaseURI(message, useWmsReflector);
-
-        // set the GeoServer base URI to the (wrapped) request
-        mutableRequest.setRequestURI(geoServerBaseUri);
+    /**
+     * @param mutableRequest
+     * @param message
+     * @return The key builder identifying the upstream request of the given (intercepted) request,
+     * i.e. its normalized URI, body and forwarded credentials
+     * @throws InterceptorException If the body of the request could not be read
+     */
+    private ResponseCacheKey.Builder getUpstreamRequestKeyBuilder(MutableHttpServletRequest mutableRequest, OgcMessage message) throws InterceptorException {
+        ResponseCacheKey.Builder builder = ResponseCacheKey.builder(getGeoServerNameSpace(message.getEndPoint()))
+            .part("method", mutableRequest.getMethod())
+            .part("uri", getUpstreamRequestTarget(mutableRequest))
+            .credentials(mutableRequest.getHeader("x-geoserver-credentials"))
+            .parameters(mutableRequest.getParameterMap());
+
+        if ("POST".equalsIgnoreCase(mutableRequest.getMethod())) {
+            try {
+                builder.body(mutableRequest.getBodyBuffer());
+            } catch (IOException e) {
+                throw new InterceptorException("Could not read the request body: " + e.getMessage(), e);
+            }
+        }
 
-        // intercept the request (if needed)
-        mutableRequest = ogcMessageDistributor
-            .distributeToRequestInterceptor(mutableRequest, message);
+        return builder;
+    }
 
-        // send the request
-        // TODO: Move to global proxy class
-        HttpResponse response = sendRequest(mutableRequest);
+    /**
+     * @param mutableRequest
+     * @param message
+     * @return The key of the response to the given (intercepted) request in the response cache
+     * @throws InterceptorException If the body of the request could not be read
+     */
+    private ResponseCacheKey getResponseCacheKey(MutableHttpServletRequest mutableRequest, OgcMessage message) throws InterceptorException {
+        return getUpstreamRequestKeyBuilder(mutableRequest, message)
+            .part("requestRule", message.getRequestRule())
+            .part("responseRule", message.getResponseRule())
+            .build();
+    }
 
+    /**
+     * Passes the given response to the response interceptors and filters its headers.
+     *
+     * @param mutableRequest
+     * @param response
+     * @param message
+     * @return
+     * @throws InterceptorException
+     */
+    private HttpResponse interceptResponse(MutableHttpServletRequest mutableRequest, HttpResponse response, OgcMessage message) throws InterceptorException {
         // intercept the response (if needed)
         HttpResponse interceptedResponse = ogcMessageDistributor
             .distributeToResponseInterceptor(mutableRequest, response, message);
@@ -373,9 +1648,7 @@ public class GeoServerInterceptorService {
             return false;
         }
 
-        boolean useReflect;
-        String value = MutableHttpServletRequest.getRequestParameterValue(mutableRequest, USE_REFLECT_PARAM);
-        useReflect = Boolean.parseBoolean(value);
+        boolean useReflect = mutableRequest.getOgcRequestDescriptor().isUseReflect();
         if (useReflect) {
             LOG.info("Parameter " + USE_REFLECT_PARAM + "found in request. Will use WMS reflector endpoint of GeoServer.");
         }
@@ -392,19 +1665,16 @@ public class GeoServerInterceptorService {
     private OgcMessage getOgcMessage(MutableHttpServletRequest mutableRequest) throws InterceptorException, IOException {
         LOG.trace("Building the OGC message from the given request.");
         OgcMessage ogcMessage = new OgcMessage();
-        String requestService = MutableHttpServletRequest.getRequestParameterValue(
-            mutableRequest, OgcEnum.Service.SERVICE.toString());
-        String requestOperation = MutableHttpServletRequest.getRequestParameterValue(
-            mutableRequest, OgcEnum.Operation.OPERATION.toString());
-        String requestEndPoint = MutableHttpServletRequest.getRequestParameterValue(
-            mutableRequest, OgcEnum.EndPoint.getAllValues());
+        OgcRequestDescriptor descriptor = mutableRequest.getOgcRequestDescriptor();
+        String requestService = descriptor.getService();
+        String requestOperation = descriptor.getOperation();
+        String requestEndPoint = descriptor.getEndPoint();
 
         if (StringUtils.isEmpty(requestService) ||
             StringUtils.isEmpty(requestOperation) ||
             StringUtils.isEmpty(requestEndPoint)) {
             if (!StringUtils.isEmpty(requestEndPoint) &&
-                !StringUtils.isEmpty(MutableHttpServletRequest.getRequestParameterValue(
-                    mutableRequest, USE_REFLECT_PARAM))
+                !StringUtils.isEmpty(descriptor.getParameterValue(USE_REFLECT_PARAM))
             ) {
                 LOG.trace("Will use WMS reflector endpoint of GeoServer");
                 requestService = OgcEnum.ServiceType.WMS.toString();
@@ -483,72 +1753,16 @@ public class GeoServerInterceptorService {
             "  * EndPoint: " + endPoint
         );
 
-        // get all persisted rules for the given service and event
-        List<InterceptorRule> interceptorRules = this.interceptorRuleService.findAllRulesForServiceAndEvent(service, HttpEnum.EventType.fromString(ruleEvent));
-
-        LOG.trace("Got " + interceptorRules.size() + " rule(s) from database.");
+        // resolve the rule from the in-memory rule index
+        InterceptorRule mostSpecific = this.interceptorRuleService.findMostSpecificRule(
+            HttpEnum.EventType.fromString(ruleEvent), service, operation, endPoint);
 
         if (LOG.isTraceEnabled()) {
-            for (InterceptorRule interceptorRule : interceptorRules) {
-                LOG.trace("Returned rule is: " + interceptorRule);
-            }
-        }
-
-        LOG.trace("Evaluating the given rules for the most specific one:");
-
-        // create the predicate for finding the most specific rule out of
-        // the given rules (conditions in descending specific order).
-        // note: we don't need to check for request event (request/response)
-        // and the service type at all as the rule candidates are filtered by
-        // the DAO method already. the last check for service specificity found
-        // here is a fallback only.
-        HashMap<InterceptorRule, Integer> ruleMap = new HashMap<>();
-        interceptorRules.stream().forEach((rule) -> {
-            int score = 0;
-
-            if (!StringUtils.isEmpty(rule.getEndPoint()) && !StringUtils.isEmpty(endPoint) && !StringUtils.equalsIgnoreCase(rule.getEndPoint(), endPoint)) {
-                return;
-            }
-            if (rule.getService() != null && !Objects.equals(rule.getService(), service) && service != null) {
-                return;
-            }
-            if (rule.getOperation() != null && !Objects.equals(rule.getOperation(), operation) && operation != null) {
-                return;
-            }
-            if (endPoint != null && Objects.equals(rule.getEndPoint(), endPoint)) {
-                ++score;
-            }
-            if (operation != null && Objects.equals(rule.getOperation(), operation)) {
-                ++score;
-            }
-            if (service != null && Objects.equals(rule.getService(), service)) {
-                ++score;
-            }
-            ruleMap.put(rule, score);
-        });
-
-        AtomicReference<Integer> biggestScore = new AtomicReference<>(0);
-        AtomicReference<InterceptorRule> mostSpecific = new AtomicReference<>();
-
-        ruleMap.entrySet().stream().forEach((entry) -> {
-            if (entry.getValue() > biggestScore.get()) {
-                mostSpecific.set(entry.getKey());
-                biggestScore.set(entry.getValue());
-            }
-        });
-
-        if (interceptorRules.size() == 0) {
-            LOG.error("Got no interceptor rules for this request/response. " +
-                "Usually this should not happen as one has to define at " +
-                "least the basic sets of rules (e.g. ALLOW all WMS " +
-                "requests) when using the interceptor.");
-            throw new InterceptorException("No interceptor rule found.");
-        } else if (LOG.isTraceEnabled()) {
             LOG.trace("Identified the following rule as most the specific " +
-                "one: " + mostSpecific.get());
+                "one: " + mostSpecific);
         }
 
-        return mostSpecific.get();
+        return mostSpecific;
     }
 
     /**
@@ -559,59 +1773,48 @@ public class GeoServerInterceptorService {
      * @throws InterceptorException
      */
     public URI getGeoServerBaseURIFromNameSpace(String geoServerNamespace, boolean useWmsReflector, boolean isWMS) throws URISyntaxException, InterceptorException {
-        String geoServerUrl = null;
-        if (interceptorProperties.isNamespaceBoundUrl()) {
-            Optional<NamespaceProperties> namespaceCandidate = interceptorProperties.getNamespaces().stream()
-                .filter(namespace -> geoServerNamespace.equalsIgnoreCase(namespace.getNamespace()))
-                .findAny();
-
-            if (namespaceCandidate.isPresent()) {
-                geoServerUrl = namespaceCandidate.get().getUrl();
+        NamespaceRoutingTable routingTable = namespaceRouter.getRoutingTable();
+
+        Backend backend = null;
+        if (routingTable.isNamespaceBoundUrl()) {
+            NamespaceRoute route = routingTable.getRoute(geoServerNamespace);
+
+            if (route != null) {
+                backend = route.getPool().select(geoServerNamespace);
             }
         } else {
-            geoServerUrl = interceptorProperties.getDefaultOwsUrl();
-            LOG.debug("Using GeoServer OWS URL without namespace: {}", geoServerUrl);
+            backend = routingTable.getDefaultBackend();
+            LOG.debug("Using GeoServer OWS URL without namespace: {}", backend);
         }
 
-        if (StringUtils.isEmpty(geoServerUrl)) {
+        if (backend == null) {
             throw new InterceptorException("Couldn't detect GeoServer URI " +
                 "from the given namespace");
         }
 
-        if (useWmsReflector && isWMS) {
-            LOG.trace("Will use WMS reflector endpoint");
-            if (StringUtils.endsWithIgnoreCase(geoServerUrl, "ows")) {
-                StringBuilder builder = new StringBuilder();
-                int start = geoServerUrl.lastIndexOf("ows");
-                builder.append(geoServerUrl, 0, start);
-                builder.append("wms" + WMS_REFLECT_ENDPOINT);
-                geoServerUrl = builder.toString();
-            } else if (StringUtils.endsWithIgnoreCase(geoServerUrl, "wms")) {
-                geoServerUrl += WMS_REFLECT_ENDPOINT;
-            }
-            LOG.trace("The modified endpoint is: " + geoServerUrl);
-        }
-
-        URIBuilder builder = new URIBuilder(geoServerUrl);
-        return builder.build();
+        return backend.getBaseUri(useWmsReflector && isWMS);
     }
 
     /**
      * @param message
+     * @param route The route of the namespace of the message, null if the GeoServer isn't bound to namespaces
+     * @param backend The backend selected for the message, null if the GeoServer isn't bound to namespaces
+     * @param useWmsReflector
      * @throws URISyntaxException
      * @throws InterceptorException
      */
-    private URI getGeoServerBaseURI(OgcMessage message, boolean useWmsReflector) throws URISyntaxException, InterceptorException {
-        LOG.debug("Finding the GeoServer base URI by the provided EndPoint: " + message.getEndPoint());
+    private URI getGeoServerBaseURI(OgcMessage message, NamespaceRoute route, Backend backend, boolean useWmsReflector) throws URISyntaxException, InterceptorException {
+        LOG.debug("Finding the GeoServer base URI by the provided EndPoint: {}", message.getEndPoint());
 
-        // get the namespace from the qualified endPoint name
-        String geoServerNamespace = getGeoServerNameSpace(message.getEndPoint());
-
-        LOG.trace("Found the following GeoServer namespace set for endPoint: " + geoServerNamespace);
-
-        // set the GeoServer base URL
-        URI geoServerBaseUri = getGeoServerBaseURIFromNameSpace(geoServerNamespace, useWmsReflector, message.isWms());
-        LOG.debug("The corresponding GeoServer base URI is: " + geoServerBaseUri);
+        URI geoServerBaseUri;
+        if (backend != null) {
+            LOG.trace("Found the following GeoServer namespace set for endPoint: {}", route.getNamespace());
+            geoServerBaseUri = backend.getBaseUri(useWmsReflector && message.isWms());
+        } else {
+            geoServerBaseUri = getGeoServerBaseURIFromNameSpace(getGeoServerNameSpace(message.getEndPoint()),
+                useWmsReflector, message.isWms());
+        }
+        LOG.debug("The corresponding GeoServer base URI is: {}", geoServerBaseUri);
         return geoServerBaseUri;
     }
 }
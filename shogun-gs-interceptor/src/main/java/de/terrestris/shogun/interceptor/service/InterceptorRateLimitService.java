@@ -0,0 +1,73 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.service;
+
+import de.terrestris.shogun.interceptor.event.InterceptorRateLimitsChangedEvent;
+import de.terrestris.shogun.interceptor.model.InterceptorRateLimit;
+import de.terrestris.shogun.interceptor.repository.InterceptorRateLimitRepository;
+import de.terrestris.shogun.lib.service.BaseService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Service for {@link InterceptorRateLimit}s. Every change is published as
+ * {@link InterceptorRateLimitsChangedEvent}, so the
+ * {@link de.terrestris.shogun.interceptor.ratelimit.RateLimiter} can reload
+ * the limits.
+ */
+@Service
+public class InterceptorRateLimitService extends BaseService<InterceptorRateLimitRepository, InterceptorRateLimit> {
+
+    @Autowired
+    protected ApplicationEventPublisher eventPublisher;
+
+    protected void publishRateLimitsChanged() {
+        eventPublisher.publishEvent(new InterceptorRateLimitsChangedEvent(this));
+    }
+
+    @Override
+    public InterceptorRateLimit create(InterceptorRateLimit entity) {
+        InterceptorRateLimit persistedEntity = super.create(entity);
+        publishRateLimitsChanged();
+        return persistedEntity;
+    }
+
+    @Override
+    public InterceptorRateLimit update(Long id, InterceptorRateLimit entity) throws IOException {
+        InterceptorRateLimit updatedEntity = super.update(id, entity);
+        publishRateLimitsChanged();
+        return updatedEntity;
+    }
+
+    @Override
+    public InterceptorRateLimit updatePartial(Long entityId, InterceptorRateLimit entity, Map<String, Object> values) throws IOException {
+        InterceptorRateLimit updatedEntity = super.updatePartial(entityId, entity, values);
+        publishRateLimitsChanged();
+        return updatedEntity;
+    }
+
+    @Override
+    public void delete(InterceptorRateLimit entity) {
+        super.delete(entity);
+        publishRateLimitsChanged();
+    }
+
+}
@@ -0,0 +1,224 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.service;
+
+import de.terrestris.shogun.interceptor.enumeration.HttpEnum;
+import de.terrestris.shogun.interceptor.enumeration.OgcEnum;
+import de.terrestris.shogun.interceptor.model.InterceptorRule;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.*;
+
+/**
+ * An immutable, in-memory index of all {@link InterceptorRule}s resolving the
+ * most specific rule for a given event, service, operation and endPoint with
+ * a few map lookups.
+ *
+ * For every event and service the most specific rule of each operation is
+ * precomputed for each endPoint and for the generic (endPoint-less) rules,
+ * using the following order of precedence:
+ *
+ * 1. endPoint and operation match
+ * 2. endPoint matches, rule has no operation
+ * 3. generic rule, operation matches
+ * 4. generic rule, rule has no operation
+ *
+ * EndPoints are compared case insensitive. If several rules share the same
+ * slot the most recently created one (highest id) wins.
+ */
+public final class InterceptorRuleIndex {
+
+    private static final OgcEnum.OperationType[] OPERATIONS = OgcEnum.OperationType.values();
+
+    private final Map<HttpEnum.EventType, Map<OgcEnum.ServiceType, ServiceRules>> rules;
+
+    private final long version;
+
+    private final int size;
+
+    /**
+     * @param interceptorRules All persisted rules
+     * @param version          The change count the rules have been read at
+     */
+    public InterceptorRuleIndex(Collection<InterceptorRule> interceptorRules, long version) {
+        this.version = version;
+        this.size = interceptorRules.size();
+
+        List<InterceptorRule> sortedRules = new ArrayList<>(interceptorRules);
+        sortedRules.sort(Comparator.comparing(InterceptorRule::getId, Comparator.nullsFirst(Comparator.naturalOrder())));
+
+        Map<HttpEnum.EventType, Map<OgcEnum.ServiceType, List<InterceptorRule>>> grouped = new EnumMap<>(HttpEnum.EventType.class);
+        for (InterceptorRule rule : sortedRules) {
+            if (rule.getEvent() == null || rule.getService() == null) {
+                continue;
+            }
+            grouped.computeIfAbsent(rule.getEvent(), e -> new EnumMap<>(OgcEnum.ServiceType.class))
+                .computeIfAbsent(rule.getService(), s -> new ArrayList<>())
+                .add(rule);
+        }
+
+        Map<HttpEnum.EventType, Map<OgcEnum.ServiceType, ServiceRules>> index = new EnumMap<>(HttpEnum.EventType.class);
+        grouped.forEach((event, byService) -> {
+            Map<OgcEnum.ServiceType, ServiceRules> serviceRules = new EnumMap<>(OgcEnum.ServiceType.class);
+            byService.forEach((service, list) -> serviceRules.put(service, new ServiceRules(list)));
+            index.put(event, Collections.unmodifiableMap(serviceRules));
+        });
+        this.rules = Collections.unmodifiableMap(index);
+    }
+
+    /**
+     * @return The change count the rules have been read at
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return The number of indexed rules
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether any rule exists for the given event and service.
+     *
+     * @param event   The event
+     * @param service The service
+     * @return true if at least one rule exists
+     */
+    public boolean hasRules(HttpEnum.EventType event, OgcEnum.ServiceType service) {
+        return getServiceRules(event, service) != null;
+    }
+
+    /**
+     * Returns the most specific rule for the given parameters.
+     *
+     * @param event     The event
+     * @param service   The service
+     * @param operation The operation, may be null
+     * @param endPoint  The endPoint, may be null
+     * @return The most specific rule or null if no rule matches
+     */
+    public InterceptorRule findMostSpecificRule(HttpEnum.EventType event, OgcEnum.ServiceType service,
+                                                OgcEnum.OperationType operation, String endPoint) {
+        ServiceRules serviceRules = getServiceRules(event, service);
+        if (serviceRules == null) {
+            return null;
+        }
+
+        if (!StringUtils.isEmpty(endPoint)) {
+            OperationRules endPointRules = serviceRules.byEndPoint.get(endPoint.toLowerCase(Locale.ROOT));
+            if (endPointRules != null) {
+                return endPointRules.get(operation);
+            }
+        }
+
+        return serviceRules.generic.get(operation);
+    }
+
+    private ServiceRules getServiceRules(HttpEnum.EventType event, OgcEnum.ServiceType service) {
+        if (event == null || service == null) {
+            return null;
+        }
+        Map<OgcEnum.ServiceType, ServiceRules> byService = rules.get(event);
+        return byService != null ? byService.get(service) : null;
+    }
+
+    /**
+     * The rules of a single event and service.
+     */
+    private static final class ServiceRules {
+
+        private final Map<String, OperationRules> byEndPoint = new HashMap<>();
+
+        private final OperationRules generic;
+
+        private ServiceRules(List<InterceptorRule> rules) {
+            List<InterceptorRule> genericRules = new ArrayList<>();
+            Map<String, List<InterceptorRule>> endPointRules = new HashMap<>();
+
+            for (InterceptorRule rule : rules) {
+                if (StringUtils.isEmpty(rule.getEndPoint())) {
+                    genericRules.add(rule);
+                } else {
+                    endPointRules.computeIfAbsent(rule.getEndPoint().toLowerCase(Locale.ROOT), k -> new ArrayList<>())
+                        .add(rule);
+                }
+            }
+
+            generic = new OperationRules(genericRules, null);
+            endPointRules.forEach((endPoint, list) -> byEndPoint.put(endPoint, new OperationRules(list, generic)));
+        }
+    }
+
+    /**
+     * The precomputed most specific rule per operation.
+     */
+    private static final class OperationRules {
+
+        private final EnumMap<OgcEnum.OperationType, InterceptorRule> byOperation =
+            new EnumMap<>(OgcEnum.OperationType.class);
+
+        /**
+         * The rule used if the operation of the request is unknown.
+         */
+        private final InterceptorRule unknownOperation;
+
+        private OperationRules(List<InterceptorRule> rules, OperationRules fallback) {
+            Map<OgcEnum.OperationType, InterceptorRule> explicit = new EnumMap<>(OgcEnum.OperationType.class);
+            InterceptorRule anyOperation = null;
+            InterceptorRule latest = null;
+
+            // rules are sorted by id, later rules win
+            for (InterceptorRule rule : rules) {
+                if (rule.getOperation() == null) {
+                    anyOperation = rule;
+                } else {
+                    explicit.put(rule.getOperation(), rule);
+                }
+                latest = rule;
+            }
+
+            for (OgcEnum.OperationType operation : OPERATIONS) {
+                InterceptorRule rule = explicit.get(operation);
+                if (rule == null) {
+                    rule = anyOperation;
+                }
+                if (rule == null && fallback != null) {
+                    rule = fallback.byOperation.get(operation);
+                }
+                if (rule != null) {
+                    byOperation.put(operation, rule);
+                }
+            }
+
+            if (anyOperation != null) {
+                unknownOperation = anyOperation;
+            } else if (latest != null) {
+                unknownOperation = latest;
+            } else {
+                unknownOperation = fallback != null ? fallback.unknownOperation : null;
+            }
+        }
+
+        private InterceptorRule get(OgcEnum.OperationType operation) {
+            return operation != null ? byOperation.get(operation) : unknownOperation;
+        }
+    }
+
+}
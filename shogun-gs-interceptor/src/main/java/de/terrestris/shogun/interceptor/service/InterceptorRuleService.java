@@ -19,33 +19,170 @@ package de.terrestris.shogun.interceptor.service;
 import de.terrestris.shogun.interceptor.enumeration.HttpEnum;
 import de.terrestris.shogun.interceptor.enumeration.InterceptorEnum;
 import de.terrestris.shogun.interceptor.enumeration.OgcEnum;
+import de.terrestris.shogun.interceptor.event.InterceptorRulesChangedEvent;
+import de.terrestris.shogun.interceptor.exception.InterceptorException;
 import de.terrestris.shogun.interceptor.model.InterceptorRule;
 import de.terrestris.shogun.interceptor.repository.InterceptorRuleRepository;
 import de.terrestris.shogun.lib.service.BaseService;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Service for {@link InterceptorRule}s. Besides the persisted rules an in-memory
+ * {@link InterceptorRuleIndex} is held that is rebuilt after every committed
+ * change of the rules, so the most specific rule for a request can be resolved
+ * without any database access.
+ */
+@Log4j2
 @Service
 public class InterceptorRuleService extends BaseService<InterceptorRuleRepository, InterceptorRule> {
 
+    @Autowired
+    protected ApplicationEventPublisher eventPublisher;
+
+    /**
+     * The number of committed changes of the rules.
+     */
+    private final AtomicLong changeCount = new AtomicLong();
+
+    private volatile InterceptorRuleIndex ruleIndex;
+
     @Transactional(readOnly = true)
     public List<InterceptorRule> findAllRulesForServiceAndEvent(OgcEnum.ServiceType service, HttpEnum.EventType event) {
         return repository.findAllByServiceAndEvent(service, event);
     }
 
+    /**
+     * Returns the most specific rule for the given parameters from the rule index.
+     *
+     * @param event     The {@link HttpEnum.EventType}, e.g. request
+     * @param service   The {@link OgcEnum.ServiceType}, e.g. WMS
+     * @param operation The {@link OgcEnum.OperationType}, e.g. getMap
+     * @param endPoint  The endpoint, e.g. the qualified layer name
+     * @return The most specific rule or null if no rule matches
+     * @throws InterceptorException If no rule exists for the given event and service at all
+     */
+    public InterceptorRule findMostSpecificRule(HttpEnum.EventType event, OgcEnum.ServiceType service,
+                                                OgcEnum.OperationType operation, String endPoint) throws InterceptorException {
+        InterceptorRuleIndex index = getRuleIndex();
+
+        if (!index.hasRules(event, service)) {
+            log.error("Got no interceptor rules for this request/response. " +
+                "Usually this should not happen as one has to define at " +
+                "least the basic sets of rules (e.g. ALLOW all WMS " +
+                "requests) when using the interceptor.");
+            throw new InterceptorException("No interceptor rule found.");
+        }
+
+        return index.findMostSpecificRule(event, service, operation, endPoint);
+    }
+
+    /**
+     * @return The current rule index, built on first access if needed
+     */
+    public InterceptorRuleIndex getRuleIndex() {
+        InterceptorRuleIndex index = ruleIndex;
+        if (index == null) {
+            index = rebuildRuleIndex();
+        }
+        return index;
+    }
+
+    /**
+     * Rebuilds the rule index if it doesn't reflect the latest change of the rules.
+     *
+     * @return The current rule index
+     */
+    public synchronized InterceptorRuleIndex rebuildRuleIndex() {
+        long version = changeCount.get();
+        InterceptorRuleIndex index = ruleIndex;
+
+        if (index != null && index.getVersion() >= version) {
+            return index;
+        }
+
+        index = new InterceptorRuleIndex(repository.findAll(), version);
+        ruleIndex = index;
+
+        log.debug("Rebuilt the interceptor rule index with {} rule(s)", index.size());
+
+        return index;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuildRuleIndex();
+    }
+
+    /**
+     * Rebuilds the rule index once the transaction changing the rules has been
+     * committed (or immediately if the change happened outside of a transaction).
+     * The change is counted only now, so an index built while another change
+     * hadn't been committed yet is never considered up to date for it.
+     *
+     * @param event The {@link InterceptorRulesChangedEvent}
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRulesChanged(InterceptorRulesChangedEvent event) {
+        changeCount.incrementAndGet();
+        rebuildRuleIndex();
+    }
+
+    protected void publishRulesChanged() {
+        eventPublisher.publishEvent(new InterceptorRulesChangedEvent(this));
+    }
+
+    @Override
+    public InterceptorRule create(InterceptorRule entity) {
+        InterceptorRule persistedEntity = super.create(entity);
+        publishRulesChanged();
+        return persistedEntity;
+    }
+
+    @Override
+    public InterceptorRule update(Long id, InterceptorRule entity) throws IOException {
+        InterceptorRule updatedEntity = super.update(id, entity);
+        publishRulesChanged();
+        return updatedEntity;
+    }
+
+    @Override
+    public InterceptorRule updatePartial(Long entityId, InterceptorRule entity, Map<String, Object> values) throws IOException {
+        InterceptorRule updatedEntity = super.updatePartial(entityId, entity, values);
+        publishRulesChanged();
+        return updatedEntity;
+    }
+
+    @Override
+    public void delete(InterceptorRule entity) {
+        super.delete(entity);
+        publishRulesChanged();
+    }
+
     /**
      * Remove all interceptor rules for certain endpoint
      *
      * @param endpoint The endpoint, e.g. the qualified layer name
      */
+    @Transactional
     public void removeAllRulesForEndpoint(String endpoint) {
         List<InterceptorRule> interceptorRules = repository.findByEndPoint(endpoint);
         if (!interceptorRules.isEmpty()) {
             repository.deleteAll(interceptorRules);
+            publishRulesChanged();
         }
     }
 
@@ -56,6 +193,7 @@ public class InterceptorRuleService extends BaseService<InterceptorRuleRepositor
      * @param rule     The {@link InterceptorEnum.RuleType}
      * @param service  The {@link OgcEnum.ServiceType}
      */
+    @Transactional
     public void addRequestRuleForServiceAndEndpoint(String endpoint, InterceptorEnum.RuleType rule, OgcEnum.ServiceType service) {
         HttpEnum.EventType eventType = HttpEnum.EventType.REQUEST;
         Set<OgcEnum.OperationType> allOperationsForService = OgcEnum.OPERATIONS_BY_SERVICETYPE.get(service);
@@ -69,6 +207,7 @@ public class InterceptorRuleService extends BaseService<InterceptorRuleRepositor
      * @param rule     The {@link InterceptorEnum.RuleType}
      * @param service  The {@link OgcEnum.ServiceType}
      */
+    @Transactional
     public void addResponseRuleForServiceAndEndpoint(String endpoint, InterceptorEnum.RuleType rule, OgcEnum.ServiceType service) {
         HttpEnum.EventType eventType = HttpEnum.EventType.RESPONSE;
         Set<OgcEnum.OperationType> allOperationsForService = OgcEnum.OPERATIONS_BY_SERVICETYPE.get(service);
@@ -82,6 +221,7 @@ public class InterceptorRuleService extends BaseService<InterceptorRuleRepositor
      * @param rule     The {@link InterceptorEnum.RuleType}
      * @param service  The {@link OgcEnum.ServiceType}
      */
+    @Transactional
     public void addRuleForEndpoint(String endpoint, InterceptorEnum.RuleType rule, OgcEnum.ServiceType service) {
         addRequestRuleForServiceAndEndpoint(endpoint, rule, service);
         addResponseRuleForServiceAndEndpoint(endpoint, rule, service);
@@ -92,6 +232,7 @@ public class InterceptorRuleService extends BaseService<InterceptorRuleRepositor
      *
      * @param endpoint The qualified layer name
      */
+    @Transactional
     public void setModifyForAllWmsActions(String endpoint) {
         OgcEnum.ServiceType serviceType = OgcEnum.ServiceType.WMS;
         InterceptorEnum.RuleType modifyRule = InterceptorEnum.RuleType.MODIFY;
@@ -103,6 +244,7 @@ public class InterceptorRuleService extends BaseService<InterceptorRuleRepositor
      *
      * @param endpoint The qualified layer name
      */
+    @Transactional
     public void setModifyForAllWfsActions(String endpoint) {
         OgcEnum.ServiceType serviceType = OgcEnum.ServiceType.WFS;
         InterceptorEnum.RuleType modifyRule = InterceptorEnum.RuleType.MODIFY;
@@ -114,6 +256,7 @@ public class InterceptorRuleService extends BaseService<InterceptorRuleRepositor
      *
      * @param endpoint The qualified layer name
      */
+    @Transactional
     public void setModifyForAllWmsRequests(String endpoint) {
         OgcEnum.ServiceType serviceType = OgcEnum.ServiceType.WMS;
         InterceptorEnum.RuleType modifyRule = InterceptorEnum.RuleType.MODIFY;
@@ -125,6 +268,7 @@ public class InterceptorRuleService extends BaseService<InterceptorRuleRepositor
      *
      * @param endpoint The qualified layer name
      */
+    @Transactional
     public void setModifyForAllWfsRequests(String endpoint) {
         OgcEnum.ServiceType serviceType = OgcEnum.ServiceType.WFS;
         InterceptorEnum.RuleType modifyRule = InterceptorEnum.RuleType.MODIFY;
@@ -140,6 +284,7 @@ public class InterceptorRuleService extends BaseService<InterceptorRuleRepositor
      * @param operation The {@link OgcEnum.OperationType}, e.g. getMap
      * @param endPoint  The endpoint, e.g. the qualified layer name
      */
+    @Transactional
     public void addRule(HttpEnum.EventType event, InterceptorEnum.RuleType rule, OgcEnum.ServiceType service, OgcEnum.OperationType operation, String endPoint) {
         Optional<InterceptorRule> existingRule = repository.findByEventAndRuleAndServiceAndOperationAndEndPoint(event, rule, service, operation, endPoint);
         InterceptorRule interceptorRule = existingRule.orElseGet(InterceptorRule::new);
@@ -152,6 +297,7 @@ public class InterceptorRuleService extends BaseService<InterceptorRuleRepositor
         interceptorRule.setOperation(operation);
 
         repository.save(interceptorRule);
+        publishRulesChanged();
     }
 
 }
@@ -20,6 +20,8 @@ import javax.servlet.ReadListener;
 import javax.servlet.ServletInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * An inputstream which reads the cached request body and has mutable
@@ -31,7 +33,7 @@ import java.io.ByteArrayOutputStream;
  */
 public class CachedServletInputStream extends ServletInputStream {
 
-    private ByteArrayInputStream input;
+    private InputStream input;
 
     /**
      * Create a new input stream from the cached request body
@@ -40,11 +42,28 @@ public class CachedServletInputStream extends ServletInputStream {
         input = new ByteArrayInputStream(cachedBytes.toByteArray());
     }
 
+    /**
+     * Create a new input stream reading the given stream of a {@link RequestBodyBuffer}
+     */
+    public CachedServletInputStream(InputStream input) {
+        this.input = input;
+    }
+
     @Override
-    public int read() {
+    public int read() throws IOException {
         return input.read();
     }
 
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        return input.read(b, off, len);
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
     @Override
     public boolean isFinished() {
         return false;
@@ -0,0 +1,120 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.servlet;
+
+import de.terrestris.shogun.interceptor.config.properties.InterceptorProperties;
+import de.terrestris.shogun.interceptor.exception.InterceptorException;
+import de.terrestris.shogun.interceptor.exception.OgcServiceException;
+import de.terrestris.shogun.interceptor.service.GeoServerInterceptorService;
+import de.terrestris.shogun.interceptor.util.OgcXmlUtil;
+import de.terrestris.shogun.lib.dto.StreamingHttpResponse;
+import lombok.extern.log4j.Log4j2;
+import org.apache.http.HttpException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.URISyntaxException;
+
+import static de.terrestris.shogun.interceptor.controller.GeoServerInterceptorController.ERROR_MESSAGE;
+
+/**
+ * Relays GeoServer requests whose request and response rules both resolve to
+ * ALLOW (e.g. the tile traffic) directly between the client and the GeoServer,
+ * bypassing the MVC dispatch and the response entity assembly. All other
+ * requests are passed on to the interceptor controller.
+ */
+@Log4j2
+public class GeoServerFastPathFilter extends OncePerRequestFilter {
+
+    private final GeoServerInterceptorService service;
+
+    private final RequestBodyBufferAllocator bodyBufferAllocator;
+
+    private final InterceptorProperties interceptorProperties;
+
+    public GeoServerFastPathFilter(GeoServerInterceptorService service, RequestBodyBufferAllocator bodyBufferAllocator,
+                                   InterceptorProperties interceptorProperties) {
+        this.service = service;
+        this.bodyBufferAllocator = bodyBufferAllocator;
+        this.interceptorProperties = interceptorProperties;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // the fast path writes the response on the request thread
+        return !interceptorProperties.getFastPath().isEnabled() ||
+            interceptorProperties.getAsync().isEnabled() ||
+            !("GET".equalsIgnoreCase(request.getMethod()) || "POST".equalsIgnoreCase(request.getMethod()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        // the wrapper buffers the body (if any), so it can be read again by the full pipeline
+        MutableHttpServletRequest mutableRequest = new MutableHttpServletRequest(request, bodyBufferAllocator);
+
+        StreamingHttpResponse httpResponse;
+        try {
+            httpResponse = service.interceptAllowedRequest(mutableRequest);
+        } catch (OgcServiceException e) {
+            log.warn(ERROR_MESSAGE + e.getMessage());
+            writeServiceException(response, e);
+            return;
+        } catch (NullPointerException | InterceptorException | HttpException | URISyntaxException e) {
+            log.error(ERROR_MESSAGE + e.getMessage());
+            log.trace("Full stack trace: ", e);
+            response.sendError(HttpStatus.INTERNAL_SERVER_ERROR.value(), ERROR_MESSAGE + e.getMessage());
+            return;
+        }
+
+        if (httpResponse == null) {
+            filterChain.doFilter(mutableRequest, response);
+            return;
+        }
+
+        log.trace("Relaying an allowed GeoServer resource.");
+
+        try (StreamingHttpResponse upstreamResponse = httpResponse) {
+            response.setStatus(upstreamResponse.getStatusCode().value());
+            if (upstreamResponse.getHeaders() != null) {
+                upstreamResponse.getHeaders().forEach((name, values) ->
+                    values.forEach(value -> response.addHeader(name, value)));
+            }
+            upstreamResponse.writeBody(response.getOutputStream());
+        }
+    }
+
+    private static void writeServiceException(HttpServletResponse response, OgcServiceException e) throws IOException {
+        byte[] report = OgcXmlUtil.getServiceExceptionReport(e);
+        HttpHeaders headers = e.getHeaders();
+        if (headers != null) {
+            headers.forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+        }
+        response.setStatus(e.getHttpStatus().value());
+        response.setContentType(MediaType.TEXT_XML_VALUE);
+        response.setContentLength(report.length);
+        response.getOutputStream().write(report);
+    }
+
+}
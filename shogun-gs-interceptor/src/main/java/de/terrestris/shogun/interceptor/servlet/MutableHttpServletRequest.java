@@ -16,23 +16,23 @@
  */
 package de.terrestris.shogun.interceptor.servlet;
 
-import de.terrestris.shogun.interceptor.enumeration.OgcEnum;
 import de.terrestris.shogun.interceptor.exception.InterceptorException;
-import de.terrestris.shogun.interceptor.util.OgcXmlUtil;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.Logger;
-import org.w3c.dom.Document;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletInputStream;
+import javax.servlet.ServletRequest;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
 import java.io.*;
 import java.net.URI;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.TreeMap;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
 
 import static org.apache.logging.log4j.LogManager.getLogger;
 
@@ -54,31 +54,84 @@ public class MutableHttpServletRequest extends HttpServletRequestWrapper {
     private static final Logger LOG = getLogger(MutableHttpServletRequest.class);
 
     /**
-     * Holds custom parameter mapping
+     * Holds custom parameter mapping. Shares the (immutable) parameter map of
+     * the wrapped servlet request until the parameters are changed for the
+     * first time.
      */
     private Map<String, String[]> customParameters;
 
+    private boolean customParametersCopied = false;
+
+    /**
+     * The unmodifiable view of the parameters returned by {@link #getParameterMap()}.
+     */
+    private Map<String, String[]> parameterView;
+
     /**
-     * Holds custom header mapping
+     * Holds custom header mapping (created on first use)
      */
     private Map<String, String> customHeaders;
 
+    /**
+     * Holds the attributes set on this request (created on first use). They
+     * are not passed to the wrapped request, so that several requests wrapping
+     * the same request (e.g. the parts of a fanned out request) don't interfere.
+     */
+    private Map<String, Object> customAttributes;
+
     private String customRequestURI;
 
-    private ByteArrayOutputStream cachedInputStream;
+    /**
+     * The body of this request, read on first use. Shared with the wrapped
+     * request if it's a {@link MutableHttpServletRequest} itself.
+     */
+    private RequestBodyBuffer bodyBuffer;
+
+    private final RequestBodyBufferAllocator bodyBufferAllocator;
 
     private String method;
 
     private String queryString;
 
+    private OgcRequestDescriptor ogcRequestDescriptor;
+
     /**
      * @param request
      */
     public MutableHttpServletRequest(HttpServletRequest request) {
+        this(request, request instanceof MutableHttpServletRequest ?
+            ((MutableHttpServletRequest) request).bodyBufferAllocator : RequestBodyBufferAllocator.DEFAULT);
+    }
+
+    /**
+     * @param request
+     * @param bodyBufferAllocator The allocator buffering the body of the request
+     */
+    public MutableHttpServletRequest(HttpServletRequest request, RequestBodyBufferAllocator bodyBufferAllocator) {
         super(request);
         this.customRequestURI = request.getRequestURI();
-        this.customParameters = new HashMap<>(request.getParameterMap());
-        this.customHeaders = new HashMap<>();
+        if (request instanceof MutableHttpServletRequest) {
+            // later changes of the wrapped request must not leak into this one (and vice versa)
+            this.customParameters = new HashMap<>(((MutableHttpServletRequest) request).customParameters);
+            this.customParametersCopied = true;
+        } else {
+            this.customParameters = request.getParameterMap();
+        }
+        this.parameterView = Collections.unmodifiableMap(customParameters);
+        this.bodyBufferAllocator = bodyBufferAllocator;
+    }
+
+    /**
+     * @return The parameters of this request, copied from the wrapped request
+     * before the first change
+     */
+    private Map<String, String[]> getMutableParameters() {
+        if (!customParametersCopied) {
+            customParameters = new HashMap<>(customParameters);
+            customParametersCopied = true;
+            parameterView = Collections.unmodifiableMap(customParameters);
+        }
+        return customParameters;
     }
 
     /**
@@ -89,16 +142,7 @@ public class MutableHttpServletRequest extends HttpServletRequestWrapper {
      * @throws IOException
      */
     public static String getRequestParameterValue(HttpServletRequest httpServletRequest, String[] keys) throws InterceptorException, IOException {
-        String value = StringUtils.EMPTY;
-
-        for (String key : keys) {
-            value = getRequestParameterValue(httpServletRequest, key);
-            if (StringUtils.isNotEmpty(value)) {
-                break;
-            }
-        }
-
-        return value;
+        return getOgcRequestDescriptor(httpServletRequest).getParameterValue(keys);
     }
 
     @Override
@@ -139,47 +183,35 @@ public class MutableHttpServletRequest extends HttpServletRequestWrapper {
      * @return
      */
     public static String getRequestParameterValue(HttpServletRequest httpServletRequest, String parameter) throws IOException, InterceptorException {
-        LOG.trace("Finding the request parameter [" + parameter + "]");
-
-        String value = StringUtils.EMPTY;
-        Map<String, String[]> queryParams = httpServletRequest.getParameterMap();
-        if (!queryParams.isEmpty()) {
-            LOG.trace("The request contains query parameters (GET or POST).");
-
-            Map<String, String[]> params = new TreeMap<>(
-                String.CASE_INSENSITIVE_ORDER);
-
-            params.putAll(queryParams);
+        return getOgcRequestDescriptor(httpServletRequest).getParameterValue(parameter);
+    }
 
-            if (params.containsKey(parameter)) {
-                value = StringUtils.join(params.get(parameter), ",");
-            }
-        } else {
-            String xml = OgcXmlUtil.getRequestBody(httpServletRequest);
-            if (!StringUtils.isEmpty(xml)) {
-                LOG.trace("The request contains a POST body.");
-                Document document = OgcXmlUtil.getDocumentFromString(xml);
-
-                if (parameter.equalsIgnoreCase(OgcEnum.Service.SERVICE.toString())) {
-                    value = OgcXmlUtil.getPathInDocument(document, "/*/@service");
-                } else if (parameter.equalsIgnoreCase(OgcEnum.Operation.OPERATION.toString())) {
-                    value = OgcXmlUtil.getPathInDocument(document, "name(/*)");
-                    if (value.contains(":")) {
-                        value = value.split(":")[1];
-                    }
-                } else if (Arrays.asList(OgcEnum.EndPoint.getAllValues()).contains(parameter)) {
-                    value = OgcXmlUtil.getPathInDocument(document, "//TypeName/text() | //TypeNames/text() | //GetCoverage/Identifier/text()");
-                    if (StringUtils.isEmpty(value)) {
-                        value = OgcXmlUtil.getPathInDocument(document, "//@typeName | //@typeNames");
-                    }
-                }
-            } else {
-                LOG.error("No body found in the request.");
-            }
+    /**
+     * Returns the {@link OgcRequestDescriptor} of the given request. The descriptor
+     * is cached if the request is a {@link MutableHttpServletRequest}.
+     *
+     * @param httpServletRequest
+     * @return
+     */
+    public static OgcRequestDescriptor getOgcRequestDescriptor(HttpServletRequest httpServletRequest) {
+        if (httpServletRequest instanceof MutableHttpServletRequest) {
+            return ((MutableHttpServletRequest) httpServletRequest).getOgcRequestDescriptor();
         }
+        return new OgcRequestDescriptor(httpServletRequest);
+    }
 
-        LOG.trace("Found the request parameter value: " + value);
-        return value;
+    /**
+     * Returns the {@link OgcRequestDescriptor} of this request. It is created on
+     * first access and discarded whenever the parameters or the body of this
+     * request are changed through the setters of this class.
+     *
+     * @return
+     */
+    public OgcRequestDescriptor getOgcRequestDescriptor() {
+        if (ogcRequestDescriptor == null) {
+            ogcRequestDescriptor = new OgcRequestDescriptor(this);
+        }
+        return ogcRequestDescriptor;
     }
 
     /**
@@ -239,6 +271,9 @@ public class MutableHttpServletRequest extends HttpServletRequestWrapper {
         if (!StringUtils.isEmpty(this.getHeader(key))) {
             this.removeHeader(key);
         }
+        if (customHeaders == null) {
+            customHeaders = new HashMap<>();
+        }
         customHeaders.put(key, value);
     }
 
@@ -247,7 +282,8 @@ public class MutableHttpServletRequest extends HttpServletRequestWrapper {
      * @param value
      */
     public void addParameter(String key, String[] value) {
-        customParameters.put(key, value);
+        getMutableParameters().put(key, value);
+        ogcRequestDescriptor = null;
     }
 
     /**
@@ -256,7 +292,8 @@ public class MutableHttpServletRequest extends HttpServletRequestWrapper {
      */
     public void addParameter(String key, String value) {
         String[] values = value.split(",", -1);
-        customParameters.put(key, values);
+        getMutableParameters().put(key, values);
+        ogcRequestDescriptor = null;
     }
 
     /**
@@ -264,7 +301,31 @@ public class MutableHttpServletRequest extends HttpServletRequestWrapper {
      */
     public void removeParameter(String key) {
         if (customParameters.get(key) != null) {
-            customParameters.remove(key);
+            getMutableParameters().remove(key);
+            ogcRequestDescriptor = null;
+        }
+    }
+
+    /**
+     * Replaces all parameters matching the given name (ignoring the case) by
+     * the given (single) value.
+     *
+     * @param key
+     * @param value
+     */
+    public void setParameterIgnoreCase(String key, String value) {
+        removeParameterIgnoreCase(key);
+        addParameter(key, new String[]{value});
+    }
+
+    /**
+     * @param key
+     */
+    public void removeParameterIgnoreCase(String key) {
+        for (String name : new ArrayList<>(getParameterMap().keySet())) {
+            if (name.equalsIgnoreCase(key)) {
+                removeParameter(name);
+            }
         }
     }
 
@@ -272,7 +333,7 @@ public class MutableHttpServletRequest extends HttpServletRequestWrapper {
      * @param key
      */
     public void removeHeader(String key) {
-        if (customHeaders.get(key) != null) {
+        if (customHeaders != null && customHeaders.get(key) != null) {
             customHeaders.remove(key);
         }
     }
@@ -291,11 +352,17 @@ public class MutableHttpServletRequest extends HttpServletRequestWrapper {
     }
 
     /**
+     * Returns an unmodifiable view of the parameters of this request. Use
+     * {@link #setParameter(String, String)}, {@link #addParameter(String, String)}
+     * and {@link #removeParameter(String)} to change them.
      *
+     * Note: The returned map used to be modifiable. Interceptors changing it
+     * directly must use the methods above instead, which also keep the
+     * {@link OgcRequestDescriptor} of this request up to date.
      */
     @Override
     public Map<String, String[]> getParameterMap() {
-        return customParameters;
+        return parameterView;
     }
 
     /**
@@ -303,7 +370,7 @@ public class MutableHttpServletRequest extends HttpServletRequestWrapper {
      */
     @Override
     public String getHeader(String name) {
-        String headerValue = customHeaders.get(name);
+        String headerValue = customHeaders != null ? customHeaders.get(name) : null;
         // Check custom headers first
         if (headerValue != null) {
             return headerValue;
@@ -311,62 +378,169 @@ public class MutableHttpServletRequest extends HttpServletRequestWrapper {
         return ((HttpServletRequest) getRequest()).getHeader(name);
     }
 
+    /**
+     *
+     */
+    @Override
+    public Object getAttribute(String name) {
+        if (customAttributes != null && customAttributes.containsKey(name)) {
+            return customAttributes.get(name);
+        }
+        return super.getAttribute(name);
+    }
+
+    /**
+     *
+     */
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        if (customAttributes == null) {
+            return super.getAttributeNames();
+        }
+        Set<String> names = new LinkedHashSet<>(Collections.list(super.getAttributeNames()));
+        for (Map.Entry<String, Object> attribute : customAttributes.entrySet()) {
+            if (attribute.getValue() != null) {
+                names.add(attribute.getKey());
+            } else {
+                names.remove(attribute.getKey());
+            }
+        }
+        return Collections.enumeration(names);
+    }
+
+    /**
+     * Sets the given attribute on this request only (not on the wrapped request).
+     */
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (customAttributes == null) {
+            customAttributes = new HashMap<>();
+        }
+        customAttributes.put(name, value);
+    }
+
+    /**
+     * Removes the given attribute from this request only (not from the wrapped request).
+     */
+    @Override
+    public void removeAttribute(String name) {
+        setAttribute(name, null);
+    }
+
     /**
      *
      */
     @Override
     public ServletInputStream getInputStream() throws IOException {
-        if (cachedInputStream == null) {
-            cacheInputStream();
+        return new CachedServletInputStream(getBodyBuffer().openStream());
+    }
+
+    /**
+     * Returns the body of this request, reading it from the wrapped request on
+     * first use. The body is held in memory or spilled to a temporary file
+     * (see {@link RequestBodyBufferAllocator}) and released when the request
+     * has been completed.
+     *
+     * @return The body of this request
+     * @throws RequestBodyTooLargeException If the body exceeds the maximum size
+     * @throws IOException                  If the body could not be read
+     */
+    public RequestBodyBuffer getBodyBuffer() throws IOException {
+        if (bodyBuffer == null) {
+            ServletRequest request = getRequest();
+            if (request instanceof MutableHttpServletRequest) {
+                bodyBuffer = ((MutableHttpServletRequest) request).getBodyBuffer();
+            } else {
+                setBodyBuffer(bodyBufferAllocator.read(super.getInputStream(), getContentLengthLong()));
+            }
         }
-        return new CachedServletInputStream(cachedInputStream);
+        return bodyBuffer;
     }
 
     /**
-     * Set the cachedInputStream as a copy of UTF-8 encoded {@link ByteArrayInputStream}
+     * Set the body as UTF-8 encoded {@link String}
      *
-     * @param body {@link String} body to create the {@link ByteArrayInputStream} from
+     * @param body {@link String} body to set
      */
     public void setInputStream(String body) {
-        try (
-            ByteArrayInputStream stream = new ByteArrayInputStream(body.getBytes(DEFAULT_CHARSET))
-        ) {
-            cachedInputStream = new ByteArrayOutputStream();
-            IOUtils.copy(stream, cachedInputStream);
-        } catch (IOException e) {
-            LOG.error("Exception on writing InputStream.", e);
-        }
+        setBodyBuffer(RequestBodyBuffer.of(body.getBytes(StandardCharsets.UTF_8), body, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Set the body (without copying it)
+     *
+     * @param body The body to set, must not be modified afterwards
+     */
+    public void setInputStream(byte[] body) {
+        setBodyBuffer(RequestBodyBuffer.of(body));
     }
 
     /**
-     * Set the cachedInputStream as a copy of passed {@link InputStream}
+     * Set the body as a copy of passed {@link InputStream}
      *
      * @param stream The {@link InputStream} to set (copy)
      */
     public void setInputStream(InputStream stream) {
         try {
-            cachedInputStream = new ByteArrayOutputStream();
-            IOUtils.copy(stream, cachedInputStream);
+            setBodyBuffer(bodyBufferAllocator.read(stream, -1));
         } catch (IOException e) {
             LOG.error("Exception on writing InputStream.", e);
         }
     }
 
+    private void setBodyBuffer(RequestBodyBuffer buffer) {
+        bodyBuffer = buffer;
+        ogcRequestDescriptor = null;
+        releaseOnCompletion(buffer);
+    }
+
     /**
+     * Releases the given body once the current request has been completed
+     * (including asynchronous processing). Bodies read outside of a request
+     * are released when they become unreachable.
      *
+     * @param buffer
      */
-    @Override
-    public BufferedReader getReader() throws IOException {
-        return new BufferedReader(new InputStreamReader(getInputStream()));
+    private static void releaseOnCompletion(RequestBodyBuffer buffer) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (buffer.isEmpty() || !(attributes instanceof ServletRequestAttributes)) {
+            return;
+        }
+
+        HttpServletRequest request = ((ServletRequestAttributes) attributes).getRequest();
+        attributes.registerDestructionCallback(RequestBodyBuffer.class.getName() + "@" +
+            System.identityHashCode(buffer), () -> {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        buffer.close();
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                buffer.close();
+            }
+        }, RequestAttributes.SCOPE_REQUEST);
     }
 
     /**
-     * Cache the inputstream in order to read it multiple times. For
-     * convenience, I use apache.commons IOUtils
+     *
      */
-    private void cacheInputStream() throws IOException {
-        cachedInputStream = new ByteArrayOutputStream();
-        IOUtils.copy(super.getInputStream(), cachedInputStream);
+    @Override
+    public BufferedReader getReader() throws IOException {
+        return new BufferedReader(new InputStreamReader(getInputStream()));
     }
 
     /**
@@ -0,0 +1,306 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.servlet;
+
+import de.terrestris.shogun.interceptor.enumeration.OgcEnum;
+import de.terrestris.shogun.interceptor.exception.InterceptorException;
+import de.terrestris.shogun.interceptor.util.OgcXmlSniffer;
+import de.terrestris.shogun.interceptor.util.OgcXmlUtil;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.Logger;
+import org.w3c.dom.Document;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.*;
+
+import static org.apache.logging.log4j.LogManager.getLogger;
+
+/**
+ * The OGC relevant information of a request (service, operation, endPoint etc.),
+ * read once per request.
+ *
+ * If the request contains query parameters they are held in a case insensitive
+ * map, otherwise the values are read from the (XML) body of the request with a
+ * single StAX pass (see {@link OgcXmlSniffer}). A DOM of the body is built on
+ * demand only. The body of a {@link MutableHttpServletRequest} is read from
+ * its {@link RequestBodyBuffer} and not decoded into a string.
+ *
+ * Instances are bound to a single request and not thread safe. Use
+ * {@link MutableHttpServletRequest#getOgcRequestDescriptor()} to obtain the
+ * (cached) descriptor of a request.
+ */
+public class OgcRequestDescriptor {
+
+    public static final String USE_REFLECT_PARAM = "useReflect";
+
+    public static final String BBOX_PARAM = "BBOX";
+
+    private static final String SERVICE_KEY = OgcEnum.Service.SERVICE.toString();
+
+    private static final String OPERATION_KEY = OgcEnum.Operation.OPERATION.toString();
+
+    private static final String[] END_POINT_KEYS = OgcEnum.EndPoint.getAllValues();
+
+    /**
+     * The Logger.
+     */
+    private static final Logger LOG = getLogger(OgcRequestDescriptor.class);
+
+    /**
+     * The (joined) parameter values by case insensitive parameter name.
+     */
+    private final Map<String, String> parameters;
+
+    /**
+     * The body of a request that can't be read again.
+     */
+    private final String body;
+
+    /**
+     * The body of a {@link MutableHttpServletRequest}.
+     */
+    private final RequestBodyBuffer bodyBuffer;
+
+    private final Charset charset;
+
+    private OgcXmlSniffer sniffedBody;
+
+    private Document document;
+
+    private String service;
+
+    private String operation;
+
+    private String endPoint;
+
+    /**
+     * @param request The request to describe
+     */
+    public OgcRequestDescriptor(HttpServletRequest request) {
+        Map<String, String[]> queryParams = request.getParameterMap();
+
+        if (!queryParams.isEmpty()) {
+            LOG.trace("The request contains query parameters (GET or POST).");
+            parameters = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            queryParams.forEach((key, value) -> parameters.put(key, StringUtils.join(value, ",")));
+            body = null;
+            bodyBuffer = null;
+        } else if (request instanceof MutableHttpServletRequest) {
+            parameters = Collections.emptyMap();
+            body = null;
+            bodyBuffer = getBodyBuffer((MutableHttpServletRequest) request);
+        } else {
+            parameters = Collections.emptyMap();
+            body = OgcXmlUtil.getRequestBody(request);
+            bodyBuffer = null;
+        }
+        charset = OgcXmlUtil.getRequestCharset(request);
+    }
+
+    private static RequestBodyBuffer getBodyBuffer(MutableHttpServletRequest request) {
+        try {
+            return request.getBodyBuffer();
+        } catch (IOException e) {
+            LOG.error("Could not read the body of the request: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return true if the values are read from the body of the request
+     */
+    public boolean isBodyRequest() {
+        return parameters.isEmpty();
+    }
+
+    /**
+     * Returns the decoded body. Prefer the values of this descriptor or
+     * {@link MutableHttpServletRequest#getBodyBuffer()}, as decoding a large
+     * body copies it.
+     *
+     * @return The body of the request, if the request contains no query parameters
+     */
+    public String getBody() {
+        if (bodyBuffer == null) {
+            return body;
+        }
+        try {
+            return bodyBuffer.toString(charset);
+        } catch (IOException e) {
+            LOG.error("Could not read the body of the request: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return Whether the request contains a (non empty) body
+     */
+    private boolean hasBody() {
+        return bodyBuffer != null ? !bodyBuffer.isEmpty() : !StringUtils.isEmpty(body);
+    }
+
+    private OgcXmlSniffer getSniffedBody() throws IOException {
+        if (sniffedBody == null) {
+            if (bodyBuffer != null) {
+                try (Reader reader = bodyBuffer.openReader(charset)) {
+                    sniffedBody = OgcXmlSniffer.sniff(reader);
+                }
+            } else {
+                sniffedBody = OgcXmlSniffer.sniff(body);
+            }
+        }
+        return sniffedBody;
+    }
+
+    /**
+     * Returns the parsed body of the request. The DOM is built on first access
+     * only, reading the OGC values of the request doesn't require it.
+     *
+     * @return The parsed body of the request or null if the request contains no body
+     * @throws IOException If the body is no valid XML
+     */
+    public Document getDocument() throws IOException {
+        if (document == null && hasBody()) {
+            if (bodyBuffer != null) {
+                try (Reader reader = bodyBuffer.openReader(charset)) {
+                    document = OgcXmlUtil.getDocumentFromReader(reader);
+                }
+            } else {
+                document = OgcXmlUtil.getDocumentFromString(body);
+            }
+        }
+        return document;
+    }
+
+    /**
+     * @return The requested service or an empty string
+     * @throws IOException
+     * @throws InterceptorException
+     */
+    public String getService() throws IOException, InterceptorException {
+        if (service == null) {
+            service = getParameterValue(SERVICE_KEY);
+        }
+        return service;
+    }
+
+    /**
+     * @return The requested operation or an empty string
+     * @throws IOException
+     * @throws InterceptorException
+     */
+    public String getOperation() throws IOException, InterceptorException {
+        if (operation == null) {
+            operation = getParameterValue(OPERATION_KEY);
+        }
+        return operation;
+    }
+
+    /**
+     * @return The requested endPoint (layer, typeName, coverage etc.) or an empty string
+     * @throws IOException
+     * @throws InterceptorException
+     */
+    public String getEndPoint() throws IOException, InterceptorException {
+        if (endPoint == null) {
+            endPoint = getParameterValue(END_POINT_KEYS);
+        }
+        return endPoint;
+    }
+
+    /**
+     * @return The requested endPoints, e.g. all requested layers
+     * @throws IOException
+     * @throws InterceptorException
+     */
+    public List<String> getEndPoints() throws IOException, InterceptorException {
+        String value = getEndPoint();
+        if (StringUtils.isEmpty(value)) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(StringUtils.split(value, ","));
+    }
+
+    /**
+     * @return Whether the WMS reflector endpoint should be used
+     */
+    public boolean isUseReflect() {
+        return Boolean.parseBoolean(parameters.get(USE_REFLECT_PARAM));
+    }
+
+    /**
+     * @return The value of the BBOX parameter or null
+     */
+    public String getBbox() {
+        return parameters.get(BBOX_PARAM);
+    }
+
+    /**
+     * @param keys The parameter names to check in order
+     * @return The first non empty value of the given parameters
+     * @throws IOException
+     * @throws InterceptorException
+     */
+    public String getParameterValue(String[] keys) throws IOException, InterceptorException {
+        String value = StringUtils.EMPTY;
+
+        for (String key : keys) {
+            value = getParameterValue(key);
+            if (StringUtils.isNotEmpty(value)) {
+                break;
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * @param parameter The parameter name (case insensitive)
+     * @return The value of the given parameter or an empty string
+     * @throws IOException
+     * @throws InterceptorException
+     */
+    public String getParameterValue(String parameter) throws IOException, InterceptorException {
+        LOG.trace("Finding the request parameter [" + parameter + "]");
+
+        String value = StringUtils.EMPTY;
+
+        if (!isBodyRequest()) {
+            value = parameters.getOrDefault(parameter, StringUtils.EMPTY);
+        } else if (hasBody()) {
+            LOG.trace("The request contains a POST body.");
+
+            // the body is sniffed once, without building a DOM
+            if (parameter.equalsIgnoreCase(SERVICE_KEY)) {
+                value = getSniffedBody().getService();
+            } else if (parameter.equalsIgnoreCase(OPERATION_KEY)) {
+                value = getSniffedBody().getOperation();
+            } else if (Arrays.asList(END_POINT_KEYS).contains(parameter)) {
+                value = getSniffedBody().getEndPoint();
+            }
+        } else {
+            LOG.error("No body found in the request.");
+        }
+
+        LOG.trace("Found the request parameter value: " + value);
+        return value;
+    }
+
+}
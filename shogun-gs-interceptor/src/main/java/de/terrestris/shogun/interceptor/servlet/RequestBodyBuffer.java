@@ -0,0 +1,231 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.servlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The immutable body of a request, held in memory or spilled to a temporary
+ * file. It can be read any number of times without copying it: as stream,
+ * as (read only) {@link ByteBuffer} or decoded with a charset.
+ *
+ * Closing the buffer releases its memory budget or deletes its file. Buffers
+ * not closed explicitly are released once they become unreachable.
+ */
+public final class RequestBodyBuffer implements Closeable {
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    public static final RequestBodyBuffer EMPTY = new RequestBodyBuffer(new byte[0], 0, null, null, 0);
+
+    private final byte[] bytes;
+
+    private final int length;
+
+    private final Path file;
+
+    private final long size;
+
+    private final Cleaner.Cleanable cleanable;
+
+    /**
+     * The last decoded view of an in-memory body (and its charset).
+     */
+    private volatile DecodedBody decoded;
+
+    private RequestBodyBuffer(byte[] bytes, int length, Path file, RequestBodyBufferAllocator allocator, long reserved) {
+        this.bytes = bytes;
+        this.length = length;
+        this.file = file;
+        this.size = file != null ? reserved : length;
+        this.cleanable = allocator != null || file != null ?
+            CLEANER.register(this, new Release(allocator, file != null ? 0 : reserved, file)) : null;
+    }
+
+    /**
+     * @param bytes The body (not copied, must not be modified afterwards)
+     * @return A buffer holding the given bytes in memory (outside of any memory budget)
+     */
+    public static RequestBodyBuffer of(byte[] bytes) {
+        return new RequestBodyBuffer(bytes, bytes.length, null, null, 0);
+    }
+
+    /**
+     * @param bytes   The encoded body (not copied, must not be modified afterwards)
+     * @param body    The decoded body
+     * @param charset The charset the body is encoded with
+     * @return A buffer holding the given bytes in memory, whose decoded view is known already
+     */
+    public static RequestBodyBuffer of(byte[] bytes, String body, Charset charset) {
+        RequestBodyBuffer buffer = of(bytes);
+        buffer.decoded = new DecodedBody(charset, body);
+        return buffer;
+    }
+
+    static RequestBodyBuffer inMemory(byte[] bytes, int length, RequestBodyBufferAllocator allocator) {
+        return new RequestBodyBuffer(bytes, length, null, allocator, length);
+    }
+
+    static RequestBodyBuffer spilled(Path file, long size) {
+        return new RequestBodyBuffer(null, 0, file, null, size);
+    }
+
+    /**
+     * @return The size of the body in bytes
+     */
+    public long size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return Whether the body has been spilled to a temporary file
+     */
+    public boolean isSpilled() {
+        return file != null;
+    }
+
+    /**
+     * @return A new stream reading the body from the start
+     * @throws IOException If a spilled body could not be opened
+     */
+    public InputStream openStream() throws IOException {
+        if (file != null) {
+            return Files.newInputStream(file);
+        }
+        return new ByteArrayInputStream(bytes, 0, length);
+    }
+
+    /**
+     * @return A read only view of the body, spilled bodies are memory mapped
+     * @throws IOException If a spilled body could not be mapped
+     */
+    public ByteBuffer asByteBuffer() throws IOException {
+        if (file != null) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+        }
+        return ByteBuffer.wrap(bytes, 0, length).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * @param charset The charset to decode the body with
+     * @return A new reader decoding the body from the start
+     * @throws IOException If a spilled body could not be opened
+     */
+    public Reader openReader(Charset charset) throws IOException {
+        return new InputStreamReader(openStream(), charset);
+    }
+
+    /**
+     * Decodes the body with the given charset. The result is kept for bodies
+     * held in memory, so decoding them repeatedly with the same charset doesn't
+     * copy them again. Spilled bodies are decoded on every call, prefer
+     * {@link #openReader(Charset)} for them.
+     *
+     * @param charset The charset to decode the body with
+     * @return The decoded body
+     * @throws IOException If a spilled body could not be read
+     */
+    public String toString(Charset charset) throws IOException {
+        DecodedBody current = decoded;
+        if (current != null && current.charset.equals(charset)) {
+            return current.body;
+        }
+
+        if (file != null) {
+            // not kept, the decoded view isn't covered by any memory budget
+            return new String(Files.readAllBytes(file), charset);
+        }
+
+        String body = new String(bytes, 0, length, charset);
+        decoded = new DecodedBody(charset, body);
+        return body;
+    }
+
+    /**
+     * Releases the memory budget or deletes the file of this buffer. The
+     * buffer must not be read afterwards.
+     */
+    @Override
+    public void close() {
+        if (cleanable != null) {
+            cleanable.clean();
+        }
+    }
+
+    private static final class DecodedBody {
+
+        private final Charset charset;
+
+        private final String body;
+
+        private DecodedBody(Charset charset, String body) {
+            this.charset = charset;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Releases the resources of a buffer, must not reference the buffer itself.
+     */
+    private static final class Release implements Runnable {
+
+        private final RequestBodyBufferAllocator allocator;
+
+        private final long reserved;
+
+        private final Path file;
+
+        private Release(RequestBodyBufferAllocator allocator, long reserved, Path file) {
+            this.allocator = allocator;
+            this.reserved = reserved;
+            this.file = file;
+        }
+
+        @Override
+        public void run() {
+            if (allocator != null && reserved > 0) {
+                allocator.release(reserved);
+            }
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    // the spill directory is cleaned up on startup
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,219 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.servlet;
+
+import de.terrestris.shogun.interceptor.config.properties.BodyBufferProperties;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reads request bodies into {@link RequestBodyBuffer}s. Bodies up to the memory
+ * threshold are held in memory as long as the memory budget shared by all
+ * buffers isn't exhausted, all other bodies are spilled to temporary files.
+ * Bodies exceeding the maximum size are rejected.
+ */
+@Log4j2
+public class RequestBodyBufferAllocator {
+
+    public static final RequestBodyBufferAllocator DEFAULT = new RequestBodyBufferAllocator(new BodyBufferProperties());
+
+    private static final String SPILL_FILE_PREFIX = "body-";
+
+    private static final String SPILL_FILE_SUFFIX = ".body";
+
+    private static final int INITIAL_CAPACITY = 8192;
+
+    private static final byte[] NO_BYTES = new byte[0];
+
+    private final BodyBufferProperties properties;
+
+    private final AtomicLong memoryBytes = new AtomicLong();
+
+    private final LongAdder spills = new LongAdder();
+
+    private final LongAdder rejections = new LongAdder();
+
+    private Path spillDirectory;
+
+    public RequestBodyBufferAllocator(BodyBufferProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Creates the configured spill directory and removes the files of a previous run.
+     */
+    public void init() {
+        if (StringUtils.isEmpty(properties.getSpillDirectory())) {
+            return;
+        }
+
+        try {
+            Path directory = Paths.get(properties.getSpillDirectory());
+            Files.createDirectories(directory);
+
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                SPILL_FILE_PREFIX + "*" + SPILL_FILE_SUFFIX)) {
+                for (Path file : files) {
+                    Files.deleteIfExists(file);
+                }
+            }
+
+            spillDirectory = directory;
+        } catch (IOException e) {
+            log.error("Could not use {} as spill directory for request bodies, using the temporary " +
+                "directory instead: {}", properties.getSpillDirectory(), e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the given stream completely. The memory budget is reserved before
+     * the buffer is allocated (for the announced length if known) and whenever
+     * the buffer grows, so bodies exceeding the budget are spilled without
+     * allocating their bytes first.
+     *
+     * @param in            The stream to read
+     * @param contentLength The announced length of the stream or -1 if unknown
+     * @return The buffered body
+     * @throws RequestBodyTooLargeException If the body exceeds the maximum size
+     * @throws IOException                  If the stream could not be read
+     */
+    public RequestBodyBuffer read(InputStream in, long contentLength) throws IOException {
+        if (contentLength > properties.getMaxSize()) {
+            rejections.increment();
+            throw new RequestBodyTooLargeException(properties.getMaxSize());
+        }
+
+        int threshold = (int) Math.min(properties.getMemoryThreshold(), properties.getMaxSize());
+        if (contentLength > threshold) {
+            return spill(NO_BYTES, 0, in);
+        }
+
+        int capacity = contentLength >= 0 ? (int) contentLength + 1 : Math.min(INITIAL_CAPACITY, threshold + 1);
+        if (!reserve(capacity)) {
+            return spill(NO_BYTES, 0, in);
+        }
+
+        long reserved = capacity;
+        byte[] bytes = new byte[capacity];
+        int length = 0;
+
+        try {
+            while (true) {
+                if (length == bytes.length) {
+                    int grownCapacity = (int) Math.min((long) length * 2, threshold + 1L);
+                    if (length > threshold || !reserve(grownCapacity - reserved)) {
+                        release(reserved);
+                        reserved = 0;
+                        return spill(bytes, length, in);
+                    }
+                    reserved = grownCapacity;
+                    bytes = Arrays.copyOf(bytes, grownCapacity);
+                }
+                int read = in.read(bytes, length, bytes.length - length);
+                if (read < 0) {
+                    break;
+                }
+                length += read;
+            }
+        } catch (IOException | RuntimeException e) {
+            release(reserved);
+            throw e;
+        }
+
+        // the buffer keeps the budget of its length only
+        release(reserved - length);
+
+        if (length == 0) {
+            return RequestBodyBuffer.EMPTY;
+        }
+
+        return RequestBodyBuffer.inMemory(bytes, length, this);
+    }
+
+    /**
+     * Writes the given bytes and the rest of the given stream to a temporary file.
+     */
+    private RequestBodyBuffer spill(byte[] bytes, int length, InputStream in) throws IOException {
+        Path file = spillDirectory != null ?
+            Files.createTempFile(spillDirectory, SPILL_FILE_PREFIX, SPILL_FILE_SUFFIX) :
+            Files.createTempFile(SPILL_FILE_PREFIX, SPILL_FILE_SUFFIX);
+
+        long size = length;
+        try (OutputStream out = Files.newOutputStream(file)) {
+            out.write(bytes, 0, length);
+
+            byte[] chunk = new byte[INITIAL_CAPACITY];
+            int read;
+            while ((read = in.read(chunk)) >= 0) {
+                size += read;
+                if (size > properties.getMaxSize()) {
+                    rejections.increment();
+                    throw new RequestBodyTooLargeException(properties.getMaxSize());
+                }
+                out.write(chunk, 0, read);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+
+        spills.increment();
+        log.trace("Spilled request body of {} bytes to {}", size, file);
+
+        return RequestBodyBuffer.spilled(file, size);
+    }
+
+    private boolean reserve(long size) {
+        long current;
+        do {
+            current = memoryBytes.get();
+            if (current + size > properties.getMaxMemory()) {
+                return false;
+            }
+        } while (!memoryBytes.compareAndSet(current, current + size));
+        return true;
+    }
+
+    void release(long size) {
+        memoryBytes.addAndGet(-size);
+    }
+
+    /**
+     * @return The memory held by request bodies and the number of spilled and rejected bodies
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("memoryBytes", memoryBytes.get());
+        statistics.put("spills", spills.sum());
+        statistics.put("rejections", rejections.sum());
+        return statistics;
+    }
+
+}
@@ -0,0 +1,39 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.servlet;
+
+import lombok.Getter;
+
+import java.io.IOException;
+
+/**
+ * Thrown if a request body exceeds the maximum size of a {@link RequestBodyBuffer}.
+ */
+@Getter
+public class RequestBodyTooLargeException extends IOException {
+
+    /**
+     * The maximum size of a request body in bytes.
+     */
+    private final long maxSize;
+
+    public RequestBodyTooLargeException(long maxSize) {
+        super("The request body exceeds the maximum size of " + maxSize + " bytes");
+        this.maxSize = maxSize;
+    }
+
+}
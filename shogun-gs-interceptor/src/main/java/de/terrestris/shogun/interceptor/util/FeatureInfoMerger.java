@@ -0,0 +1,218 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.terrestris.shogun.interceptor.exception.InterceptorException;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.MediaType;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Merges the responses of partial WMS GetFeatureInfo requests into a single
+ * response of the same format.
+ */
+public class FeatureInfoMerger {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final Pattern HTML_BODY_PATTERN = Pattern.compile("<body[^>]*>(.*)</body>",
+        Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private enum Format {
+        JSON,
+        GML,
+        HTML,
+        TEXT
+    }
+
+    /**
+     * @param infoFormat The requested INFO_FORMAT
+     * @return Whether responses of the given format can be merged
+     */
+    public static boolean isSupportedFormat(String infoFormat) {
+        return getFormat(infoFormat) != null;
+    }
+
+    private static Format getFormat(String infoFormat) {
+        if (StringUtils.isEmpty(infoFormat)) {
+            return null;
+        }
+        String format = infoFormat.toLowerCase();
+        if (format.startsWith("application/json") || format.startsWith("application/geojson")) {
+            return Format.JSON;
+        } else if (format.contains("gml") || format.startsWith("text/xml") || format.startsWith("application/xml")) {
+            return Format.GML;
+        } else if (format.startsWith("text/html")) {
+            return Format.HTML;
+        } else if (format.startsWith("text/plain")) {
+            return Format.TEXT;
+        }
+        return null;
+    }
+
+    /**
+     * @param bodies      The partial responses in request order
+     * @param infoFormat  The requested INFO_FORMAT
+     * @param contentType The content type of the partial responses (for the charset), may be null
+     * @return The merged response
+     * @throws InterceptorException If a partial response can't be parsed
+     */
+    public static byte[] merge(List<byte[]> bodies, String infoFormat, MediaType contentType) throws InterceptorException {
+        if (bodies.size() == 1) {
+            return bodies.get(0);
+        }
+
+        Format format = getFormat(infoFormat);
+        if (format == null) {
+            throw new InterceptorException("Can't merge GetFeatureInfo responses of format " + infoFormat);
+        }
+
+        Charset charset = contentType != null && contentType.getCharset() != null ?
+            contentType.getCharset() : StandardCharsets.UTF_8;
+
+        try {
+            switch (format) {
+                case JSON:
+                    return mergeFeatureCollections(bodies);
+                case GML:
+                    return mergeXmlDocuments(bodies);
+                case HTML:
+                    return mergeHtmlDocuments(bodies, charset);
+                case TEXT:
+                default:
+                    return mergeText(bodies, charset);
+            }
+        } catch (IOException | SAXException | TransformerException e) {
+            throw new InterceptorException("Error while merging the GetFeatureInfo responses: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Appends the features of all GeoJSON feature collections to the first one.
+     */
+    private static byte[] mergeFeatureCollections(List<byte[]> bodies) throws IOException {
+        ObjectNode result = null;
+        ArrayNode features = null;
+        long numberReturned = 0;
+
+        for (byte[] body : bodies) {
+            JsonNode collection = OBJECT_MAPPER.readTree(body);
+            if (!collection.isObject()) {
+                throw new IOException("Not a GeoJSON object");
+            }
+            JsonNode collectionFeatures = collection.path("features");
+
+            if (result == null) {
+                result = (ObjectNode) collection;
+                features = collectionFeatures.isArray() ? (ArrayNode) collectionFeatures : result.putArray("features");
+            } else if (collectionFeatures.isArray()) {
+                features.addAll((ArrayNode) collectionFeatures);
+            }
+            numberReturned += collectionFeatures.size();
+        }
+
+        if (result.path("numberReturned").isNumber()) {
+            result.put("numberReturned", numberReturned);
+        }
+        if (result.path("totalFeatures").isNumber()) {
+            result.put("totalFeatures", numberReturned);
+        }
+
+        return OBJECT_MAPPER.writeValueAsBytes(result);
+    }
+
+    /**
+     * Appends the feature members (all children of the root element but the
+     * bounding box) of all documents to the first one.
+     */
+    private static byte[] mergeXmlDocuments(List<byte[]> bodies) throws IOException, SAXException, TransformerException {
+        Document result = null;
+
+        for (byte[] body : bodies) {
+            Document document = OgcXmlUtil.getDocumentBuilder().parse(new ByteArrayInputStream(body));
+            if (result == null) {
+                result = document;
+                continue;
+            }
+
+            Element root = result.getDocumentElement();
+            for (Node child = document.getDocumentElement().getFirstChild(); child != null; child = child.getNextSibling()) {
+                if (child.getNodeType() == Node.ELEMENT_NODE && !child.getNodeName().endsWith("boundedBy")) {
+                    root.appendChild(result.importNode(child, true));
+                }
+            }
+        }
+
+        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+            OgcXmlUtil.getTransformer().transform(new DOMSource(result), new StreamResult(outputStream));
+            return outputStream.toByteArray();
+        }
+    }
+
+    /**
+     * Inserts the body contents of all documents into the body of the first one.
+     */
+    private static byte[] mergeHtmlDocuments(List<byte[]> bodies, Charset charset) {
+        String first = new String(bodies.get(0), charset);
+        int insertAt = StringUtils.lastIndexOfIgnoreCase(first, "</body>");
+        if (insertAt < 0) {
+            return mergeText(bodies, charset);
+        }
+
+        StringBuilder builder = new StringBuilder(first.length() * bodies.size());
+        builder.append(first, 0, insertAt);
+        for (byte[] body : bodies.subList(1, bodies.size())) {
+            String html = new String(body, charset);
+            Matcher matcher = HTML_BODY_PATTERN.matcher(html);
+            builder.append(matcher.find() ? matcher.group(1) : html);
+        }
+        builder.append(first, insertAt, first.length());
+
+        return builder.toString().getBytes(charset);
+    }
+
+    private static byte[] mergeText(List<byte[]> bodies, Charset charset) {
+        StringBuilder builder = new StringBuilder();
+        for (byte[] body : bodies) {
+            if (builder.length() > 0 && builder.charAt(builder.length() - 1) != '\n') {
+                builder.append('\n');
+            }
+            builder.append(new String(body, charset));
+        }
+        return builder.toString().getBytes(charset);
+    }
+
+}
@@ -0,0 +1,184 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.util;
+
+import lombok.Getter;
+import lombok.ToString;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Reads the service, operation and endPoint (typeName, coverage identifier)
+ * of an OGC XML request body with a StAX reader, without building a DOM.
+ *
+ * The service and operation are taken from the root element. The endPoint is
+ * the text of the first {@code TypeName}, {@code TypeNames} or
+ * {@code GetCoverage/Identifier} element, or the first {@code typeName} or
+ * {@code typeNames} attribute if no such element exists. Reading stops as soon
+ * as the first matching element has been found.
+ */
+@Getter
+@ToString
+public class OgcXmlSniffer {
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
+    /**
+     * The service attribute of the root element, e.g. WFS.
+     */
+    private String service = StringUtils.EMPTY;
+
+    /**
+     * The local name of the root element, e.g. GetFeature.
+     */
+    private String operation = StringUtils.EMPTY;
+
+    /**
+     * The requested endPoint, e.g. SHOGUN:SHINJI.
+     */
+    private String endPoint = StringUtils.EMPTY;
+
+    private OgcXmlSniffer() {
+    }
+
+    private static XMLInputFactory createXmlInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /**
+     * @param xml The request body
+     * @return The sniffed values
+     * @throws IOException If the body is no valid XML
+     */
+    public static OgcXmlSniffer sniff(String xml) throws IOException {
+        return sniff(new StringReader(xml));
+    }
+
+    /**
+     * Reads the given body up to the first element containing the endPoint.
+     * The given reader is not closed.
+     *
+     * @param body The request body
+     * @return The sniffed values
+     * @throws IOException If the body is no valid XML or could not be read
+     */
+    public static OgcXmlSniffer sniff(Reader body) throws IOException {
+        OgcXmlSniffer result = new OgcXmlSniffer();
+
+        XMLStreamReader reader = null;
+        try {
+            reader = XML_INPUT_FACTORY.createXMLStreamReader(body);
+
+            String attributeEndPoint = null;
+            Deque<String> parents = new ArrayDeque<>();
+
+            while (reader.hasNext()) {
+                int event = reader.next();
+
+                if (event == XMLStreamConstants.END_ELEMENT) {
+                    parents.pop();
+                    continue;
+                }
+                if (event != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+
+                String localName = reader.getLocalName();
+
+                if (parents.isEmpty()) {
+                    result.operation = localName;
+                    result.service = StringUtils.defaultString(getAttribute(reader, "service"));
+                }
+
+                if ("TypeName".equals(localName) || "TypeNames".equals(localName) ||
+                    ("Identifier".equals(localName) && "GetCoverage".equals(parents.peek()))) {
+                    result.endPoint = readText(reader);
+                    return result;
+                }
+
+                if (attributeEndPoint == null) {
+                    attributeEndPoint = getAttribute(reader, "typeName");
+                    if (attributeEndPoint == null) {
+                        attributeEndPoint = getAttribute(reader, "typeNames");
+                    }
+                }
+
+                parents.push(localName);
+            }
+
+            result.endPoint = StringUtils.defaultString(attributeEndPoint);
+            return result;
+        } catch (XMLStreamException e) {
+            throw new IOException("Could not parse input body " +
+                "as XML: " + e.getMessage());
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    // the underlying reader is closed by the caller
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the value of the (non namespaced) attribute with the given name.
+     */
+    private static String getAttribute(XMLStreamReader reader, String name) {
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String namespace = reader.getAttributeNamespace(i);
+            if ((namespace == null || XMLConstants.NULL_NS_URI.equals(namespace)) &&
+                name.equals(reader.getAttributeLocalName(i))) {
+                return reader.getAttributeValue(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the first text of the current element (the equivalent of {@code text()}).
+     */
+    private static String readText(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+                return reader.getText();
+            }
+            if (event == XMLStreamConstants.START_ELEMENT || event == XMLStreamConstants.END_ELEMENT) {
+                break;
+            }
+        }
+        return StringUtils.EMPTY;
+    }
+
+}
@@ -17,6 +17,7 @@
 package de.terrestris.shogun.interceptor.util;
 
 import de.terrestris.shogun.interceptor.exception.InterceptorException;
+import de.terrestris.shogun.interceptor.exception.OgcServiceException;
 import de.terrestris.shogun.interceptor.servlet.MutableHttpServletRequest;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.Logger;
@@ -29,11 +30,14 @@ import org.xml.sax.SAXException;
 
 import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletRequest;
+import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.Result;
 import javax.xml.transform.Source;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
@@ -41,9 +45,20 @@ import javax.xml.transform.stream.StreamResult;
 import javax.xml.xpath.*;
 import java.io.*;
 import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import static org.apache.logging.log4j.LogManager.getLogger;
 
+/**
+ * XML helpers for the interceptor. The JAXP factories are created once, the
+ * (not thread safe) document builders, transformers, XPath instances and
+ * compiled XPath expressions are held per thread and reused. Custom
+ * interceptors should use {@link #getDocumentBuilder()}, {@link #getTransformer()}
+ * and {@link #compileXPath(String)} instead of creating their own instances.
+ *
+ * External entities, external DTDs and stylesheets are not resolved.
+ */
 public class OgcXmlUtil {
 
     /**
@@ -56,22 +71,141 @@ public class OgcXmlUtil {
      */
     private static final String DEFAULT_CHARSET = "UTF-8";
 
+    /**
+     * The maximum number of compiled XPath expressions cached per thread.
+     */
+    private static final int XPATH_CACHE_SIZE = 256;
+
+    private static final String OGC_NAMESPACE = "http://www.opengis.net/ogc";
+
+    private static final DocumentBuilderFactory DOCUMENT_BUILDER_FACTORY = createDocumentBuilderFactory();
+
+    private static final TransformerFactory TRANSFORMER_FACTORY = createTransformerFactory();
+
+    private static final XPathFactory XPATH_FACTORY = XPathFactory.newInstance();
+
+    private static final ThreadLocal<DocumentBuilder> DOCUMENT_BUILDER = ThreadLocal.withInitial(() -> {
+        try {
+            return DOCUMENT_BUILDER_FACTORY.newDocumentBuilder();
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException("Could not create a document builder: " + e.getMessage(), e);
+        }
+    });
+
+    private static final ThreadLocal<Transformer> TRANSFORMER = ThreadLocal.withInitial(() -> {
+        try {
+            return TRANSFORMER_FACTORY.newTransformer();
+        } catch (TransformerConfigurationException e) {
+            throw new IllegalStateException("Could not create a transformer: " + e.getMessage(), e);
+        }
+    });
+
+    private static final ThreadLocal<XPath> XPATH = ThreadLocal.withInitial(XPATH_FACTORY::newXPath);
+
+    private static final ThreadLocal<Map<String, XPathExpression>> XPATH_EXPRESSIONS = ThreadLocal.withInitial(() ->
+        new LinkedHashMap<String, XPathExpression>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, XPathExpression> eldest) {
+                return size() > XPATH_CACHE_SIZE;
+            }
+        });
+
+    private static DocumentBuilderFactory createDocumentBuilderFactory() {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        setFeature(factory, XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        setFeature(factory, "http://xml.org/sax/features/external-general-entities", false);
+        setFeature(factory, "http://xml.org/sax/features/external-parameter-entities", false);
+        setFeature(factory, "http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        factory.setXIncludeAware(false);
+        factory.setExpandEntityReferences(false);
+        return factory;
+    }
+
+    private static void setFeature(DocumentBuilderFactory factory, String feature, boolean value) {
+        try {
+            factory.setFeature(feature, value);
+        } catch (ParserConfigurationException e) {
+            LOG.warn("XML parser feature " + feature + " is not supported: " + e.getMessage());
+        }
+    }
+
+    private static TransformerFactory createTransformerFactory() {
+        TransformerFactory factory = TransformerFactory.newInstance();
+        try {
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+            factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_STYLESHEET, "");
+        } catch (TransformerConfigurationException | IllegalArgumentException e) {
+            LOG.warn("Could not apply secure defaults to the transformer factory: " + e.getMessage());
+        }
+        return factory;
+    }
+
+    /**
+     * @return The (reset) document builder of the current thread. Must not be
+     * shared with other threads.
+     */
+    public static DocumentBuilder getDocumentBuilder() {
+        DocumentBuilder builder = DOCUMENT_BUILDER.get();
+        builder.reset();
+        return builder;
+    }
+
+    /**
+     * @return The (reset) transformer of the current thread. Must not be
+     * shared with other threads.
+     */
+    public static Transformer getTransformer() {
+        Transformer transformer = TRANSFORMER.get();
+        transformer.reset();
+        return transformer;
+    }
+
+    /**
+     * @return The (reset) XPath instance of the current thread. Must not be
+     * shared with other threads.
+     */
+    public static XPath getXPath() {
+        XPath xPath = XPATH.get();
+        xPath.reset();
+        return xPath;
+    }
+
+    /**
+     * Returns the compiled expression for the given path. Compiled expressions
+     * are cached per thread and must not be shared with other threads.
+     *
+     * @param path The XPath expression
+     * @return The compiled expression
+     * @throws XPathExpressionException If the expression is invalid
+     */
+    public static XPathExpression compileXPath(String path) throws XPathExpressionException {
+        Map<String, XPathExpression> expressions = XPATH_EXPRESSIONS.get();
+        XPathExpression expression = expressions.get(path);
+        if (expression == null) {
+            expression = getXPath().compile(path);
+            expressions.put(path, expression);
+        }
+        return expression;
+    }
+
     /**
      * @param request
      * @return
      */
     public static String getRequestBody(HttpServletRequest request) {
-        try (
-            ServletInputStream in = request.getInputStream();
-        ) {
-            String encoding = request.getCharacterEncoding();
-            Charset charset;
-            if (!StringUtils.isEmpty(encoding)) {
-                charset = Charset.forName(encoding);
-            } else {
-                charset = Charset.forName(DEFAULT_CHARSET);
+        Charset charset = getRequestCharset(request);
+
+        try {
+            if (request instanceof MutableHttpServletRequest) {
+                // decoded only once per body
+                return ((MutableHttpServletRequest) request).getBodyBuffer().toString(charset);
+            }
+            try (
+                ServletInputStream in = request.getInputStream();
+            ) {
+                return StreamUtils.copyToString(in, charset);
             }
-            return StreamUtils.copyToString(in, charset);
         } catch (IOException e) {
             LOG.error("Could not read the InputStream as String: " +
                 e.getMessage());
@@ -79,19 +213,35 @@ public class OgcXmlUtil {
         return null;
     }
 
+    /**
+     * @param request
+     * @return The charset of the request body (UTF-8 if not given)
+     */
+    public static Charset getRequestCharset(HttpServletRequest request) {
+        String encoding = request.getCharacterEncoding();
+        return Charset.forName(!StringUtils.isEmpty(encoding) ? encoding : DEFAULT_CHARSET);
+    }
+
     /**
      * @param xml
      * @return
      * @throws IOException
      */
     public static Document getDocumentFromString(String xml) throws IOException {
+        return getDocumentFromReader(new StringReader(xml));
+    }
+
+    /**
+     * @param xml The XML to parse, not closed
+     * @return
+     * @throws IOException
+     */
+    public static Document getDocumentFromReader(Reader xml) throws IOException {
         Document document;
         try {
-            InputSource source = new InputSource(new StringReader(xml));
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            document = builder.parse(source);
-        } catch (ParserConfigurationException | SAXException | IOException e) {
+            InputSource source = new InputSource(xml);
+            document = getDocumentBuilder().parse(source);
+        } catch (SAXException | IOException e) {
             throw new IOException("Could not parse input body " +
                 "as XML: " + e.getMessage());
         }
@@ -118,9 +268,7 @@ public class OgcXmlUtil {
         String result;
 
         try {
-            XPathFactory xPathfactory = XPathFactory.newInstance();
-            XPath xpath = xPathfactory.newXPath();
-            XPathExpression expr = xpath.compile(path);
+            XPathExpression expr = compileXPath(path);
             result = expr.evaluate(document, XPathConstants.STRING).toString();
         } catch (XPathExpressionException e) {
             throw new InterceptorException("Error while selecting document " +
@@ -148,9 +296,7 @@ public class OgcXmlUtil {
         NodeList result;
 
         try {
-            XPathFactory xPathfactory = XPathFactory.newInstance();
-            XPath xpath = xPathfactory.newXPath();
-            XPathExpression expr = xpath.compile(path);
+            XPathExpression expr = compileXPath(path);
             result = (NodeList) expr.evaluate(document, XPathConstants.NODESET);
         } catch (XPathExpressionException e) {
             throw new InterceptorException("Error while selecting document " +
@@ -192,11 +338,9 @@ public class OgcXmlUtil {
             ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
         ) {
             Result outputTarget = new StreamResult(outputStream);
-            TransformerFactory.newInstance().newTransformer().transform(xmlSource, outputTarget);
+            getTransformer().transform(xmlSource, outputTarget);
 
-            try (InputStream is = new ByteArrayInputStream(outputStream.toByteArray())) {
-                request.setInputStream(is);
-            }
+            request.setInputStream(outputStream.toByteArray());
             return request;
         } catch (TransformerException | IOException e) {
             LOG.error("Error on trying to parse an xml body.");
@@ -205,4 +349,30 @@ public class OgcXmlUtil {
         return null;
     }
 
+    /**
+     * Creates an OGC ServiceExceptionReport for the given exception.
+     *
+     * @param exception The exception to report
+     * @return The UTF-8 encoded report
+     */
+    public static byte[] getServiceExceptionReport(OgcServiceException exception) {
+        Document doc = getDocumentBuilder().newDocument();
+        Element report = doc.createElementNS(OGC_NAMESPACE, "ServiceExceptionReport");
+        report.setAttribute("version", "1.3.0");
+        Element serviceException = doc.createElementNS(OGC_NAMESPACE, "ServiceException");
+        serviceException.setAttribute("code", exception.getExceptionCode());
+        serviceException.setTextContent(exception.getMessage());
+        report.appendChild(serviceException);
+        doc.appendChild(report);
+
+        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+            getTransformer().transform(new DOMSource(doc), new StreamResult(outputStream));
+            return outputStream.toByteArray();
+        } catch (TransformerException | IOException e) {
+            LOG.error("Error while creating a ServiceExceptionReport: " + e.getMessage());
+            LOG.trace("Stack trace:", e);
+            return new byte[0];
+        }
+    }
+
 }
@@ -0,0 +1,118 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.util;
+
+import de.terrestris.shogun.interceptor.exception.InterceptorException;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.Logger;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.apache.logging.log4j.LogManager.getLogger;
+
+/**
+ * Composites the images of partial WMS GetMap responses into a single image.
+ */
+public class WmsImageCompositor {
+
+    private static final Logger LOG = getLogger(WmsImageCompositor.class);
+
+    public static final String PNG_FORMAT = "image/png";
+
+    public static final String JPEG_FORMAT = "image/jpeg";
+
+    /**
+     * @param format The requested image format (FORMAT parameter)
+     * @return Whether images of the given format can be composited
+     */
+    public static boolean isSupportedFormat(String format) {
+        return PNG_FORMAT.equalsIgnoreCase(format) || JPEG_FORMAT.equalsIgnoreCase(format);
+    }
+
+    /**
+     * Draws the given images on top of each other (the first image at the bottom).
+     *
+     * @param images      The encoded images in layer order
+     * @param width       The width of the resulting image
+     * @param height      The height of the resulting image
+     * @param format      The format of the resulting image (image/png or image/jpeg)
+     * @param transparent Whether the background of the resulting image should be transparent
+     * @param bgColor     The background color (BGCOLOR parameter, e.g. 0xFFFFFF), white if empty
+     * @return The encoded resulting image
+     * @throws InterceptorException If an image can't be decoded or encoded
+     */
+    public static byte[] composite(List<byte[]> images, int width, int height, String format,
+                                   boolean transparent, String bgColor) throws InterceptorException {
+        boolean png = PNG_FORMAT.equalsIgnoreCase(format);
+        boolean alpha = png && transparent;
+
+        BufferedImage result = new BufferedImage(width, height,
+            alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = result.createGraphics();
+
+        try {
+            if (!alpha) {
+                graphics.setColor(parseColor(bgColor));
+                graphics.fillRect(0, 0, width, height);
+            }
+
+            for (byte[] image : images) {
+                BufferedImage layer = ImageIO.read(new ByteArrayInputStream(image));
+                if (layer == null) {
+                    throw new InterceptorException("Couldn't decode a partial GetMap response");
+                }
+                graphics.drawImage(layer, 0, 0, width, height, null);
+            }
+        } catch (IOException e) {
+            throw new InterceptorException("Couldn't decode a partial GetMap response: " + e.getMessage(), e);
+        } finally {
+            graphics.dispose();
+        }
+
+        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+            if (!ImageIO.write(result, png ? "png" : "jpeg", outputStream)) {
+                throw new InterceptorException("No image writer found for " + format);
+            }
+            return outputStream.toByteArray();
+        } catch (IOException e) {
+            throw new InterceptorException("Couldn't encode the composited GetMap response: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @param bgColor The color as hexadecimal RGB value, e.g. 0xFFFFFF
+     * @return The color or white if the given value is empty or invalid
+     */
+    private static Color parseColor(String bgColor) {
+        if (StringUtils.isEmpty(bgColor)) {
+            return Color.WHITE;
+        }
+        try {
+            return new Color(Integer.parseInt(StringUtils.removeStartIgnoreCase(bgColor, "0x"), 16));
+        } catch (NumberFormatException e) {
+            LOG.debug("Invalid BGCOLOR {}, using white", bgColor);
+            return Color.WHITE;
+        }
+    }
+
+}
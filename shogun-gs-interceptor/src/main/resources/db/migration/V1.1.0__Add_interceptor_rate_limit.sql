@@ -0,0 +1,10 @@
+CREATE TABLE interceptor_rate_limit (
+    id bigint NOT NULL PRIMARY KEY,
+    created timestamp without time zone,
+    modified timestamp without time zone,
+    capacity integer NOT NULL,
+    end_point text,
+    operation text,
+    refill_rate double precision NOT NULL,
+    service text
+);
@@ -0,0 +1,134 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.cache;
+
+import de.terrestris.shogun.interceptor.config.properties.InterceptorProperties;
+import de.terrestris.shogun.lib.dto.HttpResponse;
+import org.apache.http.Header;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InterceptorResponseCacheTest {
+
+    private static final ResponseCacheKey KEY = ResponseCacheKey.builder("SHOGUN").part("uri", "/ows").build();
+
+    private InterceptorResponseCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new InterceptorResponseCache();
+        cache.interceptorProperties = new InterceptorProperties();
+    }
+
+    @Test
+    void getOrLoad_shouldServeCachedResponses() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        InterceptorResponseCache.UpstreamLoader loader = (Header[] conditionalHeaders) -> {
+            loads.incrementAndGet();
+            return response("public, max-age=60");
+        };
+
+        cache.getOrLoad(KEY, loader);
+        cache.getOrLoad(KEY, loader);
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void getOrLoad_shouldNotStoreNoStoreOrPrivateResponses() throws Exception {
+        for (String cacheControl : new String[]{"no-store", "max-age=60, PRIVATE", "private=\"Set-Cookie\""}) {
+            AtomicInteger loads = new AtomicInteger();
+            InterceptorResponseCache.UpstreamLoader loader = (Header[] conditionalHeaders) -> {
+                loads.incrementAndGet();
+                return response(cacheControl);
+            };
+
+            cache.getOrLoad(KEY, loader);
+            cache.getOrLoad(KEY, loader);
+
+            assertEquals(2, loads.get(), cacheControl);
+        }
+    }
+
+    @Test
+    void getOrLoad_shouldKeepTheSpillFileOfARevalidatedResponse(@TempDir Path spillDirectory) throws Exception {
+        // spill every response and revalidate it on every request
+        cache.interceptorProperties.getCache().setEnabled(true);
+        cache.interceptorProperties.getCache().setSpillDirectory(spillDirectory.toString());
+        cache.interceptorProperties.getCache().setMaxBytes(1);
+        cache.interceptorProperties.getCache().setTtl(-1);
+        cache.init();
+
+        AtomicInteger loads = new AtomicInteger();
+        AtomicInteger revalidations = new AtomicInteger();
+        InterceptorResponseCache.UpstreamLoader loader = (Header[] conditionalHeaders) -> {
+            if (conditionalHeaders.length > 0) {
+                revalidations.incrementAndGet();
+                return new HttpResponse(HttpStatus.NOT_MODIFIED, new HttpHeaders(), null);
+            }
+            loads.incrementAndGet();
+            HttpResponse response = response(null);
+            response.getHeaders().setETag("\"1\"");
+            return response;
+        };
+
+        cache.getOrLoad(KEY, loader);
+        assertEquals(1, cache.getStatistics().get("diskEntries"));
+
+        HttpResponse revalidated = cache.getOrLoad(KEY, loader);
+        HttpResponse readAgain = cache.getOrLoad(KEY, loader);
+
+        // the spilled body is still readable after the revalidation
+        assertEquals(1, loads.get());
+        assertEquals(2, revalidations.get());
+        assertArrayEquals("<a/>".getBytes(StandardCharsets.UTF_8), revalidated.getBody());
+        assertArrayEquals("<a/>".getBytes(StandardCharsets.UTF_8), readAgain.getBody());
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void isStorable_shouldAllowResponsesWithoutCacheControl() {
+        assertTrue(InterceptorResponseCache.isStorable(response(null)));
+        assertTrue(InterceptorResponseCache.isStorable(response("no-cache")));
+        assertFalse(InterceptorResponseCache.isStorable(response("no-store")));
+    }
+
+    private static HttpResponse response(String cacheControl) {
+        HttpHeaders headers = new HttpHeaders();
+        if (cacheControl != null) {
+            headers.setCacheControl(cacheControl);
+        }
+        return new HttpResponse(HttpStatus.OK, headers, "<a/>".getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,87 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.cache;
+
+import de.terrestris.shogun.interceptor.servlet.RequestBodyBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class ResponseCacheKeyTest {
+
+    @Test
+    void build_shouldIgnoreTheOrderOfTheParameters() {
+        Map<String, String[]> parameters = new LinkedHashMap<>();
+        parameters.put("SERVICE", new String[]{"WMS"});
+        parameters.put("REQUEST", new String[]{"GetCapabilities"});
+        parameters.put("VERSION", new String[]{"1.3.0"});
+
+        Map<String, String[]> reordered = new LinkedHashMap<>();
+        reordered.put("version", new String[]{"1.3.0"});
+        reordered.put("service", new String[]{"WMS"});
+        reordered.put("request", new String[]{"GetCapabilities"});
+
+        ResponseCacheKey key = ResponseCacheKey.builder("SHOGUN")
+            .part("method", "GET")
+            .part("uri", "/geoserver/ows")
+            .parameters(parameters)
+            .build();
+        ResponseCacheKey reorderedKey = ResponseCacheKey.builder("shogun")
+            .parameters(reordered)
+            .part("uri", "/geoserver/ows")
+            .part("method", "GET")
+            .build();
+
+        assertEquals(key, reorderedKey);
+    }
+
+    @Test
+    void build_shouldDistinguishParameterValuesAndBodies() {
+        Map<String, String[]> parameters = new LinkedHashMap<>();
+        parameters.put("LAYERS", new String[]{"SHOGUN:a"});
+
+        Map<String, String[]> otherParameters = new LinkedHashMap<>();
+        otherParameters.put("LAYERS", new String[]{"SHOGUN:b"});
+
+        ResponseCacheKey key = ResponseCacheKey.builder("SHOGUN").parameters(parameters).build();
+
+        assertNotEquals(key, ResponseCacheKey.builder("SHOGUN").parameters(otherParameters).build());
+        assertNotEquals(key, ResponseCacheKey.builder("SHOGUN").parameters(parameters).body("<a/>").build());
+    }
+
+    @Test
+    void build_shouldDigestTheBodyBytes() throws IOException {
+        ResponseCacheKey key = ResponseCacheKey.builder("SHOGUN")
+            .body(RequestBodyBuffer.of("<a/>".getBytes(StandardCharsets.UTF_8)))
+            .build();
+
+        assertEquals(key, ResponseCacheKey.builder("SHOGUN")
+            .body(RequestBodyBuffer.of("<a/>".getBytes(StandardCharsets.UTF_8)))
+            .build());
+        assertNotEquals(key, ResponseCacheKey.builder("SHOGUN")
+            .body(RequestBodyBuffer.of("<b/>".getBytes(StandardCharsets.UTF_8)))
+            .build());
+        assertNotEquals(key, ResponseCacheKey.builder("SHOGUN").body(RequestBodyBuffer.EMPTY).build());
+    }
+
+}
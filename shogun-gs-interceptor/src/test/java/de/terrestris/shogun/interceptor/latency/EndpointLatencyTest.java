@@ -0,0 +1,47 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.latency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EndpointLatencyTest {
+
+    @Test
+    void getSnapshot_shouldKeepTheLatenciesOfTheWindow() throws Exception {
+        EndpointLatency latency = new EndpointLatency(TimeUnit.SECONDS.toNanos(4), 4, 50);
+        latency.record(TimeUnit.MILLISECONDS.toNanos(10));
+
+        Thread.sleep(1100);
+
+        assertEquals(1, latency.getSnapshot().getCount());
+    }
+
+    @Test
+    void getSnapshot_shouldDropTheLatenciesOfAnIdleWindow() throws Exception {
+        EndpointLatency latency = new EndpointLatency(TimeUnit.MILLISECONDS.toNanos(200), 4, 50);
+        latency.record(TimeUnit.MILLISECONDS.toNanos(10));
+
+        // more than the whole window elapses before the next roll
+        Thread.sleep(300);
+
+        assertEquals(0, latency.getSnapshot().getCount());
+    }
+}
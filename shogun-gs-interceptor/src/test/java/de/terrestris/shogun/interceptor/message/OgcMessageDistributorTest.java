@@ -0,0 +1,136 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.message;
+
+import de.terrestris.shogun.interceptor.enumeration.InterceptorEnum;
+import de.terrestris.shogun.interceptor.enumeration.OgcEnum;
+import de.terrestris.shogun.interceptor.exception.InterceptorException;
+import de.terrestris.shogun.interceptor.response.ResponseStreamTransformer;
+import de.terrestris.shogun.interceptor.response.StreamingResponseInterceptorInterface;
+import de.terrestris.shogun.interceptor.servlet.MutableHttpServletRequest;
+import de.terrestris.shogun.lib.dto.HttpResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OgcMessageDistributorTest {
+
+    private static final StreamingResponseInterceptorInterface UPPER_CASE_INTERCEPTOR =
+        new StreamingResponseInterceptorInterface() {
+            @Override
+            public boolean supports(OgcMessage message) {
+                return message.isWfsGetFeature();
+            }
+
+            @Override
+            public ResponseStreamTransformer getTransformer(MutableHttpServletRequest request, OgcMessage message,
+                                                            HttpHeaders responseHeaders) {
+                return (in, out) -> out.write(new String(in.readAllBytes(), StandardCharsets.UTF_8)
+                    .toUpperCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8));
+            }
+        };
+
+    private OgcMessageDistributor distributor;
+
+    private ThreadPoolTaskExecutor executor;
+
+    private MutableHttpServletRequest request;
+
+    @BeforeEach
+    void setUp() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.initialize();
+
+        distributor = new OgcMessageDistributor();
+        ReflectionTestUtils.setField(distributor, "streamingExecutor", executor);
+        ReflectionTestUtils.setField(distributor, "streamingResponseInterceptors",
+            Collections.singletonList(UPPER_CASE_INTERCEPTOR));
+
+        request = new MutableHttpServletRequest(new MockHttpServletRequest("GET", "/geoserver.action"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    private static OgcMessage message(OgcEnum.OperationType operation, InterceptorEnum.RuleType responseRule) {
+        return new OgcMessage(OgcEnum.ServiceType.WFS, operation, "SHOGUN:SHINJI",
+            InterceptorEnum.RuleType.ALLOW, responseRule);
+    }
+
+    private static HttpResponse response() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentLength(6);
+        // e.g. the headers of a cached response
+        return new HttpResponse(HttpStatus.OK, HttpHeaders.readOnlyHttpHeaders(headers),
+            "<a/>\n\n".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void distributeToResponseInterceptor_shouldTransformBufferedResponses() throws InterceptorException {
+        HttpResponse response = distributor.distributeToResponseInterceptor(request, response(),
+            message(OgcEnum.OperationType.GET_FEATURE, InterceptorEnum.RuleType.MODIFY));
+
+        assertEquals("<A/>\n\n", new String(response.getBody(), StandardCharsets.UTF_8));
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_LENGTH));
+    }
+
+    @Test
+    void distributeToResponseInterceptor_shouldPassUnsupportedResponsesToTheServiceInterceptor() throws InterceptorException {
+        HttpResponse original = response();
+
+        // no WFS response interceptor is configured
+        HttpResponse response = distributor.distributeToResponseInterceptor(request, original,
+            message(OgcEnum.OperationType.DESCRIBE_FEATURE_TYPE, InterceptorEnum.RuleType.MODIFY));
+
+        assertSame(original, response);
+    }
+
+    @Test
+    void distributeToResponseInterceptor_shouldNotTransformAllowedResponses() throws InterceptorException {
+        HttpResponse original = response();
+
+        HttpResponse response = distributor.distributeToResponseInterceptor(request, original,
+            message(OgcEnum.OperationType.GET_FEATURE, InterceptorEnum.RuleType.ALLOW));
+
+        assertSame(original, response);
+    }
+
+    @Test
+    void distributeToResponseInterceptor_shouldRejectDeniedResponses() {
+        assertThrows(InterceptorException.class, () -> distributor.distributeToResponseInterceptor(request,
+            response(), message(OgcEnum.OperationType.GET_FEATURE, InterceptorEnum.RuleType.DENY)));
+    }
+
+}
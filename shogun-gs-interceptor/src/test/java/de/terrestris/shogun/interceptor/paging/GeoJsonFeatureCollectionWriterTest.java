@@ -0,0 +1,105 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.paging;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeoJsonFeatureCollectionWriterTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static byte[] page(String crs, String... ids) {
+        StringBuilder features = new StringBuilder();
+        for (String id : ids) {
+            if (features.length() > 0) {
+                features.append(',');
+            }
+            features.append("{\"type\":\"Feature\",\"id\":\"").append(id).append("\",\"properties\":{}}");
+        }
+        String crsMember = crs != null ? ",\"crs\":" + crs : "";
+        return ("{\"type\":\"FeatureCollection\",\"features\":[" + features + "],\"totalFeatures\":3," +
+            "\"numberMatched\":3,\"numberReturned\":" + ids.length + crsMember + "}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void writePage_shouldCombineThePagesInOrder() throws IOException {
+        String crs = "{\"type\":\"name\",\"properties\":{\"name\":\"urn:ogc:def:crs:EPSG::3857\"}}";
+        GeoJsonFeatureCollectionWriter writer = new GeoJsonFeatureCollectionWriter(3);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        outputStream.write(writer.writePage(page(crs, "a.1", "a.2")));
+        outputStream.write(writer.writePage(page(crs, "a.3")));
+        outputStream.write(writer.writeEnd());
+
+        JsonNode collection = OBJECT_MAPPER.readTree(outputStream.toByteArray());
+
+        assertEquals("FeatureCollection", collection.path("type").asText());
+        assertEquals(3, collection.path("features").size());
+        assertEquals("a.1", collection.path("features").get(0).path("id").asText());
+        assertEquals("a.2", collection.path("features").get(1).path("id").asText());
+        assertEquals("a.3", collection.path("features").get(2).path("id").asText());
+        assertEquals(3, collection.path("numberMatched").asLong());
+        assertEquals(3, collection.path("totalFeatures").asLong());
+        assertEquals(3, collection.path("numberReturned").asLong());
+        assertEquals(OBJECT_MAPPER.readTree(crs), collection.path("crs"));
+    }
+
+    @Test
+    void writePage_shouldSkipEmptyPages() throws IOException {
+        GeoJsonFeatureCollectionWriter writer = new GeoJsonFeatureCollectionWriter(1);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        outputStream.write(writer.writePage(page(null, "a.1")));
+        outputStream.write(writer.writePage(page(null)));
+        outputStream.write(writer.writeEnd());
+
+        JsonNode collection = OBJECT_MAPPER.readTree(outputStream.toByteArray());
+
+        assertEquals(1, collection.path("features").size());
+        assertEquals(1, collection.path("numberReturned").asLong());
+        assertTrue(collection.path("crs").isMissingNode());
+    }
+
+    @Test
+    void writeEnd_shouldWriteAnEmptyCollectionWithoutPages() throws IOException {
+        GeoJsonFeatureCollectionWriter writer = new GeoJsonFeatureCollectionWriter(0);
+
+        JsonNode collection = OBJECT_MAPPER.readTree(writer.writeEnd());
+
+        assertEquals("FeatureCollection", collection.path("type").asText());
+        assertEquals(0, collection.path("features").size());
+        assertEquals(0, collection.path("numberReturned").asLong());
+    }
+
+    @Test
+    void writePage_shouldRejectNonObjects() {
+        GeoJsonFeatureCollectionWriter writer = new GeoJsonFeatureCollectionWriter(1);
+
+        assertThrows(IOException.class, () -> writer.writePage("[]".getBytes(StandardCharsets.UTF_8)));
+    }
+
+}
@@ -0,0 +1,106 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.paging;
+
+import de.terrestris.shogun.interceptor.util.OgcXmlUtil;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GmlFeatureCollectionWriterTest {
+
+    private static final String WFS_NS = "http://www.opengis.net/wfs/2.0";
+
+    private static final String GML_NS = "http://www.opengis.net/gml/3.2";
+
+    private static byte[] page(String next, String... ids) {
+        StringBuilder members = new StringBuilder();
+        for (String id : ids) {
+            members.append("<wfs:member><SHOGUN:a gml:id=\"").append(id).append("\"/></wfs:member>");
+        }
+        String nextAttribute = next != null ? " next=\"" + next + "\"" : "";
+        return ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+            "<wfs:FeatureCollection xmlns:wfs=\"" + WFS_NS + "\" xmlns:gml=\"" + GML_NS + "\"" +
+            " xmlns:SHOGUN=\"http://shogun\" numberMatched=\"3\" numberReturned=\"" + ids.length + "\"" +
+            nextAttribute + ">" +
+            "<wfs:boundedBy><gml:Envelope><gml:lowerCorner>0 0</gml:lowerCorner></gml:Envelope></wfs:boundedBy>" +
+            members +
+            "</wfs:FeatureCollection>").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Document parse(byte[] xml) throws Exception {
+        return OgcXmlUtil.getDocumentBuilder().parse(new ByteArrayInputStream(xml));
+    }
+
+    @Test
+    void writePage_shouldCombineThePagesInOrder() throws Exception {
+        GmlFeatureCollectionWriter writer = new GmlFeatureCollectionWriter(3);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        outputStream.write(writer.writePage(page("https://example.com/wfs?STARTINDEX=2", "a.1", "a.2")));
+        outputStream.write(writer.writePage(page(null, "a.3")));
+        outputStream.write(writer.writeEnd());
+
+        Element root = parse(outputStream.toByteArray()).getDocumentElement();
+
+        assertEquals("wfs:FeatureCollection", root.getTagName());
+        assertEquals(WFS_NS, root.getAttribute("xmlns:wfs"));
+        assertEquals("3", root.getAttribute("numberMatched"));
+        assertEquals("3", root.getAttribute("numberReturned"));
+        assertFalse(root.hasAttribute("next"));
+
+        NodeList members = root.getElementsByTagName("wfs:member");
+        assertEquals(3, members.getLength());
+        assertEquals("a.1", ((Element) members.item(0).getFirstChild()).getAttribute("gml:id"));
+        assertEquals("a.2", ((Element) members.item(1).getFirstChild()).getAttribute("gml:id"));
+        assertEquals("a.3", ((Element) members.item(2).getFirstChild()).getAttribute("gml:id"));
+
+        assertEquals(0, root.getElementsByTagName("wfs:boundedBy").getLength());
+    }
+
+    @Test
+    void writePage_shouldRejectExceptionReports() {
+        GmlFeatureCollectionWriter writer = new GmlFeatureCollectionWriter(3);
+        byte[] exceptionReport = ("<ows:ExceptionReport xmlns:ows=\"http://www.opengis.net/ows/1.1\">" +
+            "<ows:Exception exceptionCode=\"NoApplicableCode\"/></ows:ExceptionReport>").getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(IOException.class, () -> writer.writePage(exceptionReport));
+    }
+
+    @Test
+    void writePage_shouldRejectInvalidXml() {
+        GmlFeatureCollectionWriter writer = new GmlFeatureCollectionWriter(3);
+
+        assertThrows(IOException.class, () -> writer.writePage("<wfs:FeatureCollection".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void writeEnd_shouldWriteNothingWithoutPages() {
+        assertEquals(0, new GmlFeatureCollectionWriter(0).writeEnd().length);
+    }
+
+}
@@ -0,0 +1,123 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.paging;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PagedFeatureInputStreamTest {
+
+    /**
+     * Writes each page as is and a marker at the end.
+     */
+    private static class ConcatenatingWriter implements FeatureCollectionWriter {
+
+        @Override
+        public byte[] writePage(byte[] page) {
+            return page;
+        }
+
+        @Override
+        public byte[] writeEnd() {
+            return "|".getBytes(StandardCharsets.UTF_8);
+        }
+
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<CompletableFuture<byte[]>> createPages(int pageCount) {
+        List<CompletableFuture<byte[]>> pages = new ArrayList<>(pageCount);
+        for (int i = 0; i < pageCount; i++) {
+            pages.add(new CompletableFuture<>());
+        }
+        return pages;
+    }
+
+    @Test
+    void read_shouldWriteThePagesInOrderIfTheyCompleteOutOfOrder() throws IOException {
+        List<CompletableFuture<byte[]>> pages = createPages(4);
+        List<Integer> requestedPages = new ArrayList<>();
+
+        PagedFeatureInputStream stream = new PagedFeatureInputStream(bytes("0"), 4, page -> {
+            requestedPages.add(page);
+            return pages.get(page);
+        }, new ConcatenatingWriter(), 3, 1000);
+
+        pages.get(3).complete(bytes("3"));
+        pages.get(2).complete(bytes("2"));
+        pages.get(1).complete(bytes("1"));
+
+        assertEquals("0123|", new String(stream.readAllBytes(), StandardCharsets.UTF_8));
+        assertEquals(List.of(1, 2, 3), requestedPages);
+    }
+
+    @Test
+    void constructor_shouldLimitThePagesInFlight() throws IOException {
+        List<CompletableFuture<byte[]>> pages = createPages(5);
+        List<Integer> requestedPages = new ArrayList<>();
+
+        PagedFeatureInputStream stream = new PagedFeatureInputStream(bytes("0"), 5, page -> {
+            requestedPages.add(page);
+            return pages.get(page);
+        }, new ConcatenatingWriter(), 2, 1000);
+
+        // only the pages in flight are requested up front
+        assertEquals(List.of(1, 2), requestedPages);
+
+        pages.forEach(page -> page.complete(bytes(".")));
+        assertEquals("0....|", new String(stream.readAllBytes(), StandardCharsets.UTF_8));
+        assertEquals(List.of(1, 2, 3, 4), requestedPages);
+    }
+
+    @Test
+    void read_shouldFailAndCancelThePendingPagesIfAPageFails() throws IOException {
+        List<CompletableFuture<byte[]>> pages = createPages(4);
+
+        PagedFeatureInputStream stream = new PagedFeatureInputStream(bytes("0"), 4, pages::get,
+            new ConcatenatingWriter(), 3, 1000);
+
+        pages.get(1).completeExceptionally(new IOException("Page failed"));
+
+        assertThrows(IOException.class, stream::readAllBytes);
+        assertTrue(pages.get(2).isCancelled());
+        assertTrue(pages.get(3).isCancelled());
+    }
+
+    @Test
+    void read_shouldFailIfAPageTimesOut() throws IOException {
+        List<CompletableFuture<byte[]>> pages = createPages(2);
+
+        PagedFeatureInputStream stream = new PagedFeatureInputStream(bytes("0"), 2, pages::get,
+            new ConcatenatingWriter(), 1, 10);
+
+        assertThrows(IOException.class, stream::readAllBytes);
+        assertTrue(pages.get(1).isCancelled());
+    }
+
+}
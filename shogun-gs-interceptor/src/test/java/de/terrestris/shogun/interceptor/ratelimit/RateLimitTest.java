@@ -0,0 +1,81 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.ratelimit;
+
+import de.terrestris.shogun.interceptor.model.InterceptorRateLimit;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimitTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void getBucket_shouldReturnTheBucketOfTheUser() {
+        RateLimit rateLimit = new RateLimit(definition(), 10, null);
+
+        TokenBucket bucket = rateLimit.getBucket("a", 0);
+
+        assertSame(bucket, rateLimit.getBucket("a", 0));
+        assertEquals(1, rateLimit.getBuckets().size());
+    }
+
+    @Test
+    void getBucket_shouldDropFullBucketsAboveTheMaximum() {
+        RateLimit rateLimit = new RateLimit(definition(), 2, null);
+
+        rateLimit.getBucket("a", 0).acquire(0, 0);
+        rateLimit.getBucket("b", 0);
+        rateLimit.getBucket("c", 0);
+
+        // the bucket of a is in use, the one of b is full
+        assertEquals(2, rateLimit.getBuckets().size());
+        assertTrue(rateLimit.getBuckets().containsKey("a"));
+        assertTrue(rateLimit.getBuckets().containsKey("c"));
+
+        rateLimit.getBucket("d", 10 * SECOND);
+        rateLimit.getBucket("e", 10 * SECOND);
+
+        assertTrue(rateLimit.getBuckets().size() <= 3);
+        assertTrue(rateLimit.getBuckets().containsKey("e"));
+    }
+
+    @Test
+    void constructor_shouldKeepTheBucketsOfAnUnchangedLimit() {
+        InterceptorRateLimit definition = definition();
+        RateLimit rateLimit = new RateLimit(definition, 10, null);
+        TokenBucket bucket = rateLimit.getBucket("a", 0);
+
+        assertSame(bucket, new RateLimit(definition, 10, rateLimit).getBucket("a", 0));
+
+        definition.setCapacity(2);
+        assertEquals(0, new RateLimit(definition, 10, rateLimit).getBuckets().size());
+    }
+
+    private static InterceptorRateLimit definition() {
+        InterceptorRateLimit definition = new InterceptorRateLimit();
+        definition.setCapacity(1);
+        definition.setRefillRate(1.0);
+        return definition;
+    }
+
+}
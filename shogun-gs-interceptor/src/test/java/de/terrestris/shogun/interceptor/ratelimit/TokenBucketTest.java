@@ -0,0 +1,81 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void acquire_shouldAllowABurstOfTheCapacity() {
+        TokenBucket bucket = new TokenBucket(3, 1, 0);
+
+        assertEquals(0, bucket.acquire(0, 0));
+        assertEquals(0, bucket.acquire(0, 0));
+        assertEquals(0, bucket.acquire(0, 0));
+        assertEquals(-SECOND, bucket.acquire(0, 0));
+
+        assertEquals(3, bucket.getAllowed());
+        assertEquals(1, bucket.getRejected());
+    }
+
+    @Test
+    void acquire_shouldRefillTokensOverTime() {
+        TokenBucket bucket = new TokenBucket(1, 2, 0);
+
+        assertEquals(0, bucket.acquire(0, 0));
+        assertEquals(-SECOND / 2, bucket.acquire(0, 0));
+        assertEquals(-SECOND / 4, bucket.acquire(SECOND / 4, 0));
+        assertEquals(0, bucket.acquire(SECOND / 2, 0));
+    }
+
+    @Test
+    void acquire_shouldReserveTokensWithinTheMaximumWait() {
+        TokenBucket bucket = new TokenBucket(1, 1, 0);
+
+        assertEquals(0, bucket.acquire(0, SECOND));
+        assertEquals(SECOND, bucket.acquire(0, SECOND));
+        // the token of the next second is already reserved
+        assertEquals(-2 * SECOND, bucket.acquire(0, SECOND));
+
+        assertEquals(1, bucket.getQueued());
+    }
+
+    @Test
+    void isFull_shouldBeTrueOnceAllTokensAreRefilled() {
+        TokenBucket bucket = new TokenBucket(2, 1, 0);
+
+        assertTrue(bucket.isFull(0));
+        assertEquals(2, bucket.getAvailableTokens(0));
+
+        bucket.acquire(0, 0);
+        assertFalse(bucket.isFull(0));
+        assertEquals(1, bucket.getAvailableTokens(0));
+
+        assertTrue(bucket.isFull(SECOND));
+        assertEquals(2, bucket.getAvailableTokens(SECOND));
+    }
+
+}
@@ -0,0 +1,99 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.resilience;
+
+import de.terrestris.shogun.interceptor.config.properties.BulkheadProperties;
+import de.terrestris.shogun.interceptor.exception.OgcServiceException;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkheadTest {
+
+    @Test
+    void acquireAsync_shouldCompleteOnceASlotIsReleased() throws Exception {
+        Bulkhead bulkhead = bulkhead(1, 10000);
+        bulkhead.acquireAsync().get();
+
+        CompletableFuture<Void> waiting = bulkhead.acquireAsync();
+        assertFalse(waiting.isDone());
+        assertEquals(1, bulkhead.getQueued());
+
+        bulkhead.release();
+
+        assertTrue(waiting.isDone());
+        assertEquals(1, bulkhead.getActive());
+        assertEquals(0, bulkhead.getQueued());
+
+        bulkhead.release();
+        assertEquals(0, bulkhead.getActive());
+    }
+
+    @Test
+    void acquireAsync_shouldRejectIfTheQueueIsFull() throws Exception {
+        Bulkhead bulkhead = bulkhead(0, 10000);
+        bulkhead.acquireAsync().get();
+
+        CompletableFuture<Void> rejected = bulkhead.acquireAsync();
+
+        ExecutionException e = assertThrows(ExecutionException.class, rejected::get);
+        assertTrue(e.getCause() instanceof OgcServiceException);
+        assertEquals(1, bulkhead.getRejected());
+    }
+
+    @Test
+    void acquireAsync_shouldFailOnceTheQueueTimeoutElapsed() throws Exception {
+        Bulkhead bulkhead = bulkhead(1, 50);
+        bulkhead.acquireAsync().get();
+
+        CompletableFuture<Void> waiting = bulkhead.acquireAsync();
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> waiting.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof OgcServiceException);
+        assertEquals(0, bulkhead.getQueued());
+
+        bulkhead.release();
+        assertEquals(0, bulkhead.getActive());
+    }
+
+    @Test
+    void acquireAsync_shouldLeaveTheQueueIfCancelled() throws Exception {
+        Bulkhead bulkhead = bulkhead(1, 10000);
+        bulkhead.acquireAsync().get();
+
+        bulkhead.acquireAsync().cancel(false);
+        assertEquals(0, bulkhead.getQueued());
+
+        bulkhead.release();
+        assertEquals(0, bulkhead.getActive());
+    }
+
+    private static Bulkhead bulkhead(int maxQueuedRequests, long queueTimeout) {
+        BulkheadProperties properties = new BulkheadProperties();
+        properties.setMaxConcurrentRequests(1);
+        properties.setMaxQueuedRequests(maxQueuedRequests);
+        properties.setQueueTimeout(queueTimeout);
+        return new Bulkhead("test", properties);
+    }
+}
@@ -0,0 +1,123 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.response;
+
+import de.terrestris.shogun.lib.dto.StreamingHttpResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TransformedStreamingHttpResponseTest {
+
+    private static final ResponseStreamTransformer UPPER_CASE = (in, out) -> {
+        byte[] bytes = in.readAllBytes();
+        out.write(new String(bytes, StandardCharsets.UTF_8).toUpperCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8));
+    };
+
+    private static final ResponseStreamTransformer REVERSE = (in, out) -> {
+        byte[] bytes = in.readAllBytes();
+        out.write(new StringBuilder(new String(bytes, StandardCharsets.UTF_8)).reverse().toString()
+            .getBytes(StandardCharsets.UTF_8));
+    };
+
+    private ThreadPoolTaskExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(0);
+        executor.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void writeBody_shouldChainTheTransformers() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        response(UPPER_CASE, REVERSE).writeBody(out);
+
+        assertEquals("YDOB", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void writeBody_shouldPassTheStageFailureToTheReader() {
+        IOException failure = new IOException("upstream failed");
+        ResponseStreamTransformer failing = (in, out) -> {
+            out.write('x');
+            throw failure;
+        };
+
+        IOException e = assertThrows(IOException.class, () -> response(failing, REVERSE)
+            .writeBody(new ByteArrayOutputStream()));
+
+        assertSame(failure, e);
+    }
+
+    @Test
+    void writeBody_shouldFailIfNoThreadIsAvailable() {
+        executor.execute(() -> {
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        assertThrows(IOException.class, () -> response(UPPER_CASE, REVERSE)
+            .writeBody(new ByteArrayOutputStream()));
+    }
+
+    @Test
+    void writeBody_shouldCopyTheBodyWithoutTransformers() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        new TransformedStreamingHttpResponse(upstream(), Collections.emptyList(), executor).writeBody(out);
+
+        assertEquals("body", out.toString(StandardCharsets.UTF_8));
+    }
+
+    private TransformedStreamingHttpResponse response(ResponseStreamTransformer... transformers) {
+        return new TransformedStreamingHttpResponse(upstream(), Arrays.asList(transformers), executor);
+    }
+
+    private static StreamingHttpResponse upstream() {
+        return new StreamingHttpResponse(HttpStatus.OK, new HttpHeaders(),
+            new ByteArrayInputStream("body".getBytes(StandardCharsets.UTF_8)), null);
+    }
+
+}
@@ -0,0 +1,120 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.scheduling;
+
+import de.terrestris.shogun.interceptor.config.properties.InterceptorProperties;
+import de.terrestris.shogun.interceptor.config.properties.SchedulingProperties;
+import de.terrestris.shogun.interceptor.config.properties.TrafficClassProperties;
+import de.terrestris.shogun.interceptor.exception.OgcServiceException;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrioritySchedulerTest {
+
+    @Test
+    void acquireAsync_shouldCompleteOnceASlotIsReleased() throws Exception {
+        PriorityScheduler scheduler = scheduler(10000);
+        PriorityScheduler.Slot slot = scheduler.acquireAsync(TrafficClass.STANDARD).get();
+
+        CompletableFuture<PriorityScheduler.Slot> waiting = scheduler.acquireAsync(TrafficClass.STANDARD);
+        assertFalse(waiting.isDone());
+        assertEquals(1, getClassStatistics(scheduler, TrafficClass.STANDARD).get("queuedRequests"));
+
+        slot.release();
+
+        assertTrue(waiting.isDone());
+        waiting.get().release();
+        assertEquals(0, scheduler.getStatistics().get("activeRequests"));
+    }
+
+    @Test
+    void acquireAsync_shouldGrantSlotsByPriority() throws Exception {
+        PriorityScheduler scheduler = scheduler(10000);
+        PriorityScheduler.Slot slot = scheduler.acquireAsync(TrafficClass.BULK).get();
+
+        CompletableFuture<PriorityScheduler.Slot> bulk = scheduler.acquireAsync(TrafficClass.BULK);
+        CompletableFuture<PriorityScheduler.Slot> interactive = scheduler.acquireAsync(TrafficClass.INTERACTIVE);
+
+        slot.release();
+
+        assertTrue(interactive.isDone());
+        assertFalse(bulk.isDone());
+
+        interactive.get().release();
+        assertTrue(bulk.isDone());
+    }
+
+    @Test
+    void acquireAsync_shouldFailOnceTheQueueTimeoutElapsed() throws Exception {
+        PriorityScheduler scheduler = scheduler(50);
+        PriorityScheduler.Slot slot = scheduler.acquireAsync(TrafficClass.STANDARD).get();
+
+        CompletableFuture<PriorityScheduler.Slot> waiting = scheduler.acquireAsync(TrafficClass.STANDARD);
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> waiting.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof OgcServiceException);
+        assertEquals(0, getClassStatistics(scheduler, TrafficClass.STANDARD).get("queuedRequests"));
+
+        slot.release();
+        assertEquals(0, scheduler.getStatistics().get("activeRequests"));
+    }
+
+    @Test
+    void acquireAsync_shouldLeaveTheQueueIfCancelled() throws Exception {
+        PriorityScheduler scheduler = scheduler(10000);
+        PriorityScheduler.Slot slot = scheduler.acquireAsync(TrafficClass.STANDARD).get();
+
+        CompletableFuture<PriorityScheduler.Slot> waiting = scheduler.acquireAsync(TrafficClass.STANDARD);
+        waiting.cancel(false);
+
+        assertEquals(0, getClassStatistics(scheduler, TrafficClass.STANDARD).get("queuedRequests"));
+
+        slot.release();
+        assertEquals(0, scheduler.getStatistics().get("activeRequests"));
+    }
+
+    private static PriorityScheduler scheduler(long queueTimeout) {
+        SchedulingProperties schedulingProperties = new SchedulingProperties();
+        schedulingProperties.setEnabled(true);
+        schedulingProperties.setMaxConcurrentRequests(1);
+        schedulingProperties.setInteractive(new TrafficClassProperties(1, 1, queueTimeout));
+        schedulingProperties.setStandard(new TrafficClassProperties(1, 1, queueTimeout));
+        schedulingProperties.setBulk(new TrafficClassProperties(1, 1, queueTimeout));
+
+        InterceptorProperties interceptorProperties = new InterceptorProperties();
+        interceptorProperties.setScheduling(schedulingProperties);
+
+        PriorityScheduler scheduler = new PriorityScheduler();
+        ReflectionTestUtils.setField(scheduler, "interceptorProperties", interceptorProperties);
+        return scheduler;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> getClassStatistics(PriorityScheduler scheduler, TrafficClass trafficClass) {
+        return (Map<String, Object>) scheduler.getStatistics().get(trafficClass.name().toLowerCase());
+    }
+}
@@ -0,0 +1,103 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.service;
+
+import de.terrestris.shogun.interceptor.enumeration.HttpEnum;
+import de.terrestris.shogun.interceptor.enumeration.InterceptorEnum;
+import de.terrestris.shogun.interceptor.enumeration.OgcEnum;
+import de.terrestris.shogun.interceptor.model.InterceptorRule;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test for {@link InterceptorRuleIndex}
+ */
+class InterceptorRuleIndexTest {
+
+    private static final HttpEnum.EventType REQUEST = HttpEnum.EventType.REQUEST;
+
+    private static final OgcEnum.ServiceType WMS = OgcEnum.ServiceType.WMS;
+
+    static InterceptorRule rule(long id, InterceptorEnum.RuleType type, OgcEnum.OperationType operation, String endPoint) {
+        InterceptorRule rule = new InterceptorRule(REQUEST, type, WMS, operation, endPoint);
+        ReflectionTestUtils.setField(rule, "id", id);
+        return rule;
+    }
+
+    @Test
+    void findMostSpecificRule_shouldFollowThePrecedence() {
+        InterceptorRule generic = rule(1, InterceptorEnum.RuleType.ALLOW, null, null);
+        InterceptorRule genericOperation = rule(2, InterceptorEnum.RuleType.MODIFY, OgcEnum.OperationType.GET_FEATURE_INFO, null);
+        InterceptorRule endPoint = rule(3, InterceptorEnum.RuleType.DENY, null, "SHOGUN:A");
+        InterceptorRule endPointOperation = rule(4, InterceptorEnum.RuleType.ALLOW, OgcEnum.OperationType.GET_MAP, "SHOGUN:B");
+        InterceptorRuleIndex index = new InterceptorRuleIndex(
+            Arrays.asList(endPointOperation, endPoint, genericOperation, generic), 0);
+
+        // 1. endPoint and operation match
+        assertSame(endPointOperation, index.findMostSpecificRule(REQUEST, WMS, OgcEnum.OperationType.GET_MAP, "SHOGUN:B"));
+        // 2. endPoint matches, rule has no operation
+        assertSame(endPoint, index.findMostSpecificRule(REQUEST, WMS, OgcEnum.OperationType.GET_FEATURE_INFO, "SHOGUN:A"));
+        // 3. generic rule, operation matches (the endPoint has no rule for the operation)
+        assertSame(genericOperation, index.findMostSpecificRule(REQUEST, WMS, OgcEnum.OperationType.GET_FEATURE_INFO, "SHOGUN:B"));
+        // 4. generic rule, rule has no operation
+        assertSame(generic, index.findMostSpecificRule(REQUEST, WMS, OgcEnum.OperationType.GET_LEGEND_GRAPHIC, "SHOGUN:C"));
+        assertSame(generic, index.findMostSpecificRule(REQUEST, WMS, OgcEnum.OperationType.GET_MAP, null));
+    }
+
+    @Test
+    void findMostSpecificRule_shouldCompareEndPointsCaseInsensitive() {
+        InterceptorRule endPoint = rule(1, InterceptorEnum.RuleType.DENY, null, "SHOGUN:Layer");
+        InterceptorRuleIndex index = new InterceptorRuleIndex(Collections.singletonList(endPoint), 0);
+
+        assertSame(endPoint, index.findMostSpecificRule(REQUEST, WMS, OgcEnum.OperationType.GET_MAP, "shogun:LAYER"));
+    }
+
+    @Test
+    void findMostSpecificRule_shouldPreferTheLatestRuleOfTheSameSlot() {
+        InterceptorRule older = rule(1, InterceptorEnum.RuleType.ALLOW, OgcEnum.OperationType.GET_MAP, "SHOGUN:A");
+        InterceptorRule newer = rule(2, InterceptorEnum.RuleType.DENY, OgcEnum.OperationType.GET_MAP, "shogun:a");
+        InterceptorRuleIndex index = new InterceptorRuleIndex(Arrays.asList(newer, older), 0);
+
+        assertSame(newer, index.findMostSpecificRule(REQUEST, WMS, OgcEnum.OperationType.GET_MAP, "SHOGUN:A"));
+    }
+
+    @Test
+    void findMostSpecificRule_shouldReturnNullWithoutEndPointIfOnlyEndPointRulesExist() {
+        InterceptorRule endPoint = rule(1, InterceptorEnum.RuleType.DENY, null, "SHOGUN:A");
+        InterceptorRuleIndex index = new InterceptorRuleIndex(Collections.singletonList(endPoint), 0);
+
+        assertTrue(index.hasRules(REQUEST, WMS));
+        assertNull(index.findMostSpecificRule(REQUEST, WMS, OgcEnum.OperationType.GET_MAP, null));
+        assertNull(index.findMostSpecificRule(REQUEST, WMS, OgcEnum.OperationType.GET_MAP, "SHOGUN:B"));
+    }
+
+    @Test
+    void hasRules_shouldBeFalseForOtherEventsAndServices() {
+        InterceptorRuleIndex index = new InterceptorRuleIndex(
+            Collections.singletonList(rule(1, InterceptorEnum.RuleType.ALLOW, null, null)), 0);
+
+        assertFalse(index.hasRules(HttpEnum.EventType.RESPONSE, WMS));
+        assertFalse(index.hasRules(REQUEST, OgcEnum.ServiceType.WFS));
+        assertNull(index.findMostSpecificRule(REQUEST, OgcEnum.ServiceType.WFS, OgcEnum.OperationType.GET_FEATURE, null));
+    }
+
+}
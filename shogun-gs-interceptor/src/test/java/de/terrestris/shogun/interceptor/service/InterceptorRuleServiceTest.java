@@ -0,0 +1,76 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.service;
+
+import de.terrestris.shogun.interceptor.enumeration.HttpEnum;
+import de.terrestris.shogun.interceptor.enumeration.InterceptorEnum;
+import de.terrestris.shogun.interceptor.enumeration.OgcEnum;
+import de.terrestris.shogun.interceptor.event.InterceptorRulesChangedEvent;
+import de.terrestris.shogun.interceptor.model.InterceptorRule;
+import de.terrestris.shogun.interceptor.repository.InterceptorRuleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static de.terrestris.shogun.interceptor.service.InterceptorRuleIndexTest.rule;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test for {@link InterceptorRuleService}
+ */
+class InterceptorRuleServiceTest {
+
+    private InterceptorRuleRepository repository;
+
+    private InterceptorRuleService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(InterceptorRuleRepository.class);
+        service = new InterceptorRuleService();
+        ReflectionTestUtils.setField(service, "repository", repository);
+        service.eventPublisher = mock(ApplicationEventPublisher.class);
+    }
+
+    @Test
+    void onRulesChanged_shouldRebuildTheIndexForOverlappingTransactions() throws Exception {
+        InterceptorRule allow = rule(1, InterceptorEnum.RuleType.ALLOW, null, null);
+        InterceptorRule deny = rule(2, InterceptorEnum.RuleType.DENY, null, "SHOGUN:A");
+        when(repository.findAll()).thenReturn(Collections.singletonList(allow));
+        service.getRuleIndex();
+
+        // two transactions change the rules, the first one commits before the second one
+        service.publishRulesChanged();
+        service.publishRulesChanged();
+        service.onRulesChanged(new InterceptorRulesChangedEvent(service));
+
+        when(repository.findAll()).thenReturn(Arrays.asList(allow, deny));
+        service.onRulesChanged(new InterceptorRulesChangedEvent(service));
+
+        assertEquals(2, service.getRuleIndex().size());
+        assertSame(deny, service.findMostSpecificRule(HttpEnum.EventType.REQUEST, OgcEnum.ServiceType.WMS,
+            OgcEnum.OperationType.GET_MAP, "SHOGUN:A"));
+    }
+
+}
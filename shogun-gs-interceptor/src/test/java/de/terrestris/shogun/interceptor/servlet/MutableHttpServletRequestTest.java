@@ -0,0 +1,65 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.servlet;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MutableHttpServletRequestTest {
+
+    private static MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/geoserver.action");
+        request.addParameter("SERVICE", "WMS");
+        request.addParameter("LAYERS", "SHOGUN:a");
+        return request;
+    }
+
+    @Test
+    void getParameterMap_shouldBeUnmodifiable() {
+        MutableHttpServletRequest mutableRequest = new MutableHttpServletRequest(request());
+
+        assertThrows(UnsupportedOperationException.class, () ->
+            mutableRequest.getParameterMap().put("STYLES", new String[]{"line"}));
+
+        mutableRequest.addParameter("STYLES", "line");
+
+        assertEquals("line", mutableRequest.getParameterMap().get("STYLES")[0]);
+        assertThrows(UnsupportedOperationException.class, () -> mutableRequest.getParameterMap().remove("STYLES"));
+    }
+
+    @Test
+    void constructor_shouldCopyTheParametersOfTheWrappedRequest() {
+        MutableHttpServletRequest parent = new MutableHttpServletRequest(request());
+        parent.addParameter("STYLES", "line");
+
+        MutableHttpServletRequest copy = new MutableHttpServletRequest(parent);
+        parent.setParameter("LAYERS", "SHOGUN:b");
+        parent.removeParameter("STYLES");
+        copy.addParameter("FORMAT", "image/png");
+
+        assertEquals("SHOGUN:a", copy.getParameter("LAYERS"));
+        assertEquals("line", copy.getParameter("STYLES"));
+        assertNull(parent.getParameter("FORMAT"));
+        assertFalse(parent.getParameterMap().containsKey("FORMAT"));
+    }
+
+}
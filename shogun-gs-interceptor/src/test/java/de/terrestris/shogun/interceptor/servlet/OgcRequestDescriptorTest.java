@@ -0,0 +1,74 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.servlet;
+
+import de.terrestris.shogun.interceptor.config.properties.BodyBufferProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OgcRequestDescriptorTest {
+
+    private static final String GET_FEATURE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+        "<wfs:GetFeature service=\"WFS\" version=\"1.1.0\" xmlns:wfs=\"http://www.opengis.net/wfs\">" +
+        "<wfs:Query typeName=\"SHOGUN:SHINJI\"/>" +
+        "</wfs:GetFeature>";
+
+    @Test
+    void getParameterValue_shouldReadTheQueryParameters() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/geoserver.action");
+        request.addParameter("service", "WMS");
+        request.addParameter("REQUEST", "GetMap");
+        request.addParameter("LAYERS", "SHOGUN:a", "SHOGUN:b");
+
+        OgcRequestDescriptor descriptor = new MutableHttpServletRequest(request).getOgcRequestDescriptor();
+
+        assertFalse(descriptor.isBodyRequest());
+        assertEquals("WMS", descriptor.getService());
+        assertEquals("GetMap", descriptor.getOperation());
+        assertEquals("SHOGUN:a,SHOGUN:b", descriptor.getEndPoint());
+    }
+
+    @Test
+    void getParameterValue_shouldSniffASpilledBody() throws Exception {
+        BodyBufferProperties properties = new BodyBufferProperties();
+        properties.setMemoryThreshold(16);
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/geoserver.action");
+        request.setContent(GET_FEATURE.getBytes(StandardCharsets.UTF_8));
+
+        MutableHttpServletRequest mutableRequest = new MutableHttpServletRequest(request,
+            new RequestBodyBufferAllocator(properties));
+        OgcRequestDescriptor descriptor = mutableRequest.getOgcRequestDescriptor();
+
+        assertTrue(mutableRequest.getBodyBuffer().isSpilled());
+        assertTrue(descriptor.isBodyRequest());
+        assertEquals("WFS", descriptor.getService());
+        assertEquals("GetFeature", descriptor.getOperation());
+        assertEquals("SHOGUN:SHINJI", descriptor.getEndPoint());
+        assertNotNull(descriptor.getDocument());
+        assertEquals(GET_FEATURE, descriptor.getBody());
+
+        mutableRequest.getBodyBuffer().close();
+    }
+
+}
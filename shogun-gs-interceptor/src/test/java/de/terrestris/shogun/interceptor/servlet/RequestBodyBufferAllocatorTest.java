@@ -0,0 +1,112 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.servlet;
+
+import de.terrestris.shogun.interceptor.config.properties.BodyBufferProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestBodyBufferAllocatorTest {
+
+    private BodyBufferProperties properties;
+
+    private RequestBodyBufferAllocator allocator;
+
+    @BeforeEach
+    void setUp() {
+        properties = new BodyBufferProperties();
+        properties.setMemoryThreshold(16);
+        properties.setMaxMemory(24);
+        properties.setMaxSize(64);
+        allocator = new RequestBodyBufferAllocator(properties);
+    }
+
+    @Test
+    void read_shouldKeepSmallBodiesInMemory() throws IOException {
+        RequestBodyBuffer buffer = allocator.read(stream("0123456789"), 10);
+
+        assertFalse(buffer.isSpilled());
+        assertEquals(10, buffer.size());
+        assertEquals(10L, allocator.getStatistics().get("memoryBytes"));
+
+        buffer.close();
+        assertEquals(0L, allocator.getStatistics().get("memoryBytes"));
+    }
+
+    @Test
+    void read_shouldSpillBodiesExceedingTheMemoryBudget() throws IOException {
+        RequestBodyBuffer first = allocator.read(stream("0123456789abcdef"), 16);
+        // the announced length doesn't fit into the remaining budget
+        RequestBodyBuffer second = allocator.read(stream("0123456789abcdef"), 16);
+
+        assertFalse(first.isSpilled());
+        assertTrue(second.isSpilled());
+        assertEquals(16L, allocator.getStatistics().get("memoryBytes"));
+
+        first.close();
+        second.close();
+        assertEquals(0L, allocator.getStatistics().get("memoryBytes"));
+    }
+
+    @Test
+    void read_shouldSpillBodiesAboveTheThresholdOfUnknownLength() throws IOException {
+        RequestBodyBuffer buffer = allocator.read(stream("0123456789abcdef0123456789abcdef"), -1);
+
+        assertTrue(buffer.isSpilled());
+        assertEquals(32, buffer.size());
+        assertEquals(0L, allocator.getStatistics().get("memoryBytes"));
+
+        buffer.close();
+    }
+
+    @Test
+    void read_shouldRejectBodiesExceedingTheMaximumSize() {
+        assertThrows(RequestBodyTooLargeException.class, () -> allocator.read(stream("x"), 65));
+        assertThrows(RequestBodyTooLargeException.class, () -> allocator.read(stream("x".repeat(65)), -1));
+        assertEquals(0L, allocator.getStatistics().get("memoryBytes"));
+    }
+
+    @Test
+    void toString_shouldOnlyKeepTheDecodedViewOfInMemoryBodies() throws IOException {
+        RequestBodyBuffer inMemory = allocator.read(stream("0123456789"), 10);
+        RequestBodyBuffer spilled = allocator.read(stream("0123456789abcdef0123456789abcdef"), 32);
+
+        assertSame(inMemory.toString(StandardCharsets.UTF_8), inMemory.toString(StandardCharsets.UTF_8));
+        assertEquals("0123456789abcdef0123456789abcdef", spilled.toString(StandardCharsets.UTF_8));
+        assertNotSame(spilled.toString(StandardCharsets.UTF_8), spilled.toString(StandardCharsets.UTF_8));
+
+        inMemory.close();
+        spilled.close();
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
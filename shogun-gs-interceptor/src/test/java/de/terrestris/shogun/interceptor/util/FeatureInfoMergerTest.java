@@ -0,0 +1,138 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.terrestris.shogun.interceptor.exception.InterceptorException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FeatureInfoMergerTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void isSupportedFormat_shouldAcceptTheMergeableFormats() {
+        assertTrue(FeatureInfoMerger.isSupportedFormat("application/json"));
+        assertTrue(FeatureInfoMerger.isSupportedFormat("application/vnd.ogc.gml/3.1.1"));
+        assertTrue(FeatureInfoMerger.isSupportedFormat("text/xml"));
+        assertTrue(FeatureInfoMerger.isSupportedFormat("text/html"));
+        assertTrue(FeatureInfoMerger.isSupportedFormat("text/plain"));
+        assertFalse(FeatureInfoMerger.isSupportedFormat("image/png"));
+        assertFalse(FeatureInfoMerger.isSupportedFormat(null));
+    }
+
+    @Test
+    void merge_shouldReturnASingleBodyAsIs() throws InterceptorException {
+        byte[] body = bytes("anything");
+
+        assertSame(body, FeatureInfoMerger.merge(List.of(body), "application/json", null));
+    }
+
+    @Test
+    void merge_shouldAppendTheFeaturesInOrder() throws Exception {
+        byte[] first = bytes("{\"type\":\"FeatureCollection\",\"features\":[{\"id\":\"a.1\"}]," +
+            "\"totalFeatures\":1,\"numberReturned\":1}");
+        byte[] second = bytes("{\"type\":\"FeatureCollection\",\"features\":[{\"id\":\"b.1\"},{\"id\":\"b.2\"}]," +
+            "\"totalFeatures\":2,\"numberReturned\":2}");
+
+        JsonNode merged = OBJECT_MAPPER.readTree(FeatureInfoMerger.merge(List.of(first, second),
+            "application/json", MediaType.APPLICATION_JSON));
+
+        assertEquals(3, merged.path("features").size());
+        assertEquals("a.1", merged.path("features").get(0).path("id").asText());
+        assertEquals("b.1", merged.path("features").get(1).path("id").asText());
+        assertEquals("b.2", merged.path("features").get(2).path("id").asText());
+        assertEquals(3, merged.path("numberReturned").asLong());
+        assertEquals(3, merged.path("totalFeatures").asLong());
+    }
+
+    @Test
+    void merge_shouldAppendTheFeatureMembersWithoutTheBoundingBox() throws Exception {
+        byte[] first = bytes("<wfs:FeatureCollection xmlns:wfs=\"http://www.opengis.net/wfs\" " +
+            "xmlns:gml=\"http://www.opengis.net/gml\"><gml:boundedBy/>" +
+            "<gml:featureMember><a id=\"a.1\"/></gml:featureMember></wfs:FeatureCollection>");
+        byte[] second = bytes("<wfs:FeatureCollection xmlns:wfs=\"http://www.opengis.net/wfs\" " +
+            "xmlns:gml=\"http://www.opengis.net/gml\"><gml:boundedBy/>" +
+            "<gml:featureMember><b id=\"b.1\"/></gml:featureMember></wfs:FeatureCollection>");
+
+        byte[] merged = FeatureInfoMerger.merge(List.of(first, second), "application/vnd.ogc.gml", null);
+
+        Element root = OgcXmlUtil.getDocumentBuilder().parse(new ByteArrayInputStream(merged)).getDocumentElement();
+        NodeList members = root.getElementsByTagName("gml:featureMember");
+        assertEquals(2, members.getLength());
+        assertEquals("a.1", ((Element) members.item(0).getFirstChild()).getAttribute("id"));
+        assertEquals("b.1", ((Element) members.item(1).getFirstChild()).getAttribute("id"));
+        assertEquals(1, root.getElementsByTagName("gml:boundedBy").getLength());
+    }
+
+    @Test
+    void merge_shouldInsertTheHtmlBodiesIntoTheFirstDocument() throws InterceptorException {
+        byte[] first = bytes("<html><head></head><body><table id=\"a\"></table></body></html>");
+        byte[] second = bytes("<html><head></head><BODY class=\"b\"><table id=\"b\"></table></BODY></html>");
+
+        byte[] merged = FeatureInfoMerger.merge(List.of(first, second), "text/html", MediaType.TEXT_HTML);
+
+        assertEquals("<html><head></head><body><table id=\"a\"></table><table id=\"b\"></table></body></html>",
+            new String(merged, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void merge_shouldJoinPlainTextByLines() throws InterceptorException {
+        byte[] merged = FeatureInfoMerger.merge(List.of(bytes("a"), bytes("b\n"), bytes("c")),
+            "text/plain", MediaType.TEXT_PLAIN);
+
+        assertEquals("a\nb\nc", new String(merged, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void merge_shouldDecodeWithTheCharsetOfTheContentType() throws InterceptorException {
+        MediaType contentType = MediaType.parseMediaType("text/plain;charset=ISO-8859-1");
+        byte[] first = "ä".getBytes(StandardCharsets.ISO_8859_1);
+        byte[] second = "ö".getBytes(StandardCharsets.ISO_8859_1);
+
+        byte[] merged = FeatureInfoMerger.merge(List.of(first, second), "text/plain", contentType);
+
+        assertEquals("ä\nö", new String(merged, StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    void merge_shouldFailForInvalidOrUnsupportedBodies() {
+        List<byte[]> bodies = List.of(bytes("{\"features\":[]}"), bytes("no json"));
+
+        assertThrows(InterceptorException.class, () -> FeatureInfoMerger.merge(bodies, "application/json", null));
+        assertThrows(InterceptorException.class, () -> FeatureInfoMerger.merge(bodies, "image/png", null));
+    }
+
+}
@@ -0,0 +1,98 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.interceptor.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OgcXmlSnifferTest {
+
+    @Test
+    void sniff_shouldReadTheTypeNameAttribute() throws IOException {
+        OgcXmlSniffer sniffer = OgcXmlSniffer.sniff("<?xml version=\"1.0\"?>" +
+            "<wfs:GetFeature service=\"WFS\" version=\"1.1.0\" xmlns:wfs=\"http://www.opengis.net/wfs\">" +
+            "<wfs:Query typeName=\"SHOGUN:SHINJI\"/></wfs:GetFeature>");
+
+        assertEquals("WFS", sniffer.getService());
+        assertEquals("GetFeature", sniffer.getOperation());
+        assertEquals("SHOGUN:SHINJI", sniffer.getEndPoint());
+    }
+
+    @Test
+    void sniff_shouldPreferTheTypeNameElement() throws IOException {
+        OgcXmlSniffer sniffer = OgcXmlSniffer.sniff(
+            "<wfs:DescribeFeatureType service=\"WFS\" xmlns:wfs=\"http://www.opengis.net/wfs\" typeName=\"SHOGUN:other\">" +
+            "<wfs:TypeName>SHOGUN:SHINJI</wfs:TypeName></wfs:DescribeFeatureType>");
+
+        assertEquals("DescribeFeatureType", sniffer.getOperation());
+        assertEquals("SHOGUN:SHINJI", sniffer.getEndPoint());
+    }
+
+    @Test
+    void sniff_shouldReadTheCoverageIdentifier() throws IOException {
+        OgcXmlSniffer sniffer = OgcXmlSniffer.sniff(
+            "<wcs:GetCoverage service=\"WCS\" xmlns:wcs=\"http://www.opengis.net/wcs/1.1.1\" " +
+            "xmlns:ows=\"http://www.opengis.net/ows/1.1\">" +
+            "<ows:Identifier>SHOGUN:DEM</ows:Identifier></wcs:GetCoverage>");
+
+        assertEquals("WCS", sniffer.getService());
+        assertEquals("GetCoverage", sniffer.getOperation());
+        assertEquals("SHOGUN:DEM", sniffer.getEndPoint());
+    }
+
+    @Test
+    void sniff_shouldIgnoreNestedIdentifiers() throws IOException {
+        OgcXmlSniffer sniffer = OgcXmlSniffer.sniff(
+            "<wps:Execute service=\"WPS\" xmlns:wps=\"http://www.opengis.net/wps/1.0.0\" " +
+            "xmlns:ows=\"http://www.opengis.net/ows/1.1\">" +
+            "<ows:Identifier>gs:Bounds</ows:Identifier></wps:Execute>");
+
+        assertEquals("WPS", sniffer.getService());
+        assertEquals("Execute", sniffer.getOperation());
+        assertEquals("", sniffer.getEndPoint());
+    }
+
+    @Test
+    void sniff_shouldStopReadingAtTheEndPoint() throws IOException {
+        // the (invalid) remainder of the body isn't read
+        OgcXmlSniffer sniffer = OgcXmlSniffer.sniff(new StringReader(
+            "<wfs:GetFeature service=\"WFS\" xmlns:wfs=\"http://www.opengis.net/wfs\">" +
+            "<wfs:TypeNames>SHOGUN:SHINJI</wfs:TypeNames><unclosed>"));
+
+        assertEquals("SHOGUN:SHINJI", sniffer.getEndPoint());
+    }
+
+    @Test
+    void sniff_shouldRejectInvalidXml() {
+        assertThrows(IOException.class, () -> OgcXmlSniffer.sniff("no xml"));
+    }
+
+    @Test
+    void sniff_shouldNotResolveExternalEntities() {
+        String xml = "<?xml version=\"1.0\"?><!DOCTYPE foo [<!ENTITY xxe SYSTEM \"file:///etc/passwd\">]>" +
+            "<wfs:GetFeature service=\"WFS\" xmlns:wfs=\"http://www.opengis.net/wfs\">" +
+            "<wfs:TypeName>&xxe;</wfs:TypeName></wfs:GetFeature>";
+
+        assertThrows(IOException.class, () -> OgcXmlSniffer.sniff(xml));
+    }
+
+}
@@ -0,0 +1,42 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.lib.config;
+
+import de.terrestris.shogun.lib.util.HttpClientManager;
+import de.terrestris.shogun.lib.util.HttpUtil;
+import de.terrestris.shogun.properties.HttpClientProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class HttpClientConfig {
+
+    /**
+     * Creates the pooled HTTP client and registers it as the one to use by the
+     * (static) {@link HttpUtil}.
+     *
+     * @param httpClientProperties The pool configuration
+     * @return The {@link HttpClientManager}
+     */
+    @Bean(destroyMethod = "close")
+    public HttpClientManager httpClientManager(HttpClientProperties httpClientProperties) {
+        HttpClientManager httpClientManager = new HttpClientManager(httpClientProperties);
+        HttpUtil.setHttpClientManager(httpClientManager);
+        return httpClientManager;
+    }
+
+}
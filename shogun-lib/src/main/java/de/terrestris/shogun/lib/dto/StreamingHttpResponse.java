@@ -0,0 +1,101 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.lib.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A HTTP response whose body has not been read yet but can be streamed to the
+ * client. Instances must be closed in order to release the underlying connection.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString(exclude = {"body", "resource"})
+public class StreamingHttpResponse implements Closeable {
+
+    /**
+     * The size of the buffer used to copy the body.
+     */
+    public static final int BUFFER_SIZE = 8192;
+
+    private HttpStatus statusCode;
+
+    private HttpHeaders headers;
+
+    private InputStream body;
+
+    /**
+     * The resource (e.g. the upstream response) to release on close.
+     */
+    private Closeable resource;
+
+    /**
+     * Wraps an already read {@link HttpResponse}.
+     *
+     * @param response The response to wrap
+     * @return The {@link StreamingHttpResponse}
+     */
+    public static StreamingHttpResponse of(HttpResponse response) {
+        InputStream body = response.getBody() != null ? new ByteArrayInputStream(response.getBody()) : null;
+        return new StreamingHttpResponse(response.getStatusCode(), response.getHeaders(), body, null);
+    }
+
+    /**
+     * Copies the body to the given {@link OutputStream} using a buffer of
+     * {@link #BUFFER_SIZE} bytes.
+     *
+     * @param outputStream The stream to write to
+     * @throws IOException If reading or writing fails
+     */
+    public void writeBody(OutputStream outputStream) throws IOException {
+        if (body == null) {
+            return;
+        }
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = body.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+        outputStream.flush();
+    }
+
+    /**
+     * Releases the underlying resource. If the body has not been read completely
+     * the upstream connection is aborted instead of being drained.
+     */
+    @Override
+    public void close() throws IOException {
+        if (resource != null) {
+            resource.close();
+        } else if (body != null) {
+            body.close();
+        }
+    }
+
+}
@@ -0,0 +1,209 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.lib.util;
+
+import de.terrestris.shogun.properties.HttpClientProperties;
+import org.apache.http.HttpResponse;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the shared, pooled {@link CloseableHttpClient} used by the {@link HttpUtil} for
+ * all outgoing HTTP connections.
+ *
+ * Connections are kept alive and reused across requests, idle and expired connections
+ * are evicted by a background thread. Credentials are not bound to the client itself but
+ * to the context of each single request.
+ *
+ * The non-blocking {@link CloseableHttpAsyncClient} is created (and its I/O reactor
+ * started) on first use only. It uses a pool of its own with the same limits and
+ * eviction of idle and expired connections.
+ */
+public class HttpClientManager implements Closeable {
+
+    /**
+     * The Logger.
+     */
+    protected final static Logger LOG = LogManager.getLogger(HttpClientManager.class);
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+
+    private final CloseableHttpClient httpClient;
+
+    private final HttpClientProperties properties;
+
+    private volatile PoolingNHttpClientConnectionManager asyncConnectionManager;
+
+    private volatile CloseableHttpAsyncClient httpAsyncClient;
+
+    private ScheduledExecutorService asyncConnectionEvictor;
+
+    public HttpClientManager(HttpClientProperties properties) {
+        this.properties = properties;
+
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(properties.getMaxTotalConnections());
+        connectionManager.setDefaultMaxPerRoute(properties.getMaxConnectionsPerRoute());
+        connectionManager.setValidateAfterInactivity(properties.getValidateAfterInactivity());
+
+        httpClient = HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setKeepAliveStrategy(getKeepAliveStrategy(properties.getKeepAlive()))
+            .evictExpiredConnections()
+            .evictIdleConnections(properties.getMaxIdleTime(), TimeUnit.MILLISECONDS)
+            // the client is shared by all users, so cookies (e.g. a GeoServer session of a
+            // credentialed request) must not be stored and replayed for other requests
+            .disableCookieManagement()
+            .build();
+
+        LOG.info("Created pooled HTTP client with {} connections in total and {} connections per route",
+            properties.getMaxTotalConnections(), properties.getMaxConnectionsPerRoute());
+    }
+
+    /**
+     * Returns a keep alive strategy respecting the Keep-Alive header of the server and
+     * falling back to the given default duration otherwise.
+     *
+     * @param defaultKeepAlive The default keep alive duration in milliseconds
+     * @return The {@link ConnectionKeepAliveStrategy}
+     */
+    private static ConnectionKeepAliveStrategy getKeepAliveStrategy(long defaultKeepAlive) {
+        return (HttpResponse response, HttpContext context) -> {
+            long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return keepAlive > 0 ? keepAlive : defaultKeepAlive;
+        };
+    }
+
+    /**
+     * @return The shared {@link CloseableHttpClient}. Must not be closed by callers.
+     */
+    public CloseableHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    /**
+     * @return The shared, started {@link CloseableHttpAsyncClient}. Must not be closed by callers.
+     * @throws IOException If the I/O reactor of the client could not be created
+     */
+    public CloseableHttpAsyncClient getHttpAsyncClient() throws IOException {
+        if (httpAsyncClient == null) {
+            synchronized (this) {
+                if (httpAsyncClient == null) {
+                    httpAsyncClient = createHttpAsyncClient();
+                }
+            }
+        }
+        return httpAsyncClient;
+    }
+
+    private CloseableHttpAsyncClient createHttpAsyncClient() throws IOReactorException {
+        asyncConnectionManager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor());
+        asyncConnectionManager.setMaxTotal(properties.getMaxTotalConnections());
+        asyncConnectionManager.setDefaultMaxPerRoute(properties.getMaxConnectionsPerRoute());
+
+        CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+            .setConnectionManager(asyncConnectionManager)
+            .setKeepAliveStrategy(getKeepAliveStrategy(properties.getKeepAlive()))
+            .disableCookieManagement()
+            .build();
+        client.start();
+
+        startAsyncConnectionEviction();
+
+        LOG.info("Created pooled asynchronous HTTP client with {} connections in total and {} connections per route",
+            properties.getMaxTotalConnections(), properties.getMaxConnectionsPerRoute());
+
+        return client;
+    }
+
+    /**
+     * Periodically closes the expired and idle connections of the asynchronous pool,
+     * like the background thread of the synchronous client does for its pool.
+     */
+    private void startAsyncConnectionEviction() {
+        long maxIdleTime = properties.getMaxIdleTime();
+        long period = maxIdleTime > 0 ? maxIdleTime : TimeUnit.SECONDS.toMillis(10);
+
+        asyncConnectionEvictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "http-async-connection-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        asyncConnectionEvictor.scheduleWithFixedDelay(() -> {
+            try {
+                asyncConnectionManager.closeExpiredConnections();
+                if (maxIdleTime > 0) {
+                    asyncConnectionManager.closeIdleConnections(maxIdleTime, TimeUnit.MILLISECONDS);
+                }
+            } catch (RuntimeException e) {
+                LOG.warn("Could not evict the connections of the asynchronous HTTP client: {}", e.getMessage());
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return The pool statistics (leased, pending, available and max connections) over all routes
+     */
+    public PoolStats getTotalStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    /**
+     * @return The pool statistics per route (target host)
+     */
+    public Map<String, PoolStats> getRouteStats() {
+        Map<String, PoolStats> routeStats = new LinkedHashMap<>();
+        for (HttpRoute route : connectionManager.getRoutes()) {
+            routeStats.put(route.getTargetHost().toURI(), connectionManager.getStats(route));
+        }
+        return routeStats;
+    }
+
+    @Override
+    public void close() throws IOException {
+        LOG.info("Shutting down pooled HTTP client");
+        httpClient.close();
+        if (asyncConnectionEvictor != null) {
+            asyncConnectionEvictor.shutdownNow();
+        }
+        if (httpAsyncClient != null) {
+            httpAsyncClient.close();
+        }
+    }
+
+}
@@ -17,7 +17,8 @@
 package de.terrestris.shogun.lib.util;
 
 import de.terrestris.shogun.lib.dto.HttpResponse;
-import org.apache.commons.io.IOUtils;
+import de.terrestris.shogun.lib.dto.StreamingHttpResponse;
+import de.terrestris.shogun.properties.HttpClientProperties;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.*;
 import org.apache.http.auth.AuthScope;
@@ -30,17 +31,19 @@ import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.*;
 import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.entity.ContentType;
+import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
-import org.apache.http.entity.mime.content.ByteArrayBody;
 import org.apache.http.entity.mime.content.FileBody;
+import org.apache.http.entity.mime.content.InputStreamBody;
 import org.apache.http.impl.auth.BasicScheme;
 import org.apache.http.impl.client.BasicAuthCache;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 import org.apache.http.message.BasicHeader;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.util.EntityUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -52,12 +55,17 @@ import org.springframework.http.HttpStatus;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.Part;
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.*;
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
 
 public class HttpUtil {
 
@@ -77,6 +85,18 @@ public class HttpUtil {
      * The name of the 'authorization' header
      */
     private static String AUTHORIZATION_HEADER = "authorization";
+    /**
+     * The manager holding the shared (pooled) HTTP client for all outgoing HTTP
+     * connections. Will be set by the config beans, a default one will be created
+     * on first use otherwise.
+     */
+    private static volatile HttpClientManager httpClientManager;
+
+    /**
+     * Whether the current {@link #httpClientManager} is the default one created by
+     * this class (and thus has to be closed by it once it gets replaced).
+     */
+    private static boolean defaultHttpClientManager;
 
     /**
      * Returns the full webapplication URI from a given request.
@@ -1102,6 +1122,112 @@ public class HttpUtil {
         return postMultiPart(new HttpPost(uri), new FileBody(file), credentials, requestHeaders);
     }
 
+    /**
+     * Performs an HTTP POST on the given URI, streaming the body from the given
+     * stream without buffering it.
+     *
+     * @param uri           The URI to connect to.
+     * @param body          The POST body, read (and closed) while the request is sent.
+     * @param contentLength The length of the body or -1 if unknown (the body is sent chunked then).
+     * @param contentType   The ContentType of the POST body.
+     * @return The HTTP response as Response object.
+     * @throws URISyntaxException
+     * @throws HttpException
+     */
+    public static HttpResponse post(URI uri, InputStream body, long contentLength, ContentType contentType)
+        throws URISyntaxException, HttpException {
+        return sendBody(new HttpPost(uri), new InputStreamEntity(body, contentLength, contentType), null, null);
+    }
+
+    /**
+     * Performs an HTTP POST on the given URI, streaming the body from the given
+     * stream without buffering it.
+     *
+     * @param uri            The URI to connect to.
+     * @param body           The POST body, read (and closed) while the request is sent.
+     * @param contentLength  The length of the body or -1 if unknown (the body is sent chunked then).
+     * @param contentType    The ContentType of the POST body.
+     * @param credentials    Instance implementing {@link Credentials} interface holding a set of credentials
+     * @param requestHeaders Additional HTTP headers added to the request
+     * @return The HTTP response as Response object.
+     * @throws URISyntaxException
+     * @throws HttpException
+     */
+    public static HttpResponse post(URI uri, InputStream body, long contentLength, ContentType contentType,
+                                    Credentials credentials, Header[] requestHeaders) throws URISyntaxException, HttpException {
+        return sendBody(new HttpPost(uri), new InputStreamEntity(body, contentLength, contentType), credentials, requestHeaders);
+    }
+
+    /**
+     * Performs an HTTP POST on the given URI with the remaining bytes of the
+     * given buffer (e.g. a direct or memory mapped one) as body.
+     *
+     * @param uri         The URI to connect to.
+     * @param body        The POST body.
+     * @param contentType The ContentType of the POST body.
+     * @return The HTTP response as Response object.
+     * @throws URISyntaxException
+     * @throws HttpException
+     */
+    public static HttpResponse post(URI uri, ByteBuffer body, ContentType contentType)
+        throws URISyntaxException, HttpException {
+        return sendBody(new HttpPost(uri), new ByteBufferEntity(body, contentType), null, null);
+    }
+
+    /**
+     * Performs an HTTP POST on the given URI with the remaining bytes of the
+     * given buffer (e.g. a direct or memory mapped one) as body.
+     *
+     * @param uri            The URI to connect to.
+     * @param body           The POST body.
+     * @param contentType    The ContentType of the POST body.
+     * @param credentials    Instance implementing {@link Credentials} interface holding a set of credentials
+     * @param requestHeaders Additional HTTP headers added to the request
+     * @return The HTTP response as Response object.
+     * @throws URISyntaxException
+     * @throws HttpException
+     */
+    public static HttpResponse post(URI uri, ByteBuffer body, ContentType contentType,
+                                    Credentials credentials, Header[] requestHeaders) throws URISyntaxException, HttpException {
+        return sendBody(new HttpPost(uri), new ByteBufferEntity(body, contentType), credentials, requestHeaders);
+    }
+
+    /**
+     * Performs an HTTP POST on the given URI, streaming the body as it is
+     * published. The buffers are requested one by one while the body is sent.
+     *
+     * @param uri           The URI to connect to.
+     * @param body          The publisher of the POST body.
+     * @param contentLength The length of the body or -1 if unknown (the body is sent chunked then).
+     * @param contentType   The ContentType of the POST body.
+     * @return The HTTP response as Response object.
+     * @throws URISyntaxException
+     * @throws HttpException
+     */
+    public static HttpResponse post(URI uri, Flow.Publisher<ByteBuffer> body, long contentLength, ContentType contentType)
+        throws URISyntaxException, HttpException {
+        return sendBody(new HttpPost(uri), new PublisherEntity(body, contentLength, contentType), null, null);
+    }
+
+    /**
+     * Performs an HTTP POST on the given URI, streaming the body as it is
+     * published. The buffers are requested one by one while the body is sent.
+     *
+     * @param uri            The URI to connect to.
+     * @param body           The publisher of the POST body.
+     * @param contentLength  The length of the body or -1 if unknown (the body is sent chunked then).
+     * @param contentType    The ContentType of the POST body.
+     * @param credentials    Instance implementing {@link Credentials} interface holding a set of credentials
+     * @param requestHeaders Additional HTTP headers added to the request
+     * @return The HTTP response as Response object.
+     * @throws URISyntaxException
+     * @throws HttpException
+     */
+    public static HttpResponse post(URI uri, Flow.Publisher<ByteBuffer> body, long contentLength, ContentType contentType,
+                                    Credentials credentials, Header[] requestHeaders) throws URISyntaxException, HttpException {
+        return sendBody(new HttpPost(uri), new PublisherEntity(body, contentLength, contentType), credentials, requestHeaders);
+    }
+
     /**
      * Forward FormMultipartPost (HTTP POST) to uri based on given request
      *
@@ -1150,19 +1276,21 @@ public class HttpUtil {
         for (Part part : parts) {
             String name = part.getName();
             String fileName = part.getSubmittedFileName();
-
-            // we should use a ByteArrayBody instead of InputStreamBody!
-            // when using InputStreamBody, the HttpClient lib will use chunked encoding,
-            // which is not supported by all servers.
-            // by using the ByteArrayBody, the size of the content is known and the lib
-            // will NOT use chunked encoding, but add a content-length header instead.
-            byte[] data = IOUtils.toByteArray(part.getInputStream());
             final ContentType contentType = ContentType.create(part.getContentType());
-
-            ByteArrayBody byteArrayBody = new ByteArrayBody(data, contentType, fileName);
+            final long size = part.getSize();
+
+            // the parts are streamed from the (possibly file backed) servlet parts.
+            // Their size is passed on as with an unknown size the HttpClient lib
+            // would use chunked encoding, which is not supported by all servers.
+            InputStreamBody partBody = new InputStreamBody(part.getInputStream(), contentType, fileName) {
+                @Override
+                public long getContentLength() {
+                    return size;
+                }
+            };
 
             // add the part
-            builder.addPart(name, byteArrayBody);
+            builder.addPart(name, partBody);
 
             LOG.debug("Add a form/multipart part with name '" + name + "', content type '" + contentType.getMimeType() + "' and size "
                 + part.getSize());
@@ -1215,6 +1343,22 @@ public class HttpUtil {
         return send(httpRequest, credentials, requestHeaders);
     }
 
+    /**
+     * @param httpRequest
+     * @param entity         The body of the request
+     * @param credentials    Instance implementing {@link Credentials} interface holding a set of credentials
+     * @param requestHeaders Additional HTTP headers added to the request
+     * @return The HTTP response as Response object.
+     * @throws URISyntaxException
+     * @throws HttpException
+     */
+    private static HttpResponse sendBody(HttpEntityEnclosingRequestBase httpRequest, HttpEntity entity,
+                                         Credentials credentials, Header[] requestHeaders) throws URISyntaxException, HttpException {
+        httpRequest.setEntity(entity);
+
+        return send(httpRequest, credentials, requestHeaders);
+    }
+
     /**
      * @param httpRequest
      * @param queryParams
@@ -1253,11 +1397,22 @@ public class HttpUtil {
             headersToForward = HttpUtil.getHeadersFromRequest(request);
         }
 
+        // the content length is set by the http client lib for the streamed body
+        headersToForward = removeHeaders(headersToForward, new String[]{"content-length", "transfer-encoding"});
+
         String ctString = request.getContentType();
         ContentType ct = ContentType.parse(ctString);
-        String body = getRequestBody(request);
 
-        return HttpUtil.postBody(new HttpPost(uri), body, ct, null, headersToForward, chunked);
+        // stream the body as is instead of decoding and re-encoding it
+        InputStream body;
+        try {
+            body = request.getInputStream();
+        } catch (IOException e) {
+            throw new HttpException("Could not read the request body: " + e.getMessage(), e);
+        }
+        long contentLength = chunked ? -1 : request.getContentLengthLong();
+
+        return sendBody(new HttpPost(uri), new InputStreamEntity(body, contentLength, ct), null, headersToForward);
     }
 
 
@@ -1617,6 +1772,112 @@ public class HttpUtil {
         return putBody(new HttpPut(uri), body, contentType, credentials, requestHeaders, chunked);
     }
 
+    /**
+     * Performs an HTTP PUT on the given URI, streaming the body from the given
+     * stream without buffering it.
+     *
+     * @param uri           The URI to connect to.
+     * @param body          The PUT body, read (and closed) while the request is sent.
+     * @param contentLength The length of the body or -1 if unknown (the body is sent chunked then).
+     * @param contentType   The ContentType of the PUT body.
+     * @return The HTTP response as Response object.
+     * @throws URISyntaxException
+     * @throws HttpException
+     */
+    public static HttpResponse put(URI uri, InputStream body, long contentLength, ContentType contentType)
+        throws URISyntaxException, HttpException {
+        return sendBody(new HttpPut(uri), new InputStreamEntity(body, contentLength, contentType), null, null);
+    }
+
+    /**
+     * Performs an HTTP PUT on the given URI, streaming the body from the given
+     * stream without buffering it.
+     *
+     * @param uri            The URI to connect to.
+     * @param body           The PUT body, read (and closed) while the request is sent.
+     * @param contentLength  The length of the body or -1 if unknown (the body is sent chunked then).
+     * @param contentType    The ContentType of the PUT body.
+     * @param credentials    Instance implementing {@link Credentials} interface holding a set of credentials
+     * @param requestHeaders Additional HTTP headers added to the request
+     * @return The HTTP response as Response object.
+     * @throws URISyntaxException
+     * @throws HttpException
+     */
+    public static HttpResponse put(URI uri, InputStream body, long contentLength, ContentType contentType,
+                                    Credentials credentials, Header[] requestHeaders) throws URISyntaxException, HttpException {
+        return sendBody(new HttpPut(uri), new InputStreamEntity(body, contentLength, contentType), credentials, requestHeaders);
+    }
+
+    /**
+     * Performs an HTTP PUT on the given URI with the remaining bytes of the
+     * given buffer (e.g. a direct or memory mapped one) as body.
+     *
+     * @param uri         The URI to connect to.
+     * @param body        The PUT body.
+     * @param contentType The ContentType of the PUT body.
+     * @return The HTTP response as Response object.
+     * @throws URISyntaxException
+     * @throws HttpException
+     */
+    public static HttpResponse put(URI uri, ByteBuffer body, ContentType contentType)
+        throws URISyntaxException, HttpException {
+        return sendBody(new HttpPut(uri), new ByteBufferEntity(body, contentType), null, null);
+    }
+
+    /**
+     * Performs an HTTP PUT on the given URI with the remaining bytes of the
+     * given buffer (e.g. a direct or memory mapped one) as body.
+     *
+     * @param uri            The URI to connect to.
+     * @param body           The PUT body.
+     * @param contentType    The ContentType of the PUT body.
+     * @param credentials    Instance implementing {@link Credentials} interface holding a set of credentials
+     * @param requestHeaders Additional HTTP headers added to the request
+     * @return The HTTP response as Response object.
+     * @throws URISyntaxException
+     * @throws HttpException
+     */
+    public static HttpResponse put(URI uri, ByteBuffer body, ContentType contentType,
+                                    Credentials credentials, Header[] requestHeaders) throws URISyntaxException, HttpException {
+        return sendBody(new HttpPut(uri), new ByteBufferEntity(body, contentType), credentials, requestHeaders);
+    }
+
+    /**
+     * Performs an HTTP PUT on the given URI, streaming the body as it is
+     * published. The buffers are requested one by one while the body is sent.
+     *
+     * @param uri           The URI to connect to.
+     * @param body          The publisher of the PUT body.
+     * @param contentLength The length of the body or -1 if unknown (the body is sent chunked then).
+     * @param contentType   The ContentType of the PUT body.
+     * @return The HTTP response as Response object.
+     * @throws URISyntaxException
+     * @throws HttpException
+     */
+    public static HttpResponse put(URI uri, Flow.Publisher<ByteBuffer> body, long contentLength, ContentType contentType)
+        throws URISyntaxException, HttpException {
+        return sendBody(new HttpPut(uri), new PublisherEntity(body, contentLength, contentType), null, null);
+    }
+
+    /**
+     * Performs an HTTP PUT on the given URI, streaming the body as it is
+     * published. The buffers are requested one by one while the body is sent.
+     *
+     * @param uri            The URI to connect to.
+     * @param body           The publisher of the PUT body.
+     * @param contentLength  The length of the body or -1 if unknown (the body is sent chunked then).
+     * @param contentType    The ContentType of the PUT body.
+     * @param credentials    Instance implementing {@link Credentials} interface holding a set of credentials
+     * @param requestHeaders Additional HTTP headers added to the request
+     * @return The HTTP response as Response object.
+     * @throws URISyntaxException
+     * @throws HttpException
+     */
+    public static HttpResponse put(URI uri, Flow.Publisher<ByteBuffer> body, long contentLength, ContentType contentType,
+                                    Credentials credentials, Header[] requestHeaders) throws URISyntaxException, HttpException {
+        return sendBody(new HttpPut(uri), new PublisherEntity(body, contentLength, contentType), credentials, requestHeaders);
+    }
+
     /**
      * Performs an HTTP DELETE on the given URL.
      *
@@ -1823,12 +2084,180 @@ public class HttpUtil {
      * @throws URISyntaxException
      * @throws HttpException
      */
-    private static HttpResponse send(HttpRequestBase httpRequest, Credentials credentials,
-                                     Header[] requestHeaders) throws URISyntaxException, HttpException {
+    public static HttpResponse send(HttpRequestBase httpRequest, Credentials credentials,
+                                    Header[] requestHeaders) throws URISyntaxException, HttpException {
 
-        CloseableHttpClient httpClient = null;
         CloseableHttpResponse httpResponse = null;
         HttpResponse response = new HttpResponse();
+        URI uri = httpRequest.getURI();
+
+        HttpClientContext httpContext = prepareRequest(httpRequest, credentials, requestHeaders);
+        CloseableHttpClient httpClient = getHttpClientManager().getHttpClient();
+
+        try {
+            httpResponse = httpClient.execute(httpRequest, httpContext);
+
+            HttpEntity httpResponseEntity = httpResponse.getEntity();
+
+            response.setStatusCode(HttpStatus.valueOf(
+                httpResponse.getStatusLine().getStatusCode()));
+            response.setHeaders(getResponseHeaders(httpResponse));
+
+            if (httpResponseEntity != null) {
+                response.setBody(EntityUtils.toByteArray(httpResponseEntity));
+            }
+
+        } catch (IOException e) {
+            throw new HttpException("Error while getting a response from " + uri +
+                ": " + e.getMessage());
+        } finally {
+
+            // cleanup: closing the response releases the connection back to the
+            // pool (the shared client itself must not be closed)
+            try {
+                if (httpResponse != null) {
+                    httpResponse.close();
+                }
+            } catch (IOException e) {
+                LOG.error("Error while closing resources: {}", e.getMessage());
+                LOG.trace("Full stack trace: {}", e);
+            }
+
+            httpRequest.reset();
+        }
+
+        return response;
+    }
+
+    /**
+     * Performs an HTTP operation on the given URL without buffering the
+     * response body. The returned {@link StreamingHttpResponse} holds the
+     * pooled connection until it is closed, so callers must close it once
+     * the body has been consumed.
+     *
+     * @param httpRequest    The HttpRequest to connect to.
+     * @param credentials    Instance implementing {@link Credentials} interface holding a set of credentials
+     * @param requestHeaders Additional HTTP headers added to the request
+     * @return The HTTP response with an unread body stream.
+     * @throws HttpException
+     */
+    public static StreamingHttpResponse sendStreaming(HttpRequestBase httpRequest, Credentials credentials,
+                                                      Header[] requestHeaders) throws HttpException {
+
+        CloseableHttpResponse httpResponse = null;
+        URI uri = httpRequest.getURI();
+
+        HttpClientContext httpContext = prepareRequest(httpRequest, credentials, requestHeaders);
+        CloseableHttpClient httpClient = getHttpClientManager().getHttpClient();
+
+        try {
+            httpResponse = httpClient.execute(httpRequest, httpContext);
+
+            HttpEntity httpResponseEntity = httpResponse.getEntity();
+            InputStream body = httpResponseEntity != null ?
+                httpResponseEntity.getContent() : new ByteArrayInputStream(new byte[0]);
+
+            return new StreamingHttpResponse(
+                HttpStatus.valueOf(httpResponse.getStatusLine().getStatusCode()),
+                getResponseHeaders(httpResponse),
+                body,
+                httpResponse
+            );
+        } catch (IOException e) {
+            try {
+                if (httpResponse != null) {
+                    httpResponse.close();
+                }
+            } catch (IOException ce) {
+                LOG.error("Error while closing resources: {}", ce.getMessage());
+                LOG.trace("Full stack trace: {}", ce);
+            }
+            httpRequest.reset();
+
+            throw new HttpException("Error while getting a response from " + uri +
+                ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Performs an HTTP operation on the given URL without blocking the calling
+     * thread. The returned future is completed on the I/O dispatch thread of the
+     * asynchronous client, so dependent stages doing more than trivial work should
+     * be run on an executor of their own.
+     *
+     * @param httpRequest    The HttpRequest to connect to.
+     * @param credentials    Instance implementing {@link Credentials} interface holding a set of credentials
+     * @param requestHeaders Additional HTTP headers added to the request
+     * @return The future HTTP response.
+     */
+    public static CompletableFuture<HttpResponse> sendAsync(HttpRequestBase httpRequest, Credentials credentials,
+                                                            Header[] requestHeaders) {
+
+        CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+        URI uri = httpRequest.getURI();
+
+        HttpClientContext httpContext = prepareRequest(httpRequest, credentials, requestHeaders);
+
+        try {
+            Future<org.apache.http.HttpResponse> execution = getHttpClientManager().getHttpAsyncClient().execute(httpRequest, httpContext,
+                new FutureCallback<org.apache.http.HttpResponse>() {
+                    @Override
+                    public void completed(org.apache.http.HttpResponse httpResponse) {
+                        HttpResponse response = new HttpResponse();
+                        response.setStatusCode(HttpStatus.valueOf(
+                            httpResponse.getStatusLine().getStatusCode()));
+                        response.setHeaders(getResponseHeaders(httpResponse));
+
+                        try {
+                            HttpEntity httpResponseEntity = httpResponse.getEntity();
+                            if (httpResponseEntity != null) {
+                                // the entity has already been buffered by the response consumer
+                                response.setBody(EntityUtils.toByteArray(httpResponseEntity));
+                            }
+                            future.complete(response);
+                        } catch (IOException e) {
+                            failed(e);
+                        }
+                    }
+
+                    @Override
+                    public void failed(Exception e) {
+                        future.completeExceptionally(new HttpException("Error while getting a response from " +
+                            uri + ": " + e.getMessage()));
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        future.cancel(false);
+                    }
+                });
+
+            // abort the request if the caller isn't interested in the response anymore
+            future.whenComplete((response, throwable) -> {
+                if (future.isCancelled()) {
+                    execution.cancel(true);
+                }
+            });
+        } catch (IOException e) {
+            future.completeExceptionally(new HttpException("Error while getting a response from " + uri +
+                ": " + e.getMessage()));
+        }
+
+        return future;
+    }
+
+    /**
+     * Applies the proxy, timeout and authentication settings to the given
+     * request and returns the context it has to be executed with.
+     *
+     * @param httpRequest    The HttpRequest to prepare.
+     * @param credentials    The credentials of the target host, may be null.
+     * @param requestHeaders Additional HTTP headers added to the request
+     * @return The per-request client context.
+     */
+    private static HttpClientContext prepareRequest(HttpRequestBase httpRequest, Credentials credentials,
+                                                    Header[] requestHeaders) {
+
         HttpClientContext httpContext = HttpClientContext.create();
         URI uri = httpRequest.getURI();
 
@@ -1876,15 +2305,20 @@ public class HttpUtil {
             LOG.error("Error while detecting system wide proxy: " + e.getMessage());
         }
 
-        // set the request configuration that will passed to the httpRequest
-        RequestConfig requestConfig = RequestConfig.custom()
-            .setConnectionRequestTimeout(httpTimeout)
-            .setConnectTimeout(httpTimeout)
-            .setSocketTimeout(httpTimeout)
+        // set the request configuration that will passed to the httpRequest,
+        // a configuration set by the caller (e.g. with custom timeouts) is kept
+        RequestConfig.Builder requestConfigBuilder = httpRequest.getConfig() != null ?
+            RequestConfig.copy(httpRequest.getConfig()) :
+            RequestConfig.custom()
+                .setConnectionRequestTimeout(httpTimeout)
+                .setConnectTimeout(httpTimeout)
+                .setSocketTimeout(httpTimeout);
+        RequestConfig requestConfig = requestConfigBuilder
             .setProxy(systemProxy)
             .build();
 
-        // set (preemptive) authentication if credentials are given
+        // set (preemptive) authentication if credentials are given. The credentials
+        // are bound to the context of this request only as the client is shared.
         if (credentials != null || (proxyAuthScope != null && proxyCredentials != null)) {
 
             CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
@@ -1911,74 +2345,40 @@ public class HttpUtil {
 
             httpContext.setCredentialsProvider(credentialsProvider);
             httpContext.setAuthCache(authCache);
-
-            httpClient = HttpClients.custom()
-                .setDefaultCredentialsProvider(credentialsProvider)
-                .build();
-
-        } else {
-
-            httpClient = HttpClients.createDefault();
-
         }
 
-        try {
-
-            HttpHeaders headersMap = new HttpHeaders();
-
-            httpRequest.setConfig(requestConfig);
-
-            // apply HTTP header
-            if (requestHeaders != null) {
-                httpRequest.setHeaders(requestHeaders);
-            }
-
-            httpResponse = httpClient.execute(httpRequest, httpContext);
+        httpRequest.setConfig(requestConfig);
 
-            HttpStatus httpStatus = HttpStatus.valueOf(
-                httpResponse.getStatusLine().getStatusCode());
-            Header[] headers = httpResponse.getAllHeaders();
-            HttpEntity httpResponseEntity = httpResponse.getEntity();
+        // apply HTTP header
+        if (requestHeaders != null) {
+            httpRequest.setHeaders(requestHeaders);
+        }
 
-            response.setStatusCode(httpStatus);
+        return httpContext;
+    }
 
-            for (Header header : headers) {
-                if (header.getName().equalsIgnoreCase("Transfer-Encoding") &&
-                    header.getValue().equalsIgnoreCase("chunked")) {
-                    LOG.trace("Removed the header 'Transfer-Encoding:chunked'" +
-                        " from a response, as its handled by the http-client");
-                } else {
-                    headersMap.set(header.getName(), header.getValue());
-                }
-            }
-            response.setHeaders(headersMap);
+    /**
+     * Returns the headers of the given upstream response. The
+     * 'Transfer-Encoding:chunked' header is skipped as it's handled by the
+     * http-client.
+     *
+     * @param httpResponse The upstream response.
+     * @return The response headers.
+     */
+    private static HttpHeaders getResponseHeaders(org.apache.http.HttpResponse httpResponse) {
+        HttpHeaders headersMap = new HttpHeaders();
 
-            if (httpResponseEntity != null) {
-                response.setBody(EntityUtils.toByteArray(httpResponseEntity));
-            }
-
-        } catch (IOException e) {
-            throw new HttpException("Error while getting a response from " + uri +
-                ": " + e.getMessage());
-        } finally {
-
-            // cleanup
-            httpRequest.reset();
-
-            try {
-                if (httpResponse != null) {
-                    httpResponse.close();
-                }
-                if (httpClient != null) {
-                    httpClient.close();
-                }
-            } catch (IOException e) {
-                LOG.error("Error while closing resources: {}", e.getMessage());
-                LOG.trace("Full stack trace: {}", e);
+        for (Header header : httpResponse.getAllHeaders()) {
+            if (header.getName().equalsIgnoreCase("Transfer-Encoding") &&
+                header.getValue().equalsIgnoreCase("chunked")) {
+                LOG.trace("Removed the header 'Transfer-Encoding:chunked'" +
+                    " from a response, as its handled by the http-client");
+            } else {
+                headersMap.set(header.getName(), header.getValue());
             }
         }
 
-        return response;
+        return headersMap;
     }
 
     /**
@@ -2101,29 +2501,6 @@ public class HttpUtil {
         return headersArray;
     }
 
-    /**
-     * Extract Request body as String of {@link HttpServletRequest}
-     *
-     * @param request {@link HttpServletRequest} to extract body from
-     * @return
-     */
-    private static String getRequestBody(HttpServletRequest request) {
-        String body = null;
-        try (BufferedReader requestReader = request.getReader()) {
-            StringBuffer bodyLines = new StringBuffer();
-            String bodyLine;
-            while ((bodyLine = requestReader.readLine()) != null) {
-                bodyLines.append(bodyLine);
-            }
-            body = bodyLines.toString();
-        } catch (IOException e) {
-            LOG.info("Failed to obtain a Reader for a potential body of"
-                + " this POST, assuming KVP");
-        }
-
-        return body;
-    }
-
     /**
      * If the JVM knows about a HTTP proxy, e.g. by specifying
      * <p>
@@ -2175,6 +2552,58 @@ public class HttpUtil {
         return systemProxy;
     }
 
+    /**
+     * Returns the manager of the shared HTTP client. If none has been set by the
+     * config beans (e.g. when used outside of a Spring context) a default one
+     * will be created.
+     *
+     * @return the httpClientManager
+     */
+    public static HttpClientManager getHttpClientManager() {
+        if (httpClientManager == null) {
+            synchronized (HttpUtil.class) {
+                if (httpClientManager == null) {
+                    httpClientManager = new HttpClientManager(new HttpClientProperties());
+                    defaultHttpClientManager = true;
+                }
+            }
+        }
+        return httpClientManager;
+    }
+
+    /**
+     * Sets the manager of the shared HTTP client. A default manager created before
+     * is closed, a manager set before is left to its creator.
+     *
+     * @param httpClientManager the httpClientManager to set
+     */
+    public static void setHttpClientManager(HttpClientManager httpClientManager) {
+        HttpClientManager previous;
+        synchronized (HttpUtil.class) {
+            previous = defaultHttpClientManager ? HttpUtil.httpClientManager : null;
+            HttpUtil.httpClientManager = httpClientManager;
+            defaultHttpClientManager = false;
+        }
+
+        if (previous != null && previous != httpClientManager) {
+            try {
+                previous.close();
+            } catch (IOException e) {
+                LOG.warn("Could not close the default HTTP client: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns the statistics of the connection pool of the shared HTTP client, e.g.
+     * to size the pool.
+     *
+     * @return The {@link PoolStats} holding the number of leased, pending and available connections
+     */
+    public static PoolStats getConnectionPoolStats() {
+        return getHttpClientManager().getTotalStats();
+    }
+
     /**
      * @return the httpTimeout
      */
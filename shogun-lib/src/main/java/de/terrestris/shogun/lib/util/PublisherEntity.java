@@ -0,0 +1,218 @@
+/* SHOGun, https://terrestris.github.io/shogun/
+ *
+ * Copyright © 2020-present terrestris GmbH & Co. KG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.terrestris.shogun.lib.util;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * A (non-repeatable) entity streaming the buffers of a {@link Flow.Publisher}.
+ * The buffers are requested one by one while the body is written, so the
+ * publisher never produces more than the upstream connection consumes.
+ */
+public class PublisherEntity extends AbstractHttpEntity {
+
+    private final Flow.Publisher<ByteBuffer> publisher;
+
+    private final long contentLength;
+
+    private boolean consumed = false;
+
+    /**
+     * @param publisher     The publisher of the body
+     * @param contentLength The length of the body or a negative value if unknown (the
+     *                      body is sent chunked then)
+     * @param contentType   The content type of the body, may be null
+     */
+    public PublisherEntity(Flow.Publisher<ByteBuffer> publisher, long contentLength, ContentType contentType) {
+        this.publisher = publisher;
+        this.contentLength = contentLength;
+        if (contentType != null) {
+            setContentType(contentType.toString());
+        }
+        setChunked(contentLength < 0);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return false;
+    }
+
+    @Override
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    @Override
+    public synchronized InputStream getContent() {
+        if (consumed) {
+            throw new IllegalStateException("The body has already been consumed");
+        }
+        consumed = true;
+        PublisherInputStream content = new PublisherInputStream();
+        publisher.subscribe(content);
+        return content;
+    }
+
+    @Override
+    public void writeTo(OutputStream outStream) throws IOException {
+        try (InputStream content = getContent()) {
+            content.transferTo(outStream);
+        }
+        outStream.flush();
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return !consumed;
+    }
+
+    /**
+     * Reads the buffers of the publisher, requesting the next one once the
+     * current one has been read.
+     */
+    private static class PublisherInputStream extends InputStream implements Flow.Subscriber<ByteBuffer> {
+
+        private static final Object COMPLETE = new Object();
+
+        /**
+         * The signals of the publisher, holds at most the subscription, one
+         * buffer and the completion as only one buffer is requested at a time.
+         */
+        private final BlockingQueue<Object> signals = new LinkedBlockingQueue<>();
+
+        private Flow.Subscription subscription;
+
+        private ByteBuffer current;
+
+        private boolean requested = false;
+
+        private boolean finished = false;
+
+        private volatile boolean closed = false;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            if (closed) {
+                subscription.cancel();
+            } else {
+                signals.add(subscription);
+            }
+        }
+
+        @Override
+        public void onNext(ByteBuffer item) {
+            signals.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            signals.add(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            signals.add(COMPLETE);
+        }
+
+        /**
+         * @return Whether there are bytes to read
+         * @throws IOException If the publisher failed
+         */
+        private boolean fill() throws IOException {
+            while (current == null || !current.hasRemaining()) {
+                if (finished) {
+                    return false;
+                }
+                if (subscription != null && !requested) {
+                    requested = true;
+                    subscription.request(1);
+                }
+
+                Object signal;
+                try {
+                    signal = signals.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the request body");
+                }
+
+                if (signal instanceof Flow.Subscription) {
+                    subscription = (Flow.Subscription) signal;
+                } else if (signal instanceof ByteBuffer) {
+                    current = (ByteBuffer) signal;
+                    requested = false;
+                } else if (signal == COMPLETE) {
+                    finished = true;
+                } else {
+                    finished = true;
+                    throw new IOException("Could not read the request body", (Throwable) signal);
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return fill() ? current.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int count = Math.min(length, current.remaining());
+            current.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (subscription == null) {
+                // the subscription may not have been taken from the signals yet
+                for (Object signal : signals) {
+                    if (signal instanceof Flow.Subscription) {
+                        subscription = (Flow.Subscription) signal;
+                    }
+                }
+            }
+            if (!finished && subscription != null) {
+                subscription.cancel();
+            }
+            finished = true;
+        }
+
+    }
+
+}